@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.ClassVisitor;
+import org.jetbrains.asm4.FieldVisitor;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.tree.*;
+
+import java.util.List;
+
+/**
+ * Keeps a generated class in memory, so that it can be inspected before being written out with {@link #replayTo(ClassBuilder)}.
+ */
+public class BufferingClassBuilder extends ClassBuilder {
+    private final ClassNode classNode = new ClassNode();
+
+    @Override
+    public ClassVisitor getVisitor() {
+        return classNode;
+    }
+
+    @NotNull
+    public ClassNode getClassNode() {
+        return classNode;
+    }
+
+    @Nullable
+    public MethodNode findMethod(@NotNull String name, @NotNull String desc) {
+        for (MethodNode method : methods()) {
+            if (method.name.equals(name) && method.desc.equals(desc)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public List<MethodNode> methods() {
+        return classNode.methods;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replayTo(@NotNull final ClassBuilder builder) {
+        List<String> interfaces = classNode.interfaces;
+        builder.defineClass(null, classNode.version, classNode.access, classNode.name, classNode.signature, classNode.superName,
+                            interfaces.toArray(new String[interfaces.size()]));
+        if (classNode.sourceFile != null || classNode.sourceDebug != null) {
+            builder.visitSource(classNode.sourceFile, classNode.sourceDebug);
+        }
+        if (classNode.outerClass != null) {
+            builder.visitOuterClass(classNode.outerClass, classNode.outerMethod, classNode.outerMethodDesc);
+        }
+        replayAnnotations(classNode.visibleAnnotations, classNode.invisibleAnnotations, new AnnotationSink() {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return builder.newAnnotation(desc, visible);
+            }
+        });
+        for (InnerClassNode innerClass : (List<InnerClassNode>) classNode.innerClasses) {
+            builder.visitInnerClass(innerClass.name, innerClass.outerName, innerClass.innerName, innerClass.access);
+        }
+        for (FieldNode field : (List<FieldNode>) classNode.fields) {
+            final FieldVisitor fieldVisitor = builder.newField(null, field.access, field.name, field.desc, field.signature, field.value);
+            replayAnnotations(field.visibleAnnotations, field.invisibleAnnotations, new AnnotationSink() {
+                @Override
+                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                    return fieldVisitor.visitAnnotation(desc, visible);
+                }
+            });
+            fieldVisitor.visitEnd();
+        }
+        for (MethodNode method : methods()) {
+            List<String> exceptions = method.exceptions;
+            MethodVisitor methodVisitor = builder.newMethod(null, method.access, method.name, method.desc, method.signature,
+                                                            exceptions.toArray(new String[exceptions.size()]));
+            method.accept(methodVisitor);
+        }
+        builder.done();
+    }
+
+    private interface AnnotationSink {
+        AnnotationVisitor visitAnnotation(String desc, boolean visible);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void replayAnnotations(@Nullable List visible, @Nullable List invisible, @NotNull AnnotationSink sink) {
+        if (visible != null) {
+            for (AnnotationNode annotation : (List<AnnotationNode>) visible) {
+                annotation.accept(sink.visitAnnotation(annotation.desc, true));
+            }
+        }
+        if (invisible != null) {
+            for (AnnotationNode annotation : (List<AnnotationNode>) invisible) {
+                annotation.accept(sink.visitAnnotation(annotation.desc, false));
+            }
+        }
+    }
+}
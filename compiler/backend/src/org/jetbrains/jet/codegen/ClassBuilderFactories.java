@@ -18,6 +18,7 @@ package org.jetbrains.jet.codegen;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.asm4.ClassWriter;
+import org.jetbrains.asm4.Opcodes;
 import org.jetbrains.asm4.util.TraceClassVisitor;
 
 import java.io.PrintWriter;
@@ -37,8 +38,8 @@ public class ClassBuilderFactories {
         }
 
         @Override
-        public ClassBuilder newClassBuilder() {
-            return new TraceBuilder(new BinaryClassWriter());
+        public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
+            return new TraceBuilder(new BinaryClassWriter(classHierarchy));
         }
 
         @Override
@@ -65,7 +66,7 @@ public class ClassBuilderFactories {
         }
 
         @Override
-        public ClassBuilder newClassBuilder() {
+        public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
             return new ClassBuilder.Concrete(new TraceClassVisitor(new PrintWriter(new StringWriter())));
         }
 
@@ -97,8 +98,8 @@ public class ClassBuilderFactories {
             }
 
             @Override
-            public ClassBuilder newClassBuilder() {
-                return new ClassBuilder.Concrete(new BinaryClassWriter());
+            public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
+                return new ClassBuilder.Concrete(new BinaryClassWriter(classHierarchy));
             }
 
             @Override
@@ -115,12 +116,27 @@ public class ClassBuilderFactories {
     }
 
     private static class BinaryClassWriter extends ClassWriter {
-        public BinaryClassWriter() {
+        private final ClassHierarchyOracle classHierarchy;
+
+        public BinaryClassWriter(@NotNull ClassHierarchyOracle classHierarchy) {
             super(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+            this.classHierarchy = classHierarchy;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            classHierarchy.registerClass(name, superName, interfaces, (access & Opcodes.ACC_INTERFACE) != 0);
+            super.visit(version, access, name, signature, superName, interfaces);
         }
 
         @Override
         protected String getCommonSuperClass(String type1, String type2) {
+            String commonSuperClass = classHierarchy.getCommonSuperClass(type1, type2);
+            if (commonSuperClass != null) {
+                return commonSuperClass;
+            }
+
+            // classes unknown to the compiler (e.g. runtime classes hidden from the resolver) are loaded as the last resort
             try {
                 return super.getCommonSuperClass(type1, type2);
             }
@@ -18,6 +18,7 @@ package org.jetbrains.jet.codegen;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.JetPsiUtil;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
@@ -30,10 +31,12 @@ import java.util.*;
 public class ClassFileFactory {
     private ClassBuilderFactory builderFactory;
     private GenerationState state;
+    private ClassHierarchyOracle classHierarchy;
 
 
     private final Map<FqName, NamespaceCodegen> ns2codegen = new HashMap<FqName, NamespaceCodegen>();
     private final Map<String, ClassBuilder> generators = new LinkedHashMap<String, ClassBuilder>();
+    private final Map<String, LambdaDispatcherCodegen> lambdaDispatchers = new LinkedHashMap<String, LambdaDispatcherCodegen>();
     private boolean isDone = false;
 
 
@@ -47,10 +50,15 @@ public class ClassFileFactory {
         this.state = state;
     }
 
+    @Inject
+    public void setClassHierarchy(ClassHierarchyOracle classHierarchy) {
+        this.classHierarchy = classHierarchy;
+    }
+
 
     ClassBuilder newVisitor(String filePath) {
         state.getProgress().log("Emitting: " + filePath);
-        final ClassBuilder answer = builderFactory.newClassBuilder();
+        final ClassBuilder answer = builderFactory.newClassBuilder(classHierarchy);
         generators.put(filePath, answer);
         return answer;
     }
@@ -77,12 +85,50 @@ public class ClassFileFactory {
         return codegen;
     }
 
+    LambdaDispatcherCodegen forLambdaDispatcher(@NotNull JetFile file, @NotNull JvmClassName functionClass) {
+        assert !isDone : "Already done!";
+        String functionClassName = functionClass.getInternalName();
+        String prefix = NamespaceCodegen.getJVMClassNameForKotlinNs(JetPsiUtil.getFQName(file)).getInternalName() +
+                        "$lambdas$" + getFileId(file) + "$" + functionClassName.substring(functionClassName.lastIndexOf('/') + 1);
+
+        String name = prefix;
+        LambdaDispatcherCodegen dispatcher = lambdaDispatchers.get(name);
+        // files with the same name in the same namespace
+        for (int index = 1; dispatcher != null && dispatcher.getFile() != file; index++) {
+            name = prefix + "$" + index;
+            dispatcher = lambdaDispatchers.get(name);
+        }
+        if (dispatcher == null) {
+            dispatcher = new LambdaDispatcherCodegen(JvmClassName.byInternalName(name), functionClass, file);
+            lambdaDispatchers.put(name, dispatcher);
+        }
+        return dispatcher;
+    }
+
+    @NotNull
+    private static String getFileId(@NotNull JetFile file) {
+        String fileName = file.getName();
+        int extension = fileName.lastIndexOf('.');
+        if (extension > 0) {
+            fileName = fileName.substring(0, extension);
+        }
+        StringBuilder id = new StringBuilder(fileName.length());
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            id.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return id.toString();
+    }
+
     private void done() {
         if (!isDone) {
             isDone = true;
             for (NamespaceCodegen codegen : ns2codegen.values()) {
                 codegen.done();
             }
+            for (LambdaDispatcherCodegen dispatcher : lambdaDispatchers.values()) {
+                dispatcher.generate(newVisitor(dispatcher.getName().getInternalName() + ".class"));
+            }
         }
     }
 
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.java.PsiClassFinder;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.types.JetType;
+
+import javax.inject.Inject;
+import java.util.*;
+
+/**
+ * Answers common supertype queries for frame computation without loading classes:
+ * classes generated in this compilation are registered by the class writers, Kotlin classes are looked up in the binding context
+ * and all other classes are found through PSI on the compilation classpath.
+ * Classes hidden from the resolver (e.g. runtime classes) are unknown to the oracle.
+ *
+ * @see ClassBuilderFactories
+ */
+public class ClassHierarchyOracle {
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final class ClassInfo {
+        private final String superName;
+        private final String[] interfaces;
+        private final boolean isInterface;
+
+        private ClassInfo(@Nullable String superName, @NotNull String[] interfaces, boolean isInterface) {
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.isInterface = isInterface;
+        }
+    }
+
+    private static final ClassInfo UNKNOWN = new ClassInfo(null, new String[0], false);
+
+    private final Map<String, ClassInfo> classes = new HashMap<String, ClassInfo>();
+    private final Map<String, String> commonSuperClasses = new HashMap<String, String>();
+
+    private BindingContext bindingContext;
+    private JetTypeMapper typeMapper;
+    private PsiClassFinder psiClassFinder;
+
+    @Inject
+    public void setBindingContext(BindingContext bindingContext) {
+        this.bindingContext = bindingContext;
+    }
+
+    @Inject
+    public void setPsiClassFinder(PsiClassFinder psiClassFinder) {
+        this.psiClassFinder = psiClassFinder;
+    }
+
+    @Inject
+    public void setTypeMapper(JetTypeMapper typeMapper) {
+        this.typeMapper = typeMapper;
+    }
+
+    public synchronized void registerClass(
+            @NotNull String internalName,
+            @Nullable String superName,
+            @Nullable String[] interfaces,
+            boolean isInterface
+    ) {
+        ClassInfo previous = classes.put(internalName, new ClassInfo(superName, interfaces != null ? interfaces : new String[0], isInterface));
+        if (previous != null) {
+            // answers computed from what was known about this class before (e.g. nothing) may now be wrong
+            commonSuperClasses.clear();
+        }
+    }
+
+    /**
+     * Same contract as ClassWriter.getCommonSuperClass(), except that null is returned
+     * when the hierarchy of either type can't be determined.
+     */
+    @Nullable
+    public synchronized String getCommonSuperClass(@NotNull String type1, @NotNull String type2) {
+        if (type1.equals(type2)) return type1;
+
+        String key = type1.compareTo(type2) < 0 ? type1 + ";" + type2 : type2 + ";" + type1;
+        String cached = commonSuperClasses.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String result = computeCommonSuperClass(type1, type2);
+        if (result != null) {
+            // a class unknown now may still be registered by its class writer later
+            commonSuperClasses.put(key, result);
+        }
+        return result;
+    }
+
+    @Nullable
+    private String computeCommonSuperClass(@NotNull String type1, @NotNull String type2) {
+        if (isAssignableFrom(type1, type2)) return type1;
+        if (isAssignableFrom(type2, type1)) return type2;
+
+        ClassInfo info1 = getClassInfo(type1);
+        ClassInfo info2 = getClassInfo(type2);
+        if (info1 == UNKNOWN || info2 == UNKNOWN) return null;
+        if (info1.isInterface || info2.isInterface) return OBJECT;
+
+        Set<String> superClasses1 = new HashSet<String>();
+        for (String current = type1; current != null; current = getClassInfo(current).superName) {
+            if (getClassInfo(current) == UNKNOWN) return null;
+            superClasses1.add(current);
+        }
+        for (String current = type2; current != null; current = getClassInfo(current).superName) {
+            if (superClasses1.contains(current)) return current;
+            if (getClassInfo(current) == UNKNOWN) return null;
+        }
+        return OBJECT;
+    }
+
+    private boolean isAssignableFrom(@NotNull String superType, @NotNull String type) {
+        if (superType.equals(OBJECT)) return true;
+
+        Set<String> visited = new HashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (current.equals(superType)) return true;
+            if (!visited.add(current)) continue;
+
+            ClassInfo info = getClassInfo(current);
+            if (info.superName != null) {
+                queue.add(info.superName);
+            }
+            Collections.addAll(queue, info.interfaces);
+        }
+        return false;
+    }
+
+    @NotNull
+    private ClassInfo getClassInfo(@NotNull String internalName) {
+        ClassInfo info = classes.get(internalName);
+        if (info == null) {
+            info = computeClassInfo(internalName);
+            classes.put(internalName, info);
+        }
+        return info;
+    }
+
+    @NotNull
+    private ClassInfo computeClassInfo(@NotNull String internalName) {
+        if (internalName.equals(OBJECT)) {
+            return new ClassInfo(null, new String[0], false);
+        }
+
+        // inner classes can't be told apart from '$' in names, so lookup by fq name is best effort
+        FqName fqName = new FqName(internalName.replace('/', '.').replace('$', '.'));
+
+        ClassDescriptor classDescriptor = bindingContext != null ? bindingContext.get(BindingContext.FQNAME_TO_CLASS_DESCRIPTOR, fqName) : null;
+        if (classDescriptor != null && typeMapper != null) {
+            return classInfoFromDescriptor(classDescriptor);
+        }
+
+        if (psiClassFinder != null) {
+            PsiClass psiClass = psiClassFinder.findPsiClass(fqName, PsiClassFinder.RuntimeClassesHandleMode.IGNORE);
+            if (psiClass != null) {
+                return classInfoFromPsi(psiClass);
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    @NotNull
+    private ClassInfo classInfoFromDescriptor(@NotNull ClassDescriptor classDescriptor) {
+        boolean isInterface = CodegenUtil.isInterface(classDescriptor);
+        String superName = OBJECT;
+        List<String> interfaces = new ArrayList<String>();
+        for (JetType supertype : classDescriptor.getTypeConstructor().getSupertypes()) {
+            ClassifierDescriptor supertypeDescriptor = supertype.getConstructor().getDeclarationDescriptor();
+            if (!(supertypeDescriptor instanceof ClassDescriptor)) continue;
+            String name = typeMapper.mapType(((ClassDescriptor) supertypeDescriptor).getDefaultType(), MapTypeMode.IMPL).getInternalName();
+            if (CodegenUtil.isInterface(supertypeDescriptor)) {
+                interfaces.add(name);
+            }
+            else if (!isInterface) {
+                superName = name;
+            }
+        }
+        return new ClassInfo(superName, interfaces.toArray(new String[interfaces.size()]), isInterface);
+    }
+
+    @NotNull
+    private static ClassInfo classInfoFromPsi(@NotNull PsiClass psiClass) {
+        PsiClass superClass = psiClass.isInterface() ? null : psiClass.getSuperClass();
+        String superName = superClass != null ? internalName(superClass) : OBJECT;
+        List<String> interfaces = new ArrayList<String>();
+        for (PsiClassType interfaceType : psiClass.getImplementsListTypes()) {
+            PsiClass interfaceClass = interfaceType.resolve();
+            if (interfaceClass != null) {
+                interfaces.add(internalName(interfaceClass));
+            }
+        }
+        if (psiClass.isInterface()) {
+            for (PsiClassType interfaceType : psiClass.getExtendsListTypes()) {
+                PsiClass interfaceClass = interfaceType.resolve();
+                if (interfaceClass != null) {
+                    interfaces.add(internalName(interfaceClass));
+                }
+            }
+        }
+        return new ClassInfo(superName, interfaces.toArray(new String[interfaces.size()]), psiClass.isInterface());
+    }
+
+    @NotNull
+    private static String internalName(@NotNull PsiClass psiClass) {
+        PsiClass containingClass = psiClass.getContainingClass();
+        if (containingClass != null) {
+            return internalName(containingClass) + "$" + psiClass.getName();
+        }
+        String qualifiedName = psiClass.getQualifiedName();
+        return qualifiedName != null ? qualifiedName.replace('.', '/') : OBJECT;
+    }
+}
@@ -18,6 +18,7 @@ package org.jetbrains.jet.codegen;
 
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
 import org.jetbrains.jet.lang.psi.*;
@@ -39,6 +40,8 @@ import java.util.*;
 public class ClosureAnnotator {
     private final Map<ClassDescriptor, JvmClassName> classNamesForClassDescriptor = new HashMap<ClassDescriptor, JvmClassName>();
     private final Map<String, Integer> anonymousSubclassesCount = new HashMap<String, Integer>();
+    private final Map<String, Integer> templateHoldersCount = new HashMap<String, Integer>();
+    private final Map<JetCallExpression, JvmClassName> classNamesForTemplateHolders = new HashMap<JetCallExpression, JvmClassName>();
     private final Map<ScriptDescriptor, JvmClassName> classNameForScript = new HashMap<ScriptDescriptor, JvmClassName>();
     private final Map<ClassDescriptor, LocalClassClosureCodegen> localClassCodegenForClass =
             new HashMap<ClassDescriptor, LocalClassClosureCodegen>();
@@ -214,6 +217,16 @@ public class ClosureAnnotator {
         return classNameForClassDescriptor(descriptor);
     }
 
+    /**
+     * @return the name of the class holding the compiled structure of a <code>StringTemplate</code> constructor call,
+     *         or null if the expression is not such a call
+     * @see StringTemplateCodegen
+     */
+    @Nullable
+    public JvmClassName classNameForTemplateHolder(@NotNull JetCallExpression expression) {
+        return classNamesForTemplateHolders.get(expression);
+    }
+
     public ClassDescriptor getEclosingClassDescriptor(ClassDescriptor descriptor) {
         return enclosing.get(descriptor);
     }
@@ -287,6 +300,16 @@ public class ClosureAnnotator {
             return name;
         }
 
+        private void recordTemplateHolder(JetCallExpression expression) {
+            String top = nameStack.peek();
+            Integer cnt = templateHoldersCount.get(top);
+            if (cnt == null) {
+                cnt = 0;
+            }
+            classNamesForTemplateHolders.put(expression, JvmClassName.byInternalName(top + "$template$" + (cnt + 1)));
+            templateHoldersCount.put(top, cnt + 1);
+        }
+
         private JvmClassName recordClassObject(JetClassObject declaration) {
             JvmClassName name = JvmClassName.byInternalName(nameStack.peek() + JvmAbi.CLASS_OBJECT_SUFFIX);
             ClassDescriptor classDescriptor = bindingContext.get(BindingContext.CLASS, declaration.getObjectDeclaration());
@@ -412,6 +435,16 @@ public class ClosureAnnotator {
             classStack.pop();
         }
 
+        @Override
+        public void visitCallExpression(JetCallExpression expression) {
+            JetExpression callee = expression.getCalleeExpression();
+            if (callee instanceof JetSimpleNameExpression &&
+                StringTemplateCodegen.isStringTemplateConstructor(bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) callee))) {
+                recordTemplateHolder(expression);
+            }
+            super.visitCallExpression(expression);
+        }
+
         @Override
         public void visitProperty(JetProperty property) {
             nameStack.push(nameStack.peek() + '$' + property.getName());
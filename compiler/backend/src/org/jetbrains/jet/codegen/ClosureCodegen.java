@@ -29,6 +29,7 @@ import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
 import org.jetbrains.asm4.commons.Method;
 import org.jetbrains.asm4.signature.SignatureWriter;
+import org.jetbrains.asm4.tree.MethodNode;
 import org.jetbrains.jet.codegen.signature.BothSignatureWriter;
 import org.jetbrains.jet.codegen.signature.JvmMethodParameterKind;
 import org.jetbrains.jet.codegen.signature.JvmMethodSignature;
@@ -36,6 +37,8 @@ import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.psi.JetDeclarationWithBody;
 import org.jetbrains.jet.lang.psi.JetElement;
 import org.jetbrains.jet.lang.psi.JetExpression;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.JetFunctionLiteralExpression;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.BindingContextUtils;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
@@ -54,6 +57,9 @@ public class ClosureCodegen extends ObjectOrClosureCodegen {
     private final ClosureAnnotator closureAnnotator;
     private final JetTypeMapper typeMapper;
 
+    private LambdaDispatcherCodegen dispatcher;
+    private int dispatcherId = -1;
+
     public ClosureCodegen(GenerationState state, ExpressionCodegen exprContext, CodegenContext context) {
         super(exprContext, context, state);
         bindingContext = state.getBindingContext();
@@ -111,12 +117,21 @@ public class ClosureCodegen extends ObjectOrClosureCodegen {
     }
 
     public GeneratedAnonymousClassDescriptor gen(JetExpression fun) {
-        final Pair<JvmClassName, ClassBuilder> nameAndVisitor = state.forAnonymousSubclass(fun);
-
         final FunctionDescriptor funDescriptor = bindingContext.get(BindingContext.FUNCTION, fun);
 
-        cv = nameAndVisitor.getSecond();
-        name = nameAndVisitor.getFirst();
+        // whether the literal captures anything is only known after its body is generated
+        BufferingClassBuilder buffer = null;
+        if (state.isConsolidateLambdas() && fun instanceof JetFunctionLiteralExpression &&
+            state.getClassBuilderMode() == ClassBuilderMode.FULL) {
+            buffer = new BufferingClassBuilder();
+            cv = buffer;
+            name = closureAnnotator.classNameForAnonymousClass(fun);
+        }
+        else {
+            final Pair<JvmClassName, ClassBuilder> nameAndVisitor = state.forAnonymousSubclass(fun);
+            cv = nameAndVisitor.getSecond();
+            name = nameAndVisitor.getFirst();
+        }
 
         SignatureWriter signatureWriter = new SignatureWriter();
 
@@ -163,8 +178,15 @@ public class ClosureCodegen extends ObjectOrClosureCodegen {
 
         cv.done();
 
+        if (buffer != null) {
+            if (!isConst() || !addToDispatcher(buffer, fun, funDescriptor)) {
+                buffer.replayTo(state.forAnonymousSubclass(fun).getSecond());
+            }
+        }
+
+        final JvmClassName className = dispatcher != null ? dispatcher.getName() : name;
         final GeneratedAnonymousClassDescriptor answer =
-                new GeneratedAnonymousClassDescriptor(name, constructor, captureThis, captureReceiver);
+                new GeneratedAnonymousClassDescriptor(className, constructor, captureThis, captureReceiver);
         for (DeclarationDescriptor descriptor : closure.keySet()) {
             if (descriptor == funDescriptor) {
                 continue;
@@ -178,6 +200,32 @@ public class ClosureCodegen extends ObjectOrClosureCodegen {
         return answer;
     }
 
+    private boolean addToDispatcher(BufferingClassBuilder buffer, JetExpression fun, FunctionDescriptor funDescriptor) {
+        MethodNode invoke = buffer.findMethod("invoke", invokeSignature(funDescriptor).getAsmMethod().getDescriptor());
+        if (invoke == null || !LambdaDispatcherCodegen.hasNoCapturedState(buffer.getClassNode()) ||
+            !LambdaDispatcherCodegen.canMoveBody(invoke, name.getInternalName())) {
+            return false;
+        }
+        dispatcher = state.getFactory().forLambdaDispatcher((JetFile) fun.getContainingFile(), getInternalClassName(funDescriptor));
+        dispatcherId = dispatcher.addLambda(invoke);
+        return true;
+    }
+
+    /**
+     * Puts the instance of a non-capturing literal on the stack
+     */
+    public void putConstInstance(@NotNull GeneratedAnonymousClassDescriptor closure, @NotNull InstructionAdapter v) {
+        assert isConst();
+        JvmClassName className = closure.getClassname();
+        if (dispatcher != null) {
+            v.iconst(dispatcherId);
+            v.invokestatic(className.getInternalName(), LambdaDispatcherCodegen.GET_INSTANCE, "(I)" + className.getDescriptor());
+        }
+        else {
+            v.invokestatic(className.getInternalName(), "$getInstance", "()" + className.getDescriptor());
+        }
+    }
+
     private void generateConstInstance(PsiElement fun) {
         String classDescr = name.getDescriptor();
         cv.newField(fun, ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "$instance", classDescr, null, null);
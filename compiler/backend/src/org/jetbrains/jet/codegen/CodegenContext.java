@@ -78,7 +78,7 @@ public abstract class CodegenContext {
         return thisDescriptor;
     }
 
-    protected final boolean hasThisDescriptor() {
+    public final boolean hasThisDescriptor() {
         return thisDescriptor != null;
     }
 
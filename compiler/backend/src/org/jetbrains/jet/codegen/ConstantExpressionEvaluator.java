@@ -0,0 +1,473 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.descriptors.PropertyDescriptor;
+import org.jetbrains.jet.lang.descriptors.PropertyGetterDescriptor;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
+import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.lang.JetStandardLibraryNames;
+import org.jetbrains.jet.lang.types.lang.PrimitiveType;
+import org.jetbrains.jet.lexer.JetTokens;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Folds expressions built of compile-time constants, operations of primitive types and Strings on them,
+ * and reads of top-level <code>val</code>s with such initializers.
+ * Values are returned boxed in the Java class corresponding to the JVM type of the expression,
+ * anything else (including operations which would throw at runtime, like division by zero) is not folded.
+ */
+public class ConstantExpressionEvaluator {
+    private static final Object NOT_CONSTANT = new Object();
+
+    // classes whose operations are folded, a function of the same name declared elsewhere may compute anything
+    private static final Set<FqNameUnsafe> BUILTIN_CLASSES = new HashSet<FqNameUnsafe>();
+
+    static {
+        for (PrimitiveType primitiveType : PrimitiveType.values()) {
+            BUILTIN_CLASSES.add(primitiveType.getClassName().getFqName().toUnsafe());
+        }
+        BUILTIN_CLASSES.add(JetStandardLibraryNames.STRING.getFqName().toUnsafe());
+    }
+
+    private final Map<JetExpression, Object> values = new HashMap<JetExpression, Object>();
+    private final Set<PropertyDescriptor> propertiesInProgress = new HashSet<PropertyDescriptor>();
+
+    private BindingContext bindingContext;
+    private JetTypeMapper typeMapper;
+
+    @Inject
+    public void setBindingContext(BindingContext bindingContext) {
+        this.bindingContext = bindingContext;
+    }
+
+    @Inject
+    public void setTypeMapper(JetTypeMapper typeMapper) {
+        this.typeMapper = typeMapper;
+    }
+
+    @Nullable
+    public Object evaluate(@NotNull JetExpression expression) {
+        Object value = values.get(expression);
+        if (value == null) {
+            value = doEvaluate(expression);
+            values.put(expression, value != null ? value : NOT_CONSTANT);
+        }
+        return value != NOT_CONSTANT ? value : null;
+    }
+
+    /**
+     * @return the value of a top-level <code>val</code> with a default getter and a constant initializer,
+     *         which may be stored in a ConstantValue field and inlined at use sites
+     */
+    @Nullable
+    public Object getPropertyValue(@NotNull PropertyDescriptor descriptor) {
+        descriptor = descriptor.getOriginal();
+        if (descriptor.isVar() || !(descriptor.getContainingDeclaration() instanceof NamespaceDescriptor)) return null;
+        if (descriptor.getReceiverParameter().exists()) return null;
+        PropertyGetterDescriptor getter = descriptor.getGetter();
+        if (getter != null && getter.hasBody()) return null;
+        if (getJvmType(descriptor.getType()) == null) return null;
+
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, descriptor);
+        if (!(declaration instanceof JetProperty)) return null;
+        JetExpression initializer = ((JetProperty) declaration).getInitializer();
+        if (initializer == null) return null;
+
+        if (!propertiesInProgress.add(descriptor)) return null;
+        try {
+            Object value = evaluate(initializer);
+            Type type = getJvmType(descriptor.getType());
+            return value != null && type != null ? convert(value, type) : null;
+        }
+        finally {
+            propertiesInProgress.remove(descriptor);
+        }
+    }
+
+    @Nullable
+    private Object doEvaluate(@NotNull JetExpression expression) {
+        JetType jetType = bindingContext.get(BindingContext.EXPRESSION_TYPE, expression);
+        Type type = jetType != null ? getJvmType(jetType) : null;
+        if (type == null) return null;
+
+        CompileTimeConstant<?> compileTimeValue = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, expression);
+        if (compileTimeValue != null) {
+            Object value = compileTimeValue.getValue();
+            return value != null ? convert(value, type) : null;
+        }
+
+        Object value = null;
+        if (expression instanceof JetParenthesizedExpression) {
+            JetExpression inner = ((JetParenthesizedExpression) expression).getExpression();
+            value = inner != null ? evaluate(inner) : null;
+        }
+        else if (expression instanceof JetPrefixExpression) {
+            value = evaluatePrefix((JetPrefixExpression) expression, type);
+        }
+        else if (expression instanceof JetBinaryExpression) {
+            value = evaluateBinary((JetBinaryExpression) expression, type);
+        }
+        else if (expression instanceof JetStringTemplateExpression) {
+            value = evaluateStringTemplate((JetStringTemplateExpression) expression);
+        }
+        else if (expression instanceof JetSimpleNameExpression) {
+            value = evaluatePropertyReference((JetSimpleNameExpression) expression);
+        }
+        else if (expression instanceof JetDotQualifiedExpression) {
+            value = evaluateQualified((JetDotQualifiedExpression) expression, type);
+        }
+        return value != null ? convert(value, type) : null;
+    }
+
+    /**
+     * @return the JVM type of values of the given type if it is a primitive or a non-null String, <code>null</code> otherwise
+     */
+    @Nullable
+    private Type getJvmType(@NotNull JetType jetType) {
+        if (jetType.isNullable()) return null;
+        Type type = typeMapper.mapType(jetType, MapTypeMode.VALUE);
+        return JetTypeMapper.isPrimitive(type) || JetTypeMapper.JL_STRING_TYPE.equals(type) ? type : null;
+    }
+
+    @Nullable
+    private Object evaluatePrefix(@NotNull JetPrefixExpression expression, @NotNull Type type) {
+        JetExpression baseExpression = expression.getBaseExpression();
+        Object value = baseExpression != null ? evaluate(baseExpression) : null;
+        if (value == null) return null;
+
+        JetSimpleNameExpression operationReference = expression.getOperationReference();
+        if (!isBuiltinOperation(operationReference)) return null;
+        IElementType operation = operationReference.getReferencedNameElementType();
+        if (operation == JetTokens.EXCL && value instanceof Boolean) {
+            return !(Boolean) value;
+        }
+        if (operation == JetTokens.PLUS && value instanceof Number) {
+            return value;
+        }
+        if (operation == JetTokens.MINUS && value instanceof Number) {
+            switch (type.getSort()) {
+                case Type.INT:
+                case Type.SHORT:
+                case Type.BYTE:
+                    return -((Number) value).intValue();
+                case Type.LONG:
+                    return -((Number) value).longValue();
+                case Type.FLOAT:
+                    return -((Number) value).floatValue();
+                case Type.DOUBLE:
+                    return -((Number) value).doubleValue();
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Object evaluateBinary(@NotNull JetBinaryExpression expression, @NotNull Type type) {
+        JetExpression leftExpression = expression.getLeft();
+        JetExpression rightExpression = expression.getRight();
+        if (leftExpression == null || rightExpression == null) return null;
+
+        JetSimpleNameExpression operationReference = expression.getOperationReference();
+        IElementType operation = operationReference.getReferencedNameElementType();
+
+        Object left = evaluate(leftExpression);
+        if (operation == JetTokens.ANDAND || operation == JetTokens.OROR) {
+            // the right operand is never evaluated if the left one decides the result
+            if (!(left instanceof Boolean)) return null;
+            if ((Boolean) left == (operation == JetTokens.OROR)) return left;
+            Object right = evaluate(rightExpression);
+            return right instanceof Boolean ? right : null;
+        }
+
+        Object right = evaluate(rightExpression);
+        if (left == null || right == null) return null;
+
+        if (operation == JetTokens.EQEQ || operation == JetTokens.EXCLEQ) {
+            // equals() is a member of every class, so it can't be replaced by an extension
+            Boolean equal = evaluateEquals(left, right);
+            return equal == null ? null : equal == (operation == JetTokens.EQEQ);
+        }
+        if (!isBuiltinOperation(operationReference)) return null;
+        if (operation == JetTokens.LT || operation == JetTokens.GT || operation == JetTokens.LTEQ || operation == JetTokens.GTEQ) {
+            return evaluateComparison(operation, left, right);
+        }
+        if (type.equals(JetTypeMapper.JL_STRING_TYPE)) {
+            return operation == JetTokens.PLUS && left instanceof String ? (String) left + right : null;
+        }
+        if (type == Type.BOOLEAN_TYPE) {
+            return evaluateBooleanOperation(operationReference, left, right);
+        }
+        if (!(left instanceof Number) || !(right instanceof Number)) return null;
+        return evaluateArithmetic(operationReference, type, (Number) left, (Number) right);
+    }
+
+    @Nullable
+    private static Boolean evaluateEquals(@NotNull Object left, @NotNull Object right) {
+        // values of different types are compared as boxes at runtime and are never equal, leave it to runtime
+        if (left.getClass() != right.getClass()) return null;
+        if (left instanceof Double) {
+            return ((Double) left).doubleValue() == ((Double) right).doubleValue();
+        }
+        if (left instanceof Float) {
+            return ((Float) left).floatValue() == ((Float) right).floatValue();
+        }
+        return left.equals(right);
+    }
+
+    @Nullable
+    private static Boolean evaluateComparison(@NotNull IElementType operation, @NotNull Object left, @NotNull Object right) {
+        int result;
+        if (isIntegral(left) && isIntegral(right)) {
+            long l = toLong(left);
+            long r = toLong(right);
+            result = l < r ? -1 : l == r ? 0 : 1;
+        }
+        else if (left instanceof Number && right instanceof Number) {
+            double l = ((Number) left).doubleValue();
+            double r = ((Number) right).doubleValue();
+            if (Double.isNaN(l) || Double.isNaN(r)) return false;
+            result = l < r ? -1 : l == r ? 0 : 1;
+        }
+        else {
+            return null;
+        }
+
+        if (operation == JetTokens.LT) return result < 0;
+        if (operation == JetTokens.GT) return result > 0;
+        if (operation == JetTokens.LTEQ) return result <= 0;
+        return result >= 0;
+    }
+
+    @Nullable
+    private static Boolean evaluateBooleanOperation(@NotNull JetSimpleNameExpression operationReference, @NotNull Object left, @NotNull Object right) {
+        if (!(left instanceof Boolean) || !(right instanceof Boolean)) return null;
+        boolean l = (Boolean) left;
+        boolean r = (Boolean) right;
+        String name = operationReference.getReferencedName();
+        if ("and".equals(name)) return l & r;
+        if ("or".equals(name)) return l | r;
+        if ("xor".equals(name)) return l ^ r;
+        return null;
+    }
+
+    @Nullable
+    private static Object evaluateArithmetic(
+            @NotNull JetSimpleNameExpression operationReference,
+            @NotNull Type type,
+            @NotNull Number left,
+            @NotNull Number right
+    ) {
+        IElementType operation = operationReference.getReferencedNameElementType();
+        String name = operation == JetTokens.IDENTIFIER ? operationReference.getReferencedName() : null;
+        switch (type.getSort()) {
+            case Type.INT:
+            case Type.SHORT:
+            case Type.BYTE: {
+                int l = left.intValue();
+                int r = right.intValue();
+                if (operation == JetTokens.PLUS) return l + r;
+                if (operation == JetTokens.MINUS) return l - r;
+                if (operation == JetTokens.MUL) return l * r;
+                if (operation == JetTokens.DIV) return r != 0 ? l / r : null;
+                if (operation == JetTokens.PERC) return r != 0 ? l % r : null;
+                if ("and".equals(name)) return l & r;
+                if ("or".equals(name)) return l | r;
+                if ("xor".equals(name)) return l ^ r;
+                if ("shl".equals(name)) return l << r;
+                if ("shr".equals(name)) return l >> r;
+                if ("ushr".equals(name)) return l >>> r;
+                return null;
+            }
+            case Type.LONG: {
+                long l = left.longValue();
+                long r = right.longValue();
+                if (operation == JetTokens.PLUS) return l + r;
+                if (operation == JetTokens.MINUS) return l - r;
+                if (operation == JetTokens.MUL) return l * r;
+                if (operation == JetTokens.DIV) return r != 0 ? l / r : null;
+                if (operation == JetTokens.PERC) return r != 0 ? l % r : null;
+                if ("and".equals(name)) return l & r;
+                if ("or".equals(name)) return l | r;
+                if ("xor".equals(name)) return l ^ r;
+                if ("shl".equals(name)) return l << right.intValue();
+                if ("shr".equals(name)) return l >> right.intValue();
+                if ("ushr".equals(name)) return l >>> right.intValue();
+                return null;
+            }
+            case Type.FLOAT: {
+                float l = left.floatValue();
+                float r = right.floatValue();
+                if (operation == JetTokens.PLUS) return l + r;
+                if (operation == JetTokens.MINUS) return l - r;
+                if (operation == JetTokens.MUL) return l * r;
+                if (operation == JetTokens.DIV) return l / r;
+                if (operation == JetTokens.PERC) return l % r;
+                return null;
+            }
+            case Type.DOUBLE: {
+                double l = left.doubleValue();
+                double r = right.doubleValue();
+                if (operation == JetTokens.PLUS) return l + r;
+                if (operation == JetTokens.MINUS) return l - r;
+                if (operation == JetTokens.MUL) return l * r;
+                if (operation == JetTokens.DIV) return l / r;
+                if (operation == JetTokens.PERC) return l % r;
+                return null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private String evaluateStringTemplate(@NotNull JetStringTemplateExpression expression) {
+        StringBuilder builder = new StringBuilder();
+        for (JetStringTemplateEntry entry : expression.getEntries()) {
+            if (entry instanceof JetLiteralStringTemplateEntry) {
+                builder.append(entry.getText());
+            }
+            else if (entry instanceof JetEscapeStringTemplateEntry) {
+                builder.append(((JetEscapeStringTemplateEntry) entry).getUnescapedValue());
+            }
+            else {
+                JetExpression entryExpression = entry.getExpression();
+                Object value = entryExpression != null ? evaluate(entryExpression) : null;
+                if (value == null) return null;
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Nullable
+    private Object evaluatePropertyReference(@NotNull JetSimpleNameExpression expression) {
+        DeclarationDescriptor descriptor = bindingContext.get(BindingContext.REFERENCE_TARGET, expression);
+        return descriptor instanceof PropertyDescriptor ? getPropertyValue((PropertyDescriptor) descriptor) : null;
+    }
+
+    @Nullable
+    private Object evaluateQualified(@NotNull JetDotQualifiedExpression expression, @NotNull Type type) {
+        JetExpression selector = expression.getSelectorExpression();
+        if (selector instanceof JetSimpleNameExpression) {
+            // a property of a namespace, evaluating the receiver has no side effects
+            return isNamespaceReference(expression.getReceiverExpression())
+                   ? evaluatePropertyReference((JetSimpleNameExpression) selector)
+                   : null;
+        }
+        if (selector instanceof JetCallExpression) {
+            JetCallExpression call = (JetCallExpression) selector;
+            JetExpression callee = call.getCalleeExpression();
+            if (!call.getValueArguments().isEmpty() || !(callee instanceof JetSimpleNameExpression)) return null;
+            String name = ((JetSimpleNameExpression) callee).getReferencedName();
+            if (name == null || !name.startsWith("to") || !JetTypeMapper.isPrimitive(type)) return null;
+            if (!isBuiltinOperation((JetSimpleNameExpression) callee)) return null;
+
+            Object receiver = evaluate(expression.getReceiverExpression());
+            if (receiver instanceof Character) {
+                receiver = (int) (Character) receiver;
+            }
+            // toInt(), toLong(), toChar() etc. of primitive types are plain conversions
+            return receiver instanceof Number && ("to" + type.getClassName()).equalsIgnoreCase(name) ? receiver : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the operation resolves to a member of a primitive type or String from the standard library,
+     *         rather than to an extension with the same name
+     */
+    private boolean isBuiltinOperation(@NotNull JetSimpleNameExpression operationReference) {
+        DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, operationReference);
+        if (target == null) return false;
+        DeclarationDescriptor container = target.getContainingDeclaration();
+        return container instanceof ClassDescriptor && BUILTIN_CLASSES.contains(DescriptorUtils.getFQName(container));
+    }
+
+    private boolean isNamespaceReference(@NotNull JetExpression expression) {
+        if (expression instanceof JetDotQualifiedExpression) {
+            JetExpression selector = ((JetDotQualifiedExpression) expression).getSelectorExpression();
+            return selector != null && isNamespaceReference(selector);
+        }
+        return expression instanceof JetSimpleNameExpression &&
+               bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) expression) instanceof NamespaceDescriptor;
+    }
+
+    /**
+     * Converts a folded value to the boxed representation of the given primitive or String type
+     */
+    @Nullable
+    private static Object convert(@NotNull Object value, @NotNull Type type) {
+        if (type.equals(JetTypeMapper.JL_STRING_TYPE)) {
+            return value instanceof String ? value : null;
+        }
+        if (type == Type.BOOLEAN_TYPE) {
+            return value instanceof Boolean ? value : null;
+        }
+        if (value instanceof Character) {
+            value = (int) (Character) value;
+        }
+        if (!(value instanceof Number)) return null;
+
+        Number number = (Number) value;
+        switch (type.getSort()) {
+            case Type.INT:
+                return number.intValue();
+            case Type.LONG:
+                return number.longValue();
+            case Type.SHORT:
+                return number.shortValue();
+            case Type.BYTE:
+                return number.byteValue();
+            case Type.CHAR:
+                return (char) number.intValue();
+            case Type.FLOAT:
+                return number.floatValue();
+            case Type.DOUBLE:
+                return number.doubleValue();
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isIntegral(@NotNull Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte ||
+               value instanceof Character;
+    }
+
+    private static long toLong(@NotNull Object value) {
+        return value instanceof Character ? (long) (Character) value : ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.jet.codegen.signature.JvmMethodSignature;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.calls.DefaultValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.VariableAsFunctionResolvedCall;
+import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.types.JetType;
+
+import javax.inject.Inject;
+import java.util.*;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Specializes private functions whose result is destructured by their callers: <code>val (q, r) = divide(a, b)</code>.
+ *
+ * All the callers of a private function are compiled together with it, so the function gets a variant
+ * <code>divide$components</code> next to it, which returns the constructor arguments of its result in a per-thread holder
+ * instead of allocating the result. Multi-declarations initialized directly with a call of the function use the variant and
+ * read the components from the holder, any other call uses the original function.
+ *
+ * A function is specialized when:
+ * <ul>
+ *     <li>it is private, final, without type parameters and without a receiver, and declared in a namespace or a class;</li>
+ *     <li>every value it returns is a call of the primary constructor of its result class with all the arguments given;</li>
+ *     <li>its body declares no function literals, objects or local classes and functions, as these would be generated twice;</li>
+ *     <li>the result class is final, has no class object, no initializers and no superclass, so creating it has no effects;</li>
+ *     <li>the <code>componentN</code> functions used by the callers return the constructor <code>val</code>s of the class.</li>
+ * </ul>
+ * The holder keeps the components with their own JVM types, so primitive components are not boxed.
+ */
+public class DestructuringSpecializer {
+    public static final String METHOD_SUFFIX = "$components";
+
+    private static final String GET_METHOD = "get";
+    private static final String INSTANCE_FIELD = "$instance";
+    private static final Type THREAD_LOCAL_TYPE = Type.getObjectType("java/lang/ThreadLocal");
+
+    private BindingContext bindingContext;
+    private List<JetFile> files;
+    private JetTypeMapper typeMapper;
+
+    private Map<JetMultiDeclaration, Specialization> specializedCalls;
+    private final Map<FunctionDescriptor, Specialization> specializations = new HashMap<FunctionDescriptor, Specialization>();
+    private final Set<FunctionDescriptor> notSpecialized = new HashSet<FunctionDescriptor>();
+    private final Map<String, Integer> holdersCount = new HashMap<String, Integer>();
+
+    @Inject
+    public void setBindingContext(BindingContext bindingContext) {
+        this.bindingContext = bindingContext;
+    }
+
+    @Inject
+    public void setFiles(List<JetFile> files) {
+        this.files = files;
+    }
+
+    @Inject
+    public void setTypeMapper(JetTypeMapper typeMapper) {
+        this.typeMapper = typeMapper;
+    }
+
+    public static class Specialization {
+        private final FunctionDescriptor function;
+        private final JvmClassName holder;
+        private final List<String> fieldNames;
+        private final List<Type> fieldTypes;
+        private final Map<FunctionDescriptor, Integer> components;
+        private boolean holderGenerated = false;
+
+        private Specialization(
+                @NotNull FunctionDescriptor function,
+                @NotNull JvmClassName holder,
+                @NotNull List<String> fieldNames,
+                @NotNull List<Type> fieldTypes,
+                @NotNull Map<FunctionDescriptor, Integer> components
+        ) {
+            this.function = function;
+            this.holder = holder;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+            this.components = components;
+        }
+
+        @NotNull
+        public FunctionDescriptor getFunction() {
+            return function;
+        }
+
+        @NotNull
+        public JvmClassName getHolder() {
+            return holder;
+        }
+
+        @NotNull
+        public JvmMethodSignature getSignature(@NotNull JvmMethodSignature original) {
+            //noinspection ConstantConditions
+            return JvmMethodSignature.simple(original.getAsmMethod().getName() + METHOD_SUFFIX, holder.getAsmType(),
+                                             original.getKotlinParameterTypes());
+        }
+
+        @NotNull
+        public CallableMethod getCallableMethod(@NotNull CallableMethod original) {
+            return new CallableMethod(original.getOwner(), null, null, getSignature(original.getSignature()),
+                                      original.getInvokeOpcode(), original.getThisType(), original.getReceiverClass(), null);
+        }
+
+        /**
+         * Evaluates the constructor arguments of a returned value in order and stores them to temporary variables.
+         * The holder is only filled by {@link #putHolder} once all of them are evaluated, as they may call the specialized
+         * function again.
+         *
+         * @return the indices of the temporary variables
+         */
+        @NotNull
+        public int[] storeComponents(
+                @NotNull JetExpression returnedExpression,
+                @NotNull ExpressionCodegen codegen,
+                @NotNull FrameMap frameMap,
+                @NotNull InstructionAdapter v
+        ) {
+            JetCallExpression constructorCall = (JetCallExpression) JetPsiUtil.deparenthesize(returnedExpression);
+            assert constructorCall != null;
+            List<? extends ValueArgument> arguments = constructorCall.getValueArguments();
+            int[] temps = new int[fieldTypes.size()];
+            for (int i = 0; i < fieldTypes.size(); i++) {
+                temps[i] = frameMap.enterTemp(fieldTypes.get(i));
+                codegen.gen(arguments.get(i).getArgumentExpression(), fieldTypes.get(i));
+                v.store(temps[i], fieldTypes.get(i));
+            }
+            return temps;
+        }
+
+        /**
+         * Fills the holder of the current thread from the temporary variables and leaves it on the stack
+         */
+        public void putHolder(@NotNull int[] temps, @NotNull FrameMap frameMap, @NotNull InstructionAdapter v) {
+            v.invokestatic(holder.getInternalName(), GET_METHOD, "()" + holder.getDescriptor());
+            for (int i = 0; i < fieldTypes.size(); i++) {
+                v.dup();
+                v.load(temps[i], fieldTypes.get(i));
+                v.putfield(holder.getInternalName(), fieldNames.get(i), fieldTypes.get(i).getDescriptor());
+            }
+            for (int i = fieldTypes.size() - 1; i >= 0; i--) {
+                frameMap.leaveTemp(fieldTypes.get(i));
+            }
+        }
+
+        /**
+         * Reads the value of the given component function from the holder on the stack
+         */
+        public void getComponent(@NotNull FunctionDescriptor component, @NotNull Type type, @NotNull InstructionAdapter v) {
+            Integer index = components.get(component.getOriginal());
+            assert index != null : "not a component of the specialized result: " + component;
+            v.getfield(holder.getInternalName(), fieldNames.get(index), fieldTypes.get(index).getDescriptor());
+            StackValue.onStack(fieldTypes.get(index)).put(type, v);
+        }
+
+        /**
+         * Generates the holder class, once for all the owners of the specialized function
+         */
+        public void generateHolderIfNeeded(@NotNull GenerationState state, @NotNull PsiElement origin) {
+            if (holderGenerated) return;
+            holderGenerated = true;
+
+            ClassBuilder cv = state.getFactory().forAnonymousSubclass(holder);
+            cv.defineClass(origin, V1_6, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, holder.getInternalName(), null, "java/lang/Object",
+                           new String[0]);
+            cv.visitSource(origin.getContainingFile().getName(), null);
+            cv.newField(origin, ACC_PRIVATE | ACC_STATIC | ACC_FINAL, INSTANCE_FIELD, THREAD_LOCAL_TYPE.getDescriptor(), null, null);
+            for (int i = 0; i < fieldNames.size(); i++) {
+                cv.newField(origin, 0, fieldNames.get(i), fieldTypes.get(i).getDescriptor(), null, null);
+            }
+
+            MethodVisitor clinit = cv.newMethod(origin, ACC_STATIC, "<clinit>", "()V", null, new String[0]);
+            MethodVisitor constructor = cv.newMethod(origin, ACC_PRIVATE, "<init>", "()V", null, new String[0]);
+            MethodVisitor get = cv.newMethod(origin, ACC_STATIC, GET_METHOD, "()" + holder.getDescriptor(), null, new String[0]);
+            if (state.getClassBuilderMode() == ClassBuilderMode.STUBS) {
+                StubCodegen.generateStubCode(clinit);
+                StubCodegen.generateStubCode(constructor);
+                StubCodegen.generateStubCode(get);
+            }
+            else if (state.getClassBuilderMode() == ClassBuilderMode.FULL) {
+                InstructionAdapter iv = new InstructionAdapter(clinit);
+                clinit.visitCode();
+                iv.anew(THREAD_LOCAL_TYPE);
+                iv.dup();
+                iv.invokespecial(THREAD_LOCAL_TYPE.getInternalName(), "<init>", "()V");
+                iv.putstatic(holder.getInternalName(), INSTANCE_FIELD, THREAD_LOCAL_TYPE.getDescriptor());
+                iv.areturn(Type.VOID_TYPE);
+                FunctionCodegen.endVisit(clinit, "<clinit>", origin);
+
+                iv = new InstructionAdapter(constructor);
+                constructor.visitCode();
+                iv.load(0, holder.getAsmType());
+                iv.invokespecial("java/lang/Object", "<init>", "()V");
+                iv.areturn(Type.VOID_TYPE);
+                FunctionCodegen.endVisit(constructor, "constructor", origin);
+
+                iv = new InstructionAdapter(get);
+                get.visitCode();
+                iv.getstatic(holder.getInternalName(), INSTANCE_FIELD, THREAD_LOCAL_TYPE.getDescriptor());
+                iv.invokevirtual(THREAD_LOCAL_TYPE.getInternalName(), "get", "()Ljava/lang/Object;");
+                iv.checkcast(holder.getAsmType());
+                iv.dup();
+                Label ret = new Label();
+                iv.ifnonnull(ret);
+                iv.pop();
+                iv.anew(holder.getAsmType());
+                iv.dup();
+                iv.invokespecial(holder.getInternalName(), "<init>", "()V");
+                iv.dup();
+                iv.getstatic(holder.getInternalName(), INSTANCE_FIELD, THREAD_LOCAL_TYPE.getDescriptor());
+                iv.swap();
+                iv.invokevirtual(THREAD_LOCAL_TYPE.getInternalName(), "set", "(Ljava/lang/Object;)V");
+                iv.mark(ret);
+                iv.areturn(holder.getAsmType());
+                FunctionCodegen.endVisit(get, GET_METHOD, origin);
+            }
+            cv.done();
+        }
+    }
+
+    /**
+     * @return the specialization of the given function, if at least one of its calls is destructured directly
+     */
+    @Nullable
+    public Specialization getSpecialization(@NotNull FunctionDescriptor function) {
+        findSpecializedCalls();
+        return specializations.get(function.getOriginal());
+    }
+
+    /**
+     * @return the specialization of the function called by the initializer of the given multi-declaration,
+     *         if the call may use it
+     */
+    @Nullable
+    public Specialization getSpecialization(@NotNull JetMultiDeclaration multiDeclaration) {
+        findSpecializedCalls();
+        return specializedCalls.get(multiDeclaration);
+    }
+
+    private void findSpecializedCalls() {
+        if (specializedCalls != null) return;
+        specializedCalls = new HashMap<JetMultiDeclaration, Specialization>();
+        JetVisitorVoid visitor = new JetVisitorVoid() {
+            @Override
+            public void visitJetElement(JetElement element) {
+                element.acceptChildren(this);
+            }
+
+            @Override
+            public void visitMultiDeclaration(JetMultiDeclaration multiDeclaration) {
+                Specialization specialization = getCalledSpecialization(multiDeclaration);
+                if (specialization != null) {
+                    specializedCalls.put(multiDeclaration, specialization);
+                }
+                super.visitMultiDeclaration(multiDeclaration);
+            }
+        };
+        for (JetFile file : files) {
+            file.accept(visitor);
+        }
+    }
+
+    @Nullable
+    private Specialization getCalledSpecialization(@NotNull JetMultiDeclaration multiDeclaration) {
+        JetExpression initializer = multiDeclaration.getInitializer();
+        if (initializer == null) return null;
+        initializer = JetPsiUtil.deparenthesize(initializer);
+        if (!(initializer instanceof JetCallExpression)) return null;
+
+        ResolvedCall<? extends CallableDescriptor> call =
+                bindingContext.get(BindingContext.RESOLVED_CALL, ((JetCallExpression) initializer).getCalleeExpression());
+        if (call == null || call instanceof VariableAsFunctionResolvedCall) return null;
+        if (!(call.getResultingDescriptor() instanceof SimpleFunctionDescriptor)) return null;
+        for (ResolvedValueArgument argument : call.getValueArguments().values()) {
+            // the specialized variant has no $default counterpart
+            if (argument instanceof DefaultValueArgument) return null;
+        }
+
+        FunctionDescriptor function = call.getResultingDescriptor().getOriginal();
+        Map<FunctionDescriptor, Integer> components = getResultComponents(function);
+        if (components == null) return null;
+        for (JetMultiDeclarationEntry entry : multiDeclaration.getEntries()) {
+            ResolvedCall<FunctionDescriptor> componentCall = bindingContext.get(BindingContext.COMPONENT_RESOLVED_CALL, entry);
+            if (componentCall == null || !components.containsKey(componentCall.getResultingDescriptor().getOriginal())) return null;
+        }
+        return getOrCreateSpecialization(function, components);
+    }
+
+    @NotNull
+    private Specialization getOrCreateSpecialization(@NotNull FunctionDescriptor function, @NotNull Map<FunctionDescriptor, Integer> components) {
+        Specialization specialization = specializations.get(function);
+        if (specialization != null) return specialization;
+
+        ClassDescriptor resultClass = getResultClass(function);
+        assert resultClass != null;
+        List<String> fieldNames = new ArrayList<String>();
+        List<Type> fieldTypes = new ArrayList<Type>();
+        for (ValueParameterDescriptor parameter : getPrimaryConstructor(resultClass).getValueParameters()) {
+            fieldNames.add(parameter.getName().getName());
+            fieldTypes.add(typeMapper.mapType(parameter.getType(), MapTypeMode.VALUE));
+        }
+
+        String owner = typeMapper.mapToCallableMethod(function, false, OwnerKind.IMPLEMENTATION).getOwner().getInternalName();
+        String top = owner + "$" + function.getName().getName() + METHOD_SUFFIX;
+        Integer count = holdersCount.get(top);
+        if (count == null) {
+            count = 0;
+        }
+        holdersCount.put(top, count + 1);
+        JvmClassName holder = JvmClassName.byInternalName(top + "$" + (count + 1));
+
+        specialization = new Specialization(function, holder, fieldNames, fieldTypes, components);
+        specializations.put(function, specialization);
+        return specialization;
+    }
+
+    /**
+     * @return the constructor parameter index returned by each component function of the result class of the given function,
+     *         if the function may be specialized, null otherwise
+     */
+    @Nullable
+    private Map<FunctionDescriptor, Integer> getResultComponents(@NotNull FunctionDescriptor function) {
+        if (notSpecialized.contains(function)) return null;
+        Specialization specialization = specializations.get(function);
+        if (specialization != null) return specialization.components;
+
+        Map<FunctionDescriptor, Integer> components = null;
+        ClassDescriptor resultClass = getResultClass(function);
+        if (resultClass != null && returnsOnlyConstructorCalls(function, resultClass)) {
+            components = getComponents(resultClass);
+        }
+        if (components == null || components.isEmpty()) {
+            notSpecialized.add(function);
+            return null;
+        }
+        return components;
+    }
+
+    @Nullable
+    private ClassDescriptor getResultClass(@NotNull FunctionDescriptor function) {
+        if (function.getVisibility() != Visibilities.PRIVATE || function.getModality() != Modality.FINAL) return null;
+        if (function.getKind() != CallableMemberDescriptor.Kind.DECLARATION) return null;
+        if (!function.getTypeParameters().isEmpty() || function.getReceiverParameter().exists()) return null;
+        DeclarationDescriptor container = function.getContainingDeclaration();
+        if (!(container instanceof NamespaceDescriptor) &&
+            !(container instanceof ClassDescriptor && ((ClassDescriptor) container).getKind() == ClassKind.CLASS)) {
+            return null;
+        }
+
+        JetType returnType = function.getReturnType();
+        if (returnType == null || returnType.isNullable()) return null;
+        ClassifierDescriptor classifier = returnType.getConstructor().getDeclarationDescriptor();
+        if (!(classifier instanceof ClassDescriptor)) return null;
+        ClassDescriptor resultClass = (ClassDescriptor) classifier;
+        if (resultClass.getKind() != ClassKind.CLASS || resultClass.getModality() != Modality.FINAL) return null;
+        if (!resultClass.getTypeConstructor().getParameters().isEmpty()) return null;
+        // no outer instance to pass
+        if (!(resultClass.getContainingDeclaration() instanceof NamespaceDescriptor)) return null;
+        return resultClass;
+    }
+
+    @NotNull
+    private static ConstructorDescriptor getPrimaryConstructor(@NotNull ClassDescriptor resultClass) {
+        Collection<ConstructorDescriptor> constructors = resultClass.getConstructors();
+        assert constructors.size() == 1 : "a class with a primary constructor only is expected: " + resultClass;
+        return constructors.iterator().next();
+    }
+
+    private boolean returnsOnlyConstructorCalls(@NotNull FunctionDescriptor function, @NotNull ClassDescriptor resultClass) {
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, function);
+        // the function must be generated in this compilation to get its variant
+        if (!(declaration instanceof JetNamedFunction) || !files.contains(declaration.getContainingFile())) return false;
+        JetNamedFunction namedFunction = (JetNamedFunction) declaration;
+        JetExpression body = namedFunction.getBodyExpression();
+        if (body == null) return false;
+
+        final List<JetExpression> returnedExpressions = new ArrayList<JetExpression>();
+        final boolean[] hasNestedDeclarations = new boolean[1];
+        body.accept(new JetVisitorVoid() {
+            @Override
+            public void visitJetElement(JetElement element) {
+                element.acceptChildren(this);
+            }
+
+            @Override
+            public void visitReturnExpression(JetReturnExpression expression) {
+                returnedExpressions.add(expression.getReturnedExpression());
+                super.visitReturnExpression(expression);
+            }
+
+            @Override
+            public void visitDeclaration(JetDeclaration declaration) {
+                // functions, literals and classes get classes of their own, which must not be generated twice
+                if (declaration instanceof JetDeclarationWithBody || declaration instanceof JetClassOrObject) {
+                    hasNestedDeclarations[0] = true;
+                }
+                else {
+                    super.visitDeclaration(declaration);
+                }
+            }
+        });
+        if (hasNestedDeclarations[0]) return false;
+        if (!namedFunction.hasBlockBody()) {
+            returnedExpressions.add(body);
+        }
+        if (returnedExpressions.isEmpty()) return false;
+
+        for (JetExpression returnedExpression : returnedExpressions) {
+            if (returnedExpression == null || !isPrimaryConstructorCall(returnedExpression, resultClass)) return false;
+        }
+        return true;
+    }
+
+    private boolean isPrimaryConstructorCall(@NotNull JetExpression expression, @NotNull ClassDescriptor resultClass) {
+        expression = JetPsiUtil.deparenthesize(expression);
+        if (!(expression instanceof JetCallExpression)) return false;
+        JetCallExpression call = (JetCallExpression) expression;
+        JetExpression callee = call.getCalleeExpression();
+        if (!(callee instanceof JetSimpleNameExpression)) return false;
+        DeclarationDescriptor constructor = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) callee);
+        if (!(constructor instanceof ConstructorDescriptor) || ((ConstructorDescriptor) constructor).getContainingDeclaration() != resultClass) {
+            return false;
+        }
+        if (!call.getFunctionLiteralArguments().isEmpty()) return false;
+        if (call.getValueArguments().size() != ((ConstructorDescriptor) constructor).getValueParameters().size()) return false;
+        for (ValueArgument argument : call.getValueArguments()) {
+            if (argument.isNamed() || argument.getSpreadElement() != null || argument.getArgumentExpression() == null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the constructor parameter index returned by each component function of the class,
+     *         null if creating an instance may have effects other than storing the constructor arguments
+     */
+    @Nullable
+    private Map<FunctionDescriptor, Integer> getComponents(@NotNull ClassDescriptor resultClass) {
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, resultClass);
+        if (!(declaration instanceof JetClass)) return null;
+        JetClass jetClass = (JetClass) declaration;
+        if (jetClass.isTrait() || jetClass.getClassObject() != null || !jetClass.getAnonymousInitializers().isEmpty()) return null;
+        for (JetDelegationSpecifier specifier : jetClass.getDelegationSpecifiers()) {
+            // only traits, which have no constructors
+            if (!(specifier instanceof JetDelegatorToSuperClass)) return null;
+        }
+        for (JetProperty property : jetClass.getProperties()) {
+            if (property.getInitializer() != null) return null;
+        }
+
+        Map<PropertyDescriptor, Integer> parameterIndices = new HashMap<PropertyDescriptor, Integer>();
+        List<JetParameter> parameters = jetClass.getPrimaryConstructorParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).isVarArg()) return null;
+            PropertyDescriptor property = bindingContext.get(BindingContext.VALUE_PARAMETER_AS_PROPERTY, parameters.get(i));
+            if (property != null) {
+                parameterIndices.put(property, i);
+            }
+        }
+
+        Map<FunctionDescriptor, Integer> components = new HashMap<FunctionDescriptor, Integer>();
+        for (JetDeclaration member : jetClass.getDeclarations()) {
+            if (!(member instanceof JetNamedFunction)) continue;
+            JetNamedFunction function = (JetNamedFunction) member;
+            String name = function.getName();
+            if (name == null || !name.startsWith("component") || !function.getValueParameters().isEmpty()) continue;
+            SimpleFunctionDescriptor descriptor = bindingContext.get(BindingContext.FUNCTION, function);
+            if (descriptor == null || descriptor.getReceiverParameter().exists() || !descriptor.getTypeParameters().isEmpty()) continue;
+
+            PropertyDescriptor property = getReturnedProperty(function);
+            Integer index = property != null ? parameterIndices.get(property.getOriginal()) : null;
+            if (index != null) {
+                components.put(descriptor.getOriginal(), index);
+            }
+        }
+        return components;
+    }
+
+    /**
+     * @return the property returned by a function with a body like <code>= first</code> or <code>{ return this.first }</code>
+     */
+    @Nullable
+    private PropertyDescriptor getReturnedProperty(@NotNull JetNamedFunction function) {
+        JetExpression body = function.getBodyExpression();
+        if (body == null) return null;
+        JetExpression returned = body;
+        if (function.hasBlockBody()) {
+            List<JetElement> statements = ((JetBlockExpression) body).getStatements();
+            if (statements.size() != 1 || !(statements.get(0) instanceof JetReturnExpression)) return null;
+            returned = ((JetReturnExpression) statements.get(0)).getReturnedExpression();
+            if (returned == null) return null;
+        }
+        returned = JetPsiUtil.deparenthesize(returned);
+        if (returned instanceof JetDotQualifiedExpression &&
+            ((JetDotQualifiedExpression) returned).getReceiverExpression() instanceof JetThisExpression) {
+            returned = ((JetDotQualifiedExpression) returned).getSelectorExpression();
+        }
+        if (!(returned instanceof JetSimpleNameExpression)) return null;
+        DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) returned);
+        return target instanceof PropertyDescriptor ? (PropertyDescriptor) target : null;
+    }
+}
@@ -33,7 +33,9 @@ import org.jetbrains.asm4.Opcodes;
 import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
 import org.jetbrains.asm4.commons.Method;
+import org.jetbrains.jet.codegen.intrinsics.Concat;
 import org.jetbrains.jet.codegen.intrinsics.IntrinsicMethod;
+import org.jetbrains.jet.codegen.intrinsics.StringPlus;
 import org.jetbrains.jet.codegen.signature.JvmPropertyAccessorSignature;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.diagnostics.DiagnosticUtils;
@@ -44,6 +46,7 @@ import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.calls.*;
 import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.resolve.java.JvmPrimitiveType;
 import org.jetbrains.jet.lang.resolve.scopes.receivers.*;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
@@ -89,6 +92,20 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
      */
     private final Map<JetElement, StackValue.Local> tempVariables = Maps.newHashMap();
 
+    /*
+     * Self-calls of this function marked with BindingContext.TAIL_RECURSIVE_CALL reassign parameters and jump to this label
+     */
+    @Nullable
+    private FunctionDescriptor tailRecursiveFunction;
+    @Nullable
+    private Label tailRecursionStart;
+
+    /*
+     * Set when generating the variant of a function that returns the components of its result in a holder
+     */
+    @Nullable
+    private DestructuringSpecializer.Specialization destructuredResult;
+
     static class BlockStackElement {
     }
 
@@ -161,6 +178,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         return bindingContext;
     }
 
+    public CodegenContext getContext() {
+        return context;
+    }
+
     public Collection<String> getLocalVariableNamesForExpression() {
         return localVariableNames;
     }
@@ -198,6 +219,10 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
             if (constant != null) {
                 return StackValue.constant(constant.getValue(), expressionType(expression));
             }
+            Object folded = state.getInjector().getConstantExpressionEvaluator().evaluate(expression);
+            if (folded != null) {
+                return StackValue.constant(folded, expressionType(expression));
+            }
         }
         return genQualified(StackValue.none(), expr);
     }
@@ -317,8 +342,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         }
 
 
-        Label elseLabel = new Label();
         StackValue condition = gen(expression.getCondition());
+        Boolean constantCondition = getConstantCondition(condition);
+        if (constantCondition != null) {
+            // the other branch is dead code
+            gen(constantCondition ? thenExpression : elseExpression, asmType);
+            return StackValue.onStack(asmType);
+        }
+
+        Label elseLabel = new Label();
         condition.condJump(elseLabel, true, v);   // == 0, i.e. false
 
         Label end = new Label();
@@ -393,12 +425,53 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 new ForInRangeLoopGenerator(expression, loopRangeType).invoke();
                 return StackValue.none();
             }
+            if (isClass(descriptor, "IntProgression") || isClass(descriptor, "LongProgression") || isClass(descriptor, "CharProgression")) {
+                generateForLoop(expression.getBody(), new ForInProgressionLoopGenerator(expression, loopRangeType, null));
+                return StackValue.none();
+            }
+            JetDotQualifiedExpression rangeStep = getRangeStepCall(loopRange);
+            if (rangeStep != null) {
+                // step() returns an iterator for compatibility, the loop iterates over the same elements as a progression
+                Type progressionType = Type.getObjectType(loopRangeType.getInternalName().replace("Iterator", "Progression"));
+                generateForLoop(expression.getBody(), new ForInProgressionLoopGenerator(expression, progressionType, rangeStep));
+                return StackValue.none();
+            }
 
             generateForInIterable(expression, loopRangeType);
             return StackValue.none();
         }
     }
 
+    /**
+     * @return <code>range.step(n)</code> if the loop range is a call to step() of IntRange, LongRange or CharRange
+     */
+    @Nullable
+    private JetDotQualifiedExpression getRangeStepCall(@NotNull JetExpression loopRange) {
+        JetExpression expression = JetPsiUtil.deparenthesize(loopRange);
+        if (!(expression instanceof JetDotQualifiedExpression)) {
+            return null;
+        }
+        JetDotQualifiedExpression qualified = (JetDotQualifiedExpression) expression;
+        if (!(qualified.getSelectorExpression() instanceof JetCallExpression)) {
+            return null;
+        }
+        JetCallExpression call = (JetCallExpression) qualified.getSelectorExpression();
+        if (call.getValueArguments().size() != 1 || !call.getFunctionLiteralArguments().isEmpty() || call.getCalleeExpression() == null) {
+            return null;
+        }
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, call.getCalleeExpression());
+        if (resolvedCall == null) {
+            return null;
+        }
+        CallableDescriptor step = resolvedCall.getResultingDescriptor();
+        DeclarationDescriptor range = step.getContainingDeclaration();
+        if (!step.getName().getName().equals("step") || step.getReceiverParameter().exists() ||
+            !(isClass(range, "IntRange") || isClass(range, "LongRange") || isClass(range, "CharRange"))) {
+            return null;
+        }
+        return qualified;
+    }
+
     @SuppressWarnings("ConstantConditions")
     private void generateForInIterable(JetForExpression expression, Type loopRangeType) {
         generateForLoop(expression.getBody(), new IteratorForLoopGenerator(expression));
@@ -543,6 +616,116 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         }
     }
 
+    /**
+     * Iterates over jet.IntProgression, LongProgression or CharProgression without creating an iterator:
+     * the current value, the last value and the increment are kept in local variables.
+     * A loop over <code>range.step(n)</code> iterates over <code>range.progression(n)</code> instead.
+     */
+    private class ForInProgressionLoopGenerator extends AbstractForLoopGenerator {
+        private final Type loopRangeType;
+        @Nullable
+        private final JetDotQualifiedExpression rangeStep;
+        private final Type asmElementType;
+        private final Type counterType;
+        private int myIndexVar;
+        private int myLastVar;
+        private int myIncrementVar;
+        private int myHasNextVar;
+
+        private ForInProgressionLoopGenerator(
+                @NotNull JetForExpression forExpression,
+                @NotNull Type loopRangeType,
+                @Nullable JetDotQualifiedExpression rangeStep
+        ) {
+            super(forExpression);
+            this.loopRangeType = loopRangeType;
+            this.rangeStep = rangeStep;
+            this.asmElementType = asmType(elementType);
+            this.counterType = asmElementType == Type.LONG_TYPE ? Type.LONG_TYPE : Type.INT_TYPE;
+        }
+
+        @Override
+        public void beforeLoop() {
+            myIndexVar = myFrameMap.enterTemp(counterType);
+            myLastVar = myFrameMap.enterTemp(counterType);
+            myIncrementVar = myFrameMap.enterTemp(counterType);
+            myHasNextVar = myFrameMap.enterTemp(Type.INT_TYPE);
+
+            String owner = loopRangeType.getInternalName();
+            if (rangeStep != null) {
+                JetExpression range = rangeStep.getReceiverExpression();
+                Type rangeType = expressionType(range);
+                JetExpression step = ((JetCallExpression) rangeStep.getSelectorExpression()).getValueArguments().get(0).getArgumentExpression();
+                Type stepType = counterType;
+                gen(range, rangeType);
+                gen(step, stepType);
+                v.invokevirtual(rangeType.getInternalName(), "progression",
+                                "(" + stepType.getDescriptor() + ")" + loopRangeType.getDescriptor());
+            }
+            else {
+                gen(forExpression.getLoopRange(), loopRangeType);
+            }
+            v.dup();
+            v.dup();
+            v.dup();
+
+            v.invokevirtual(owner, "isEmpty", "()Z");
+            v.iconst(1);
+            v.xor(Type.INT_TYPE);
+            v.store(myHasNextVar, Type.INT_TYPE);
+            v.invokevirtual(owner, "getStart", "()" + asmElementType.getDescriptor());
+            v.store(myIndexVar, counterType);
+            v.invokevirtual(owner, "getLast", "()" + asmElementType.getDescriptor());
+            v.store(myLastVar, counterType);
+            v.invokevirtual(owner, "getIncrement", "()" + counterType.getDescriptor());
+            v.store(myIncrementVar, counterType);
+        }
+
+        @Override
+        public void conditionAndJump(@NotNull Label loopExit) {
+            v.load(myHasNextVar, Type.INT_TYPE);
+            v.ifeq(loopExit);
+
+            // the loop stops after the last value rather than at an overflown one
+            Label notLast = new Label();
+            Label hasNextComputed = new Label();
+            v.load(myIndexVar, counterType);
+            v.load(myLastVar, counterType);
+            if (counterType == Type.LONG_TYPE) {
+                v.lcmp();
+                v.ifne(notLast);
+            }
+            else {
+                v.ificmpne(notLast);
+            }
+            v.iconst(0);
+            v.goTo(hasNextComputed);
+            v.mark(notLast);
+            v.iconst(1);
+            v.mark(hasNextComputed);
+            v.store(myHasNextVar, Type.INT_TYPE);
+        }
+
+        @Override
+        protected void assignToLoopParameter(int parameterIndex) {
+            v.load(myIndexVar, counterType);
+            v.store(parameterIndex, asmElementType);
+
+            v.load(myIndexVar, counterType);
+            v.load(myIncrementVar, counterType);
+            v.add(counterType);
+            v.store(myIndexVar, counterType);
+        }
+
+        @Override
+        public void afterLoop() {
+            myFrameMap.leaveTemp(Type.INT_TYPE);
+            myFrameMap.leaveTemp(counterType);
+            myFrameMap.leaveTemp(counterType);
+            myFrameMap.leaveTemp(counterType);
+        }
+    }
+
     private class IteratorForLoopGenerator extends AbstractForLoopGenerator {
 
         private int iteratorVarIndex;
@@ -766,7 +949,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
             myIndexVar = lookupLocal(parameterDescriptor);
             myCountVar = myFrameMap.enterTemp(Type.INT_TYPE);
             myDeltaVar = myFrameMap.enterTemp(Type.INT_TYPE);
-            if (isIntRangeExpr(expression.getLoopRange())) {
+            if (isRangeToExpr(expression.getLoopRange())) {
                 JetBinaryExpression rangeExpression = (JetBinaryExpression) expression.getLoopRange();
                 //noinspection ConstantConditions
                 gen(rangeExpression.getLeft(), Type.INT_TYPE);
@@ -900,6 +1083,18 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
             targetType = TYPE_OBJECT;
         }
 
+        Boolean constantCondition = getConstantCondition(condition);
+        if (constantCondition != null) {
+            if (constantCondition == inverse) {
+                gen(expression, expressionType);
+                StackValue.coerce(expressionType, targetType, v);
+            }
+            else {
+                StackValue.putTuple0Instance(v);
+            }
+            return StackValue.onStack(targetType);
+        }
+
         Label elseLabel = new Label();
         condition.condJump(elseLabel, inverse, v);
 
@@ -916,6 +1111,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         return StackValue.onStack(targetType);
     }
 
+    @Nullable
+    private static Boolean getConstantCondition(@NotNull StackValue condition) {
+        if (condition instanceof StackValue.Constant) {
+            Object value = ((StackValue.Constant) condition).getValue();
+            return value instanceof Boolean ? (Boolean) value : null;
+        }
+        return null;
+    }
+
     @Override
     public StackValue visitConstantExpression(JetConstantExpression expression, StackValue receiver) {
         CompileTimeConstant<?> compileTimeValue = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, expression);
@@ -925,40 +1129,126 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
 
     @Override
     public StackValue visitStringTemplateExpression(JetStringTemplateExpression expression, StackValue receiver) {
-        StringBuilder constantValue = new StringBuilder("");
-        for (JetStringTemplateEntry entry : expression.getEntries()) {
-            if (entry instanceof JetLiteralStringTemplateEntry) {
-                constantValue.append(entry.getText());
+        return generateStringConcatenation(Collections.<JetExpression>singletonList(expression), expressionType(expression));
+    }
+
+    /**
+     * Generates concatenation of the given expressions into a single StringBuilder, flattening nested string templates
+     * and string <code>+</code> chains and merging adjacent constant parts.
+     */
+    public StackValue generateStringConcatenation(@NotNull List<JetExpression> expressions, @NotNull Type type) {
+        List<Object> parts = new ArrayList<Object>();
+        for (JetExpression expression : expressions) {
+            collectStringConcatenationParts(expression, parts);
+        }
+
+        // merge adjacent constants
+        List<Object> merged = new ArrayList<Object>(parts.size());
+        int constantLength = 0;
+        for (Object part : parts) {
+            if (part instanceof String) {
+                constantLength += ((String) part).length();
+                int last = merged.size() - 1;
+                if (last >= 0 && merged.get(last) instanceof String) {
+                    merged.set(last, merged.get(last) + (String) part);
+                    continue;
+                }
             }
-            else if (entry instanceof JetEscapeStringTemplateEntry) {
-                constantValue.append(((JetEscapeStringTemplateEntry) entry).getUnescapedValue());
+            merged.add(part);
+        }
+
+        if (merged.isEmpty()) {
+            return StackValue.constant("", type);
+        }
+        if (merged.size() == 1 && merged.get(0) instanceof String) {
+            return StackValue.constant(merged.get(0), type);
+        }
+
+        v.anew(JL_STRING_BUILDER);
+        v.dup();
+        if (constantLength > 0) {
+            // leave room for the non-constant parts, as the default constructor does
+            v.iconst(constantLength + 16);
+            v.invokespecial("java/lang/StringBuilder", "<init>", "(I)V");
+        }
+        else {
+            v.invokespecial("java/lang/StringBuilder", "<init>", "()V");
+        }
+        for (Object part : merged) {
+            if (part instanceof String) {
+                v.aconst(part);
+                invokeAppendMethod(JL_STRING_TYPE);
             }
             else {
-                constantValue = null;
-                break;
+                JetExpression expression = (JetExpression) part;
+                Type exprType = expressionType(expression);
+                if (exprType.getSort() == Type.ARRAY) {
+                    exprType = TYPE_OBJECT;
+                }
+                else if (exprType == Type.BYTE_TYPE || exprType == Type.SHORT_TYPE) {
+                    // there's no append(byte) or append(short)
+                    exprType = Type.INT_TYPE;
+                }
+                gen(expression, exprType);
+                invokeAppendMethod(exprType);
             }
         }
-        if (constantValue != null) {
-            final Type type = expressionType(expression);
-            return StackValue.constant(constantValue.toString(), type);
+        v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+        return StackValue.onStack(type);
+    }
+
+    /**
+     * Adds constant parts as Strings and the rest as JetExpressions to be appended.
+     */
+    private void collectStringConcatenationParts(@NotNull JetExpression expression, @NotNull List<Object> parts) {
+        while (expression instanceof JetParenthesizedExpression) {
+            JetExpression inner = ((JetParenthesizedExpression) expression).getExpression();
+            if (inner == null) break;
+            expression = inner;
         }
-        else {
-            generateStringBuilderConstructor();
-            for (JetStringTemplateEntry entry : expression.getEntries()) {
-                if (entry instanceof JetStringTemplateEntryWithExpression) {
-                    invokeAppend(entry.getExpression());
+
+        if (expression instanceof JetStringTemplateExpression) {
+            for (JetStringTemplateEntry entry : ((JetStringTemplateExpression) expression).getEntries()) {
+                if (entry instanceof JetLiteralStringTemplateEntry) {
+                    parts.add(entry.getText());
+                }
+                else if (entry instanceof JetEscapeStringTemplateEntry) {
+                    parts.add(((JetEscapeStringTemplateEntry) entry).getUnescapedValue());
                 }
                 else {
-                    String text = entry instanceof JetEscapeStringTemplateEntry
-                                  ? ((JetEscapeStringTemplateEntry) entry).getUnescapedValue()
-                                  : entry.getText();
-                    v.aconst(text);
-                    invokeAppendMethod(JL_STRING_TYPE);
+                    JetExpression entryExpression = entry.getExpression();
+                    assert entryExpression != null : "template entry without an expression: " + entry.getText();
+                    collectStringConcatenationParts(entryExpression, parts);
                 }
             }
-            v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
-            return StackValue.onStack(expressionType(expression));
+            return;
         }
+
+        if (expression instanceof JetBinaryExpression && isStringConcatenation((JetBinaryExpression) expression)) {
+            JetBinaryExpression binaryExpression = (JetBinaryExpression) expression;
+            //noinspection ConstantConditions
+            collectStringConcatenationParts(binaryExpression.getLeft(), parts);
+            //noinspection ConstantConditions
+            collectStringConcatenationParts(binaryExpression.getRight(), parts);
+            return;
+        }
+
+        Object value = state.getInjector().getConstantExpressionEvaluator().evaluate(expression);
+        if (value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Short ||
+            value instanceof Byte || value instanceof Character || value instanceof Boolean) {
+            parts.add(String.valueOf(value));
+            return;
+        }
+
+        parts.add(expression);
+    }
+
+    private boolean isStringConcatenation(@NotNull JetBinaryExpression expression) {
+        if (expression.getOperationReference().getReferencedNameElementType() != JetTokens.PLUS) return false;
+        DeclarationDescriptor op = bindingContext.get(BindingContext.REFERENCE_TARGET, expression.getOperationReference());
+        if (!(op instanceof FunctionDescriptor)) return false;
+        IntrinsicMethod intrinsic = state.getInjector().getIntrinsics().getIntrinsic((FunctionDescriptor) op);
+        return intrinsic instanceof Concat || intrinsic instanceof StringPlus;
     }
 
     @Override
@@ -1000,7 +1290,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         final GeneratedAnonymousClassDescriptor closure = closureCodegen.gen(expression);
 
         if (closureCodegen.isConst()) {
-            v.invokestatic(closure.getClassname().getInternalName(), "$getInstance", "()" + closure.getClassname().getDescriptor());
+            closureCodegen.putConstInstance(closure, v);
         }
         else {
             v.anew(closure.getClassname().getAsmType());
@@ -1225,8 +1515,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
     public StackValue visitReturnExpression(JetReturnExpression expression, StackValue receiver) {
         final JetExpression returnedExpression = expression.getReturnedExpression();
         if (returnedExpression != null) {
-            gen(returnedExpression, returnType);
-            doFinallyOnReturn();
+            if (destructuredResult != null) {
+                int[] components = destructuredResult.storeComponents(returnedExpression, this, myFrameMap, v);
+                doFinallyOnReturn();
+                destructuredResult.putHolder(components, myFrameMap, v);
+            }
+            else {
+                gen(returnedExpression, returnType);
+                doFinallyOnReturn();
+            }
             v.areturn(returnType);
         }
         else {
@@ -1236,6 +1533,12 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
     }
 
     public void returnExpression(JetExpression expr) {
+        if (destructuredResult != null && !(expr instanceof JetBlockExpression)) {
+            destructuredResult.putHolder(destructuredResult.storeComponents(expr, this, myFrameMap, v), myFrameMap, v);
+            v.areturn(returnType);
+            return;
+        }
+
         StackValue lastValue = gen(expr);
 
         if (lastValue.type != Type.VOID_TYPE) {
@@ -1506,9 +1809,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         Method setter = null;
         if (!forceField) {
             //noinspection ConstantConditions
-            if (isInsideClass &&
-                (propertyDescriptor.getGetter() == null ||
-                 propertyDescriptor.getGetter().isDefault() && propertyDescriptor.getGetter().getModality() == Modality.FINAL)) {
+            if (isInsideClass && isNonVirtualDefaultAccessor(propertyDescriptor, propertyDescriptor.getGetter())) {
                 getter = null;
             }
             else {
@@ -1542,10 +1843,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 }
             }
             //noinspection ConstantConditions
-            if (!propertyDescriptor.isVar() || isInsideClass &&
-                                               (propertyDescriptor.getSetter() == null ||
-                                                propertyDescriptor.getSetter().isDefault() &&
-                                                propertyDescriptor.getSetter().getModality() == Modality.FINAL)) {
+            if (!propertyDescriptor.isVar() || isInsideClass && isNonVirtualDefaultAccessor(propertyDescriptor, propertyDescriptor.getSetter())) {
                 setter = null;
             }
             else {
@@ -1592,6 +1890,24 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                           isInterface, isSuper, getter, setter, invokeOpcode);
     }
 
+    /**
+     * Default accessors which can't be overridden only read or write the backing field, so it may be accessed directly
+     * from inside the declaring class
+     */
+    public static boolean isNonVirtualDefaultAccessor(
+            @NotNull PropertyDescriptor propertyDescriptor,
+            @Nullable PropertyAccessorDescriptor accessor
+    ) {
+        if (accessor == null) return true;
+        if (!accessor.isDefault()) return false;
+        if (accessor.getModality() == Modality.FINAL || propertyDescriptor.getVisibility() == Visibilities.PRIVATE) return true;
+
+        DeclarationDescriptor containingDeclaration = propertyDescriptor.getContainingDeclaration();
+        return containingDeclaration instanceof ClassDescriptor &&
+               ((ClassDescriptor) containingDeclaration).getModality() == Modality.FINAL &&
+               ((ClassDescriptor) containingDeclaration).getKind() != ClassKind.ENUM_CLASS;
+    }
+
     private PropertyDescriptor accessablePropertyDescriptor(PropertyDescriptor propertyDescriptor) {
         PropertySetterDescriptor setter = propertyDescriptor.getSetter();
         if ((propertyDescriptor.getVisibility() == Visibilities.PRIVATE ||
@@ -1643,6 +1959,11 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
             return generateConstructorCall(expression, (JetSimpleNameExpression) callee, receiver);
         }
         else if (funDescriptor instanceof FunctionDescriptor) {
+            if (tailRecursionStart != null && ((FunctionDescriptor) funDescriptor).getOriginal() == tailRecursiveFunction &&
+                Boolean.TRUE.equals(bindingContext.get(BindingContext.TAIL_RECURSIVE_CALL, expression))) {
+                return generateTailRecursion(resolvedCall);
+            }
+
             Call call = bindingContext.get(CALL, expression.getCalleeExpression());
             if (resolvedCall instanceof VariableAsFunctionResolvedCall) {
                 VariableAsFunctionResolvedCall variableAsFunctionResolvedCall = (VariableAsFunctionResolvedCall) resolvedCall;
@@ -1658,6 +1979,47 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         }
     }
 
+    public void setDestructuredResult(@Nullable DestructuringSpecializer.Specialization destructuredResult) {
+        this.destructuredResult = destructuredResult;
+    }
+
+    public void markTailRecursionStart(@NotNull FunctionDescriptor functionDescriptor) {
+        tailRecursiveFunction = functionDescriptor;
+        tailRecursionStart = new Label();
+        v.mark(tailRecursionStart);
+    }
+
+    private StackValue generateTailRecursion(@NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall) {
+        assert tailRecursiveFunction != null && tailRecursionStart != null;
+
+        // The receiver and all arguments are evaluated before any parameter is overwritten.
+        // Parameter slots get plain values even for shared parameters: they are wrapped into new shared vars after the jump
+        Type receiverType = null;
+        ReceiverDescriptor receiverArgument = resolvedCall.getReceiverArgument();
+        if (receiverArgument.exists()) {
+            receiverType = asmType(tailRecursiveFunction.getReceiverParameter().getType());
+            generateFromResolvedCall(receiverArgument, receiverType);
+        }
+
+        List<ValueParameterDescriptor> parameters = tailRecursiveFunction.getValueParameters();
+        List<Type> parameterTypes = new ArrayList<Type>(parameters.size());
+        for (ValueParameterDescriptor parameter : parameters) {
+            parameterTypes.add(asmType(parameter.getType()));
+        }
+        int mask = pushMethodArguments(resolvedCall, parameterTypes);
+        assert mask == 0 : "Tail recursive call should not use default arguments";
+
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            v.store(myFrameMap.getIndex(parameters.get(i)), parameterTypes.get(i));
+        }
+        if (receiverType != null) {
+            v.store(context.getContextKind() == OwnerKind.NAMESPACE ? 0 : 1, receiverType);
+        }
+
+        v.goTo(tailRecursionStart);
+        return StackValue.none();
+    }
+
     private StackValue invokeFunction(
             Call call,
             StackValue receiver,
@@ -2220,12 +2582,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
     }
 
     private StackValue generateIn(JetBinaryExpression expression) {
-        JetExpression expr = expression.getLeft();
         boolean inverted = expression.getOperationReference().getReferencedNameElementType() == JetTokens.NOT_IN;
-        if (isIntRangeExpr(expression.getRight())) {
-            StackValue leftValue = StackValue.expression(Type.INT_TYPE, expression.getLeft(), this);
-            JetBinaryExpression rangeExpression = (JetBinaryExpression) expression.getRight();
-            getInIntRange(leftValue, rangeExpression, inverted);
+        JetExpression rangeExpression = expression.getRight();
+        while (rangeExpression instanceof JetParenthesizedExpression) {
+            rangeExpression = ((JetParenthesizedExpression) rangeExpression).getExpression();
+        }
+        JvmPrimitiveType elementType = getRangeElementType(rangeExpression);
+        if (elementType != null) {
+            StackValue leftValue = StackValue.expression(elementType.getAsmType(), expression.getLeft(), this);
+            generateInPrimitiveRange(leftValue, rangeExpression, elementType, inverted);
         }
         else {
             invokeFunctionByReference(expression.getOperationReference());
@@ -2236,42 +2601,79 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         return StackValue.onStack(Type.BOOLEAN_TYPE);
     }
 
-    private void getInIntRange(StackValue leftValue, JetBinaryExpression rangeExpression, boolean inverted) {
-        v.iconst(1);
-        // 1
-        leftValue.put(Type.INT_TYPE, v);
-        // 1 l
-        v.dup2();
-        // 1 l 1 l
+    private void generateInPrimitiveRange(
+            StackValue leftValue,
+            JetExpression rangeExpression,
+            JvmPrimitiveType elementType,
+            boolean inverted
+    ) {
+        // floating point ranges exclude their upper bound and may be reversed, so only integral literal ranges are inlined
+        if (isRangeToExpr(rangeExpression) && elementType != JvmPrimitiveType.FLOAT && elementType != JvmPrimitiveType.DOUBLE) {
+            generateInRangeBounds(leftValue, (JetBinaryExpression) rangeExpression, elementType.getAsmType(), inverted);
+        }
+        else {
+            // range is an arbitrary expression (e.g. a stored val): call primitive contains() to avoid boxing the argument
+            Type rangeType = asmType(bindingContext.get(BindingContext.EXPRESSION_TYPE, rangeExpression));
+            gen(rangeExpression, rangeType);
+            leftValue.put(elementType.getAsmType(), v);
+            v.invokevirtual(rangeType.getInternalName(), "contains", "(" + elementType.getAsmType().getDescriptor() + ")Z");
+            if (inverted) {
+                invertBoolean();
+            }
+        }
+    }
 
+    private void generateInRangeBounds(StackValue leftValue, JetBinaryExpression rangeExpression, Type elementType, boolean inverted) {
+        // operands are evaluated in source order: value, lower bound, upper bound
+        int valueIndex = myFrameMap.enterTemp(elementType);
+        leftValue.put(elementType, v);
+        v.store(valueIndex, elementType);
+
+        int lowIndex = myFrameMap.enterTemp(elementType);
         //noinspection ConstantConditions
-        gen(rangeExpression.getLeft(), Type.INT_TYPE);
-        // 1 l 1 l r
-        Label lok = new Label();
-        v.ificmpge(lok);
-        // 1 l 1
-        v.pop();
-        v.iconst(0);
-        v.mark(lok);
-        // 1 l c
-        v.dupX2();
-        // c 1 l c
-        v.pop();
-        // c 1 l
+        gen(rangeExpression.getLeft(), elementType);
+        v.store(lowIndex, elementType);
 
-        gen(rangeExpression.getRight(), Type.INT_TYPE);
-        // c 1 l r
-        Label rok = new Label();
-        v.ificmple(rok);
-        // c 1
-        v.pop();
-        v.iconst(0);
-        v.mark(rok);
-        // c c
+        Label notInRange = new Label();
+        v.load(valueIndex, elementType);
+        //noinspection ConstantConditions
+        gen(rangeExpression.getRight(), elementType);
+        jumpIfCompare(elementType, JetTokens.GT, notInRange);
 
-        v.and(Type.INT_TYPE);
-        if (inverted) {
-            invertBoolean();
+        v.load(valueIndex, elementType);
+        v.load(lowIndex, elementType);
+        jumpIfCompare(elementType, JetTokens.LT, notInRange);
+
+        Label end = new Label();
+        v.iconst(inverted ? 0 : 1);
+        v.goTo(end);
+        v.mark(notInRange);
+        v.iconst(inverted ? 1 : 0);
+        v.mark(end);
+
+        myFrameMap.leaveTemp(elementType);
+        myFrameMap.leaveTemp(elementType);
+    }
+
+    /**
+     * Compares two values of the given integral type on top of the stack and jumps if the comparison holds.
+     */
+    private void jumpIfCompare(Type type, IElementType opToken, Label label) {
+        boolean greater = opToken == JetTokens.GT;
+        if (type == Type.LONG_TYPE) {
+            v.lcmp();
+            if (greater) {
+                v.ifgt(label);
+            }
+            else {
+                v.iflt(label);
+            }
+        }
+        else if (greater) {
+            v.ificmpgt(label);
+        }
+        else {
+            v.ificmplt(label);
         }
     }
 
@@ -2316,6 +2718,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
             return genCmpWithNull(left, leftType, opToken);
         }
 
+        if (opToken == JetTokens.EQEQ || opToken == JetTokens.EXCLEQ) {
+            Type primitiveType = getPrimitiveTypeForEquals(leftType, rightType);
+            if (primitiveType != null && !(isPrimitive(leftType) && isPrimitive(rightType))) {
+                gen(left, leftType);
+                gen(right, rightType);
+                return generateEqualsForPrimitivesOnStack(opToken, primitiveType, leftType, rightType);
+            }
+        }
+
         if (isPrimitive(leftType) != isPrimitive(rightType)) {
             gen(left, leftType);
             StackValue.valueOf(v, leftType);
@@ -2368,14 +2779,117 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 return StackValue.cmp(opToken, leftType);
             }
             else {
-                return generateNullSafeEquals(opToken, leftNullable, rightNullable);
+                return generateNullSafeEquals(opToken, leftType, leftNullable, rightNullable);
+            }
+        }
+    }
+
+    /**
+     * @return the primitive type both operands of an equality have after unboxing, or <code>null</code> if there is none
+     */
+    @Nullable
+    public static Type getPrimitiveTypeForEquals(@NotNull Type leftType, @NotNull Type rightType) {
+        Type leftPrimitive = isPrimitive(leftType) ? leftType : unboxedTypeOrNull(leftType);
+        Type rightPrimitive = isPrimitive(rightType) ? rightType : unboxedTypeOrNull(rightType);
+        return leftPrimitive != null && leftPrimitive.equals(rightPrimitive) ? leftPrimitive : null;
+    }
+
+    @Nullable
+    private static Type unboxedTypeOrNull(@NotNull Type type) {
+        JvmPrimitiveType jvmPrimitiveType = JvmPrimitiveType.getByWrapperAsmType(type);
+        return jvmPrimitiveType != null ? jvmPrimitiveType.getAsmType() : null;
+    }
+
+    /**
+     * Compares two values of the given primitive type, either of which may be boxed, without boxing the other one.
+     * Boxed operands are checked for null first; floating point values are compared the way their wrappers' equals() does.
+     */
+    public StackValue generateEqualsForPrimitivesOnStack(
+            @NotNull IElementType opToken,
+            @NotNull Type primitiveType,
+            @NotNull Type leftType,
+            @NotNull Type rightType
+    ) {
+        boolean leftBoxed = !isPrimitive(leftType);
+        boolean rightBoxed = !isPrimitive(rightType);
+
+        Label notEqual = new Label();
+        Label leftNull = new Label();
+        Label end = new Label();
+
+        int leftIndex = -1;
+        int rightIndex = -1;
+        if (leftBoxed || rightBoxed) {
+            rightIndex = myFrameMap.enterTemp(rightType);
+            v.store(rightIndex, rightType);
+            leftIndex = myFrameMap.enterTemp(leftType);
+            v.store(leftIndex, leftType);
+
+            if (leftBoxed) {
+                v.load(leftIndex, leftType);
+                v.ifnull(leftNull);
+            }
+            if (rightBoxed) {
+                v.load(rightIndex, rightType);
+                v.ifnull(notEqual);
             }
+            StackValue.local(leftIndex, leftType).put(primitiveType, v);
+            StackValue.local(rightIndex, rightType).put(primitiveType, v);
+        }
+
+        jumpIfPrimitivesNotEqual(primitiveType, notEqual);
+        v.iconst(1);
+        v.goTo(end);
+
+        if (leftBoxed) {
+            v.mark(leftNull);
+            if (rightBoxed) {
+                // null is equal only to null
+                v.load(rightIndex, rightType);
+                v.ifnonnull(notEqual);
+                v.iconst(1);
+                v.goTo(end);
+            }
+        }
+
+        v.mark(notEqual);
+        v.iconst(0);
+        v.mark(end);
+
+        if (leftBoxed || rightBoxed) {
+            myFrameMap.leaveTemp(leftType);
+            myFrameMap.leaveTemp(rightType);
+        }
+
+        if (opToken == JetTokens.EXCLEQ) {
+            invertBoolean();
         }
+        return StackValue.onStack(Type.BOOLEAN_TYPE);
     }
 
-    private StackValue generateNullSafeEquals(IElementType opToken, boolean leftNullable, boolean rightNullable) {
+    private void jumpIfPrimitivesNotEqual(Type type, Label label) {
+        if (type == Type.LONG_TYPE) {
+            v.lcmp();
+            v.ifne(label);
+        }
+        else if (type == Type.FLOAT_TYPE) {
+            v.invokestatic("java/lang/Float", "compare", "(FF)I");
+            v.ifne(label);
+        }
+        else if (type == Type.DOUBLE_TYPE) {
+            v.invokestatic("java/lang/Double", "compare", "(DD)I");
+            v.ifne(label);
+        }
+        else {
+            v.ificmpne(label);
+        }
+    }
+
+    private StackValue generateNullSafeEquals(IElementType opToken, Type leftType, boolean leftNullable, boolean rightNullable) {
+        // String.equals is a direct call on a final class, Object.equals needs a virtual dispatch
+        String owner = JL_STRING_TYPE.equals(leftType) ? JL_STRING_TYPE.getInternalName() : "java/lang/Object";
         if (!leftNullable) {
-            v.invokevirtual("java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+            v.invokevirtual(owner, "equals", "(Ljava/lang/Object;)Z");
             if (opToken == JetTokens.EXCLEQ) {
                 invertBoolean();
             }
@@ -2387,7 +2901,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 v.ifnull(rightNull);
                 Label leftNull = new Label();
                 v.ifnull(leftNull);
-                v.invokevirtual("java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+                v.invokevirtual(owner, "equals", "(Ljava/lang/Object;)Z");
                 if (opToken == JetTokens.EXCLEQ || opToken == JetTokens.EXCLEQEQEQ) {
                     invertBoolean();
                 }
@@ -2411,7 +2925,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 v.pop();
                 Label leftNull = new Label();
                 v.ifnull(leftNull);
-                v.invokevirtual("java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+                v.invokevirtual(owner, "equals", "(Ljava/lang/Object;)Z");
                 if (opToken == JetTokens.EXCLEQ || opToken == JetTokens.EXCLEQEQEQ) {
                     invertBoolean();
                 }
@@ -2664,13 +3178,20 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         return returnValueAsStackValue(op, callable.getSignature().getAsmMethod().getReturnType());
     }
 
+    /**
+     * @return true if the value of the given expression of the given type may be null, according to its type and the data flow
+     */
+    public boolean isNullCheckNeeded(@NotNull JetExpression expression, @Nullable JetType type) {
+        return type != null && type.isNullable() && !Boolean.TRUE.equals(bindingContext.get(NOT_NULL_BY_DATA_FLOW, expression));
+    }
+
     @Override
     public StackValue visitPostfixExpression(JetPostfixExpression expression, StackValue receiver) {
         if (expression.getOperationReference().getReferencedNameElementType() == JetTokens.EXCLEXCL) {
             JetExpression baseExpression = expression.getBaseExpression();
             JetType type = bindingContext.get(BindingContext.EXPRESSION_TYPE, baseExpression);
             StackValue base = genQualified(receiver, baseExpression);
-            if (type != null && type.isNullable()) {
+            if (isNullCheckNeeded(baseExpression, type)) {
                 base.put(base.type, v);
                 v.dup();
                 Label ok = new Label();
@@ -2810,10 +3331,24 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         JetExpression initializer = multiDeclaration.getInitializer();
         if (initializer == null) return StackValue.none();
 
+        DestructuringSpecializer.Specialization specialization =
+                state.getInjector().getDestructuringSpecializer().getSpecialization(multiDeclaration);
+        if (specialization != null && isCalledWithoutAccessor(specialization.getFunction())) {
+            generateSpecializedMultiDeclaration(multiDeclaration, specialization);
+            return StackValue.none();
+        }
+
         JetType initializerType = bindingContext.get(EXPRESSION_TYPE, initializer);
         assert initializerType != null;
         final ExpressionReceiver initializerAsReceiver = new ExpressionReceiver(initializer, initializerType);
 
+        // The initializer is evaluated once, all the component calls take the value from a temporary variable
+        Type initializerAsmType = asmType(initializerType);
+        int tempVarIndex = myFrameMap.enterTemp(initializerAsmType);
+        gen(initializer, initializerAsmType);
+        v.store(tempVarIndex, initializerAsmType);
+        tempVariables.put(initializer, StackValue.local(tempVarIndex, initializerAsmType));
+
         for (final JetMultiDeclarationEntry variableDeclaration : multiDeclaration.getEntries()) {
             initializeLocalVariable(variableDeclaration, new Function<VariableDescriptor, Void>() {
                 @Override
@@ -2827,9 +3362,58 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
                 }
             });
         }
+
+        tempVariables.remove(initializer);
+        myFrameMap.leaveTemp(initializerAsmType);
         return StackValue.none();
     }
 
+    /**
+     * Calls the variant of the function which returns the components of its result in a holder and reads them from there
+     */
+    private void generateSpecializedMultiDeclaration(
+            @NotNull JetMultiDeclaration multiDeclaration,
+            @NotNull final DestructuringSpecializer.Specialization specialization
+    ) {
+        //noinspection ConstantConditions
+        JetCallExpression call = (JetCallExpression) JetPsiUtil.deparenthesize(multiDeclaration.getInitializer());
+        assert call != null;
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, call.getCalleeExpression());
+        Call callObject = bindingContext.get(CALL, call.getCalleeExpression());
+        assert resolvedCall != null && callObject != null : "Unresolved call " + call.getText();
+
+        CallableMethod original = (CallableMethod) resolveToCallable(specialization.getFunction(), false);
+        invokeMethodWithArguments(specialization.getCallableMethod(original), resolvedCall, callObject, StackValue.none());
+
+        final Type holderType = specialization.getHolder().getAsmType();
+        final int holderIndex = myFrameMap.enterTemp(holderType);
+        v.store(holderIndex, holderType);
+
+        for (final JetMultiDeclarationEntry variableDeclaration : multiDeclaration.getEntries()) {
+            initializeLocalVariable(variableDeclaration, new Function<VariableDescriptor, Void>() {
+                @Override
+                public Void fun(VariableDescriptor descriptor) {
+                    ResolvedCall<FunctionDescriptor> componentCall =
+                            bindingContext.get(BindingContext.COMPONENT_RESOLVED_CALL, variableDeclaration);
+                    assert componentCall != null : "Resolved call is null for " + variableDeclaration.getText();
+                    v.load(holderIndex, holderType);
+                    specialization.getComponent(componentCall.getResultingDescriptor(), asmType(descriptor.getType()), v);
+                    return null;
+                }
+            });
+        }
+
+        myFrameMap.leaveTemp(holderType);
+    }
+
+    /**
+     * @return true if a call of the function from this context does not go through a synthetic accessor
+     */
+    private boolean isCalledWithoutAccessor(@NotNull FunctionDescriptor function) {
+        DeclarationDescriptor container = function.getContainingDeclaration();
+        return !(container instanceof ClassDescriptor) || context.getClassOrNamespaceDescriptor() == container;
+    }
+
     private void initializeLocalVariable(
             @NotNull JetVariableDeclaration variableDeclaration,
             @NotNull Function<VariableDescriptor, Void> generateInitializer
@@ -2879,9 +3463,16 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> {
         assert constructorDescriptor != null;
         final PsiElement declaration = BindingContextUtils.descriptorToDeclaration(bindingContext, constructorDescriptor);
         Type type;
+        JvmClassName templateHolder = state.getInjector().getClosureAnnotator().classNameForTemplateHolder(expression);
+        JetCallExpression templateArray =
+                templateHolder != null ? StringTemplateCodegen.getConstantStructureArray(expression, state) : null;
         if (declaration instanceof PsiMethod) {
             type = generateJavaConstructorCall(expression);
         }
+        else if (templateArray != null) {
+            StringTemplateCodegen.generateConstructorCall(expression, templateArray, templateHolder, this, v, state);
+            type = expressionType(expression);
+        }
         else if (constructorDescriptor instanceof ConstructorDescriptor) {
             //noinspection ConstantConditions
             JetType expressionType = bindingContext.get(BindingContext.EXPRESSION_TYPE, expression);
@@ -3463,8 +4054,9 @@ The "returned" value of try expression with no finally is either the last expres
             }
             JetSimpleNameExpression operationReference = conditionInRange.getOperationReference();
             boolean inverted = operationReference.getReferencedNameElementType() == JetTokens.NOT_IN;
-            if (isIntRangeExpr(rangeExpression)) {
-                getInIntRange(new StackValue.Local(subjectLocal, subjectType), (JetBinaryExpression) rangeExpression, inverted);
+            JvmPrimitiveType elementType = getRangeElementType(rangeExpression);
+            if (elementType != null) {
+                generateInPrimitiveRange(new StackValue.Local(subjectLocal, subjectType), rangeExpression, elementType, inverted);
             }
             else {
                 //FunctionDescriptor op =
@@ -3510,23 +4102,26 @@ The "returned" value of try expression with no finally is either the last expres
         v.xor(Type.INT_TYPE);
     }
 
-    private boolean isIntRangeExpr(JetExpression rangeExpression) {
-        if (rangeExpression instanceof JetBinaryExpression) {
-            JetBinaryExpression binaryExpression = (JetBinaryExpression) rangeExpression;
-            if (binaryExpression.getOperationReference().getReferencedNameElementType() == JetTokens.RANGE) {
-                JetType jetType = bindingContext.get(BindingContext.EXPRESSION_TYPE, rangeExpression);
-                assert jetType != null;
-                final DeclarationDescriptor descriptor = jetType.getConstructor().getDeclarationDescriptor();
-                if (isClass(descriptor, "IntRange") ||
-                    isClass(descriptor, "CharRange") ||
-                    isClass(descriptor, "ByteRange") ||
-                    isClass(descriptor, "LongRange") ||
-                    isClass(descriptor, "ShortRange")) {
-                    return true;
-                }
+    private static boolean isRangeToExpr(JetExpression rangeExpression) {
+        return rangeExpression instanceof JetBinaryExpression &&
+               ((JetBinaryExpression) rangeExpression).getOperationReference().getReferencedNameElementType() == JetTokens.RANGE;
+    }
+
+    /**
+     * @return element type of a (non-nullable) primitive range expression like IntRange or CharRange, null otherwise
+     */
+    @Nullable
+    private JvmPrimitiveType getRangeElementType(JetExpression rangeExpression) {
+        JetType jetType = bindingContext.get(BindingContext.EXPRESSION_TYPE, rangeExpression);
+        if (jetType == null || jetType.isNullable()) {
+            return null;
+        }
+        for (JvmPrimitiveType primitiveType : JvmPrimitiveType.values()) {
+            if (primitiveType.getPrimitiveType().getRangeClassName().is(jetType)) {
+                return primitiveType;
             }
         }
-        return false;
+        return null;
     }
 
     @Override
@@ -66,6 +66,17 @@ public class FunctionCodegen {
                 state.getInjector().getJetTypeMapper().mapToCallableMethod(functionDescriptor, false, owner.getContextKind())
                         .getSignature();
         generateMethod(f, method, true, null, functionDescriptor);
+
+        if (state.getClassBuilderMode() == ClassBuilderMode.FULL) {
+            DestructuringSpecializer.Specialization specialization =
+                    state.getInjector().getDestructuringSpecializer().getSpecialization(functionDescriptor);
+            if (specialization != null) {
+                CodegenContexts.MethodContext funContext = owner.intoFunction(functionDescriptor, state.getInjector().getJetTypeMapper());
+                generatedMethod(f.getBodyExpression(), specialization.getSignature(method), false, null, funContext, functionDescriptor, f,
+                                specialization);
+                specialization.generateHolderIfNeeded(state, f);
+            }
+        }
     }
 
     public void generateMethod(
@@ -77,7 +88,7 @@ public class FunctionCodegen {
         CodegenContexts.MethodContext funContext = owner.intoFunction(functionDescriptor, state.getInjector().getJetTypeMapper());
 
         final JetExpression bodyExpression = f.getBodyExpression();
-        generatedMethod(bodyExpression, jvmMethod, needJetAnnotations, propertyTypeSignature, funContext, functionDescriptor, f);
+        generatedMethod(bodyExpression, jvmMethod, needJetAnnotations, propertyTypeSignature, funContext, functionDescriptor, f, null);
     }
 
     private void generatedMethod(
@@ -86,7 +97,8 @@ public class FunctionCodegen {
             boolean needJetAnnotations, @Nullable String propertyTypeSignature,
             CodegenContexts.MethodContext context,
             FunctionDescriptor functionDescriptor,
-            JetDeclarationWithBody fun
+            JetDeclarationWithBody fun,
+            @Nullable DestructuringSpecializer.Specialization destructuredResult
     ) {
         if (functionDescriptor.getKind() == CallableMemberDescriptor.Kind.FAKE_OVERRIDE) {
             throw new IllegalStateException("must not generate code for fake overrides");
@@ -95,6 +107,9 @@ public class FunctionCodegen {
         List<ValueParameterDescriptor> paramDescrs = functionDescriptor.getValueParameters();
 
         int flags = JetTypeMapper.getAccessModifiers(functionDescriptor, 0);
+        if (destructuredResult != null) {
+            flags |= ACC_SYNTHETIC;
+        }
 
         if (!functionDescriptor.getValueParameters().isEmpty()
             && functionDescriptor.getValueParameters().get(functionDescriptor.getValueParameters().size() - 1)
@@ -206,6 +221,7 @@ public class FunctionCodegen {
 
                 ExpressionCodegen codegen =
                         new ExpressionCodegen(mv, frameMap, jvmSignature.getAsmMethod().getReturnType(), context, state);
+                codegen.setDestructuredResult(destructuredResult);
 
                 Type[] argTypes = jvmSignature.getAsmMethod().getArgumentTypes();
                 int add = 0;
@@ -256,6 +272,11 @@ public class FunctionCodegen {
                     iv.areturn(jvmSignature.getAsmMethod().getReturnType());
                 }
                 else {
+                    // tail calls store plain argument values and jump here, so that captured parameters get fresh shared vars
+                    if (fun instanceof JetNamedFunction && (kind == OwnerKind.NAMESPACE || kind == OwnerKind.IMPLEMENTATION)) {
+                        codegen.markTailRecursionStart(functionDescriptor);
+                    }
+
                     for (ValueParameterDescriptor parameter : paramDescrs) {
                         Type sharedVarType = state.getInjector().getJetTypeMapper().getSharedVarType(parameter);
                         if (sharedVarType != null) {
@@ -336,11 +357,15 @@ public class FunctionCodegen {
                 endVisit(mv, null, fun);
                 mv.visitEnd();
 
-                generateBridgeIfNeeded(owner, state, v, jvmSignature.getAsmMethod(), functionDescriptor, kind);
+                if (destructuredResult == null) {
+                    generateBridgeIfNeeded(owner, state, v, jvmSignature.getAsmMethod(), functionDescriptor, kind);
+                }
             }
         }
 
-        generateDefaultIfNeeded(context, state, v, jvmSignature.getAsmMethod(), functionDescriptor, kind);
+        if (destructuredResult == null) {
+            generateDefaultIfNeeded(context, state, v, jvmSignature.getAsmMethod(), functionDescriptor, kind);
+        }
     }
 
     public static void endVisit(MethodVisitor mv, @Nullable String description, @Nullable PsiElement method) {
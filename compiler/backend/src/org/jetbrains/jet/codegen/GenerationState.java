@@ -23,6 +23,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.asm4.commons.Method;
 import org.jetbrains.jet.analyzer.AnalyzeExhaust;
 import org.jetbrains.jet.di.InjectorForJvmCodegen;
@@ -38,8 +39,10 @@ import org.jetbrains.jet.utils.Progress;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class GenerationState {
     private final Progress progress;
@@ -53,6 +56,10 @@ public class GenerationState {
 
     private boolean used = false;
 
+    private boolean consolidateLambdas = false;
+
+    private final Set<JvmClassName> templateHolders = new HashSet<JvmClassName>();
+
     // out parameter
     private Method scriptConstructorMethod;
     private final BindingContext bindingContext;
@@ -109,6 +116,19 @@ public class GenerationState {
         return classBuilderMode;
     }
 
+    /**
+     * If set, non-capturing function literals are compiled into shared dispatcher classes instead of a class per literal
+     *
+     * @see LambdaDispatcherCodegen
+     */
+    public boolean isConsolidateLambdas() {
+        return consolidateLambdas;
+    }
+
+    public void setConsolidateLambdas(boolean consolidateLambdas) {
+        this.consolidateLambdas = consolidateLambdas;
+    }
+
     public void setScriptConstructorMethod(@NotNull Method scriptConstructorMethod) {
         this.scriptConstructorMethod = scriptConstructorMethod;
     }
@@ -136,6 +156,15 @@ public class GenerationState {
         return Pair.create(className, getFactory().forAnonymousSubclass(className));
     }
 
+    /**
+     * @return the builder for the holder of a compiled string template, or null if the holder has already been generated,
+     *         as the same call site may be generated more than once (e.g. in a finally block)
+     */
+    @Nullable
+    public ClassBuilder forTemplateHolder(@NotNull JvmClassName className) {
+        return templateHolders.add(className) ? getFactory().forAnonymousSubclass(className) : null;
+    }
+
     protected NamespaceCodegen forNamespace(FqName fqName, Collection<JetFile> jetFiles) {
         return getFactory().forNamespace(fqName, jetFiles);
     }
@@ -22,6 +22,7 @@ import com.intellij.openapi.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.Label;
 import org.jetbrains.asm4.MethodVisitor;
 import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
@@ -55,7 +56,9 @@ import static org.jetbrains.jet.codegen.JetTypeMapper.TYPE_OBJECT;
  * @author alex.tkachman
  */
 public class ImplementationBodyCodegen extends ClassBodyCodegen {
-    private static final String VALUES = "$VALUES";
+    public static final String VALUES = "$VALUES";
+    private static final String VALUES_BY_NAME = "$VALUES_BY_NAME";
+    private static final String HASH_MAP = "java/util/HashMap";
     private JetDelegationSpecifier superCall;
     private String superClass;
     @Nullable // null means java/lang/Object
@@ -362,12 +365,24 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
                 MethodVisitor mv =
                         v.newMethod(myClass, ACC_PUBLIC | ACC_STATIC, "valueOf", "(Ljava/lang/String;)" + type.getDescriptor(), null, null);
                 mv.visitCode();
+                Label notFound = new Label();
+                mv.visitFieldInsn(GETSTATIC, type.getInternalName(), VALUES_BY_NAME, "L" + HASH_MAP + ";");
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitMethodInsn(INVOKEVIRTUAL, HASH_MAP, "get", "(Ljava/lang/Object;)Ljava/lang/Object;");
+                mv.visitInsn(DUP);
+                mv.visitJumpInsn(IFNULL, notFound);
+                mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+                mv.visitInsn(ARETURN);
+
+                // unknown names and null are reported by Enum.valueOf()
+                mv.visitLabel(notFound);
+                mv.visitInsn(POP);
                 mv.visitLdcInsn(type);
                 mv.visitVarInsn(ALOAD, 0);
                 mv.visitMethodInsn(INVOKESTATIC, "java/lang/Enum", "valueOf", "(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Enum;");
                 mv.visitTypeInsn(CHECKCAST, type.getInternalName());
                 mv.visitInsn(ARETURN);
-                FunctionCodegen.endVisit(mv, "values()", myClass);
+                FunctionCodegen.endVisit(mv, "valueOf()", myClass);
             }
         }
     }
@@ -438,7 +453,7 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
                     InstructionAdapter iv = new InstructionAdapter(mv);
 
                     iv.load(0, JetTypeMapper.TYPE_OBJECT);
-                    if (original.getVisibility() == Visibilities.PRIVATE) {
+                    if (ExpressionCodegen.isNonVirtualDefaultAccessor(original, original.getGetter())) {
                         iv.getfield(typeMapper.getOwner(original, OwnerKind.IMPLEMENTATION).getInternalName(), original.getName().getName(),
                                     originalMethod.getReturnType().getDescriptor());
                     }
@@ -480,7 +495,7 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
                         //noinspection AssignmentToForLoopParameter
                         reg += argType.getSize();
                     }
-                    if (original.getVisibility() == Visibilities.PRIVATE && original.getModality() == Modality.FINAL) {
+                    if (ExpressionCodegen.isNonVirtualDefaultAccessor(original, original.getSetter())) {
                         iv.putfield(typeMapper.getOwner(original, OwnerKind.IMPLEMENTATION).getInternalName(), original.getName().getName(),
                                     originalMethod.getArgumentTypes()[0].getDescriptor());
                     }
@@ -1136,7 +1151,7 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
         assert myEnumConstants.size() > 0;
         JetType arrayType = JetStandardLibrary.getInstance().getArrayType(myType);
         Type arrayAsmType = typeMapper.mapType(arrayType, MapTypeMode.IMPL);
-        v.newField(myClass, ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, "$VALUES", arrayAsmType.getDescriptor(), null, null);
+        v.newField(myClass, ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, VALUES, arrayAsmType.getDescriptor(), null, null);
 
         iv.iconst(myEnumConstants.size());
         iv.newarray(myAsmType);
@@ -1185,7 +1200,22 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
             iv.putstatic(myAsmType.getInternalName(), enumConstant.getName(), "L" + myAsmType.getInternalName() + ";");
             iv.astore(TYPE_OBJECT);
         }
-        iv.putstatic(myAsmType.getInternalName(), "$VALUES", arrayAsmType.getDescriptor());
+        iv.putstatic(myAsmType.getInternalName(), VALUES, arrayAsmType.getDescriptor());
+
+        // lookup table for valueOf()
+        v.newField(myClass, ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, VALUES_BY_NAME, "L" + HASH_MAP + ";", null, null);
+        iv.anew(Type.getObjectType(HASH_MAP));
+        iv.dup();
+        iv.iconst(myEnumConstants.size() * 4 / 3 + 1);
+        iv.invokespecial(HASH_MAP, "<init>", "(I)V");
+        for (JetEnumEntry enumConstant : myEnumConstants) {
+            iv.dup();
+            iv.aconst(enumConstant.getName());
+            iv.getstatic(myAsmType.getInternalName(), enumConstant.getName(), myAsmType.getDescriptor());
+            iv.invokevirtual(HASH_MAP, "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+            iv.pop();
+        }
+        iv.putstatic(myAsmType.getInternalName(), VALUES_BY_NAME, "L" + HASH_MAP + ";");
     }
 
     public static void generateInitializers(
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.asm4.tree.*;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Collects non-capturing function literals of one file and one function class (jet.FunctionN or jet.ExtensionFunctionN)
+ * into a single class. Each literal becomes a private method of the dispatcher and an instance with the corresponding id,
+ * the erased <code>invoke</code> switches over the id.
+ *
+ * @see GenerationState#isConsolidateLambdas()
+ */
+public class LambdaDispatcherCodegen {
+    public static final String GET_INSTANCE = "$getInstance";
+
+    private static final String ID_FIELD = "$id";
+    private static final String INSTANCES_FIELD = "$instances";
+
+    private final JvmClassName name;
+    private final JvmClassName functionClass;
+    private final JetFile file;
+    private final List<MethodNode> bodies = new ArrayList<MethodNode>();
+
+    public LambdaDispatcherCodegen(@NotNull JvmClassName name, @NotNull JvmClassName functionClass, @NotNull JetFile file) {
+        this.name = name;
+        this.functionClass = functionClass;
+        this.file = file;
+    }
+
+    @NotNull
+    public JvmClassName getName() {
+        return name;
+    }
+
+    @NotNull
+    public JetFile getFile() {
+        return file;
+    }
+
+    /**
+     * Checks that the class of a function literal keeps nothing per instance: captured values, <code>this</code> and receivers
+     * are all stored in instance fields, which a shared dispatcher instance could not hold.
+     */
+    public static boolean hasNoCapturedState(@NotNull ClassNode literalClass) {
+        for (Object field : literalClass.fields) {
+            if ((((FieldNode) field).access & ACC_STATIC) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the body of a function literal may be moved out of its own class: it may not refer to its class in any way
+     * other than through <code>this</code>, which is not used by non-capturing literals anyway.
+     */
+    public static boolean canMoveBody(@NotNull MethodNode invoke, @NotNull String ownerClass) {
+        String ownerDescriptor = "L" + ownerClass + ";";
+        for (ListIterator<AbstractInsnNode> iterator = invoke.instructions.iterator(); iterator.hasNext(); ) {
+            AbstractInsnNode insn = iterator.next();
+            String owner = null;
+            String desc = null;
+            if (insn instanceof MethodInsnNode) {
+                owner = ((MethodInsnNode) insn).owner;
+                desc = ((MethodInsnNode) insn).desc;
+            }
+            else if (insn instanceof FieldInsnNode) {
+                owner = ((FieldInsnNode) insn).owner;
+                desc = ((FieldInsnNode) insn).desc;
+            }
+            else if (insn instanceof TypeInsnNode) {
+                owner = ((TypeInsnNode) insn).desc;
+            }
+            else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Type) {
+                owner = ((Type) ((LdcInsnNode) insn).cst).getInternalName();
+            }
+            else if (insn instanceof MultiANewArrayInsnNode) {
+                desc = ((MultiANewArrayInsnNode) insn).desc;
+            }
+            if (ownerClass.equals(owner) || desc != null && desc.contains(ownerDescriptor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the id of the added literal
+     */
+    public int addLambda(@NotNull MethodNode invoke) {
+        int id = bodies.size();
+        invoke.name = "invoke$" + id;
+        invoke.access = ACC_PRIVATE | ACC_FINAL;
+        if (invoke.localVariables != null) {
+            for (Object variable : invoke.localVariables) {
+                LocalVariableNode localVariable = (LocalVariableNode) variable;
+                if (localVariable.index == 0 && "this".equals(localVariable.name)) {
+                    localVariable.desc = name.getDescriptor();
+                }
+            }
+        }
+        bodies.add(invoke);
+        return id;
+    }
+
+    public void generate(@NotNull ClassBuilder cv) {
+        cv.defineClass(null, V1_6, ACC_PUBLIC | ACC_FINAL, name.getInternalName(), null, functionClass.getInternalName(), new String[0]);
+        cv.visitSource(file.getName(), null);
+
+        cv.newField(null, ACC_PRIVATE | ACC_FINAL, ID_FIELD, Type.INT_TYPE.getDescriptor(), null, null);
+        cv.newField(null, ACC_PRIVATE | ACC_STATIC | ACC_FINAL, INSTANCES_FIELD, "[" + name.getDescriptor(), null, null);
+
+        generateStaticInitializer(cv);
+        generateConstructor(cv);
+        generateGetInstance(cv);
+        generateInvoke(cv);
+        for (MethodNode body : bodies) {
+            //noinspection unchecked
+            List<String> exceptions = body.exceptions;
+            MethodVisitor mv = cv.newMethod(null, body.access, body.name, body.desc, body.signature,
+                                            exceptions.toArray(new String[exceptions.size()]));
+            body.accept(mv);
+        }
+        cv.done();
+    }
+
+    private void generateStaticInitializer(@NotNull ClassBuilder cv) {
+        InstructionAdapter iv = new InstructionAdapter(cv.newMethod(null, ACC_STATIC, "<clinit>", "()V", null, null));
+        iv.visitCode();
+        iv.iconst(bodies.size());
+        iv.newarray(name.getAsmType());
+        for (int id = 0; id < bodies.size(); id++) {
+            iv.dup();
+            iv.iconst(id);
+            iv.anew(name.getAsmType());
+            iv.dup();
+            iv.iconst(id);
+            iv.invokespecial(name.getInternalName(), "<init>", "(I)V");
+            iv.astore(JetTypeMapper.TYPE_OBJECT);
+        }
+        iv.putstatic(name.getInternalName(), INSTANCES_FIELD, "[" + name.getDescriptor());
+        iv.areturn(Type.VOID_TYPE);
+        FunctionCodegen.endVisit(iv, "static initializer", null);
+    }
+
+    private void generateConstructor(@NotNull ClassBuilder cv) {
+        InstructionAdapter iv = new InstructionAdapter(cv.newMethod(null, ACC_PRIVATE, "<init>", "(I)V", null, null));
+        iv.visitCode();
+        iv.load(0, name.getAsmType());
+        iv.invokespecial(functionClass.getInternalName(), "<init>", "()V");
+        iv.load(0, name.getAsmType());
+        iv.load(1, Type.INT_TYPE);
+        iv.putfield(name.getInternalName(), ID_FIELD, Type.INT_TYPE.getDescriptor());
+        iv.areturn(Type.VOID_TYPE);
+        FunctionCodegen.endVisit(iv, "constructor", null);
+    }
+
+    private void generateGetInstance(@NotNull ClassBuilder cv) {
+        InstructionAdapter iv = new InstructionAdapter(
+                cv.newMethod(null, ACC_PUBLIC | ACC_STATIC, GET_INSTANCE, "(I)" + name.getDescriptor(), null, null));
+        iv.visitCode();
+        iv.getstatic(name.getInternalName(), INSTANCES_FIELD, "[" + name.getDescriptor());
+        iv.load(0, Type.INT_TYPE);
+        iv.aload(name.getAsmType());
+        iv.areturn(name.getAsmType());
+        FunctionCodegen.endVisit(iv, GET_INSTANCE, null);
+    }
+
+    private void generateInvoke(@NotNull ClassBuilder cv) {
+        int parameterCount = Type.getArgumentTypes(bodies.get(0).desc).length;
+        Type[] erasedParameters = new Type[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            erasedParameters[i] = JetTypeMapper.TYPE_OBJECT;
+        }
+        String erasedDescriptor = Type.getMethodDescriptor(JetTypeMapper.TYPE_OBJECT, erasedParameters);
+
+        InstructionAdapter iv = new InstructionAdapter(cv.newMethod(null, ACC_PUBLIC, "invoke", erasedDescriptor, null, null));
+        iv.visitCode();
+        iv.load(0, name.getAsmType());
+        iv.getfield(name.getInternalName(), ID_FIELD, Type.INT_TYPE.getDescriptor());
+
+        Label[] labels = new Label[bodies.size()];
+        for (int id = 0; id < labels.length; id++) {
+            labels[id] = new Label();
+        }
+        Label unknownId = new Label();
+        iv.tableswitch(0, labels.length - 1, unknownId, labels);
+
+        for (int id = 0; id < labels.length; id++) {
+            MethodNode body = bodies.get(id);
+            iv.mark(labels[id]);
+            iv.load(0, name.getAsmType());
+            Type[] parameterTypes = Type.getArgumentTypes(body.desc);
+            for (int i = 0; i < parameterTypes.length; i++) {
+                iv.load(i + 1, JetTypeMapper.TYPE_OBJECT);
+                StackValue.onStack(JetTypeMapper.TYPE_OBJECT).upcast(parameterTypes[i], iv);
+            }
+            iv.invokespecial(name.getInternalName(), body.name, body.desc);
+            StackValue.onStack(Type.getReturnType(body.desc)).put(JetTypeMapper.TYPE_OBJECT, iv);
+            iv.areturn(JetTypeMapper.TYPE_OBJECT);
+        }
+
+        iv.mark(unknownId);
+        iv.anew(Type.getObjectType("java/lang/IllegalStateException"));
+        iv.dup();
+        iv.invokespecial("java/lang/IllegalStateException", "<init>", "()V");
+        iv.athrow();
+        FunctionCodegen.endVisit(iv, "invoke", null);
+    }
+}
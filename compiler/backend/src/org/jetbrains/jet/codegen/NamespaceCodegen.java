@@ -26,6 +26,7 @@ import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
 import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
 import org.jetbrains.jet.lang.descriptors.PropertyDescriptor;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
 import org.jetbrains.jet.lang.diagnostics.DiagnosticUtils;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.BindingContext;
@@ -237,8 +238,8 @@ public class NamespaceCodegen {
                     for (JetFile file : files) {
                         for (JetDeclaration declaration : file.getDeclarations()) {
                             if (declaration instanceof JetProperty) {
-                                final JetExpression initializer = ((JetProperty) declaration).getInitializer();
-                                if (initializer != null && !(initializer instanceof JetConstantExpression)) {
+                                if (hasNonConstantInitializer((JetProperty) declaration)) {
+                                    final JetExpression initializer = ((JetProperty) declaration).getInitializer();
                                     final PropertyDescriptor descriptor =
                                             (PropertyDescriptor) state.getBindingContext().get(BindingContext.VARIABLE, declaration);
                                     assert descriptor != null;
@@ -261,17 +262,27 @@ public class NamespaceCodegen {
     private boolean hasNonConstantPropertyInitializers() {
         for (JetFile file : files) {
             for (JetDeclaration declaration : file.getDeclarations()) {
-                if (declaration instanceof JetProperty) {
-                    final JetExpression initializer = ((JetProperty) declaration).getInitializer();
-                    if (initializer != null && !(initializer instanceof JetConstantExpression)) {
-                        return true;
-                    }
+                if (declaration instanceof JetProperty && hasNonConstantInitializer((JetProperty) declaration)) {
+                    return true;
                 }
             }
         }
         return false;
     }
 
+    /**
+     * Properties with constant initializers are initialized by the ConstantValue attribute of their fields
+     */
+    private boolean hasNonConstantInitializer(@NotNull JetProperty property) {
+        JetExpression initializer = property.getInitializer();
+        if (initializer == null || initializer instanceof JetConstantExpression) {
+            return false;
+        }
+        VariableDescriptor descriptor = state.getBindingContext().get(BindingContext.VARIABLE, property);
+        return !(descriptor instanceof PropertyDescriptor) ||
+               state.getInjector().getConstantExpressionEvaluator().getPropertyValue((PropertyDescriptor) descriptor) == null;
+    }
+
     public void done() {
         v.done();
     }
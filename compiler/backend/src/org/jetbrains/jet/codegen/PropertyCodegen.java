@@ -88,7 +88,10 @@ public class PropertyCodegen {
             Object value = null;
             final JetExpression initializer = p instanceof JetProperty ? ((JetProperty) p).getInitializer() : null;
             if (initializer != null) {
-                if (initializer instanceof JetConstantExpression) {
+                if (kind == OwnerKind.NAMESPACE) {
+                    value = state.getInjector().getConstantExpressionEvaluator().getPropertyValue(propertyDescriptor);
+                }
+                if (value == null && initializer instanceof JetConstantExpression) {
                     CompileTimeConstant<?> compileTimeValue = state.getBindingContext().get(BindingContext.COMPILE_TIME_VALUE, initializer);
                     value = compileTimeValue != null ? compileTimeValue.getValue() : null;
                 }
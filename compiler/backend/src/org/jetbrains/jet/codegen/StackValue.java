@@ -428,10 +428,21 @@ public abstract class StackValue {
             this.value = value;
         }
 
+        @Nullable
+        public Object getValue() {
+            return value;
+        }
+
         @Override
         public void put(Type type, InstructionAdapter v) {
-            if (value instanceof Integer) {
-                v.iconst((Integer) value);
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                v.iconst(((Number) value).intValue());
+            }
+            else if (value instanceof Character) {
+                v.iconst((Character) value);
+            }
+            else if (value instanceof Boolean) {
+                v.iconst((Boolean) value ? 1 : 0);
             }
             else if (value instanceof Long) {
                 v.lconst((Long) value);
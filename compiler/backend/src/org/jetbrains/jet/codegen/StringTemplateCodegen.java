@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.jet.codegen.intrinsics.JavaClassArray;
+import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
+import org.jetbrains.jet.lang.descriptors.ConstructorDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.FunctionDescriptor;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.VarargValueArgument;
+import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Compiles the constant structure of <code>kotlin.template.StringTemplate(array(...))</code> calls once per call site.
+ *
+ * When the constant parts (the even elements of the array) are compile time constants, the call site gets a holder class
+ * with a static final <code>kotlin.template.CompiledTemplate</code> initialized on first use, and the call creates
+ * a <code>kotlin.template.CompiledStringTemplate</code> referring to it instead of a plain <code>StringTemplate</code>.
+ *
+ * @see ClosureAnnotator#classNameForTemplateHolder(JetCallExpression)
+ */
+public class StringTemplateCodegen {
+    public static final String STRING_TEMPLATE = "kotlin.template.StringTemplate";
+
+    private static final String COMPILED_TEMPLATE = "kotlin/template/CompiledTemplate";
+    private static final String COMPILED_STRING_TEMPLATE = "kotlin/template/CompiledStringTemplate";
+    private static final String TEMPLATE_FIELD = "TEMPLATE";
+
+    private StringTemplateCodegen() {
+    }
+
+    public static boolean isStringTemplateConstructor(@Nullable DeclarationDescriptor descriptor) {
+        return descriptor instanceof ConstructorDescriptor &&
+               DescriptorUtils.getFQName(((ConstructorDescriptor) descriptor).getContainingDeclaration()).getFqName().equals(STRING_TEMPLATE);
+    }
+
+    /**
+     * @return the argument of <code>array(...)</code> passed to the template, if the template has a single such argument
+     * and all of its constant parts are compile time constants, <code>null</code> otherwise
+     */
+    @Nullable
+    public static JetCallExpression getConstantStructureArray(@NotNull JetCallExpression expression, @NotNull GenerationState state) {
+        if (expression.getValueArguments().size() != 1 || !expression.getFunctionLiteralArguments().isEmpty()) return null;
+        JetExpression argument = expression.getValueArguments().get(0).getArgumentExpression();
+        if (argument == null) return null;
+        argument = JetPsiUtil.deparenthesize(argument);
+        if (!(argument instanceof JetCallExpression)) return null;
+        JetCallExpression array = (JetCallExpression) argument;
+        return getConstants(array, state) != null ? array : null;
+    }
+
+    /**
+     * Creates a template referring to the compiled structure of the given call site, generating its holder on first use.
+     * The values array is generated as usual, constant parts included.
+     */
+    public static void generateConstructorCall(
+            @NotNull JetCallExpression expression,
+            @NotNull JetCallExpression array,
+            @NotNull JvmClassName holderName,
+            @NotNull ExpressionCodegen codegen,
+            @NotNull InstructionAdapter v,
+            @NotNull GenerationState state
+    ) {
+        List<String> constants = getConstants(array, state);
+        assert constants != null : "template structure is not constant: " + expression.getText();
+
+        ClassBuilder holder = state.forTemplateHolder(holderName);
+        if (holder != null) {
+            generateHolder(holder, holderName, expression, constants, array.getValueArguments().size(), state);
+        }
+
+        v.anew(JvmClassName.byInternalName(COMPILED_STRING_TEMPLATE).getAsmType());
+        v.dup();
+        v.getstatic(holderName.getInternalName(), TEMPLATE_FIELD, "L" + COMPILED_TEMPLATE + ";");
+        codegen.gen(array, JetTypeMapper.ARRAY_GENERIC_TYPE);
+        v.invokespecial(COMPILED_STRING_TEMPLATE, "<init>", "(L" + COMPILED_TEMPLATE + ";[Ljava/lang/Object;)V");
+    }
+
+    @Nullable
+    private static List<String> getConstants(@NotNull JetCallExpression array, @NotNull GenerationState state) {
+        ResolvedCall<? extends CallableDescriptor> call =
+                state.getBindingContext().get(BindingContext.RESOLVED_CALL, array.getCalleeExpression());
+        if (call == null || !(call.getResultingDescriptor() instanceof FunctionDescriptor)) return null;
+        if (!(state.getInjector().getIntrinsics().getIntrinsic((FunctionDescriptor) call.getResultingDescriptor()) instanceof JavaClassArray)) {
+            return null;
+        }
+        if (call.getValueArguments().size() != 1) return null;
+        ResolvedValueArgument resolvedArgument = call.getValueArguments().values().iterator().next();
+        if (!(resolvedArgument instanceof VarargValueArgument)) return null;
+
+        List<ValueArgument> arguments = resolvedArgument.getArguments();
+        List<String> constants = new ArrayList<String>();
+        for (int i = 0; i < arguments.size(); i++) {
+            ValueArgument argument = arguments.get(i);
+            if (argument.getSpreadElement() != null) return null;
+            if (i % 2 != 0) continue;
+            JetExpression argumentExpression = argument.getArgumentExpression();
+            Object value = argumentExpression != null ? state.getInjector().getConstantExpressionEvaluator().evaluate(argumentExpression) : null;
+            if (!(value instanceof String)) return null;
+            constants.add((String) value);
+        }
+        return constants;
+    }
+
+    private static void generateHolder(
+            @NotNull ClassBuilder cv,
+            @NotNull JvmClassName name,
+            @NotNull JetCallExpression expression,
+            @NotNull List<String> constants,
+            int size,
+            @NotNull GenerationState state
+    ) {
+        cv.defineClass(expression, V1_6, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name.getInternalName(), null, "java/lang/Object",
+                       new String[0]);
+        cv.visitSource(expression.getContainingFile().getName(), null);
+        cv.newField(expression, ACC_STATIC | ACC_FINAL, TEMPLATE_FIELD, "L" + COMPILED_TEMPLATE + ";", null, null);
+
+        MethodVisitor mv = cv.newMethod(expression, ACC_STATIC, "<clinit>", "()V", null, new String[0]);
+        if (state.getClassBuilderMode() == ClassBuilderMode.STUBS) {
+            StubCodegen.generateStubCode(mv);
+        }
+        else if (state.getClassBuilderMode() == ClassBuilderMode.FULL) {
+            mv.visitCode();
+            InstructionAdapter iv = new InstructionAdapter(mv);
+            iv.anew(JvmClassName.byInternalName(COMPILED_TEMPLATE).getAsmType());
+            iv.dup();
+            iv.iconst(constants.size());
+            iv.newarray(JetTypeMapper.JL_STRING_TYPE);
+            for (int i = 0; i < constants.size(); i++) {
+                iv.dup();
+                iv.iconst(i);
+                iv.aconst(constants.get(i));
+                iv.astore(JetTypeMapper.JL_STRING_TYPE);
+            }
+            iv.iconst(size);
+            iv.invokespecial(COMPILED_TEMPLATE, "<init>", "([Ljava/lang/String;I)V");
+            iv.putstatic(name.getInternalName(), TEMPLATE_FIELD, "L" + COMPILED_TEMPLATE + ";");
+            iv.areturn(Type.VOID_TYPE);
+            FunctionCodegen.endVisit(mv, "<clinit>", expression);
+        }
+        cv.done();
+    }
+}
@@ -43,18 +43,18 @@ public class Concat implements IntrinsicMethod {
             @NotNull GenerationState state
     ) {
         if (receiver == null || receiver == StackValue.none()) {                                                     // LHS + RHS
-            codegen.generateStringBuilderConstructor();
-            codegen.invokeAppend(arguments.get(0));                                // StringBuilder(LHS)
-            codegen.invokeAppend(arguments.get(1));
-        }
-        else {                                    // LHS.plus(RHS)
-            receiver.put(JetTypeMapper.TYPE_OBJECT, v);
-            codegen.generateStringBuilderConstructor();
-            v.swap();                                                              // StringBuilder LHS
-            codegen.invokeAppendMethod(expectedType);  // StringBuilder(LHS)
-            codegen.invokeAppend(arguments.get(0));
+            StackValue result = codegen.generateStringConcatenation(arguments, JetTypeMapper.JL_STRING_TYPE);
+            result.put(expectedType, v);
+            return StackValue.onStack(expectedType);
         }
 
+        // LHS.plus(RHS)
+        receiver.put(JetTypeMapper.TYPE_OBJECT, v);
+        codegen.generateStringBuilderConstructor();
+        v.swap();                                                              // StringBuilder LHS
+        codegen.invokeAppendMethod(expectedType);  // StringBuilder(LHS)
+        codegen.invokeAppend(arguments.get(0));
+
         v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
         StackValue.onStack(JetTypeMapper.JL_STRING_TYPE).put(expectedType, v);
         return StackValue.onStack(expectedType);
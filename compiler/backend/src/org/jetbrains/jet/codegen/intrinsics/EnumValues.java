@@ -21,13 +21,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
-import org.jetbrains.jet.codegen.ExpressionCodegen;
-import org.jetbrains.jet.codegen.GenerationState;
-import org.jetbrains.jet.codegen.MapTypeMode;
-import org.jetbrains.jet.codegen.StackValue;
+import org.jetbrains.jet.codegen.*;
 import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
 import org.jetbrains.jet.lang.psi.JetCallExpression;
+import org.jetbrains.jet.lang.psi.JetDotQualifiedExpression;
 import org.jetbrains.jet.lang.psi.JetExpression;
+import org.jetbrains.jet.lang.psi.JetForExpression;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
 import org.jetbrains.jet.lang.types.JetType;
@@ -52,8 +52,33 @@ public class EnumValues implements IntrinsicMethod {
         assert returnType != null;
         Type type = state.getInjector().getJetTypeMapper().mapType(
                 returnType, MapTypeMode.VALUE);
-        v.invokestatic(type.getElementType().getInternalName(), "values", "()" + type);
+        String enumClass = type.getElementType().getInternalName();
+        if (isIteratedInsideEnumClass(codegen, call, returnType)) {
+            // the array doesn't escape the loop, so the private array of constants can be used instead of a copy
+            v.getstatic(enumClass, ImplementationBodyCodegen.VALUES, type.getDescriptor());
+        }
+        else {
+            v.invokestatic(enumClass, "values", "()" + type);
+        }
         StackValue.onStack(type).put(expectedType, v);
         return StackValue.onStack(expectedType);
     }
+
+    private static boolean isIteratedInsideEnumClass(
+            @NotNull ExpressionCodegen codegen,
+            @NotNull JetCallExpression call,
+            @NotNull JetType arrayType
+    ) {
+        CodegenContext context = codegen.getContext();
+        ClassifierDescriptor enumClass = arrayType.getArguments().get(0).getType().getConstructor().getDeclarationDescriptor();
+        if (!context.hasThisDescriptor() || context.getThisDescriptor() != enumClass) return false;
+
+        PsiElement loopRange = call;
+        if (call.getParent() instanceof JetDotQualifiedExpression &&
+            ((JetDotQualifiedExpression) call.getParent()).getSelectorExpression() == call) {
+            loopRange = call.getParent();
+        }
+        PsiElement parent = loopRange.getParent();
+        return parent instanceof JetForExpression && ((JetForExpression) parent).getLoopRange() == loopRange;
+    }
 }
@@ -18,6 +18,7 @@ package org.jetbrains.jet.codegen.intrinsics;
 
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.asm4.Type;
 import org.jetbrains.asm4.commons.InstructionAdapter;
 import org.jetbrains.jet.codegen.ExpressionCodegen;
@@ -26,6 +27,7 @@ import org.jetbrains.jet.codegen.JetTypeMapper;
 import org.jetbrains.jet.codegen.StackValue;
 import org.jetbrains.jet.lang.psi.JetCallExpression;
 import org.jetbrains.jet.lang.psi.JetExpression;
+import org.jetbrains.jet.lang.psi.JetQualifiedExpression;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lexer.JetTokens;
@@ -48,34 +50,56 @@ public class Equals implements IntrinsicMethod {
     ) {
 
         boolean leftNullable = true;
+        Type leftType = JetTypeMapper.TYPE_OBJECT;
+        JetExpression leftExpr;
         JetExpression rightExpr;
         if (element instanceof JetCallExpression) {
-            receiver.put(JetTypeMapper.TYPE_OBJECT, v);
-            JetCallExpression jetCallExpression = (JetCallExpression) element;
-            JetExpression calleeExpression = jetCallExpression.getCalleeExpression();
-            if (calleeExpression != null) {
-                JetType leftType = codegen.getBindingContext().get(BindingContext.EXPRESSION_TYPE, calleeExpression);
-                if (leftType != null) {
-                    leftNullable = leftType.isNullable();
-                }
-            }
+            leftExpr = getReceiverExpression((JetCallExpression) element);
             rightExpr = arguments.get(0);
         }
         else {
-            JetExpression leftExpr = arguments.get(0);
-            JetType leftType = codegen.getBindingContext().get(BindingContext.EXPRESSION_TYPE, leftExpr);
-            assert leftType != null;
-            leftNullable = leftType.isNullable();
-            codegen.gen(leftExpr).put(JetTypeMapper.TYPE_OBJECT, v);
+            leftExpr = arguments.get(0);
             rightExpr = arguments.get(1);
         }
 
-        JetType rightType = codegen.getBindingContext().get(BindingContext.EXPRESSION_TYPE, rightExpr);
-        codegen.gen(rightExpr).put(JetTypeMapper.TYPE_OBJECT, v);
+        if (leftExpr != null) {
+            JetType leftJetType = codegen.getBindingContext().get(BindingContext.EXPRESSION_TYPE, leftExpr);
+            assert leftJetType != null;
+            leftNullable = leftJetType.isNullable();
+            leftType = codegen.expressionType(leftExpr);
+        }
+
+        JetType rightJetType = codegen.getBindingContext().get(BindingContext.EXPRESSION_TYPE, rightExpr);
+        assert rightJetType != null;
+        Type rightType = codegen.expressionType(rightExpr);
+
+        Type primitiveType = ExpressionCodegen.getPrimitiveTypeForEquals(leftType, rightType);
+        if (primitiveType == null) {
+            // a primitive compared with something else is compared as an object
+            leftType = JetTypeMapper.boxType(leftType);
+            rightType = JetTypeMapper.boxType(rightType);
+        }
 
-        assert rightType != null;
-        return codegen
-                .generateEqualsForExpressionsOnStack(JetTokens.EQEQ, JetTypeMapper.TYPE_OBJECT, JetTypeMapper.TYPE_OBJECT, leftNullable,
-                                                     rightType.isNullable());
+        if (element instanceof JetCallExpression) {
+            receiver.put(leftType, v);
+        }
+        else {
+            codegen.gen(leftExpr).put(leftType, v);
+        }
+        codegen.gen(rightExpr).put(rightType, v);
+
+        if (primitiveType != null) {
+            return codegen.generateEqualsForPrimitivesOnStack(JetTokens.EQEQ, primitiveType, leftType, rightType);
+        }
+        return codegen.generateEqualsForExpressionsOnStack(JetTokens.EQEQ, leftType, rightType, leftNullable, rightJetType.isNullable());
+    }
+
+    @Nullable
+    private static JetExpression getReceiverExpression(@NotNull JetCallExpression callExpression) {
+        PsiElement parent = callExpression.getParent();
+        if (parent instanceof JetQualifiedExpression && ((JetQualifiedExpression) parent).getSelectorExpression() == callExpression) {
+            return ((JetQualifiedExpression) parent).getReceiverExpression();
+        }
+        return null;
     }
 }
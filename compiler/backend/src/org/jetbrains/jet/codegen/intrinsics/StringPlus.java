@@ -43,13 +43,13 @@ public class StringPlus implements IntrinsicMethod {
             @NotNull GenerationState state
     ) {
         if (receiver == null || receiver == StackValue.none()) {
-            codegen.gen(arguments.get(0)).put(JetTypeMapper.JL_STRING_TYPE, v);
-            codegen.gen(arguments.get(1)).put(JetTypeMapper.TYPE_OBJECT, v);
-        }
-        else {
-            receiver.put(JetTypeMapper.JL_STRING_TYPE, v);
-            codegen.gen(arguments.get(0)).put(JetTypeMapper.TYPE_OBJECT, v);
+            // null receiver is appended as "null", same as Intrinsics.stringPlus() does
+            StackValue result = codegen.generateStringConcatenation(arguments, JetTypeMapper.JL_STRING_TYPE);
+            result.put(JetTypeMapper.JL_STRING_TYPE, v);
+            return StackValue.onStack(JetTypeMapper.JL_STRING_TYPE);
         }
+        receiver.put(JetTypeMapper.JL_STRING_TYPE, v);
+        codegen.gen(arguments.get(0)).put(JetTypeMapper.TYPE_OBJECT, v);
         v.invokestatic("jet/runtime/Intrinsics", "stringPlus", "(Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/String;");
         return StackValue.onStack(JetTypeMapper.JL_STRING_TYPE);
     }
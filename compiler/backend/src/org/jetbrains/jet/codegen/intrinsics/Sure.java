@@ -29,6 +29,8 @@ import org.jetbrains.jet.lang.psi.JetCallExpression;
 import org.jetbrains.jet.lang.psi.JetExpression;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ExpressionReceiver;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverDescriptor;
 
 import java.util.List;
 
@@ -50,7 +52,11 @@ public class Sure implements IntrinsicMethod {
         ResolvedCall<? extends CallableDescriptor> resolvedCall =
                 codegen.getBindingContext().get(BindingContext.RESOLVED_CALL, call.getCalleeExpression());
         assert resolvedCall != null;
-        if (resolvedCall.getReceiverArgument().getType().isNullable()) {
+        ReceiverDescriptor receiverArgument = resolvedCall.getReceiverArgument();
+        boolean checkNeeded = receiverArgument instanceof ExpressionReceiver
+                              ? codegen.isNullCheckNeeded(((ExpressionReceiver) receiverArgument).getExpression(), receiverArgument.getType())
+                              : receiverArgument.getType().isNullable();
+        if (checkNeeded) {
             receiver.put(receiver.type, v);
             v.dup();
             Label ok = new Label();
@@ -60,7 +66,7 @@ public class Sure implements IntrinsicMethod {
             StackValue.onStack(receiver.type).put(expectedType, v);
         }
         else {
-            codegen.generateFromResolvedCall(resolvedCall.getReceiverArgument(), expectedType);
+            codegen.generateFromResolvedCall(receiverArgument, expectedType);
         }
         return StackValue.onStack(expectedType);
     }
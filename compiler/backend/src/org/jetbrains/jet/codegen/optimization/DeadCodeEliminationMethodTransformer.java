@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.*;
+
+import java.util.*;
+
+/**
+ * Removes instructions that can't be reached from the method entry, and try/catch blocks left without any instructions.
+ */
+public class DeadCodeEliminationMethodTransformer extends MethodTransformer {
+    @NotNull
+    @Override
+    public String getName() {
+        return "unreachable code";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        InsnList instructions = methodNode.instructions;
+        if (instructions.size() == 0) return 0;
+
+        boolean[] reachable = findReachable(methodNode);
+
+        int removed = 0;
+        AbstractInsnNode[] array = instructions.toArray();
+        for (int i = 0; i < array.length; i++) {
+            // labels and line numbers are kept: they may be referenced from debug info
+            if (!reachable[i] && array[i].getOpcode() >= 0) {
+                instructions.remove(array[i]);
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            for (Iterator<TryCatchBlockNode> iterator = methodNode.tryCatchBlocks.iterator(); iterator.hasNext(); ) {
+                TryCatchBlockNode block = iterator.next();
+                if (isEmptyRange(block.start, block.end)) {
+                    iterator.remove();
+                }
+            }
+        }
+        return removed;
+    }
+
+    @NotNull
+    private static boolean[] findReachable(@NotNull MethodNode methodNode) {
+        InsnList instructions = methodNode.instructions;
+        boolean[] reachable = new boolean[instructions.size()];
+        Deque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(0);
+
+        boolean changed = true;
+        while (changed) {
+            while (!queue.isEmpty()) {
+                int index = queue.poll();
+                if (index >= reachable.length || reachable[index]) continue;
+                reachable[index] = true;
+
+                AbstractInsnNode insn = instructions.get(index);
+                if (insn instanceof JumpInsnNode) {
+                    queue.add(instructions.indexOf(((JumpInsnNode) insn).label));
+                }
+                else if (insn instanceof TableSwitchInsnNode) {
+                    TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                    queue.add(instructions.indexOf(tableSwitch.dflt));
+                    for (LabelNode label : tableSwitch.labels) {
+                        queue.add(instructions.indexOf(label));
+                    }
+                }
+                else if (insn instanceof LookupSwitchInsnNode) {
+                    LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                    queue.add(instructions.indexOf(lookupSwitch.dflt));
+                    for (LabelNode label : lookupSwitch.labels) {
+                        queue.add(instructions.indexOf(label));
+                    }
+                }
+                if (canFallThrough(insn)) {
+                    queue.add(index + 1);
+                }
+            }
+
+            // a handler is reachable as soon as any instruction in its range is
+            changed = false;
+            for (TryCatchBlockNode block : methodNode.tryCatchBlocks) {
+                int handler = instructions.indexOf(block.handler);
+                if (reachable[handler]) continue;
+                for (int i = instructions.indexOf(block.start); i < instructions.indexOf(block.end); i++) {
+                    if (reachable[i] && instructions.get(i).getOpcode() >= 0) {
+                        queue.add(handler);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private static boolean canFallThrough(@NotNull AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        switch (opcode) {
+            case Opcodes.GOTO:
+            case Opcodes.TABLESWITCH:
+            case Opcodes.LOOKUPSWITCH:
+            case Opcodes.ATHROW:
+            case Opcodes.RET:
+                return false;
+            default:
+                return opcode < Opcodes.IRETURN || opcode > Opcodes.RETURN;
+        }
+    }
+
+    private static boolean isEmptyRange(@NotNull LabelNode start, @NotNull LabelNode end) {
+        for (AbstractInsnNode insn = start; insn != null && insn != end; insn = insn.getNext()) {
+            if (insn.getOpcode() >= 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.*;
+
+/**
+ * Replaces stores to temporary local variables that are never read in the method with pops.
+ * Variables present in the local variable table are kept, so that they stay visible in the debugger.
+ */
+public class DeadStoreMethodTransformer extends MethodTransformer {
+    @NotNull
+    @Override
+    public String getName() {
+        return "dead store";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        int localsCount = Math.max(methodNode.maxLocals, getParametersSize(methodNode));
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof VarInsnNode) {
+                localsCount = Math.max(localsCount, ((VarInsnNode) insn).var + 2);
+            }
+        }
+
+        boolean[] used = new boolean[localsCount];
+        for (int i = 0; i < getParametersSize(methodNode); i++) {
+            used[i] = true;
+        }
+        if (methodNode.localVariables != null) {
+            for (LocalVariableNode variable : methodNode.localVariables) {
+                markUsed(used, variable.index, Type.getType(variable.desc).getSize());
+            }
+        }
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            int opcode = insn.getOpcode();
+            if (opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD || opcode == Opcodes.RET) {
+                markUsed(used, ((VarInsnNode) insn).var, opcode == Opcodes.LLOAD || opcode == Opcodes.DLOAD ? 2 : 1);
+            }
+            else if (opcode == Opcodes.IINC) {
+                markUsed(used, ((IincInsnNode) insn).var, 1);
+            }
+        }
+
+        int replaced = 0;
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            int opcode = insn.getOpcode();
+            if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE && !used[((VarInsnNode) insn).var]) {
+                boolean wide = opcode == Opcodes.LSTORE || opcode == Opcodes.DSTORE;
+                methodNode.instructions.set(insn, new InsnNode(wide ? Opcodes.POP2 : Opcodes.POP));
+                replaced++;
+            }
+            insn = next;
+        }
+        return replaced;
+    }
+
+    private static void markUsed(@NotNull boolean[] used, int index, int size) {
+        for (int i = index; i < index + size && i < used.length; i++) {
+            used[i] = true;
+        }
+    }
+
+    private static int getParametersSize(@NotNull MethodNode methodNode) {
+        int size = (methodNode.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+        for (Type type : Type.getArgumentTypes(methodNode.desc)) {
+            size += type.getSize();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.tree.AbstractInsnNode;
+import org.jetbrains.asm4.tree.MethodNode;
+
+/**
+ * A single optimization pass over the bytecode of a generated method.
+ */
+public abstract class MethodTransformer {
+
+    @NotNull
+    public abstract String getName();
+
+    /**
+     * @return the number of instructions removed or rewritten
+     */
+    public abstract int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode);
+
+    /**
+     * @return the next node which is a real instruction (not a label, line number or frame), or null
+     */
+    @Nullable
+    protected static AbstractInsnNode nextInstruction(@NotNull AbstractInsnNode node) {
+        AbstractInsnNode next = node.getNext();
+        while (next != null && next.getOpcode() < 0) {
+            next = next.getNext();
+        }
+        return next;
+    }
+
+    /**
+     * @return the immediately following node if it is a real instruction, null otherwise.
+     * No control flow can enter between the given node and the returned one.
+     */
+    @Nullable
+    protected static AbstractInsnNode adjacentInstruction(@NotNull AbstractInsnNode node) {
+        AbstractInsnNode next = node.getNext();
+        return next != null && next.getOpcode() >= 0 ? next : null;
+    }
+}
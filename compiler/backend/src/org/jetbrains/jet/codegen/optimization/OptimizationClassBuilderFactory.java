@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.ClassVisitor;
+import org.jetbrains.asm4.FieldVisitor;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.jet.codegen.ClassBuilder;
+import org.jetbrains.jet.codegen.ClassBuilderFactory;
+import org.jetbrains.jet.codegen.ClassBuilderMode;
+import org.jetbrains.jet.codegen.ClassHierarchyOracle;
+
+/**
+ * Wraps another factory so that every generated method goes through {@link OptimizationMethodVisitor}
+ * before it reaches the class writer.
+ */
+public class OptimizationClassBuilderFactory implements ClassBuilderFactory {
+    private final ClassBuilderFactory delegate;
+    private final OptimizationStatistics statistics = new OptimizationStatistics();
+
+    public OptimizationClassBuilderFactory(@NotNull ClassBuilderFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @NotNull
+    public OptimizationStatistics getStatistics() {
+        return statistics;
+    }
+
+    @NotNull
+    @Override
+    public ClassBuilderMode getClassBuilderMode() {
+        return delegate.getClassBuilderMode();
+    }
+
+    @Override
+    public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
+        return new OptimizationClassBuilder(delegate.newClassBuilder(classHierarchy));
+    }
+
+    @Override
+    public String asText(ClassBuilder builder) {
+        return delegate.asText(((OptimizationClassBuilder) builder).classBuilder);
+    }
+
+    @Override
+    public byte[] asBytes(ClassBuilder builder) {
+        return delegate.asBytes(((OptimizationClassBuilder) builder).classBuilder);
+    }
+
+    private class OptimizationClassBuilder extends ClassBuilder {
+        private final ClassBuilder classBuilder;
+        private String internalClassName;
+
+        private OptimizationClassBuilder(@NotNull ClassBuilder classBuilder) {
+            this.classBuilder = classBuilder;
+        }
+
+        @Override
+        public ClassVisitor getVisitor() {
+            return classBuilder.getVisitor();
+        }
+
+        @Override
+        public void defineClass(
+                PsiElement origin,
+                int version,
+                int access,
+                String name,
+                @Nullable String signature,
+                String superName,
+                String[] interfaces
+        ) {
+            internalClassName = name;
+            classBuilder.defineClass(origin, version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor newMethod(
+                @Nullable PsiElement origin,
+                int access,
+                String name,
+                String desc,
+                @Nullable String signature,
+                @Nullable String[] exceptions
+        ) {
+            MethodVisitor visitor = classBuilder.newMethod(origin, access, name, desc, signature, exceptions);
+            return new OptimizationMethodVisitor(visitor, internalClassName, access, name, desc, signature, exceptions, statistics);
+        }
+
+        @Override
+        public FieldVisitor newField(
+                @Nullable PsiElement origin,
+                int access,
+                String name,
+                String desc,
+                @Nullable String signature,
+                @Nullable Object value
+        ) {
+            return classBuilder.newField(origin, access, name, desc, signature, value);
+        }
+
+        @Override
+        public AnnotationVisitor newAnnotation(String desc, boolean visible) {
+            return classBuilder.newAnnotation(desc, visible);
+        }
+
+        @Override
+        public void done() {
+            classBuilder.done();
+        }
+
+        @Override
+        public void visitSource(String name, @Nullable String debug) {
+            classBuilder.visitSource(name, debug);
+        }
+
+        @Override
+        public void visitOuterClass(String owner, @Nullable String name, @Nullable String desc) {
+            classBuilder.visitOuterClass(owner, name, desc);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            classBuilder.visitInnerClass(name, outerName, innerName, access);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.MethodNode;
+
+/**
+ * Buffers a whole method into a {@link MethodNode}, runs the optimization passes over it
+ * and then replays the result to the delegate visitor.
+ */
+public class OptimizationMethodVisitor extends MethodVisitor {
+    private static final MethodTransformer[] TRANSFORMERS = new MethodTransformer[] {
+            new TupleScalarReplacementMethodTransformer(),
+            new RedundantBoxingMethodTransformer(),
+            new RedundantCheckCastMethodTransformer(),
+            new RedundantNullCheckMethodTransformer(),
+            new RedundantGotoMethodTransformer(),
+            new DeadCodeEliminationMethodTransformer(),
+            new DeadStoreMethodTransformer(),
+            new RedundantPopMethodTransformer()
+    };
+
+    private final String internalClassName;
+    private final MethodNode methodNode;
+    private final MethodVisitor delegate;
+    private final OptimizationStatistics statistics;
+
+    public OptimizationMethodVisitor(
+            @NotNull MethodVisitor delegate,
+            @NotNull String internalClassName,
+            int access,
+            @NotNull String name,
+            @NotNull String desc,
+            @Nullable String signature,
+            @Nullable String[] exceptions,
+            @NotNull OptimizationStatistics statistics
+    ) {
+        this(delegate, internalClassName, new MethodNode(access, name, desc, signature, exceptions), statistics);
+    }
+
+    private OptimizationMethodVisitor(
+            @NotNull MethodVisitor delegate,
+            @NotNull String internalClassName,
+            @NotNull MethodNode methodNode,
+            @NotNull OptimizationStatistics statistics
+    ) {
+        super(Opcodes.ASM4, methodNode);
+        this.internalClassName = internalClassName;
+        this.methodNode = methodNode;
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+
+        int sizeBefore = methodNode.instructions.size();
+        if (sizeBefore > 0) {
+            for (MethodTransformer transformer : TRANSFORMERS) {
+                statistics.passApplied(transformer.getName(), transformer.transform(internalClassName, methodNode));
+            }
+            statistics.methodOptimized(sizeBefore, methodNode.instructions.size());
+        }
+
+        methodNode.accept(delegate);
+    }
+}
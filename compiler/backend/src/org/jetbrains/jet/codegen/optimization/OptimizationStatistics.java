@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts methods processed by the bytecode optimizer and instructions changed by each pass.
+ */
+public class OptimizationStatistics {
+    private final Map<String, Integer> changesByPass = Maps.newLinkedHashMap();
+    private int methodCount = 0;
+    private int instructionsBefore = 0;
+    private int instructionsAfter = 0;
+
+    public synchronized void methodOptimized(int sizeBefore, int sizeAfter) {
+        methodCount++;
+        instructionsBefore += sizeBefore;
+        instructionsAfter += sizeAfter;
+    }
+
+    public synchronized void passApplied(@NotNull String passName, int changes) {
+        Integer old = changesByPass.get(passName);
+        changesByPass.put(passName, (old == null ? 0 : old) + changes);
+    }
+
+    public synchronized int getChanges(@NotNull String passName) {
+        Integer changes = changesByPass.get(passName);
+        return changes == null ? 0 : changes;
+    }
+
+    public synchronized int getMethodCount() {
+        return methodCount;
+    }
+
+    @NotNull
+    public synchronized List<String> render() {
+        List<String> lines = Lists.newArrayList();
+        lines.add("Optimized " + methodCount + " methods: " + instructionsBefore + " -> " + instructionsAfter + " instructions");
+        for (Map.Entry<String, Integer> entry : changesByPass.entrySet()) {
+            lines.add("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        return lines;
+    }
+}
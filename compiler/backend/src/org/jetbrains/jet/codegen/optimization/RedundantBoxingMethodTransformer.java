@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.AbstractInsnNode;
+import org.jetbrains.asm4.tree.MethodInsnNode;
+import org.jetbrains.asm4.tree.MethodNode;
+import org.jetbrains.asm4.tree.TypeInsnNode;
+import org.jetbrains.jet.lang.resolve.java.JvmPrimitiveType;
+
+/**
+ * Removes <code>Wrapper.valueOf(x)</code> immediately followed by an unboxing call returning the same primitive type,
+ * optionally with a checkcast in between (as emitted by <code>StackValue.coerce</code>) if that checkcast cannot fail.
+ */
+public class RedundantBoxingMethodTransformer extends MethodTransformer {
+    @NotNull
+    @Override
+    public String getName() {
+        return "redundant boxing";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        int removed = 0;
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            if (isBoxing(insn)) {
+                Type primitiveType = Type.getArgumentTypes(((MethodInsnNode) insn).desc)[0];
+                AbstractInsnNode cast = adjacentInstruction(insn);
+                AbstractInsnNode unboxing = cast != null && cast.getOpcode() == Opcodes.CHECKCAST ? adjacentInstruction(cast) : cast;
+                if (unboxing != null && isUnboxing(unboxing, primitiveType) &&
+                    (cast == unboxing || isCastToSupertypeOfWrapper((TypeInsnNode) cast, primitiveType))) {
+                    next = unboxing.getNext();
+                    methodNode.instructions.remove(insn);
+                    if (cast != unboxing) {
+                        methodNode.instructions.remove(cast);
+                        removed++;
+                    }
+                    methodNode.instructions.remove(unboxing);
+                    removed += 2;
+                }
+            }
+            insn = next;
+        }
+        return removed;
+    }
+
+    private static boolean isBoxing(@NotNull AbstractInsnNode insn) {
+        if (insn.getOpcode() != Opcodes.INVOKESTATIC) return false;
+        MethodInsnNode call = (MethodInsnNode) insn;
+        if (!call.name.equals("valueOf")) return false;
+        Type[] argumentTypes = Type.getArgumentTypes(call.desc);
+        if (argumentTypes.length != 1 || argumentTypes[0].getSort() > Type.DOUBLE) return false;
+        JvmPrimitiveType primitiveType = JvmPrimitiveType.getByAsmType(argumentTypes[0]);
+        return primitiveType != null && primitiveType.getWrapper().getInternalName().equals(call.owner);
+    }
+
+    /**
+     * A cast that would fail on the boxed value (e.g. an Integer cast to Long) must stay, together with the boxing
+     */
+    private static boolean isCastToSupertypeOfWrapper(@NotNull TypeInsnNode cast, @NotNull Type primitiveType) {
+        JvmPrimitiveType jvmPrimitiveType = JvmPrimitiveType.getByAsmType(primitiveType);
+        assert jvmPrimitiveType != null;
+        return cast.desc.equals(jvmPrimitiveType.getWrapper().getInternalName())
+               || cast.desc.equals("java/lang/Object")
+               || cast.desc.equals("java/io/Serializable")
+               || cast.desc.equals("java/lang/Comparable")
+               || cast.desc.equals("java/lang/Number") && primitiveType.getSort() != Type.BOOLEAN && primitiveType.getSort() != Type.CHAR;
+    }
+
+    private static boolean isUnboxing(@NotNull AbstractInsnNode insn, @NotNull Type primitiveType) {
+        if (insn.getOpcode() != Opcodes.INVOKEVIRTUAL) return false;
+        MethodInsnNode call = (MethodInsnNode) insn;
+        JvmPrimitiveType jvmPrimitiveType = JvmPrimitiveType.getByAsmType(primitiveType);
+        assert jvmPrimitiveType != null;
+        return call.name.equals(jvmPrimitiveType.getName() + "Value")
+               && call.desc.equals("()" + primitiveType.getDescriptor())
+               && (call.owner.equals("java/lang/Number") || call.owner.equals(jvmPrimitiveType.getWrapper().getInternalName()));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.*;
+
+/**
+ * Removes checkcasts to a type the value on top of the stack statically has already: casts to <code>java/lang/Object</code>,
+ * casts right after an identical cast, and casts of a call result, field value or string constant to its declared type.
+ */
+public class RedundantCheckCastMethodTransformer extends MethodTransformer {
+    @NotNull
+    @Override
+    public String getName() {
+        return "redundant checkcast";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        int removed = 0;
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            if (insn.getOpcode() == Opcodes.CHECKCAST) {
+                String castType = ((TypeInsnNode) insn).desc;
+                AbstractInsnNode previous = insn.getPrevious();
+                boolean adjacent = previous != null && previous.getOpcode() >= 0;
+                if (castType.equals("java/lang/Object") || adjacent && castType.equals(getStaticType(previous))) {
+                    methodNode.instructions.remove(insn);
+                    removed++;
+                }
+            }
+            insn = next;
+        }
+        return removed;
+    }
+
+    /**
+     * @return internal name of the reference type the given instruction is known to leave on the stack, or null if unknown
+     */
+    @Nullable
+    private static String getStaticType(@NotNull AbstractInsnNode insn) {
+        switch (insn.getOpcode()) {
+            case Opcodes.CHECKCAST:
+                return ((TypeInsnNode) insn).desc;
+            case Opcodes.INVOKESTATIC:
+            case Opcodes.INVOKEVIRTUAL:
+            case Opcodes.INVOKEINTERFACE:
+            case Opcodes.INVOKESPECIAL:
+                return internalNameOf(Type.getReturnType(((MethodInsnNode) insn).desc));
+            case Opcodes.GETFIELD:
+            case Opcodes.GETSTATIC:
+                return internalNameOf(Type.getType(((FieldInsnNode) insn).desc));
+            case Opcodes.LDC:
+                return ((LdcInsnNode) insn).cst instanceof String ? "java/lang/String" : null;
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static String internalNameOf(@NotNull Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY ? type.getInternalName() : null;
+    }
+}
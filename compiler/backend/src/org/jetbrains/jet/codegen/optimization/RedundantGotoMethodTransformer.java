@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.AbstractInsnNode;
+import org.jetbrains.asm4.tree.JumpInsnNode;
+import org.jetbrains.asm4.tree.LabelNode;
+import org.jetbrains.asm4.tree.MethodNode;
+
+/**
+ * Retargets jumps to unconditional jumps directly to the final destination
+ * and removes unconditional jumps to the instruction that follows them anyway.
+ */
+public class RedundantGotoMethodTransformer extends MethodTransformer {
+    // protects against goto cycles like `while (true) {}`
+    private static final int MAX_CHAIN_LENGTH = 16;
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "jump to jump";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        int changed = 0;
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            if (insn instanceof JumpInsnNode) {
+                JumpInsnNode jump = (JumpInsnNode) insn;
+                LabelNode target = finalTarget(jump.label);
+                if (target != jump.label) {
+                    jump.label = target;
+                    changed++;
+                }
+                if (jump.getOpcode() == Opcodes.GOTO && nextInstruction(jump) == nextInstruction(target)) {
+                    methodNode.instructions.remove(jump);
+                    changed++;
+                }
+            }
+            insn = next;
+        }
+        return changed;
+    }
+
+    @NotNull
+    private static LabelNode finalTarget(@NotNull LabelNode label) {
+        LabelNode target = label;
+        for (int i = 0; i < MAX_CHAIN_LENGTH; i++) {
+            AbstractInsnNode insn = nextInstruction(target);
+            if (insn == null || insn.getOpcode() != Opcodes.GOTO) break;
+            LabelNode nextTarget = ((JumpInsnNode) insn).label;
+            if (nextTarget == target) break;
+            target = nextTarget;
+        }
+        return target;
+    }
+}
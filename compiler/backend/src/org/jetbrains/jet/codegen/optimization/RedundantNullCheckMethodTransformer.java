@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.*;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes null assertions (<code>aload n; dup; ifnonnull L; invokestatic throwNpe; L:</code>) on a local variable
+ * which has already been checked before in the same extended basic block and not reassigned since.
+ */
+public class RedundantNullCheckMethodTransformer extends MethodTransformer {
+    private static final String INTRINSICS = "jet/runtime/Intrinsics";
+    private static final String THROW_NPE = "throwNpe";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "redundant null check";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        Set<LabelNode> jumpTargets = collectJumpTargets(methodNode);
+
+        int removed = 0;
+        BitSet checked = new BitSet();
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            int opcode = insn.getOpcode();
+            if (opcode == Opcodes.ALOAD) {
+                int var = ((VarInsnNode) insn).var;
+                LabelNode ok = matchNullCheck(insn);
+                if (ok != null) {
+                    if (checked.get(var)) {
+                        for (AbstractInsnNode check = insn.getNext(); check != ok; ) {
+                            AbstractInsnNode nextCheck = check.getNext();
+                            methodNode.instructions.remove(check);
+                            check = nextCheck;
+                        }
+                        removed += 3;
+                    }
+                    // Both paths leading to the label have the variable checked
+                    checked.set(var);
+                    next = ok.getNext();
+                }
+            }
+            else if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE) {
+                int var = ((VarInsnNode) insn).var;
+                checked.clear(var);
+                if (opcode == Opcodes.LSTORE || opcode == Opcodes.DSTORE) {
+                    checked.clear(var + 1);
+                }
+            }
+            else if (opcode == Opcodes.IINC) {
+                checked.clear(((IincInsnNode) insn).var);
+            }
+            else if (insn instanceof LabelNode && jumpTargets.contains(insn)) {
+                checked.clear();
+            }
+            insn = next;
+        }
+        return removed;
+    }
+
+    /**
+     * @return the label ending the null assertion on the variable loaded by the given instruction, or null if there is no assertion
+     */
+    @Nullable
+    private static LabelNode matchNullCheck(@NotNull AbstractInsnNode load) {
+        AbstractInsnNode dup = adjacentInstruction(load);
+        if (dup == null || dup.getOpcode() != Opcodes.DUP) return null;
+        AbstractInsnNode ifNonNull = adjacentInstruction(dup);
+        if (ifNonNull == null || ifNonNull.getOpcode() != Opcodes.IFNONNULL) return null;
+        AbstractInsnNode throwNpe = adjacentInstruction(ifNonNull);
+        if (throwNpe == null || throwNpe.getOpcode() != Opcodes.INVOKESTATIC) return null;
+        MethodInsnNode call = (MethodInsnNode) throwNpe;
+        if (!INTRINSICS.equals(call.owner) || !THROW_NPE.equals(call.name)) return null;
+        LabelNode ok = ((JumpInsnNode) ifNonNull).label;
+        return throwNpe.getNext() == ok ? ok : null;
+    }
+
+    @NotNull
+    private static Set<LabelNode> collectJumpTargets(@NotNull MethodNode methodNode) {
+        Set<LabelNode> targets = new HashSet<LabelNode>();
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof JumpInsnNode) {
+                targets.add(((JumpInsnNode) insn).label);
+            }
+            else if (insn instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                targets.add(tableSwitch.dflt);
+                targets.addAll(tableSwitch.labels);
+            }
+            else if (insn instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                targets.add(lookupSwitch.dflt);
+                targets.addAll(lookupSwitch.labels);
+            }
+        }
+        for (TryCatchBlockNode tryCatchBlock : methodNode.tryCatchBlocks) {
+            targets.add(tryCatchBlock.handler);
+        }
+        return targets;
+    }
+}
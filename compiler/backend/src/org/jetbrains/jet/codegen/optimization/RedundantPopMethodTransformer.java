@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.AbstractInsnNode;
+import org.jetbrains.asm4.tree.LdcInsnNode;
+import org.jetbrains.asm4.tree.MethodNode;
+
+/**
+ * Removes pairs of a side effect free push (load, constant, dup) immediately followed by a pop of the same size.
+ */
+public class RedundantPopMethodTransformer extends MethodTransformer {
+    @NotNull
+    @Override
+    public String getName() {
+        return "push/pop";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        int removed = 0;
+        boolean changed = true;
+        // removing a pair may make the previous push adjacent to another pop
+        while (changed) {
+            changed = false;
+            AbstractInsnNode insn = methodNode.instructions.getFirst();
+            while (insn != null) {
+                AbstractInsnNode next = insn.getNext();
+                int pushSize = getPushSize(insn);
+                AbstractInsnNode pop = adjacentInstruction(insn);
+                if (pushSize > 0 && pop != null && getPopSize(pop) == pushSize) {
+                    next = pop.getNext();
+                    methodNode.instructions.remove(insn);
+                    methodNode.instructions.remove(pop);
+                    removed += 2;
+                    changed = true;
+                }
+                insn = next;
+            }
+        }
+        return removed;
+    }
+
+    private static int getPopSize(@NotNull AbstractInsnNode insn) {
+        switch (insn.getOpcode()) {
+            case Opcodes.POP:
+                return 1;
+            case Opcodes.POP2:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return number of stack words pushed by the instruction if it has no other effect, 0 otherwise
+     */
+    private static int getPushSize(@NotNull AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        switch (opcode) {
+            case Opcodes.ACONST_NULL:
+            case Opcodes.ICONST_M1:
+            case Opcodes.ICONST_0:
+            case Opcodes.ICONST_1:
+            case Opcodes.ICONST_2:
+            case Opcodes.ICONST_3:
+            case Opcodes.ICONST_4:
+            case Opcodes.ICONST_5:
+            case Opcodes.FCONST_0:
+            case Opcodes.FCONST_1:
+            case Opcodes.FCONST_2:
+            case Opcodes.BIPUSH:
+            case Opcodes.SIPUSH:
+            case Opcodes.ILOAD:
+            case Opcodes.FLOAD:
+            case Opcodes.ALOAD:
+            case Opcodes.DUP:
+                return 1;
+            case Opcodes.LCONST_0:
+            case Opcodes.LCONST_1:
+            case Opcodes.DCONST_0:
+            case Opcodes.DCONST_1:
+            case Opcodes.LLOAD:
+            case Opcodes.DLOAD:
+            case Opcodes.DUP2:
+                return 2;
+            case Opcodes.LDC:
+                Object constant = ((LdcInsnNode) insn).cst;
+                if (constant instanceof Long || constant instanceof Double) return 2;
+                // class literals may fail to load, so they are not side effect free
+                return constant instanceof Type ? 0 : 1;
+            default:
+                return 0;
+        }
+    }
+}
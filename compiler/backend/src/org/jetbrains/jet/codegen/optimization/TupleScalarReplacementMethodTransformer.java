@@ -0,0 +1,285 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replaces a tuple that is created, stored to a local variable and then only read component by component
+ * (<code>val p = #(x, y); p._1 + p._2</code>) with one local variable per component, so that no tuple is allocated.
+ *
+ * The tuple must be the only value ever stored to its variable, its components must be computed by straight-line code,
+ * and every load of the variable must be immediately followed by a read of a component.
+ * Entries of the variable in the local variable table are replaced with entries for the components.
+ */
+public class TupleScalarReplacementMethodTransformer extends MethodTransformer {
+    private static final String TUPLE_PREFIX = "jet/Tuple";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "tuple scalar replacement";
+    }
+
+    @Override
+    public int transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
+        if (methodNode.name.equals("<init>")) {
+            // super and this constructor calls are not paired with a NEW
+            return 0;
+        }
+
+        int changed = 0;
+        AbstractInsnNode insn = methodNode.instructions.getFirst();
+        while (insn != null) {
+            AbstractInsnNode next = insn.getNext();
+            if (insn.getOpcode() == Opcodes.NEW) {
+                Candidate candidate = findCandidate(methodNode, (TypeInsnNode) insn);
+                if (candidate != null) {
+                    next = candidate.store.getNext();
+                    changed += replace(methodNode, candidate);
+                }
+            }
+            insn = next;
+        }
+        return changed;
+    }
+
+    private static class Candidate {
+        final TypeInsnNode allocation;
+        final MethodInsnNode constructor;
+        final VarInsnNode store;
+        final int size;
+        final List<VarInsnNode> loads = Lists.newArrayList();
+
+        Candidate(@NotNull TypeInsnNode allocation, @NotNull MethodInsnNode constructor, @NotNull VarInsnNode store, int size) {
+            this.allocation = allocation;
+            this.constructor = constructor;
+            this.store = store;
+            this.size = size;
+        }
+    }
+
+    @Nullable
+    private static Candidate findCandidate(@NotNull MethodNode methodNode, @NotNull TypeInsnNode allocation) {
+        int size = getTupleSize(allocation.desc);
+        if (size <= 0) return null;
+
+        AbstractInsnNode dup = adjacentInstruction(allocation);
+        if (dup == null || dup.getOpcode() != Opcodes.DUP) return null;
+
+        MethodInsnNode constructor = findConstructor(methodNode, dup, allocation.desc);
+        if (constructor == null) return null;
+
+        AbstractInsnNode store = adjacentInstruction(constructor);
+        if (store == null || store.getOpcode() != Opcodes.ASTORE) return null;
+        int var = ((VarInsnNode) store).var;
+        if (var < getParametersSize(methodNode)) return null;
+
+        Candidate candidate = new Candidate(allocation, constructor, (VarInsnNode) store, size);
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn == store) continue;
+            if (insn instanceof VarInsnNode && ((VarInsnNode) insn).var == var ||
+                insn instanceof IincInsnNode && ((IincInsnNode) insn).var == var) {
+                if (insn.getOpcode() != Opcodes.ALOAD || getComponentIndex(adjacentInstruction(insn), allocation.desc, size) < 0) {
+                    return null;
+                }
+                candidate.loads.add((VarInsnNode) insn);
+            }
+            else if (insn instanceof VarInsnNode && isWide(insn.getOpcode()) && ((VarInsnNode) insn).var == var - 1) {
+                // a long or double in the previous slot overlaps this variable
+                return null;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * @return the constructor call of the tuple allocated right before the given DUP, if the components
+     * are computed by straight-line code between them, null otherwise
+     */
+    @Nullable
+    private static MethodInsnNode findConstructor(@NotNull MethodNode methodNode, @NotNull AbstractInsnNode dup, @NotNull String owner) {
+        Set<LabelNode> protectedLabels = Sets.newHashSet();
+        for (TryCatchBlockNode block : methodNode.tryCatchBlocks) {
+            protectedLabels.add(block.start);
+            protectedLabels.add(block.end);
+            protectedLabels.add(block.handler);
+        }
+
+        int pendingAllocations = 0;
+        for (AbstractInsnNode insn = dup.getNext(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof JumpInsnNode || insn instanceof TableSwitchInsnNode || insn instanceof LookupSwitchInsnNode) {
+                return null;
+            }
+            int opcode = insn.getOpcode();
+            if (opcode == Opcodes.ATHROW || opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN || opcode == Opcodes.RET) {
+                return null;
+            }
+            if (insn instanceof LabelNode && (protectedLabels.contains(insn) || isJumpTarget(methodNode, (LabelNode) insn))) {
+                return null;
+            }
+            if (opcode == Opcodes.NEW) {
+                pendingAllocations++;
+            }
+            else if (opcode == Opcodes.INVOKESPECIAL && ((MethodInsnNode) insn).name.equals("<init>")) {
+                if (pendingAllocations > 0) {
+                    pendingAllocations--;
+                }
+                else {
+                    MethodInsnNode constructor = (MethodInsnNode) insn;
+                    return constructor.owner.equals(owner) ? constructor : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isJumpTarget(@NotNull MethodNode methodNode, @NotNull LabelNode label) {
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof JumpInsnNode && ((JumpInsnNode) insn).label == label) return true;
+            if (insn instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                if (tableSwitch.dflt == label || tableSwitch.labels.contains(label)) return true;
+            }
+            if (insn instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                if (lookupSwitch.dflt == label || lookupSwitch.labels.contains(label)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static int replace(@NotNull MethodNode methodNode, @NotNull Candidate candidate) {
+        InsnList instructions = methodNode.instructions;
+        int firstComponent = getLocalsCount(methodNode);
+        methodNode.maxLocals = Math.max(methodNode.maxLocals, firstComponent + candidate.size);
+
+        // the components are on the stack in order, the last one on top
+        for (int i = candidate.size - 1; i >= 0; i--) {
+            instructions.insertBefore(candidate.store, new VarInsnNode(Opcodes.ASTORE, firstComponent + i));
+        }
+        instructions.remove(candidate.allocation.getNext());
+        instructions.remove(candidate.allocation);
+        instructions.remove(candidate.constructor);
+        instructions.remove(candidate.store);
+        int changed = 4;
+
+        for (VarInsnNode load : candidate.loads) {
+            AbstractInsnNode read = adjacentInstruction(load);
+            assert read != null;
+            load.var = firstComponent + getComponentIndex(read, candidate.allocation.desc, candidate.size);
+            instructions.remove(read);
+            changed++;
+        }
+
+        if (methodNode.localVariables != null) {
+            List<LocalVariableNode> components = Lists.newArrayList();
+            for (Iterator<LocalVariableNode> iterator = methodNode.localVariables.iterator(); iterator.hasNext(); ) {
+                LocalVariableNode variable = iterator.next();
+                if (variable.index != candidate.store.var) continue;
+                iterator.remove();
+                for (int i = 0; i < candidate.size; i++) {
+                    components.add(new LocalVariableNode(variable.name + "$_" + (i + 1), "Ljava/lang/Object;", null,
+                                                         variable.start, variable.end, firstComponent + i));
+                }
+            }
+            methodNode.localVariables.addAll(components);
+        }
+        return changed;
+    }
+
+    /**
+     * @return the number of components of the tuple class, or -1 if the class is not a tuple with components
+     */
+    private static int getTupleSize(@NotNull String internalName) {
+        if (!internalName.startsWith(TUPLE_PREFIX)) return -1;
+        try {
+            return Integer.parseInt(internalName.substring(TUPLE_PREFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the zero-based index of the component read by the given instruction, or -1 if it is not a component read
+     */
+    private static int getComponentIndex(@Nullable AbstractInsnNode insn, @NotNull String owner, int size) {
+        String name;
+        if (insn != null && insn.getOpcode() == Opcodes.GETFIELD) {
+            FieldInsnNode field = (FieldInsnNode) insn;
+            if (!field.owner.equals(owner) || !field.desc.equals("Ljava/lang/Object;")) return -1;
+            name = field.name;
+        }
+        else if (insn != null && insn.getOpcode() == Opcodes.INVOKEVIRTUAL) {
+            MethodInsnNode call = (MethodInsnNode) insn;
+            if (!call.owner.equals(owner) || !call.desc.equals("()Ljava/lang/Object;") || !call.name.startsWith("get")) return -1;
+            name = call.name.substring("get".length());
+        }
+        else {
+            return -1;
+        }
+        if (!name.startsWith("_")) return -1;
+        try {
+            int index = Integer.parseInt(name.substring(1)) - 1;
+            return index >= 0 && index < size ? index : -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isWide(int opcode) {
+        return opcode == Opcodes.LLOAD || opcode == Opcodes.DLOAD || opcode == Opcodes.LSTORE || opcode == Opcodes.DSTORE;
+    }
+
+    private static int getLocalsCount(@NotNull MethodNode methodNode) {
+        int localsCount = Math.max(methodNode.maxLocals, getParametersSize(methodNode));
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof VarInsnNode) {
+                localsCount = Math.max(localsCount, ((VarInsnNode) insn).var + (isWide(insn.getOpcode()) ? 2 : 1));
+            }
+            else if (insn instanceof IincInsnNode) {
+                localsCount = Math.max(localsCount, ((IincInsnNode) insn).var + 1);
+            }
+        }
+        if (methodNode.localVariables != null) {
+            for (LocalVariableNode variable : methodNode.localVariables) {
+                localsCount = Math.max(localsCount, variable.index + Type.getType(variable.desc).getSize());
+            }
+        }
+        return localsCount;
+    }
+
+    private static int getParametersSize(@NotNull MethodNode methodNode) {
+        int size = (methodNode.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+        for (Type type : Type.getArgumentTypes(methodNode.desc)) {
+            size += type.getSize();
+        }
+        return size;
+    }
+}
@@ -32,6 +32,10 @@ import org.jetbrains.jet.codegen.intrinsics.IntrinsicMethods;
 import org.jetbrains.jet.codegen.ClassFileFactory;
 import org.jetbrains.jet.codegen.MemberCodegen;
 import org.jetbrains.jet.codegen.ClosureAnnotator;
+import org.jetbrains.jet.codegen.ClassHierarchyOracle;
+import org.jetbrains.jet.codegen.ConstantExpressionEvaluator;
+import org.jetbrains.jet.codegen.DestructuringSpecializer;
+import org.jetbrains.jet.lang.resolve.java.PsiClassFinderImpl;
 import org.jetbrains.annotations.NotNull;
 import javax.annotation.PreDestroy;
 
@@ -52,6 +56,10 @@ public class InjectorForJvmCodegen {
     private ClassFileFactory classFileFactory;
     private MemberCodegen memberCodegen;
     private ClosureAnnotator closureAnnotator;
+    private ClassHierarchyOracle classHierarchyOracle;
+    private ConstantExpressionEvaluator constantExpressionEvaluator;
+    private DestructuringSpecializer destructuringSpecializer;
+    private PsiClassFinderImpl psiClassFinder;
 
     public InjectorForJvmCodegen(
         @NotNull BindingContext bindingContext,
@@ -76,6 +84,10 @@ public class InjectorForJvmCodegen {
         this.classFileFactory = new ClassFileFactory();
         this.memberCodegen = new MemberCodegen();
         this.closureAnnotator = new ClosureAnnotator();
+        this.classHierarchyOracle = new ClassHierarchyOracle();
+        this.constantExpressionEvaluator = new ConstantExpressionEvaluator();
+        this.destructuringSpecializer = new DestructuringSpecializer();
+        this.psiClassFinder = new PsiClassFinderImpl();
 
         this.jetTypeMapper.setBindingContext(bindingContext);
         this.jetTypeMapper.setBuiltinToJavaTypesMapping(builtinToJavaTypesMapping);
@@ -93,6 +105,7 @@ public class InjectorForJvmCodegen {
         this.scriptCodegen.setState(generationState);
 
         this.classFileFactory.setBuilderFactory(classBuilderFactory);
+        this.classFileFactory.setClassHierarchy(classHierarchyOracle);
         this.classFileFactory.setState(generationState);
 
         this.memberCodegen.setState(generationState);
@@ -100,10 +113,25 @@ public class InjectorForJvmCodegen {
         this.closureAnnotator.setBindingContext(bindingContext);
         this.closureAnnotator.setFiles(listOfJetFile);
 
+        this.classHierarchyOracle.setBindingContext(bindingContext);
+        this.classHierarchyOracle.setPsiClassFinder(psiClassFinder);
+        this.classHierarchyOracle.setTypeMapper(jetTypeMapper);
+
+        this.constantExpressionEvaluator.setBindingContext(bindingContext);
+        this.constantExpressionEvaluator.setTypeMapper(jetTypeMapper);
+
+        this.destructuringSpecializer.setBindingContext(bindingContext);
+        this.destructuringSpecializer.setFiles(listOfJetFile);
+        this.destructuringSpecializer.setTypeMapper(jetTypeMapper);
+
+        this.psiClassFinder.setProject(project);
+
         jetTypeMapper.init();
 
         intrinsics.init();
 
+        psiClassFinder.initialize();
+
     }
 
     @PreDestroy
@@ -146,4 +174,12 @@ public class InjectorForJvmCodegen {
         return this.closureAnnotator;
     }
 
+    public ConstantExpressionEvaluator getConstantExpressionEvaluator() {
+        return this.constantExpressionEvaluator;
+    }
+
+    public DestructuringSpecializer getDestructuringSpecializer() {
+        return this.destructuringSpecializer;
+    }
+
 }
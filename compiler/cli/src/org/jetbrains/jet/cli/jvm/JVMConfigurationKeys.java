@@ -41,4 +41,6 @@ public class JVMConfigurationKeys {
     public static final CompilerConfigurationKey<Boolean> STUBS = CompilerConfigurationKey.create("stubs");
     public static final CompilerConfigurationKey<BuiltinToJavaTypesMapping> BUILTIN_TO_JAVA_TYPES_MAPPING_KEY =
             CompilerConfigurationKey.create("builtin to java types mapping");
+    public static final CompilerConfigurationKey<Boolean> OPTIMIZE = CompilerConfigurationKey.create("optimize bytecode");
+    public static final CompilerConfigurationKey<Boolean> CONSOLIDATE_LAMBDAS = CompilerConfigurationKey.create("consolidate lambdas");
 }
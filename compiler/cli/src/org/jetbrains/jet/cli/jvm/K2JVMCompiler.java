@@ -109,6 +109,8 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
         configuration.put(JVMConfigurationKeys.STUBS, builtins);
         configuration.put(JVMConfigurationKeys.BUILTIN_TO_JAVA_TYPES_MAPPING_KEY,
                                   builtins ? BuiltinToJavaTypesMapping.DISABLED : BuiltinToJavaTypesMapping.ENABLED);
+        configuration.put(JVMConfigurationKeys.OPTIMIZE, arguments.optimize);
+        configuration.put(JVMConfigurationKeys.CONSOLIDATE_LAMBDAS, arguments.consolidateLambdas);
 
         configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
 
@@ -133,8 +135,7 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
             }
             else if (arguments.script) {
                 List<String> scriptArgs = arguments.freeArgs.subList(1, arguments.freeArgs.size());
-                JetCoreEnvironment environment = new JetCoreEnvironment(rootDisposable, configuration);
-                noErrors = KotlinToJVMBytecodeCompiler.compileAndExecuteScript(environment, scriptArgs);
+                noErrors = KotlinToJVMBytecodeCompiler.compileAndExecuteScript(configuration, rootDisposable, scriptArgs);
             }
             else {
                 JetCoreEnvironment environment = new JetCoreEnvironment(rootDisposable, configuration);
@@ -75,6 +75,12 @@ public class K2JVMCompilerArguments extends CompilerArguments {
     @Argument(value = "script", description = "evaluate script")
     public boolean script;
 
+    @Argument(value = "optimize", description = "run bytecode optimization passes over generated methods")
+    public boolean optimize;
+
+    @Argument(value = "consolidateLambdas", description = "compile non-capturing function literals of a file into shared classes")
+    public boolean consolidateLambdas;
+
     @Argument(value = "tags", description = "Demarcate each compilation message (error, warning, etc) with an open and close tag")
     public boolean tags;
 
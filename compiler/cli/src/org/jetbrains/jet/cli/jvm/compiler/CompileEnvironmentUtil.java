@@ -46,6 +46,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.jar.*;
 
 /**
@@ -81,6 +82,26 @@ public class CompileEnvironmentUtil {
 
     @NotNull
     public static List<Module> loadModuleScript(String moduleScriptFile, MessageCollector messageCollector) {
+        // a module script is compiled alone against the runtime, so its classes depend only on its text and the runtime
+        CompiledClassesCache cache = CompiledClassesCache.getDefault();
+        String cacheKey = null;
+        if (cache != null) {
+            try {
+                cacheKey = CompiledClassesCache.key("module script", FileUtil.loadFileBytes(new File(moduleScriptFile)),
+                                                    PathUtil.getDefaultRuntimePath());
+            }
+            catch (IOException e) {
+                throw new CompileEnvironmentException("Failed to read module script " + moduleScriptFile, e);
+            }
+            File cachedJar = cache.get(cacheKey);
+            Properties metadata = cachedJar != null ? cache.getMetadata(cacheKey) : null;
+            // the warnings of the module script are reported as if it was compiled again
+            if (metadata != null && RecordingMessageCollector.replay(metadata, messageCollector)) {
+                URLClassLoader loader = new URLClassLoader(new URL[] {CompiledClassesCache.toURL(cachedJar)}, createModuleScriptParentLoader());
+                return checkModules(moduleScriptFile, runDefineModules(moduleScriptFile, loader));
+            }
+        }
+
         Disposable disposable = new Disposable() {
             @Override
             public void dispose() {
@@ -98,7 +119,8 @@ public class CompileEnvironmentUtil {
             configuration.add(JVMConfigurationKeys.ANNOTATIONS_PATH_KEY, jdkAnnotationsPath);
         }
         configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, moduleScriptFile);
-        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
+        RecordingMessageCollector recordingCollector = cache != null ? new RecordingMessageCollector(messageCollector) : null;
+        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, recordingCollector != null ? recordingCollector : messageCollector);
 
         JetCoreEnvironment scriptEnvironment = new JetCoreEnvironment(disposable, configuration);
 
@@ -107,10 +129,29 @@ public class CompileEnvironmentUtil {
             throw new CompileEnvironmentException("Module script " + moduleScriptFile + " analyze failed");
         }
 
-        List<Module> modules = runDefineModules(moduleScriptFile, generationState.getFactory());
+        ClassFileFactory factory = generationState.getFactory();
+        GeneratedClassLoader loader = new GeneratedClassLoader(factory, createModuleScriptParentLoader());
+        List<Module> modules;
+        try {
+            modules = runDefineModules(moduleScriptFile, loader);
+        }
+        finally {
+            loader.dispose();
+        }
+
+        if (recordingCollector != null && modules != null) {
+            Properties metadata = new Properties();
+            recordingCollector.store(metadata);
+            cache.put(cacheKey, factory, metadata);
+        }
 
         Disposer.dispose(disposable);
 
+        return checkModules(moduleScriptFile, modules);
+    }
+
+    @NotNull
+    private static List<Module> checkModules(String moduleScriptFile, @Nullable List<Module> modules) {
         if (modules == null) {
             throw new CompileEnvironmentException("Module script " + moduleScriptFile + " compilation failed");
         }
@@ -121,21 +162,21 @@ public class CompileEnvironmentUtil {
         return modules;
     }
 
-    private static List<Module> runDefineModules(String moduleFile, ClassFileFactory factory) {
+    @NotNull
+    private static ClassLoader createModuleScriptParentLoader() {
         File stdlibJar = PathUtil.getDefaultRuntimePath();
-        GeneratedClassLoader loader;
         if (stdlibJar != null) {
             try {
-                loader = new GeneratedClassLoader(factory, new URLClassLoader(new URL[]{stdlibJar.toURI().toURL()},
-                                                                              AllModules.class.getClassLoader()));
+                return new URLClassLoader(new URL[]{stdlibJar.toURI().toURL()}, AllModules.class.getClassLoader());
             }
             catch (MalformedURLException e) {
                 throw new RuntimeException(e);
             }
         }
-        else {
-            loader = new GeneratedClassLoader(factory, KotlinToJVMBytecodeCompiler.class.getClassLoader());
-        }
+        return KotlinToJVMBytecodeCompiler.class.getClassLoader();
+    }
+
+    private static List<Module> runDefineModules(String moduleFile, ClassLoader loader) {
         try {
             Class namespaceClass = loader.loadClass(JvmAbi.PACKAGE_CLASS);
             final Method method = namespaceClass.getDeclaredMethod("project");
@@ -153,9 +194,6 @@ public class CompileEnvironmentUtil {
         catch (Exception e) {
             throw new ModuleExecutionException(e);
         }
-        finally {
-            loader.dispose();
-        }
     }
 
     // TODO: includeRuntime should be not a flag but a path to runtime
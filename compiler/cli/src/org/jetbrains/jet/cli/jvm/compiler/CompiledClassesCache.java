@@ -0,0 +1,353 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.cli.common.CompilerVersion;
+import org.jetbrains.jet.codegen.ClassFileFactory;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+
+/**
+ * A directory of jars with the classes generated for some sources, keyed by a hash of everything the classes depend on
+ * (see {@link #key}), so that unchanged sources can be loaded without analysis and code generation.
+ *
+ * Each entry is a jar, optionally with a properties file of metadata, and entries are evicted least recently used first
+ * when the total size exceeds {@link #MAXIMUM_SIZE_PROPERTY} megabytes.
+ *
+ * The cache is best effort: failures to write it are ignored and the callers compile as if there was no cache.
+ */
+public class CompiledClassesCache {
+    /**
+     * The cache directory, or "off" to disable the cache. Defaults to ~/.kotlin/cache
+     */
+    public static final String CACHE_DIRECTORY_PROPERTY = "kotlin.compiler.cache";
+    /**
+     * The maximum total size of the cache in megabytes, 256 by default
+     */
+    public static final String MAXIMUM_SIZE_PROPERTY = "kotlin.compiler.cache.size";
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 256L * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maximumSize;
+
+    public CompiledClassesCache(@NotNull File directory, long maximumSize) {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cache configured by {@link #CACHE_DIRECTORY_PROPERTY}, or null if the cache is disabled or the compiler
+     * is not loaded from a jar: classes of a compiler under development change without changing its identity
+     */
+    @Nullable
+    public static CompiledClassesCache getDefault() {
+        return create(System.getProperty(CACHE_DIRECTORY_PROPERTY), System.getProperty(MAXIMUM_SIZE_PROPERTY), getCompilerJar());
+    }
+
+    @Nullable
+    static CompiledClassesCache create(@Nullable String property, @Nullable String size, @Nullable File compilerJar) {
+        if ("off".equals(property) || compilerJar == null) {
+            return null;
+        }
+        File directory = property != null
+                         ? new File(property)
+                         : new File(new File(System.getProperty("user.home"), ".kotlin"), "cache");
+        long maximumSize = DEFAULT_MAXIMUM_SIZE;
+        if (size != null) {
+            try {
+                maximumSize = Long.parseLong(size) * 1024 * 1024;
+            }
+            catch (NumberFormatException e) {
+                // keep the default
+            }
+        }
+        return new CompiledClassesCache(directory, maximumSize);
+    }
+
+    @NotNull
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Computes a key from the given parts and the identity of the compiler. Strings and byte arrays are hashed
+     * by content; files are hashed by path, size and modification time, which is enough for jars on a class path
+     * and avoids reading them.
+     */
+    @NotNull
+    public static String key(@NotNull Object... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(CompilerVersion.VERSION.getBytes(UTF_8));
+        updateWithFile(digest, getCompilerJar());
+        for (Object part : parts) {
+            if (part instanceof byte[]) {
+                digest.update((byte[]) part);
+            }
+            else if (part instanceof File) {
+                updateWithFile(digest, (File) part);
+            }
+            else {
+                digest.update(String.valueOf(part).getBytes(UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+
+        StringBuilder answer = new StringBuilder();
+        for (byte b : digest.digest()) {
+            answer.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return answer.toString();
+    }
+
+    private static void updateWithFile(@NotNull MessageDigest digest, @Nullable File file) {
+        String identity = file == null ? "<none>" : file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        digest.update(identity.getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the jar with the classes stored for the key, or null if there is none
+     */
+    @Nullable
+    public File get(@NotNull String key) {
+        File jar = getJar(key);
+        if (!jar.isFile()) {
+            return null;
+        }
+        // mark as recently used
+        //noinspection ResultOfMethodCallIgnored
+        jar.setLastModified(System.currentTimeMillis());
+        return jar;
+    }
+
+    /**
+     * Returns the metadata stored with the jar for the key, or null if there is no jar or no metadata
+     */
+    @Nullable
+    public Properties getMetadata(@NotNull String key) {
+        File file = getMetadataFile(key);
+        if (!getJar(key).isFile() || !file.isFile()) {
+            return null;
+        }
+        Properties metadata = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                metadata.load(in);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+        return metadata;
+    }
+
+    /**
+     * Stores the classes under the key and returns the jar, or returns null if the cache can't be written
+     */
+    @Nullable
+    public File put(@NotNull String key, @NotNull ClassFileFactory factory) {
+        return put(key, factory, null);
+    }
+
+    /**
+     * Stores the classes and their metadata under the key and returns the jar, or returns null if the cache can't be written
+     */
+    @Nullable
+    public File put(@NotNull String key, @NotNull final ClassFileFactory factory, @Nullable Properties metadata) {
+        return put(key, new JarWriter() {
+            @Override
+            public void write(@NotNull OutputStream out) {
+                CompileEnvironmentUtil.writeToJar(factory, out, null, false);
+            }
+        }, metadata);
+    }
+
+    interface JarWriter {
+        void write(@NotNull OutputStream out) throws IOException;
+    }
+
+    @Nullable
+    File put(@NotNull String key, @NotNull JarWriter writer, @Nullable Properties metadata) {
+        File jar = getJar(key);
+        File temp = null;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            directory.mkdirs();
+            // the metadata goes first: an entry exists once its jar does
+            if (metadata != null) {
+                temp = File.createTempFile(key, ".tmp", directory);
+                OutputStream out = new FileOutputStream(temp);
+                try {
+                    metadata.store(out, null);
+                }
+                finally {
+                    out.close();
+                }
+                if (!rename(temp, getMetadataFile(key))) {
+                    return null;
+                }
+            }
+            // other compilers may read or write the same key meanwhile, so write the jar under a unique name first
+            temp = File.createTempFile(key, ".tmp", directory);
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                writer.write(out);
+            }
+            finally {
+                out.close();
+            }
+            if (!rename(temp, jar)) {
+                return null;
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+        catch (CompileEnvironmentException e) {
+            return null;
+        }
+        finally {
+            if (temp != null && temp.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+            }
+        }
+        evict();
+        return jar;
+    }
+
+    private static boolean rename(@NotNull File from, @NotNull File to) {
+        if (from.renameTo(to)) {
+            return true;
+        }
+        // renameTo doesn't replace existing files on Windows
+        //noinspection ResultOfMethodCallIgnored
+        to.delete();
+        return from.renameTo(to) || to.isFile();
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits into its maximum size
+     */
+    private void evict() {
+        File[] jars = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(".jar");
+            }
+        });
+        if (jars == null) {
+            return;
+        }
+        long size = 0;
+        for (File jar : jars) {
+            size += entrySize(jar);
+        }
+        if (size <= maximumSize) {
+            return;
+        }
+
+        final long[] lastModified = new long[jars.length];
+        Integer[] order = new Integer[jars.length];
+        for (int i = 0; i < jars.length; i++) {
+            // read once, the files may be touched while sorting
+            lastModified[i] = jars[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return lastModified[a] < lastModified[b] ? -1 : (lastModified[a] == lastModified[b] ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < order.length && size > maximumSize; i++) {
+            File jar = jars[order[i]];
+            size -= entrySize(jar);
+            String key = jar.getName().substring(0, jar.getName().length() - ".jar".length());
+            //noinspection ResultOfMethodCallIgnored
+            jar.delete();
+            //noinspection ResultOfMethodCallIgnored
+            getMetadataFile(key).delete();
+        }
+    }
+
+    private long entrySize(@NotNull File jar) {
+        String key = jar.getName().substring(0, jar.getName().length() - ".jar".length());
+        return jar.length() + getMetadataFile(key).length();
+    }
+
+    @NotNull
+    public static URL toURL(@NotNull File jar) {
+        try {
+            return jar.toURI().toURL();
+        }
+        catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private File getJar(@NotNull String key) {
+        return new File(directory, key + ".jar");
+    }
+
+    @NotNull
+    private File getMetadataFile(@NotNull String key) {
+        return new File(directory, key + ".properties");
+    }
+
+    @Nullable
+    private static File getCompilerJar() {
+        CodeSource source = CompiledClassesCache.class.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            return null;
+        }
+        try {
+            File file = new File(source.getLocation().toURI());
+            return file.isFile() ? file : null;
+        }
+        catch (URISyntaxException e) {
+            return null;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
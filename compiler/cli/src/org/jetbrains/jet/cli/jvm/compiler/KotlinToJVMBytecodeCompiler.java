@@ -21,12 +21,15 @@ import com.google.common.base.Predicates;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.PsiFile;
 import jet.Function0;
 import jet.modules.AllModules;
 import jet.modules.Module;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.Method;
 import org.jetbrains.jet.analyzer.AnalyzeExhaust;
 import org.jetbrains.jet.cli.common.CLIConfigurationKeys;
 import org.jetbrains.jet.cli.common.CompilerPlugin;
@@ -34,6 +37,7 @@ import org.jetbrains.jet.cli.common.CompilerPluginContext;
 import org.jetbrains.jet.cli.common.messages.*;
 import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.codegen.*;
+import org.jetbrains.jet.codegen.optimization.OptimizationClassBuilderFactory;
 import org.jetbrains.jet.config.CommonConfigurationKeys;
 import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.lang.BuiltinsScopeExtensionMode;
@@ -47,6 +51,7 @@ import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
 import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.types.ref.JetTypeName;
 import org.jetbrains.jet.plugin.JetMainDetector;
 import org.jetbrains.jet.utils.ExceptionUtils;
 import org.jetbrains.jet.utils.PathUtil;
@@ -56,13 +61,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author yole
@@ -71,6 +75,9 @@ import java.util.List;
  */
 public class KotlinToJVMBytecodeCompiler {
 
+    private static final String SCRIPT_CLASS_NAME = "script.class";
+    private static final String SCRIPT_CONSTRUCTOR_DESCRIPTOR = "script.constructor";
+
     private KotlinToJVMBytecodeCompiler() {
     }
 
@@ -223,7 +230,21 @@ public class KotlinToJVMBytecodeCompiler {
     public static boolean compileAndExecuteScript(
             @NotNull JetCoreEnvironment environment,
             @NotNull List<String> scriptArgs) {
-        Class<?> scriptClass = compileScript(environment, null);
+        return executeScript(compileScript(environment, null), scriptArgs);
+    }
+
+    /**
+     * Compiles and runs the script given by the configuration, reusing the classes compiled by an earlier run
+     * of the same script if they are cached: in this case no environment is created
+     */
+    public static boolean compileAndExecuteScript(
+            @NotNull CompilerConfiguration configuration,
+            @NotNull Disposable disposable,
+            @NotNull List<String> scriptArgs) {
+        return executeScript(compileScript(configuration, disposable, null, false), scriptArgs);
+    }
+
+    private static boolean executeScript(@Nullable Class<?> scriptClass, @NotNull List<String> scriptArgs) {
         if(scriptClass == null)
             return false;
 
@@ -241,6 +262,45 @@ public class KotlinToJVMBytecodeCompiler {
 
     public static Class<?> compileScript(
             @NotNull JetCoreEnvironment environment, ClassLoader parentLoader) {
+        return compileScript(environment, parentLoader, null, null, null);
+    }
+
+    @Nullable
+    private static Class<?> compileScript(
+            @NotNull CompilerConfiguration configuration,
+            @NotNull Disposable disposable,
+            @Nullable ClassLoader parentLoader,
+            boolean markFileAsScript) {
+        CompiledClassesCache cache = CompiledClassesCache.getDefault();
+        String cacheKey = cache != null ? scriptCacheKey(configuration, markFileAsScript) : null;
+        RecordingMessageCollector messageCollector = null;
+        if (cacheKey != null) {
+            MessageCollector collector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY,
+                                                           MessageCollector.PLAIN_TEXT_TO_SYSTEM_ERR);
+            Class<?> scriptClass = loadCachedScript(cache, cacheKey, parentLoader, collector);
+            if (scriptClass != null) {
+                return scriptClass;
+            }
+            // the warnings of this compilation are stored with its classes to be reported again on reuse
+            messageCollector = new RecordingMessageCollector(collector);
+            configuration = configuration.copy();
+            configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
+        }
+
+        JetCoreEnvironment environment = new JetCoreEnvironment(disposable, configuration);
+        if (markFileAsScript) {
+            JetScriptDefinitionProvider.getInstance(environment.getProject()).markFileAsScript(environment.getSourceFiles().get(0));
+        }
+        return compileScript(environment, parentLoader, cacheKey != null ? cache : null, cacheKey, messageCollector);
+    }
+
+    @Nullable
+    private static Class<?> compileScript(
+            @NotNull JetCoreEnvironment environment,
+            @Nullable ClassLoader parentLoader,
+            @Nullable CompiledClassesCache cache,
+            @Nullable String cacheKey,
+            @Nullable RecordingMessageCollector messageCollector) {
 
         GenerationState generationState = analyzeAndGenerate(environment);
         if (generationState == null) {
@@ -249,14 +309,21 @@ public class KotlinToJVMBytecodeCompiler {
 
         try {
             ClassFileFactory factory = generationState.getFactory();
+            JetFile scriptFile = environment.getSourceFiles().get(0);
+            String className = ScriptNameUtil.classNameForScript(scriptFile);
+            if (cache != null && cacheKey != null && messageCollector != null) {
+                Properties metadata = new Properties();
+                messageCollector.store(metadata);
+                metadata.setProperty(SCRIPT_CLASS_NAME, className);
+                Method constructor = generationState.getScriptConstructorMethod();
+                if (constructor != null) {
+                    metadata.setProperty(SCRIPT_CONSTRUCTOR_DESCRIPTOR, constructor.getDescriptor());
+                }
+                cache.put(cacheKey, factory, metadata);
+            }
             try {
-                GeneratedClassLoader classLoader = new GeneratedClassLoader(factory, new URLClassLoader(new URL[]{
-                        // TODO: add all classpath
-                        PathUtil.getDefaultRuntimePath().toURI().toURL()
-                },
-                        parentLoader == null ? AllModules.class.getClassLoader() : parentLoader));
-                JetFile scriptFile = environment.getSourceFiles().get(0);
-                return classLoader.loadClass(ScriptNameUtil.classNameForScript(scriptFile));
+                GeneratedClassLoader classLoader = new GeneratedClassLoader(factory, createScriptParentLoader(parentLoader));
+                return classLoader.loadClass(className);
             }
             catch (Exception e) {
                 throw new RuntimeException("Failed to evaluate script: " + e, e);
@@ -267,6 +334,125 @@ public class KotlinToJVMBytecodeCompiler {
         }
     }
 
+    @NotNull
+    private static ClassLoader createScriptParentLoader(@Nullable ClassLoader parentLoader) throws MalformedURLException {
+        return new URLClassLoader(new URL[]{
+                // TODO: add all classpath
+                PathUtil.getDefaultRuntimePath().toURI().toURL()
+        },
+                parentLoader == null ? AllModules.class.getClassLoader() : parentLoader);
+    }
+
+    /**
+     * Returns the key of the classes compiled for the script given by the configuration, or null if they should not
+     * be cached: a directory on the class path can change without changing its size or modification time
+     */
+    @Nullable
+    private static String scriptCacheKey(@NotNull CompilerConfiguration configuration, boolean markFileAsScript) {
+        List<Object> parts = new ArrayList<Object>();
+        parts.add("script");
+        // a file marked as a script is compiled as one whatever its extension is
+        parts.add(markFileAsScript);
+        try {
+            for (String path : configuration.getList(CommonConfigurationKeys.SOURCE_ROOTS_KEY)) {
+                File file = new File(path);
+                if (!file.isFile()) {
+                    return null;
+                }
+                // the name of the script class is derived from the file name
+                parts.add(file.getAbsolutePath());
+                parts.add(FileUtil.loadFileBytes(file));
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+        for (File file : configuration.getList(JVMConfigurationKeys.CLASSPATH_KEY)) {
+            if (file.isDirectory()) {
+                return null;
+            }
+            parts.add(file);
+        }
+        parts.add(PathUtil.getDefaultRuntimePath());
+        parts.add(System.getProperty("java.version"));
+        for (AnalyzerScriptParameter parameter : configuration.getList(JVMConfigurationKeys.SCRIPT_PARAMETERS)) {
+            parts.add(renderScriptParameter(parameter));
+        }
+        for (JetScriptDefinition definition : configuration.getList(CommonConfigurationKeys.SCRIPT_DEFINITIONS_KEY)) {
+            parts.add(definition.getExtension());
+            for (AnalyzerScriptParameter parameter : definition.getScriptParameters()) {
+                parts.add(renderScriptParameter(parameter));
+            }
+        }
+        parts.add(configuration.get(JVMConfigurationKeys.OPTIMIZE, false));
+        parts.add(configuration.get(JVMConfigurationKeys.CONSOLIDATE_LAMBDAS, false));
+        return CompiledClassesCache.key(parts.toArray());
+    }
+
+    @NotNull
+    private static String renderScriptParameter(@NotNull AnalyzerScriptParameter parameter) {
+        StringBuilder sb = new StringBuilder(parameter.getName().getName()).append(':');
+        renderTypeName(parameter.getType(), sb);
+        return sb.toString();
+    }
+
+    private static void renderTypeName(@NotNull JetTypeName typeName, @NotNull StringBuilder sb) {
+        sb.append(typeName.getClassName().getFqName());
+        if (!typeName.getArguments().isEmpty()) {
+            sb.append('<');
+            for (JetTypeName argument : typeName.getArguments()) {
+                renderTypeName(argument, sb);
+                sb.append(',');
+            }
+            sb.append('>');
+        }
+    }
+
+    /**
+     * Loads the script class from the cache and reports the messages of its compilation again, or returns null
+     * if it isn't cached or doesn't match the cached metadata
+     */
+    @Nullable
+    private static Class<?> loadCachedScript(
+            @NotNull CompiledClassesCache cache,
+            @NotNull String cacheKey,
+            @Nullable ClassLoader parentLoader,
+            @NotNull MessageCollector messageCollector) {
+        File jar = cache.get(cacheKey);
+        Properties metadata = jar != null ? cache.getMetadata(cacheKey) : null;
+        String className = metadata != null ? metadata.getProperty(SCRIPT_CLASS_NAME) : null;
+        if (className == null) {
+            return null;
+        }
+        try {
+            ClassLoader loader = new URLClassLoader(new URL[] {CompiledClassesCache.toURL(jar)}, createScriptParentLoader(parentLoader));
+            Class<?> scriptClass = loader.loadClass(className);
+            String descriptor = metadata.getProperty(SCRIPT_CONSTRUCTOR_DESCRIPTOR);
+            if (descriptor != null && !hasConstructor(scriptClass, descriptor)) {
+                return null;
+            }
+            return RecordingMessageCollector.replay(metadata, messageCollector) ? scriptClass : null;
+        }
+        catch (MalformedURLException e) {
+            return null;
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+        catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static boolean hasConstructor(@NotNull Class<?> aClass, @NotNull String descriptor) {
+        for (Constructor<?> constructor : aClass.getConstructors()) {
+            if (Type.getConstructorDescriptor(constructor).equals(descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Nullable
     public static GenerationState analyzeAndGenerate(JetCoreEnvironment environment) {
         return analyzeAndGenerate(environment, environment.getConfiguration().get(JVMConfigurationKeys.STUBS, false),
@@ -339,13 +525,26 @@ public class KotlinToJVMBytecodeCompiler {
                 environment.getConfiguration().get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(CompilerMessageSeverity.LOGGING, message, CompilerMessageLocation.NO_LOCATION);
             }
         };
-        GenerationState generationState = new GenerationState(project, ClassBuilderFactories.binaries(stubs), backendProgress,
+        ClassBuilderFactory builderFactory = ClassBuilderFactories.binaries(stubs);
+        OptimizationClassBuilderFactory optimizationFactory = null;
+        if (!stubs && environment.getConfiguration().get(JVMConfigurationKeys.OPTIMIZE, false)) {
+            optimizationFactory = new OptimizationClassBuilderFactory(builderFactory);
+            builderFactory = optimizationFactory;
+        }
+        GenerationState generationState = new GenerationState(project, builderFactory, backendProgress,
                                                               exhaust, environment.getSourceFiles(),
                                                               environment.getConfiguration().get(
                                                                       JVMConfigurationKeys.BUILTIN_TO_JAVA_TYPES_MAPPING_KEY,
                                                                       BuiltinToJavaTypesMapping.ENABLED));
+        generationState.setConsolidateLambdas(environment.getConfiguration().get(JVMConfigurationKeys.CONSOLIDATE_LAMBDAS, false));
         generationState.compileCorrectFiles(CompilationErrorHandler.THROW_EXCEPTION);
 
+        if (optimizationFactory != null) {
+            for (String line : optimizationFactory.getStatistics().render()) {
+                backendProgress.log(line);
+            }
+        }
+
         CompilerPluginContext context = new CompilerPluginContext(project, exhaust.getBindingContext(), environment.getSourceFiles());
         for (CompilerPlugin plugin : environment.getConfiguration().getList(CLIConfigurationKeys.COMPILER_PLUGINS)) {
             plugin.processFiles(context);
@@ -372,11 +571,8 @@ public class KotlinToJVMBytecodeCompiler {
                                          scriptDefinitions != null ? scriptDefinitions : Collections.<JetScriptDefinition>emptyList());
             compilerConfiguration.put(JVMConfigurationKeys.SCRIPT_PARAMETERS, scriptParameters);
 
-            JetCoreEnvironment environment = new JetCoreEnvironment(rootDisposable, compilerConfiguration);
-
             try {
-                JetScriptDefinitionProvider.getInstance(environment.getProject()).markFileAsScript(environment.getSourceFiles().get(0));
-                return compileScript(environment, parentLoader);
+                return compileScript(compilerConfiguration, rootDisposable, parentLoader, true);
             }
             catch (CompilationException e) {
                 messageCollector.report(CompilerMessageSeverity.EXCEPTION, MessageRenderer.PLAIN.renderException(e),
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.jet.cli.common.messages.MessageCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Passes messages on and remembers the ones that should be reported again when compiled classes are reused from
+ * {@link CompiledClassesCache}: everything but logging, which describes the compilation itself
+ */
+class RecordingMessageCollector implements MessageCollector {
+    private static final String COUNT = "messages";
+    private static final String PREFIX = "message.";
+
+    private final MessageCollector delegate;
+    private final Properties messages = new Properties();
+    private int count = 0;
+
+    RecordingMessageCollector(@NotNull MessageCollector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void report(@NotNull CompilerMessageSeverity severity, @NotNull String message, @NotNull CompilerMessageLocation location) {
+        delegate.report(severity, message, location);
+        if (severity == CompilerMessageSeverity.LOGGING) {
+            return;
+        }
+        String prefix = PREFIX + count + ".";
+        messages.setProperty(prefix + "severity", severity.name());
+        messages.setProperty(prefix + "text", message);
+        if (location.getPath() != null) {
+            messages.setProperty(prefix + "path", location.getPath());
+            messages.setProperty(prefix + "line", String.valueOf(location.getLine()));
+            messages.setProperty(prefix + "column", String.valueOf(location.getColumn()));
+        }
+        count++;
+    }
+
+    /**
+     * Adds the recorded messages to the metadata of a cached entry
+     */
+    void store(@NotNull Properties metadata) {
+        metadata.putAll(messages);
+        metadata.setProperty(COUNT, String.valueOf(count));
+    }
+
+    /**
+     * Reports the messages stored with a cached entry
+     *
+     * @return false if the metadata holds no valid messages: the entry was written before messages were stored or is damaged
+     */
+    static boolean replay(@NotNull Properties metadata, @NotNull MessageCollector collector) {
+        List<CompilerMessageSeverity> severities = new ArrayList<CompilerMessageSeverity>();
+        List<String> texts = new ArrayList<String>();
+        List<CompilerMessageLocation> locations = new ArrayList<CompilerMessageLocation>();
+        try {
+            int count = Integer.parseInt(metadata.getProperty(COUNT));
+            for (int i = 0; i < count; i++) {
+                String prefix = PREFIX + i + ".";
+                String severity = metadata.getProperty(prefix + "severity");
+                String text = metadata.getProperty(prefix + "text");
+                if (severity == null || text == null) {
+                    return false;
+                }
+                String path = metadata.getProperty(prefix + "path");
+                severities.add(CompilerMessageSeverity.valueOf(severity));
+                texts.add(text);
+                locations.add(path == null
+                              ? CompilerMessageLocation.NO_LOCATION
+                              : CompilerMessageLocation.create(path,
+                                                               Integer.parseInt(metadata.getProperty(prefix + "line")),
+                                                               Integer.parseInt(metadata.getProperty(prefix + "column"))));
+            }
+        }
+        catch (IllegalArgumentException e) {
+            // also covers NumberFormatException
+            return false;
+        }
+
+        for (int i = 0; i < severities.size(); i++) {
+            collector.report(severities.get(i), texts.get(i), locations.get(i));
+        }
+        return true;
+    }
+}
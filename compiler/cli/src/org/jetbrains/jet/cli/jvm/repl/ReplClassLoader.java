@@ -17,20 +17,35 @@
 package org.jetbrains.jet.cli.jvm.repl;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.asm4.ClassReader;
 import org.jetbrains.asm4.util.TraceClassVisitor;
 
 import java.io.PrintWriter;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Stepan Koltsov
  */
 public class ReplClassLoader extends ClassLoader {
 
-    private Map<JvmClassName, byte[]> classes = Maps.newLinkedHashMap();
+    // number of most recently added classes whose bytes are kept for dumpClasses
+    private static final int DUMPED_CLASSES_LIMIT = 64;
+
+    // bytes of classes that have not been defined yet
+    private final Map<JvmClassName, byte[]> classes = Maps.newHashMap();
+    // once a class is defined its bytes are dropped, only its name is remembered
+    private final Set<JvmClassName> definedClasses = Sets.newHashSet();
+    private final Map<JvmClassName, byte[]> recentClasses = new LinkedHashMap<JvmClassName, byte[]>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<JvmClassName, byte[]> eldest) {
+            return size() > DUMPED_CLASSES_LIMIT;
+        }
+    };
 
     public ReplClassLoader(@NotNull ClassLoader parent) {
         super(parent);
@@ -41,8 +56,10 @@ public class ReplClassLoader extends ClassLoader {
 
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
-        byte[] classBytes = classes.get(JvmClassName.byFqNameWithoutInnerClasses(name));
+        JvmClassName className = JvmClassName.byFqNameWithoutInnerClasses(name);
+        byte[] classBytes = classes.remove(className);
         if (classBytes != null) {
+            definedClasses.add(className);
             return defineClass(name, classBytes, 0, classBytes.length);
         }
         else {
@@ -50,15 +67,23 @@ public class ReplClassLoader extends ClassLoader {
         }
     }
 
+    /**
+     * Bytes of a class may be replaced until the class is loaded.
+     */
     public void addClass(@NotNull JvmClassName className, @NotNull byte[] bytes) {
-        byte[] oldBytes = classes.put(className, bytes);
-        if (oldBytes != null) {
+        if (definedClasses.contains(className)) {
             throw new IllegalStateException("Rewrite at key " + className);
         }
+        classes.put(className, bytes);
+        recentClasses.remove(className);
+        recentClasses.put(className, bytes);
     }
 
+    /**
+     * Dumps up to {@link #DUMPED_CLASSES_LIMIT} most recently added classes.
+     */
     public void dumpClasses(@NotNull PrintWriter writer) {
-        for (byte[] classBytes : classes.values()) {
+        for (byte[] classBytes : recentClasses.values()) {
             new ClassReader(classBytes).accept(new TraceClassVisitor(writer), 0);
         }
     }
@@ -167,6 +167,12 @@ public class ReplFromTerminal {
             System.out.println(":quit                   exit the interpreter");
             System.out.println(":dump bytecode          dump classes to terminal");
             System.out.println(":load <file>            load script from specified file");
+            System.out.println(":stats                  show time spent evaluating the last line");
+            return true;
+        }
+        else if (split.size() >= 1 && split.get(0).equals("stats")) {
+            ReplInterpreter.LineStatistics statistics = getReplInterpreter().getLastLineStatistics();
+            System.out.println(statistics != null ? statistics : "No lines evaluated yet");
             return true;
         }
         else if (split.size() >= 2 && split.get(0).equals("dump") && split.get(1).equals("bytecode")) {
@@ -19,6 +19,8 @@ package org.jetbrains.jet.cli.jvm.repl;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
@@ -42,18 +44,20 @@ import org.jetbrains.jet.codegen.GenerationState;
 import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.di.InjectorForTopDownAnalyzerForJvm;
 import org.jetbrains.jet.lang.BuiltinsScopeExtensionMode;
-import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
-import org.jetbrains.jet.lang.descriptors.NamespaceDescriptorImpl;
-import org.jetbrains.jet.lang.descriptors.NamespaceLikeBuilderDummy;
-import org.jetbrains.jet.lang.descriptors.ScriptDescriptor;
-import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.*;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.VariableAsFunctionResolvedCall;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
+import org.jetbrains.jet.lang.resolve.scopes.RedeclarationHandler;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverDescriptor;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ScriptReceiver;
 import org.jetbrains.jet.lang.types.lang.JetStandardClasses;
 import org.jetbrains.jet.plugin.JetLanguage;
 import org.jetbrains.jet.utils.ExceptionUtils;
@@ -66,8 +70,7 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author Stepan Koltsov
@@ -75,9 +78,17 @@ import java.util.List;
 public class ReplInterpreter {
 
     private int lineNumber = 0;
+    // declarations of all earlier lines, extended after each successful line
+    @NotNull
+    private final ReplScope replScope;
+    // imports of all earlier lines, resolved again only when a line adds an import
+    @NotNull
+    private final List<JetImportDirective> importDirectives = Lists.newArrayList();
+    @Nullable
+    private JetScope importsScope;
+    private final Map<ScriptDescriptor, EarlierLine> earlierLines = Maps.newHashMap();
     @Nullable
-    private JetScope lastLineScope;
-    private List<EarlierLine> earlierLines = Lists.newArrayList();
+    private LineStatistics lastLineStatistics;
     private List<String> previousIncompleteLines = Lists.newArrayList();
     private final ReplClassLoader classLoader;
 
@@ -95,6 +106,7 @@ public class ReplInterpreter {
         Project project = jetCoreEnvironment.getProject();
         trace = new BindingTraceContext();
         module = new ModuleDescriptor(Name.special("<repl>"));
+        replScope = new ReplScope(module);
         TopDownAnalysisParameters topDownAnalysisParameters = new TopDownAnalysisParameters(
                 Predicates.<PsiFile>alwaysTrue(),
                 false,
@@ -182,10 +194,82 @@ public class ReplInterpreter {
         }
     }
 
+    /**
+     * Time spent in each phase of evaluating a line, phases that were not reached are zero.
+     */
+    public static class LineStatistics {
+
+        private final int lineNumber;
+        private long parseNanos;
+        private long analyzeNanos;
+        private long generateNanos;
+        private long executeNanos;
+        private int earlierLinesCount;
+        private int referencedEarlierLinesCount;
+
+        private LineStatistics(int lineNumber) {
+            this.lineNumber = lineNumber;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        public long getAnalyzeNanos() {
+            return analyzeNanos;
+        }
+
+        public long getGenerateNanos() {
+            return generateNanos;
+        }
+
+        public long getExecuteNanos() {
+            return executeNanos;
+        }
+
+        public long getTotalNanos() {
+            return parseNanos + analyzeNanos + generateNanos + executeNanos;
+        }
+
+        public int getEarlierLinesCount() {
+            return earlierLinesCount;
+        }
+
+        /**
+         * Number of earlier lines passed to the constructor of the line's class.
+         */
+        public int getReferencedEarlierLinesCount() {
+            return referencedEarlierLinesCount;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " +
+                   "parse " + toMillis(parseNanos) + " ms, " +
+                   "analyze " + toMillis(analyzeNanos) + " ms, " +
+                   "generate " + toMillis(generateNanos) + " ms, " +
+                   "execute " + toMillis(executeNanos) + " ms, " +
+                   referencedEarlierLinesCount + " of " + earlierLinesCount + " earlier lines referenced";
+        }
+
+        private static String toMillis(long nanos) {
+            return String.format("%.2f", nanos / 1e6);
+        }
+    }
+
     @NotNull
     public LineResult eval(@NotNull String line) {
         ++lineNumber;
 
+        LineStatistics statistics = new LineStatistics(lineNumber);
+        statistics.earlierLinesCount = earlierLines.size();
+        lastLineStatistics = statistics;
+        long phaseStart = System.nanoTime();
+
         JvmClassName scriptClassName = JvmClassName.byInternalName("Line" + lineNumber);
 
         StringBuilder fullText = new StringBuilder();
@@ -203,6 +287,9 @@ public class ReplInterpreter {
         AnalyzerWithCompilerReport.SyntaxErrorReport syntaxErrorReport =
                 AnalyzerWithCompilerReport.reportSyntaxErrors(psiFile, errorCollector);
 
+        statistics.parseNanos = System.nanoTime() - phaseStart;
+        phaseStart = System.nanoTime();
+
         if (syntaxErrorReport.isOnlyErrorAtEof()) {
             previousIncompleteLines.add(line);
             return LineResult.incomplete();
@@ -220,6 +307,8 @@ public class ReplInterpreter {
         psiFile.getScript().putUserData(ScriptHeaderResolver.PRIORITY_KEY, lineNumber);
 
         ScriptDescriptor scriptDescriptor = doAnalyze(psiFile, errorCollector);
+        statistics.analyzeNanos = System.nanoTime() - phaseStart;
+        phaseStart = System.nanoTime();
         if (scriptDescriptor == null) {
             return LineResult.error(errorCollector.getString());
         }
@@ -230,9 +319,14 @@ public class ReplInterpreter {
             }
         };
 
+        // only the lines this line actually uses become constructor parameters,
+        // so the class does not grow with the length of the session
+        List<EarlierLine> referencedLines = getReferencedEarlierLines(psiFile.getScript());
+        statistics.referencedEarlierLinesCount = referencedLines.size();
+
         List<Pair<ScriptDescriptor, JvmClassName>> earierScripts = Lists.newArrayList();
 
-        for (EarlierLine earlierLine : earlierLines) {
+        for (EarlierLine earlierLine : referencedLines) {
             earierScripts.add(Pair.create(earlierLine.getScriptDescriptor(), earlierLine.getClassName()));
         }
 
@@ -245,15 +339,18 @@ public class ReplInterpreter {
             classLoader.addClass(JvmClassName.byInternalName(file.replaceFirst("\\.class$", "")), generationState.getFactory().asBytes(file));
         }
 
+        statistics.generateNanos = System.nanoTime() - phaseStart;
+        phaseStart = System.nanoTime();
+
         try {
             Class<?> scriptClass = classLoader.loadClass(scriptClassName.getFqName().getFqName());
 
-            Class<?>[] constructorParams = new Class<?>[earlierLines.size()];
-            Object[] constructorArgs = new Object[earlierLines.size()];
+            Class<?>[] constructorParams = new Class<?>[referencedLines.size()];
+            Object[] constructorArgs = new Object[referencedLines.size()];
 
-            for (int i = 0; i < earlierLines.size(); ++i) {
-                constructorParams[i] = earlierLines.get(i).getScriptClass();
-                constructorArgs[i] = earlierLines.get(i).getScriptInstance();
+            for (int i = 0; i < referencedLines.size(); ++i) {
+                constructorParams[i] = referencedLines.get(i).getScriptClass();
+                constructorArgs[i] = referencedLines.get(i).getScriptInstance();
             }
 
             Constructor<?> scriptInstanceConstructor = scriptClass.getConstructor(constructorParams);
@@ -263,11 +360,15 @@ public class ReplInterpreter {
             } catch (Throwable e) {
                 return LineResult.error(Throwables.getStackTraceAsString(e));
             }
+            finally {
+                statistics.executeNanos = System.nanoTime() - phaseStart;
+            }
             Field rvField = scriptClass.getDeclaredField("rv");
             rvField.setAccessible(true);
             Object rv = rvField.get(scriptInstance);
 
-            earlierLines.add(new EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance, scriptClassName));
+            earlierLines.put(scriptDescriptor, new EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance, scriptClassName));
+            addLineToScope(psiFile.getScript(), scriptDescriptor);
 
             return LineResult.successful(rv, scriptDescriptor.getReturnType().equals(JetStandardClasses.getUnitType()));
         } catch (Throwable e) {
@@ -296,9 +397,10 @@ public class ReplInterpreter {
         // This makes the namespaces visible at all, does not import themselves
         scope.importScope(rootNs.getMemberScope());
 
-        if (lastLineScope != null) {
-            scope.importScope(lastLineScope);
+        if (importsScope != null) {
+            scope.importScope(importsScope);
         }
+        scope.importScope(replScope);
 
         scope.changeLockLevel(WritableScope.LockLevel.READING);
 
@@ -311,13 +413,127 @@ public class ReplInterpreter {
             return null;
         }
 
-        ScriptDescriptor scriptDescriptor = injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
-        lastLineScope = trace.get(BindingContext.SCRIPT_SCOPE, scriptDescriptor);
-        if (lastLineScope == null) {
-            throw new IllegalStateException("last line scope is not initialized");
+        return injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
+    }
+
+    private void addLineToScope(@NotNull JetScript script, @NotNull ScriptDescriptor scriptDescriptor) {
+        List<DeclarationDescriptor> declarations = Lists.newArrayList();
+        for (JetDeclaration declaration : script.getDeclarations()) {
+            DeclarationDescriptor descriptor = trace.get(BindingContext.DECLARATION_TO_DESCRIPTOR, declaration);
+            if (descriptor != null) {
+                declarations.add(descriptor);
+            }
         }
+        replScope.addLine(scriptDescriptor, declarations);
 
-        return scriptDescriptor;
+        List<JetImportDirective> lineImports = script.getImportDirectives();
+        if (!lineImports.isEmpty()) {
+            importDirectives.addAll(lineImports);
+            importsScope = resolveImports();
+        }
+    }
+
+    @NotNull
+    private JetScope resolveImports() {
+        WritableScope scope = new WritableScopeImpl(
+                JetScope.EMPTY, module, RedeclarationHandler.DO_NOTHING, "Imports of earlier REPL lines");
+        scope.changeLockLevel(WritableScope.LockLevel.BOTH);
+
+        NamespaceDescriptorImpl rootNs = injector.getNamespaceFactory().createNamespaceDescriptorPathIfNeeded(FqName.ROOT);
+
+        // these directives were already checked when their lines were analyzed, diagnostics are not reported twice
+        ImportsResolver.processImportsInFile(false, scope, importDirectives, rootNs.getMemberScope(),
+                                             injector.getModuleConfiguration(), TemporaryBindingTrace.create(trace),
+                                             new QualifiedExpressionResolver());
+
+        scope.changeLockLevel(WritableScope.LockLevel.READING);
+        return scope;
+    }
+
+    @NotNull
+    private List<EarlierLine> getReferencedEarlierLines(@NotNull JetScript script) {
+        final BindingContext bindingContext = trace.getBindingContext();
+        final Set<ScriptDescriptor> referencedScripts = Sets.newHashSet();
+
+        script.accept(new JetTreeVisitor<Void>() {
+            @Override
+            public Void visitJetElement(JetElement element, Void data) {
+                addScripts(bindingContext.get(BindingContext.RESOLVED_CALL, element));
+                if (element instanceof JetExpression) {
+                    JetExpression expression = (JetExpression) element;
+                    addScripts(bindingContext.get(BindingContext.LOOP_RANGE_ITERATOR_RESOLVED_CALL, expression));
+                    addScripts(bindingContext.get(BindingContext.LOOP_RANGE_HAS_NEXT_RESOLVED_CALL, expression));
+                    addScripts(bindingContext.get(BindingContext.LOOP_RANGE_NEXT_RESOLVED_CALL, expression));
+                    addScripts(bindingContext.get(BindingContext.INDEXED_LVALUE_GET, expression));
+                    addScripts(bindingContext.get(BindingContext.INDEXED_LVALUE_SET, expression));
+                }
+                if (element instanceof JetMultiDeclarationEntry) {
+                    addScripts(bindingContext.get(BindingContext.COMPONENT_RESOLVED_CALL, (JetMultiDeclarationEntry) element));
+                }
+                if (element instanceof JetReferenceExpression) {
+                    addScript(bindingContext.get(BindingContext.REFERENCE_TARGET, (JetReferenceExpression) element));
+                }
+                return super.visitJetElement(element, data);
+            }
+
+            private void addScripts(@Nullable ResolvedCall<?> resolvedCall) {
+                if (resolvedCall == null) {
+                    return;
+                }
+                if (resolvedCall instanceof VariableAsFunctionResolvedCall) {
+                    addScripts(((VariableAsFunctionResolvedCall) resolvedCall).getVariableCall());
+                }
+                addScript(resolvedCall.getResultingDescriptor());
+                addScript(resolvedCall.getThisObject());
+                addScript(resolvedCall.getReceiverArgument());
+            }
+
+            private void addScript(@NotNull ReceiverDescriptor receiver) {
+                if (receiver instanceof ScriptReceiver) {
+                    referencedScripts.add(((ScriptReceiver) receiver).getDeclarationDescriptor());
+                }
+            }
+
+            private void addScript(@Nullable DeclarationDescriptor descriptor) {
+                for (DeclarationDescriptor d = descriptor; d != null; d = d.getContainingDeclaration()) {
+                    if (d instanceof ScriptDescriptor) {
+                        referencedScripts.add((ScriptDescriptor) d);
+                        return;
+                    }
+                }
+            }
+        }, null);
+
+        List<EarlierLine> result = Lists.newArrayList();
+        for (ScriptDescriptor referencedScript : referencedScripts) {
+            EarlierLine earlierLine = earlierLines.get(referencedScript);
+            if (earlierLine != null) {
+                result.add(earlierLine);
+            }
+        }
+        Collections.sort(result, new Comparator<EarlierLine>() {
+            @Override
+            public int compare(EarlierLine a, EarlierLine b) {
+                return a.getScriptDescriptor().getPriority() - b.getScriptDescriptor().getPriority();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return statistics of the most recently evaluated line, {@code null} if no line was evaluated yet
+     */
+    @Nullable
+    public LineStatistics getLastLineStatistics() {
+        return lastLineStatistics;
+    }
+
+    /**
+     * @return declarations of all successfully evaluated lines, redefinitions shadow what they replace
+     */
+    @NotNull
+    public ReplScope getReplScope() {
+        return replScope;
     }
 
     public void dumpClasses(@NotNull PrintWriter out) {
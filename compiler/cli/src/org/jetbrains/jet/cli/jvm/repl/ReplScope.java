@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jet.cli.jvm.repl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.OverloadUtil;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.resolve.scopes.JetScopeImpl;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverDescriptor;
+
+import java.util.*;
+
+/**
+ * Declarations of all successfully evaluated REPL lines, kept in one flat scope.
+ *
+ * Each line is added once, so looking a name up costs the same on the first line
+ * of a session and on the thousandth, instead of walking a chain of per-line scopes.
+ * Later declarations shadow earlier ones. A function or property replaces every
+ * earlier one it would conflict with if both were declared in the same file; true
+ * overloads are kept, newest first, and left to overload resolution (see
+ * {@link ScriptDescriptor#getPriority()}).
+ */
+public class ReplScope extends JetScopeImpl {
+
+    @NotNull
+    private final DeclarationDescriptor containingDeclaration;
+
+    private final Map<Name, ClassifierDescriptor> classifiers = Maps.newHashMap();
+    private final Map<Name, ClassDescriptor> objects = Maps.newHashMap();
+    private final Map<Name, VariableDescriptor> localVariables = Maps.newHashMap();
+    private final Map<Name, LinkedList<VariableDescriptor>> properties = Maps.newHashMap();
+    private final Map<Name, LinkedList<FunctionDescriptor>> functions = Maps.newHashMap();
+    private final Map<Name, PropertyDescriptor> propertiesByFieldName = Maps.newHashMap();
+    private final List<DeclarationDescriptor> allDescriptors = Lists.newArrayList();
+
+    @NotNull
+    private ReceiverDescriptor implicitReceiver = ReceiverDescriptor.NO_RECEIVER;
+
+    public ReplScope(@NotNull DeclarationDescriptor containingDeclaration) {
+        this.containingDeclaration = containingDeclaration;
+    }
+
+    public void addLine(@NotNull ScriptDescriptor script, @NotNull Collection<DeclarationDescriptor> declarations) {
+        implicitReceiver = script.getImplicitReceiver();
+        addClassifier(script.getClassDescriptor());
+
+        for (DeclarationDescriptor descriptor : declarations) {
+            if (descriptor instanceof PropertyDescriptor) {
+                PropertyDescriptor propertyDescriptor = (PropertyDescriptor) descriptor;
+                allDescriptors.removeAll(addFirst(properties, propertyDescriptor.getName(), (VariableDescriptor) propertyDescriptor));
+                propertiesByFieldName.put(Name.identifier("$" + propertyDescriptor.getName()), propertyDescriptor);
+            }
+            else if (descriptor instanceof VariableDescriptor) {
+                allDescriptors.remove(localVariables.put(descriptor.getName(), (VariableDescriptor) descriptor));
+            }
+            else if (descriptor instanceof FunctionDescriptor) {
+                allDescriptors.removeAll(addFirst(functions, descriptor.getName(), (FunctionDescriptor) descriptor));
+            }
+            else if (descriptor instanceof ClassifierDescriptor) {
+                addClassifier((ClassifierDescriptor) descriptor);
+            }
+            else {
+                continue;
+            }
+            allDescriptors.add(descriptor);
+        }
+    }
+
+    private void addClassifier(@NotNull ClassifierDescriptor classifier) {
+        if (DescriptorUtils.isObject(classifier)) {
+            allDescriptors.remove(objects.put(classifier.getName(), (ClassDescriptor) classifier));
+        }
+        else {
+            allDescriptors.remove(classifiers.put(classifier.getName(), classifier));
+        }
+    }
+
+    /**
+     * @return earlier descriptors that are shadowed by {@code descriptor} and were removed
+     */
+    @NotNull
+    private static <D extends CallableDescriptor> List<D> addFirst(@NotNull Map<Name, LinkedList<D>> map, @NotNull Name name, @NotNull D descriptor) {
+        LinkedList<D> list = map.get(name);
+        if (list == null) {
+            list = new LinkedList<D>();
+            map.put(name, list);
+        }
+        List<D> shadowed = Lists.newArrayList();
+        for (Iterator<D> iterator = list.iterator(); iterator.hasNext(); ) {
+            D earlier = iterator.next();
+            // an extension and a member-like declaration with the same JVM signature are both callable
+            if (earlier.getReceiverParameter().exists() == descriptor.getReceiverParameter().exists()
+                && !OverloadUtil.isOverloadable(earlier, descriptor).isSuccess()) {
+                shadowed.add(earlier);
+                iterator.remove();
+            }
+        }
+        list.addFirst(descriptor);
+        return shadowed;
+    }
+
+    @NotNull
+    private static <D> Collection<D> getAll(@NotNull Map<Name, LinkedList<D>> map, @NotNull Name name) {
+        LinkedList<D> list = map.get(name);
+        return list != null ? Collections.unmodifiableCollection(list) : Collections.<D>emptyList();
+    }
+
+    @Override
+    public ClassifierDescriptor getClassifier(@NotNull Name name) {
+        return classifiers.get(name);
+    }
+
+    @Override
+    public ClassDescriptor getObjectDescriptor(@NotNull Name name) {
+        return objects.get(name);
+    }
+
+    @NotNull
+    @Override
+    public Set<ClassDescriptor> getObjectDescriptors() {
+        return Sets.newHashSet(objects.values());
+    }
+
+    @NotNull
+    @Override
+    public Collection<VariableDescriptor> getProperties(@NotNull Name name) {
+        return getAll(properties, name);
+    }
+
+    @Override
+    public VariableDescriptor getLocalVariable(@NotNull Name name) {
+        return localVariables.get(name);
+    }
+
+    @NotNull
+    @Override
+    public Collection<FunctionDescriptor> getFunctions(@NotNull Name name) {
+        return getAll(functions, name);
+    }
+
+    @Override
+    public PropertyDescriptor getPropertyByFieldReference(@NotNull Name fieldName) {
+        return propertiesByFieldName.get(fieldName);
+    }
+
+    @NotNull
+    @Override
+    public ReceiverDescriptor getImplicitReceiver() {
+        return implicitReceiver;
+    }
+
+    @NotNull
+    @Override
+    public DeclarationDescriptor getContainingDeclaration() {
+        return containingDeclaration;
+    }
+
+    @NotNull
+    @Override
+    public Collection<DeclarationDescriptor> getAllDescriptors() {
+        return Collections.unmodifiableList(allDescriptors);
+    }
+
+    @NotNull
+    @Override
+    public Collection<DeclarationDescriptor> getOwnDeclaredDescriptors() {
+        return Collections.unmodifiableList(allDescriptors);
+    }
+
+    @Override
+    public String toString() {
+        return "REPL scope (" + allDescriptors.size() + " declarations)";
+    }
+}
@@ -34,8 +34,15 @@ import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.BindingContextUtils;
 import org.jetbrains.jet.lang.resolve.BindingTrace;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.calls.DefaultValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ClassReceiver;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ExpressionReceiver;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverDescriptor;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lang.types.lang.JetStandardClasses;
+import org.jetbrains.jet.lang.types.lang.JetStandardLibrary;
 import org.jetbrains.jet.lexer.JetTokens;
 import org.jetbrains.jet.plugin.JetMainDetector;
 
@@ -521,4 +528,107 @@ public class JetFlowInformationProvider {
             }
         });
     }
+
+////////////////////////////////////////////////////////////////////////////////
+//  Tail recursion
+
+    public void markTailRecursiveCalls() {
+        if (!(subroutine instanceof JetNamedFunction)) return;
+        FunctionDescriptor functionDescriptor = trace.get(BindingContext.FUNCTION, subroutine);
+        if (functionDescriptor == null || !JetStandardLibrary.isTailRecursive(functionDescriptor)) return;
+
+        boolean canJump = canCompileSelfCallsAsJumps(functionDescriptor);
+        for (Instruction instruction : pseudocode.getInstructions()) {
+            if (!(instruction instanceof ReadValueInstruction)) continue;
+            JetElement element = ((ReadValueInstruction) instruction).getElement();
+            if (!(element instanceof JetCallExpression)) continue;
+
+            JetCallExpression callExpression = (JetCallExpression) element;
+            ResolvedCall<? extends CallableDescriptor> resolvedCall =
+                    trace.get(BindingContext.RESOLVED_CALL, callExpression.getCalleeExpression());
+            if (resolvedCall == null || resolvedCall.getResultingDescriptor().getOriginal() != functionDescriptor) continue;
+
+            if (canJump
+                && isTailInstruction(instruction, callExpression)
+                && isCallOnSameInstance(resolvedCall, functionDescriptor.getContainingDeclaration())
+                && !usesDefaultArguments(resolvedCall)
+                && PsiTreeUtil.getParentOfType(callExpression, JetTryExpression.class, true, JetDeclaration.class) == null) {
+                trace.record(BindingContext.TAIL_RECURSIVE_CALL, callExpression);
+            }
+            else {
+                trace.report(NON_TAIL_RECURSIVE_CALL.on(callExpression));
+            }
+        }
+    }
+
+    private static boolean canCompileSelfCallsAsJumps(@NotNull FunctionDescriptor functionDescriptor) {
+        DeclarationDescriptor containingDeclaration = functionDescriptor.getContainingDeclaration();
+        if (containingDeclaration instanceof NamespaceDescriptor) {
+            return true;
+        }
+        // an overridable method may be dispatched to a different implementation, a trait method body is generated elsewhere
+        return containingDeclaration instanceof ClassDescriptor
+               && ((ClassDescriptor) containingDeclaration).getKind() != ClassKind.TRAIT
+               && functionDescriptor.getModality() == Modality.FINAL;
+    }
+
+    /*
+     * A call is in tail position if nothing but returns and jumps to the exit separates it from the end of the subroutine
+     */
+    private boolean isTailInstruction(@NotNull Instruction callInstruction, @NotNull JetCallExpression callExpression) {
+        Set<Instruction> visited = Sets.newHashSet();
+        Deque<Instruction> queue = new ArrayDeque<Instruction>(callInstruction.getNextInstructions());
+        while (!queue.isEmpty()) {
+            Instruction instruction = queue.poll();
+            if (!visited.add(instruction)) continue;
+
+            if (instruction == pseudocode.getExitInstruction() || instruction instanceof ReturnValueInstruction) {
+                continue;
+            }
+            if (instruction instanceof UnconditionalJumpInstruction) {
+                queue.addAll(instruction.getNextInstructions());
+                continue;
+            }
+            if (instruction instanceof ReadValueInstruction) {
+                JetElement element = ((ReadValueInstruction) instruction).getElement();
+                if (element instanceof JetDotQualifiedExpression
+                    && ((JetDotQualifiedExpression) element).getSelectorExpression() == callExpression) {
+                    queue.addAll(instruction.getNextInstructions());
+                    continue;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isCallOnSameInstance(
+            @NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall,
+            @NotNull DeclarationDescriptor containingDeclaration
+    ) {
+        ReceiverDescriptor thisObject = resolvedCall.getThisObject();
+        if (!thisObject.exists()) {
+            return true;
+        }
+        if (thisObject instanceof ClassReceiver) {
+            return ((ClassReceiver) thisObject).getDeclarationDescriptor() == containingDeclaration;
+        }
+        if (thisObject instanceof ExpressionReceiver) {
+            JetExpression expression = JetPsiUtil.deparenthesize(((ExpressionReceiver) thisObject).getExpression());
+            if (expression instanceof JetThisExpression) {
+                JetReferenceExpression instanceReference = ((JetThisExpression) expression).getInstanceReference();
+                return trace.get(BindingContext.REFERENCE_TARGET, instanceReference) == containingDeclaration;
+            }
+        }
+        return false;
+    }
+
+    private static boolean usesDefaultArguments(@NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall) {
+        for (ResolvedValueArgument argument : resolvedCall.getValueArgumentsByIndex()) {
+            if (argument instanceof DefaultValueArgument) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
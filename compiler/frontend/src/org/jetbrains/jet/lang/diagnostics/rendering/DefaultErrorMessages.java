@@ -185,6 +185,8 @@ public class DefaultErrorMessages {
 
         MAP.put(UNREACHABLE_CODE, "Unreachable code");
 
+        MAP.put(NON_TAIL_RECURSIVE_CALL, "Recursive call is not a tail call and will not be compiled as a loop");
+
         MAP.put(MANY_CLASS_OBJECTS, "Only one class object is allowed per class");
         MAP.put(CLASS_OBJECT_NOT_ALLOWED, "A class object is not allowed here");
         MAP.put(DELEGATION_IN_TRAIT, "Traits cannot use delegation");
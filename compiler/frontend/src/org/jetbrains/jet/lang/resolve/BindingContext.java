@@ -107,6 +107,12 @@ public interface BindingContext {
      */
     WritableSlice<JetExpression, DataFlowInfo> NON_DEFAULT_EXPRESSION_DATA_FLOW = Slices.createSimpleSlice();
 
+    /**
+     * Expressions of a nullable type which are known to be not null from the data flow (e.g. a variable checked for null before).
+     * Null assertions on such expressions need not be generated
+     */
+    WritableSlice<JetExpression, Boolean> NOT_NULL_BY_DATA_FLOW = Slices.createSimpleSetSlice();
+
     WritableSlice<JetExpression, Boolean> VARIABLE_REASSIGNMENT = Slices.createSimpleSetSlice();
     WritableSlice<ValueParameterDescriptor, Boolean> AUTO_CREATED_IT = Slices.createSimpleSetSlice();
     WritableSlice<JetExpression, DeclarationDescriptor> VARIABLE_ASSIGNMENT = Slices.createSimpleSlice();
@@ -119,6 +125,11 @@ public interface BindingContext {
 
     WritableSlice<VariableDescriptor, Boolean> CAPTURED_IN_CLOSURE = Slices.createSimpleSetSlice();
 
+    /**
+     * Self-calls of a tailRecursive function which are in tail position and may be compiled as a jump
+     */
+    WritableSlice<JetCallExpression, Boolean> TAIL_RECURSIVE_CALL = Slices.createSimpleSetSlice();
+
     //    enum DeferredTypeKey {DEFERRED_TYPE_KEY}
     //    WritableSlice<DeferredTypeKey, Collection<DeferredType>> DEFERRED_TYPES = Slices.createSimpleSlice();
 
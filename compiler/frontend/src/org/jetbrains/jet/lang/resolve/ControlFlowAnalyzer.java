@@ -104,5 +104,7 @@ public class ControlFlowAnalyzer {
         flowInformationProvider.markUnusedVariables();
 
         flowInformationProvider.markUnusedLiteralsInBlock();
+
+        flowInformationProvider.markTailRecursiveCalls();
     }
 }
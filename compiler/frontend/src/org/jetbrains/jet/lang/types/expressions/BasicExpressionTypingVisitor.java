@@ -548,6 +548,8 @@ public class BasicExpressionTypingVisitor extends ExpressionTypingVisitor {
 
         context = context.replaceDataFlowInfo(receiverTypeInfo.getDataFlowInfo());
 
+        recordNotNullByDataFlow(receiverExpression, receiverType, context);
+
         if (selectorExpression instanceof JetSimpleNameExpression) {
             propagateConstantValues(expression, context, (JetSimpleNameExpression) selectorExpression);
         }
@@ -884,6 +886,7 @@ public class BasicExpressionTypingVisitor extends ExpressionTypingVisitor {
         DataFlowInfo dataFlowInfo = typeInfo.getDataFlowInfo();
         if (isKnownToBeNotNull(baseExpression, context)) {
             context.trace.report(UNNECESSARY_NOT_NULL_ASSERTION.on(operationSign, type));
+            recordNotNullByDataFlow(baseExpression, type, context);
         }
         else {
             DataFlowValue value = DataFlowValueFactory.INSTANCE.createDataFlowValue(baseExpression, type, context.trace.getBindingContext());
@@ -912,6 +915,18 @@ public class BasicExpressionTypingVisitor extends ExpressionTypingVisitor {
         JetType type = context.trace.get(EXPRESSION_TYPE, expression);
         assert type != null : "This method is only supposed to be called when the type is not null";
         if (!type.isNullable()) return true;
+        return isNotNullByDataFlow(expression, type, context);
+    }
+
+    private static void recordNotNullByDataFlow(@NotNull JetExpression expression, @NotNull JetType type, @NotNull ExpressionTypingContext context) {
+        if (!type.isNullable()) return;
+        DataFlowValue value = DataFlowValueFactory.INSTANCE.createDataFlowValue(expression, type, context.trace.getBindingContext());
+        if (value.isStableIdentifier() && isNotNullByDataFlow(expression, type, context)) {
+            context.trace.record(NOT_NULL_BY_DATA_FLOW, expression);
+        }
+    }
+
+    private static boolean isNotNullByDataFlow(@NotNull JetExpression expression, @NotNull JetType type, @NotNull ExpressionTypingContext context) {
         List<JetType> possibleTypes = context.dataFlowInfo
             .getPossibleTypes(DataFlowValueFactory.INSTANCE.createDataFlowValue(expression, type, context.trace.getBindingContext()));
         for (JetType possibleType : possibleTypes) {
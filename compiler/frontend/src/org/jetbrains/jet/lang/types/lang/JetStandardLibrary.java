@@ -470,6 +470,18 @@ public class JetStandardLibrary {
         return false;
     }
 
+    public static boolean isTailRecursive(FunctionDescriptor descriptor) {
+        List<AnnotationDescriptor> annotations = descriptor.getOriginal().getAnnotations();
+        if (annotations != null) {
+            for (AnnotationDescriptor d : annotations) {
+                if (JetStandardLibraryNames.TAIL_RECURSIVE.is(d.getType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public JetType getTuple0Type() {
         return tuple0Type;
     }
@@ -37,6 +37,7 @@ public class JetStandardLibraryNames {
 
     public static final ClassName ARRAY = classIn("Array", 1);
     public static final ClassName VOLATILE = classIn("volatile", 0);
+    public static final ClassName TAIL_RECURSIVE = classIn("tailRecursive", 0);
     public static final ClassName INT = PrimitiveType.INT.getClassName();
     public static final ClassName COMPARABLE = classIn("Comparable", 1);
     public static final ClassName ITERABLE = classIn("Iterable", 1);
@@ -152,7 +152,7 @@ public class JetLightClass extends AbstractLightClass implements JetJavaMirrorMa
             }
 
             @Override
-            public ClassBuilder newClassBuilder() {
+            public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
                 return new StubClassBuilder(stubStack);
             }
 
@@ -0,0 +1,38 @@
+val DEBUG = false
+val SIZE = 4 * 1024 - 1
+val MASK = SIZE shl 2 or 3
+val BIG = 1.toLong() shl 40
+val HALF = 1.0 / 2
+val NAME = "size: $SIZE"
+val GREETING = "Hello" + ", " + "world" + '!'
+val NOT_DEBUG = !DEBUG && SIZE > 1000
+
+var counter = 0
+
+fun sideEffect(): Boolean {
+    counter++
+    return true
+}
+
+fun box(): String {
+    if (SIZE != 4095) return "fail 1"
+    if (MASK != 16383) return "fail 2"
+    if (BIG != 1099511627776) return "fail 3"
+    if (HALF != 0.5) return "fail 4"
+    if (NAME != "size: 4095") return "fail 5"
+    if (GREETING != "Hello, world!") return "fail 6"
+    if (!NOT_DEBUG) return "fail 7"
+    if (7 / 2 * 2 != 6 || -7 % 3 != -1) return "fail 8"
+    if ('a'.toInt() + 1 != 98) return "fail 9"
+    if ("${1 + 1}${true}" != "2true") return "fail 10"
+
+    if (DEBUG) return "fail 11"
+    if (DEBUG && sideEffect()) return "fail 12"
+    if (!DEBUG || sideEffect()) {
+        if (counter != 0) return "fail 13"
+    }
+    else {
+        return "fail 14"
+    }
+    return if (SIZE > 0) "OK" else "fail 15"
+}
@@ -0,0 +1,12 @@
+fun Long.xor(other: Int): Long = this * 100 + other
+fun Int.shl(other: Long): Int = 7
+
+val MIXED = 1.toLong() xor 2
+val SHIFTED = 1 shl 3.toLong()
+
+fun box(): String {
+    if (MIXED != 102.toLong()) return "fail 1"
+    if (SHIFTED != 7) return "fail 2"
+    if ((5.toLong() xor 1) != 501.toLong()) return "fail 3"
+    return "OK"
+}
@@ -0,0 +1,56 @@
+fun box() : String {
+    var sum = 0
+    for (i in (0..10).step(3)) {
+        sum += i
+    }
+    if (sum != 18) return "fail 1: $sum"
+
+    sum = 0
+    for (i in IntRange(10, -11).step(4)) {
+        if (i == 6) continue
+        sum += i
+    }
+    if (sum != 12) return "fail 2: $sum"
+
+    sum = 0
+    for (i in (1..0).step(2)) {
+        sum += i
+    }
+    if (sum != 0) return "fail 3: $sum"
+
+    var count = 0
+    for (i in IntProgression(2147483640, 2147483647, 3)) {
+        count++
+    }
+    if (count != 3) return "fail 4: $count"
+
+    var longSum = 0.toLong()
+    for (l in (1.toLong()..5.toLong()).step(2.toLong())) {
+        longSum += l
+    }
+    if (longSum != 9.toLong()) return "fail 5: $longSum"
+
+    var chars = ""
+    for (c in ('a'..'g').step(-3)) {
+        chars += c
+    }
+    if (chars != "gda") return "fail 6: $chars"
+
+    sum = 0
+    for (i in (0..10).progression(3)) {
+        sum += i
+    }
+    if (sum != 18) return "fail 9: $sum"
+
+    chars = ""
+    for (c in ('a'..'g').progression(-3)) {
+        chars += c
+    }
+    if (chars != "gda") return "fail 10: $chars"
+
+    val progression = IntProgression(20, 1, -4)
+    if (progression.last != 4) return "fail 7: ${progression.last}"
+    if (!progression.contains(8) || progression.contains(7)) return "fail 8"
+
+    return "OK"
+}
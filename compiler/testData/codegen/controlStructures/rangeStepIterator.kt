@@ -0,0 +1,30 @@
+fun box() : String {
+    val iterator = (0..10).step(4)
+    var sum = 0
+    while (iterator.hasNext()) {
+        sum += iterator.next()
+    }
+    if (sum != 12) return "fail 1: $sum"
+
+    val longs = (1.toLong()..5.toLong()).step(2.toLong())
+    if (longs.next() != 1.toLong() || longs.next() != 3.toLong()) return "fail 2"
+
+    val chars = ('a'..'c').step(1)
+    if (chars.next() != 'a') return "fail 3"
+
+    try {
+        (0..10).progression(-2147483647 - 1)
+        return "fail 4: MIN_VALUE step accepted"
+    }
+    catch (e: IllegalArgumentException) {
+    }
+
+    try {
+        IntProgression(0, 10, 0)
+        return "fail 5: zero step accepted"
+    }
+    catch (e: IllegalArgumentException) {
+    }
+
+    return "OK"
+}
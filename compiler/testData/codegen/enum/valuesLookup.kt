@@ -0,0 +1,33 @@
+enum class Planet {
+    MERCURY
+    VENUS
+    EARTH
+    MARS
+
+    fun next(): Planet? {
+        var found = false
+        for (planet in Planet.values()) {
+            if (found) return planet
+            if (planet == this) found = true
+        }
+        return null
+    }
+}
+
+fun box(): String {
+    if (Planet.valueOf("EARTH") != Planet.EARTH) return "fail 1"
+    if (Planet.MERCURY.next() != Planet.VENUS) return "fail 2"
+    if (Planet.MARS.next() != null) return "fail 3"
+
+    val values = Planet.values()
+    values[0] = Planet.MARS
+    if (Planet.values()[0] != Planet.MERCURY) return "fail 4"
+
+    try {
+        Planet.valueOf("PLUTO")
+        return "fail 5"
+    }
+    catch (e: IllegalArgumentException) {
+    }
+    return "OK"
+}
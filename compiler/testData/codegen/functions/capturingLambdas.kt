@@ -0,0 +1,24 @@
+fun apply(x: Int, f: (Int) -> Int) = f(x)
+fun applyExt(x: Int, f: Int.(Int) -> Int) = x.f(2)
+
+class Counter(var count: Int) {
+    fun add(x: Int) = apply(x) { count += it; count }
+}
+
+fun Int.addReceiver(x: Int) = apply(x) { it + this }
+
+fun box(): String {
+    val offset = 100
+    if (apply(1) { it + offset } != 101) return "fail 1"
+
+    var sum = 0
+    apply(5) { sum += it; sum }
+    if (sum != 5) return "fail 2"
+
+    if (Counter(1).add(2) != 3) return "fail 3"
+    if (10.addReceiver(5) != 15) return "fail 4"
+    if (applyExt(10) { this - it + offset } != 108) return "fail 5"
+
+    if (apply(2) { it * 3 } != 6) return "fail 6"
+    return "OK"
+}
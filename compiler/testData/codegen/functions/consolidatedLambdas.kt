@@ -0,0 +1,29 @@
+fun apply(x: Int, f: (Int) -> Int) = f(x)
+fun apply2(a: String, b: Long, f: (String, Long) -> String) = f(a, b)
+fun applyExt(x: Int, f: Int.(Int) -> Int) = x.f(2)
+fun get(f: () -> String) = f()
+
+class Multiplier(val factor: Int) {
+    fun twice(x: Int) = apply(x) { it * 2 }
+    fun scale(x: Int) = apply(x) { it * factor }
+}
+
+fun box(): String {
+    if (apply(1) { it + 1 } != 2) return "fail 1"
+    if (apply(5) { it * it } != 25) return "fail 2"
+    if (apply2("a", 3) { s, n -> s + n } != "a3") return "fail 3"
+    if (applyExt(10) { this - it } != 8) return "fail 4"
+    if (get { "O" } + get { "K" } != "OK") return "fail 5"
+
+    val offset = 100
+    if (apply(1) { it + offset } != 101) return "fail 6"
+    if (Multiplier(3).twice(4) != 8 || Multiplier(3).scale(4) != 12) return "fail 7"
+
+    val nested = apply(3) { x -> apply(x) { it + 1 } * 10 }
+    if (nested != 40) return "fail 8"
+
+    val f: (Int) -> Int = { it - 1 }
+    val g: (Int) -> Int = { it - 2 }
+    if (f == g || f(10) != 9 || g(10) != 8) return "fail 9"
+    return "OK"
+}
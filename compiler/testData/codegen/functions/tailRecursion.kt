@@ -0,0 +1,61 @@
+tailRecursive fun sum(n: Long, acc: Long): Long = if (n == 0.toLong()) acc else sum(n - 1, acc + n)
+
+tailRecursive fun countDown(n: Int, sb: StringBuilder) {
+    if (n < 0) return
+    if (n < 3) sb.append(n)
+    countDown(n - 1, sb)
+}
+
+tailRecursive fun String.repeatUntil(length: Int): String = when {
+    this.length >= length -> this
+    else -> (this + "x").repeatUntil(length)
+}
+
+tailRecursive fun <T> lastOf(array: Array<T>, index: Int, default: T): T {
+    if (index >= array.size) return default
+    return lastOf(array, index + 1, array[index])
+}
+
+tailRecursive fun swap(a: Int, b: Int, n: Int): String = if (n == 0) "$a$b" else swap(b, a, n - 1)
+
+class Counter(val step: Int) {
+    tailRecursive fun count(n: Int, acc: Int): Int = if (n <= 0) acc else this.count(n - step, acc + 1)
+}
+
+tailRecursive fun countWithClosure(var n: Int, acc: Int): Int {
+    val decrement = { n-- }
+    if (n == 0) return acc
+    decrement()
+    return countWithClosure(n, acc + 1)
+}
+
+tailRecursive fun captureEach(var n: Int, acc: String, readers: Array<() -> Int>): String {
+    if (n == 0) return acc
+    readers[n - 1] = { n }
+    n = n * 10
+    return captureEach(n / 10 - 1, acc + readers[n / 10 - 1](), readers)
+}
+
+fun box(): String {
+    if (sum(1000000.toLong(), 0.toLong()) != 500000500000.toLong()) return "fail sum"
+
+    val sb = StringBuilder()
+    countDown(1000000, sb)
+    if (sb.toString() != "210") return "fail countDown: $sb"
+
+    if ("".repeatUntil(20000).length != 20000) return "fail extension"
+
+    if (lastOf(array("a", "b"), 0, "none") != "b") return "fail generic"
+
+    if (swap(1, 2, 3) != "21") return "fail swap"
+
+    if (Counter(2).count(2000000, 0) != 1000000) return "fail member"
+
+    if (countWithClosure(1000000, 0) != 1000000) return "fail shared parameter"
+
+    val readers = array<() -> Int>({ 0 }, { 0 }, { 0 })
+    if (captureEach(3, "", readers) != "302010") return "fail captured parameter"
+    if ("${readers[0]()}${readers[1]()}${readers[2]()}" != "102030") return "fail fresh shared var per call"
+
+    return "OK"
+}
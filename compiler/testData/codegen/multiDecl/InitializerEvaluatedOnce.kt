@@ -0,0 +1,18 @@
+class Point(val x: Int, val y: Int) {
+    fun component1() = x
+    fun component2() = y
+}
+
+var calls = 0
+
+fun point(): Point {
+    calls++
+    return Point(1, 2)
+}
+
+fun box() : String {
+    val (x, y) = point()
+    if (calls != 1) return "fail: $calls calls"
+
+    return if (x == 1 && y == 2) "OK" else "fail"
+}
@@ -0,0 +1,19 @@
+var created = 0
+
+class Counted(val a: Int, val b: Int) {
+    {
+        created++
+    }
+
+    fun component1() = a
+    fun component2() = b
+}
+
+private fun counted(): Counted = Counted(1, 2)
+
+fun box() : String {
+    val (a, b) = counted()
+    if (a != 1 || b != 2) return "fail 1: $a $b"
+    if (created != 1) return "fail 2: $created"
+    return "OK"
+}
@@ -0,0 +1,58 @@
+class Division(val quotient: Int, val remainder: Int) {
+    fun component1() = quotient
+    fun component2(): Int {
+        return this.remainder
+    }
+}
+
+var calls = 0
+
+private fun divide(a: Int, b: Int): Division {
+    calls++
+    if (b == 1) return Division(a, 0)
+    return Division(a / b, a % b)
+}
+
+private fun digits(n: Int): Division = Division(n, digitSum(n))
+
+private fun digitSum(n: Int): Int {
+    if (n == 0) return 0
+    // the specialized variant of digits is called again while the arguments of its result are evaluated
+    val (rest, sum) = digits(n / 10)
+    return sum + n % 10
+}
+
+var finallyResults = 0
+
+private fun guarded(depth: Int): Division {
+    try {
+        return Division(depth, depth * 2)
+    }
+    finally {
+        if (depth > 0) {
+            val (a, b) = guarded(depth - 1)
+            finallyResults = finallyResults + a + b + 1
+        }
+    }
+}
+
+fun box() : String {
+    val (q, r) = divide(7, 2)
+    if (q != 3 || r != 1) return "fail 1: $q $r"
+
+    val (q1, r1) = divide(5, 1)
+    if (q1 != 5 || r1 != 0) return "fail 2: $q1 $r1"
+    if (calls != 2) return "fail 3: $calls calls"
+
+    val division = divide(9, 4)
+    if (division.quotient != 2 || division.remainder != 1) return "fail 4"
+
+    val (n, sum) = digits(123)
+    if (n != 123 || sum != 6) return "fail 5: $n $sum"
+
+    val (a, b) = guarded(1)
+    if (a != 1 || b != 2) return "fail 6: $a $b"
+    if (finallyResults != 1) return "fail 7: $finallyResults"
+
+    return "OK"
+}
@@ -0,0 +1,28 @@
+class Range(val start: Long, val end: Long) {
+    fun component1() = start
+    fun component2() = end
+}
+
+class Ranges(val step: Long) {
+    private fun range(i: Int): Range = Range(i * step, (i + 1) * step - 1)
+
+    fun length(i: Int): Long {
+        val (start, end) = range(i)
+        return end - start + 1
+    }
+
+    fun lengthInLiteral(i: Int): Long {
+        val f = { (j: Int) ->
+            val (start, end) = range(j)
+            end - start + 1
+        }
+        return f(i)
+    }
+}
+
+fun box() : String {
+    val ranges = Ranges(10000000000)
+    if (ranges.length(3) != 10000000000) return "fail 1"
+    if (ranges.lengthInLiteral(3) != 10000000000) return "fail 2"
+    return "OK"
+}
@@ -0,0 +1,37 @@
+fun length(s: String?): Int {
+    if (s == null) return -1
+    return s!!.length + s.sure().length
+}
+
+fun twice(s: String?): Int {
+    val a = s.sure().length
+    val b = s.sure().length
+    return a + b
+}
+
+fun reassigned(s: String?, t: String?): Int {
+    var x = s
+    val a = x.sure().length
+    x = t
+    return a + x.sure().length
+}
+
+fun box(): String {
+    if (length(null) != -1) return "fail 1"
+    if (length("ab") != 4) return "fail 2"
+    if (twice("abc") != 6) return "fail 3"
+    if (reassigned("a", "bc") != 3) return "fail 4"
+    try {
+        reassigned("a", null)
+        return "fail 5"
+    }
+    catch (e: NullPointerException) {
+    }
+    try {
+        twice(null)
+        return "fail 6"
+    }
+    catch (e: NullPointerException) {
+    }
+    return "OK"
+}
@@ -0,0 +1,30 @@
+fun parse(s: String): Int {
+    try {
+        return Integer.parseInt(s)
+    }
+    catch (e: NumberFormatException) {
+        return -1
+    }
+}
+
+fun parseWithFinally(s: String, log: StringBuilder): Int {
+    try {
+        return Integer.parseInt(s)
+    }
+    catch (e: NumberFormatException) {
+        return -1
+    }
+    finally {
+        log.append(s)
+    }
+}
+
+fun box(): String {
+    if (parse("12") != 12) return "fail 1"
+    if (parse("x") != -1) return "fail 2"
+    val log = StringBuilder()
+    if (parseWithFinally("3", log) != 3) return "fail 3"
+    if (parseWithFinally("y", log) != -1) return "fail 4"
+    if (log.toString() != "3y") return "fail 5"
+    return "OK"
+}
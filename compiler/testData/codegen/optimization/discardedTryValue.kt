@@ -0,0 +1,15 @@
+fun parseOrZero(s: String): Int {
+    var result = 0
+    try {
+        result = Integer.parseInt(s)
+    }
+    catch (e: NumberFormatException) {
+    }
+    return result
+}
+
+fun box(): String {
+    if (parseOrZero("12") != 12) return "fail 1"
+    if (parseOrZero("x") != 0) return "fail 2"
+    return "OK"
+}
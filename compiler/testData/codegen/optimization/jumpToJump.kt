@@ -0,0 +1,8 @@
+fun classify(a: Int, b: Int) = if (a > 0) (if (b > 0) 1 else 2) else 3
+
+fun box(): String {
+    if (classify(1, 1) != 1) return "fail 1"
+    if (classify(1, -1) != 2) return "fail 2"
+    if (classify(-1, 1) != 3) return "fail 3"
+    return "OK"
+}
@@ -0,0 +1,6 @@
+fun next(x: Int) = (x as Int) + 1
+
+fun box(): String {
+    if (next(41) != 42) return "fail"
+    return "OK"
+}
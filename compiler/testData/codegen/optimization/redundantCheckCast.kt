@@ -0,0 +1,8 @@
+fun name(): String = "abc"
+
+fun nameLength() = (name() as String).length
+
+fun box(): String {
+    if (nameLength() != 3) return "fail"
+    return "OK"
+}
@@ -0,0 +1,15 @@
+fun distance(x1: Int, y1: Int, x2: Int, y2: Int): Int {
+    val delta = #(x2 - x1, y2 - y1)
+    return delta._1 * delta._1 + delta._2 * delta._2
+}
+
+fun box(): String {
+    var sum = 0
+    for (i in 0..9) {
+        val point = #(i, i * 2)
+        sum += point._1 + point._2
+    }
+    if (sum != 135) return "fail 1: $sum"
+    if (distance(1, 1, 4, 5) != 25) return "fail 2"
+    return "OK"
+}
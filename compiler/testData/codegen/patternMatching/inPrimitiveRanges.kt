@@ -0,0 +1,36 @@
+fun inLong(x: Long, lo: Long, hi: Long) = x in lo..hi
+
+fun isLowerCase(c: Char) = c in 'a'..'z'
+
+fun classify(x: Long) = when (x) {
+    in 0.toLong()..9.toLong() -> "digit"
+    !in -100.toLong()..100.toLong() -> "big"
+    else -> "small"
+}
+
+val digits = 0..9
+
+fun isDigit(x: Int) = x in digits
+
+fun box(): String {
+    if (!inLong(5.toLong(), 1.toLong(), 10.toLong())) return "fail 1"
+    if (inLong(11.toLong(), 1.toLong(), 10.toLong())) return "fail 2"
+    if (!inLong(10.toLong(), 1.toLong(), 10.toLong())) return "fail 3"
+    if (inLong(0.toLong(), 1.toLong(), 10.toLong())) return "fail 4"
+    if (inLong(5.toLong(), 10.toLong(), 1.toLong())) return "fail 5"
+
+    if (!isLowerCase('q')) return "fail 6"
+    if (isLowerCase('Q')) return "fail 7"
+
+    if (classify(5.toLong()) != "digit") return "fail 8"
+    if (classify(500.toLong()) != "big") return "fail 9"
+    if (classify(-5.toLong()) != "small") return "fail 10"
+
+    if (!isDigit(0) || !isDigit(9)) return "fail 11"
+    if (isDigit(10) || 3 !in digits) return "fail 12"
+
+    val range = 10..20
+    if (15 !in range || 25 in range) return "fail 13"
+
+    return "OK"
+}
@@ -0,0 +1,37 @@
+open class Base {
+    open val size: Int = 1
+    fun twiceSize() = size * 2
+}
+
+class Derived : Base() {
+    override val size: Int = 5
+}
+
+class Point(x: Int, y: Int) {
+    open var x: Int = x
+    private var y: Int = y
+    private val sum: Int
+        get() = x + y
+
+    fun moveBy(d: Int) {
+        x += d
+        y = y + d
+    }
+
+    fun lazySum(): () -> Int = { y++; sum }
+
+    fun setInClosure(value: Int): () -> Unit = { y = value }
+}
+
+fun box(): String {
+    if (Derived().twiceSize() != 10) return "fail 1"
+
+    val p = Point(1, 2)
+    p.moveBy(3)
+    if (p.x != 4) return "fail 2"
+    val sum = p.lazySum()
+    if (sum() != 10) return "fail 3"
+    p.setInClosure(0)()
+    if (sum() != 5) return "fail 4"
+    return "OK"
+}
@@ -0,0 +1,13 @@
+fun box(): String {
+    val b: Byte = 1
+    val s: Short = 2
+    val arr = array(1)
+    val n: String? = null
+    if (n + b + s != "null12") return "fail 1: ${n + b + s}"
+    if ("a" + "b" + 1 + 'c' + true != "ab1ctrue") return "fail 2"
+    if ("${"x" + b}${s}y" != "x12y") return "fail 3"
+    if (!("" + arr).startsWith("[")) return "fail 4"
+    val l = 10.toLong()
+    if ("" + l + 1.5 + 'z' != "101.5z") return "fail 5"
+    return "O" + "K"
+}
@@ -0,0 +1,35 @@
+fun eqInt(a: Int?, b: Int) = a == b
+fun neqInt(a: Int, b: Int?) = a != b
+fun eqNullableInts(a: Int?, b: Int?) = a == b
+fun eqChar(a: Char?, b: Char) = a == b
+fun eqBoolean(a: Boolean?, b: Boolean?) = a == b
+fun eqDouble(a: Double?, b: Double) = a == b
+fun eqLongCall(a: Long, b: Long) = a.equals(b)
+fun eqDoubleCall(a: Double, b: Double) = a.equals(b)
+fun eqString(a: String, b: String?) = a == b
+fun eqNullableString(a: String?, b: String?) = a == b
+fun eqMixed(a: Int?, b: Long) = a.equals(b)
+
+fun box(): String {
+    if (!eqInt(1000, 1000)) return "fail 1"
+    if (eqInt(null, 0)) return "fail 2"
+    if (eqInt(1, 2)) return "fail 3"
+    if (!neqInt(0, null)) return "fail 4"
+    if (neqInt(7, 7)) return "fail 5"
+    if (!eqNullableInts(null, null)) return "fail 6"
+    if (eqNullableInts(null, 1)) return "fail 7"
+    if (eqNullableInts(1, null)) return "fail 8"
+    if (!eqNullableInts(100500, 100500)) return "fail 9"
+    if (!eqChar('a', 'a') || eqChar(null, 'a')) return "fail 10"
+    if (!eqBoolean(true, true) || eqBoolean(true, false) || eqBoolean(null, false)) return "fail 11"
+    if (!eqDouble(1.5, 1.5) || eqDouble(null, 1.5)) return "fail 12"
+    if (!eqLongCall(5000000000, 5000000000) || eqLongCall(1, 2)) return "fail 13"
+    // equals() on floating point values follows java.lang.Double.equals
+    val nan = 0.0 / 0.0
+    if (!eqDoubleCall(nan, nan)) return "fail 14"
+    if (eqDoubleCall(0.0, -0.0)) return "fail 15"
+    if (!eqString("a" + 1, "a1") || eqString("a", null)) return "fail 16"
+    if (!eqNullableString(null, null) || eqNullableString(null, "a")) return "fail 17"
+    if (eqMixed(1, 1.toLong())) return "fail 18"
+    return "OK"
+}
@@ -0,0 +1,26 @@
+tailRecursive fun sum(n: Int, acc: Int): Int = if (n == 0) acc else sum(n - 1, acc + n)
+
+tailRecursive fun fact(n: Int): Int = if (n <= 1) 1 else n * <!NON_TAIL_RECURSIVE_CALL!>fact(n - 1)<!>
+
+tailRecursive fun withDefault(n: Int, acc: Int = 0): Int = if (n == 0) acc else <!NON_TAIL_RECURSIVE_CALL!>withDefault(n - 1)<!>
+
+tailRecursive fun inTry(n: Int): Int {
+    try {
+        return if (n == 0) 0 else <!NON_TAIL_RECURSIVE_CALL!>inTry(n - 1)<!>
+    }
+    finally {
+    }
+}
+
+tailRecursive fun String.countDown(n: Int): String {
+    if (n == 0) return this
+    return (this + n).countDown(n - 1)
+}
+
+open class A {
+    tailRecursive fun finalMember(n: Int): Int = if (n == 0) 0 else finalMember(n - 1)
+
+    tailRecursive open fun openMember(n: Int): Int = if (n == 0) 0 else <!NON_TAIL_RECURSIVE_CALL!>openMember(n - 1)<!>
+
+    tailRecursive fun otherInstance(a: A, n: Int): Int = if (n == 0) 0 else a.<!NON_TAIL_RECURSIVE_CALL!>otherInstance(this, n - 1)<!>
+}
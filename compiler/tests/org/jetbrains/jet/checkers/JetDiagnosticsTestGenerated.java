@@ -440,6 +440,11 @@ public class JetDiagnosticsTestGenerated extends AbstractDiagnosticsTestWithEage
             doTest("compiler/testData/diagnostics/tests/SyntaxErrorInTestHighlightingEof.kt");
         }
         
+        @TestMetadata("TailRecursion.kt")
+        public void testTailRecursion() throws Exception {
+            doTest("compiler/testData/diagnostics/tests/TailRecursion.kt");
+        }
+        
         @TestMetadata("TraitSupertypeList.kt")
         public void testTraitSupertypeList() throws Exception {
             doTest("compiler/testData/diagnostics/tests/TraitSupertypeList.kt");
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.Assert;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class CompiledClassesCacheTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = FileUtil.createTempDirectory("compiledClassesCache", null);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(directory);
+    }
+
+    @NotNull
+    private static CompiledClassesCache.JarWriter jarWithClass(@NotNull final String name) {
+        return new CompiledClassesCache.JarWriter() {
+            @Override
+            public void write(@NotNull OutputStream out) throws IOException {
+                JarOutputStream jar = new JarOutputStream(out);
+                jar.putNextEntry(new JarEntry(name + ".class"));
+                jar.write(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+                jar.closeEntry();
+                jar.finish();
+            }
+        };
+    }
+
+    @Test
+    public void keyDependsOnContent() {
+        String key = CompiledClassesCache.key("module script", "val x = 1".getBytes());
+        Assert.assertEquals(key, CompiledClassesCache.key("module script", "val x = 1".getBytes()));
+        Assert.assertFalse(key.equals(CompiledClassesCache.key("module script", "val x = 2".getBytes())));
+        Assert.assertFalse(key.equals(CompiledClassesCache.key("script", "val x = 1".getBytes())));
+        // parts are separated, so moving a boundary changes the key
+        Assert.assertFalse(CompiledClassesCache.key("ab", "c").equals(CompiledClassesCache.key("a", "bc")));
+    }
+
+    @Test
+    public void keyDependsOnFileSizeAndModificationTime() throws IOException {
+        File jar = new File(directory, "runtime.jar");
+        FileUtil.writeToFile(jar, "first".getBytes());
+        Assert.assertTrue(jar.setLastModified(1000000000000L));
+        String key = CompiledClassesCache.key(jar);
+        Assert.assertEquals(key, CompiledClassesCache.key(jar));
+
+        Assert.assertTrue(jar.setLastModified(1000000060000L));
+        String touched = CompiledClassesCache.key(jar);
+        Assert.assertFalse(key.equals(touched));
+
+        FileUtil.writeToFile(jar, "second, longer".getBytes());
+        Assert.assertTrue(jar.setLastModified(1000000060000L));
+        Assert.assertFalse(touched.equals(CompiledClassesCache.key(jar)));
+    }
+
+    @Test
+    public void missBeforePutAndHitAfter() {
+        CompiledClassesCache cache = new CompiledClassesCache(directory, Long.MAX_VALUE);
+        String key = CompiledClassesCache.key("module script", "fun project() {}");
+        Assert.assertNull(cache.get(key));
+        Assert.assertNull(cache.getMetadata(key));
+
+        Properties metadata = new Properties();
+        metadata.setProperty("messages", "0");
+        File jar = cache.put(key, jarWithClass("namespace"), metadata);
+        Assert.assertNotNull(jar);
+
+        Assert.assertEquals(jar, cache.get(key));
+        Properties stored = cache.getMetadata(key);
+        Assert.assertNotNull(stored);
+        Assert.assertEquals("0", stored.getProperty("messages"));
+        Assert.assertNull(cache.get(CompiledClassesCache.key("module script", "fun project() { }")));
+    }
+
+    @Test
+    public void changedClasspathJarIsMiss() throws IOException {
+        CompiledClassesCache cache = new CompiledClassesCache(directory, Long.MAX_VALUE);
+        File runtime = new File(directory, "runtime.jar.in");
+        FileUtil.writeToFile(runtime, "runtime".getBytes());
+        Assert.assertTrue(runtime.setLastModified(1000000000000L));
+
+        String key = CompiledClassesCache.key("module script", "fun project() {}", runtime);
+        Assert.assertNotNull(cache.put(key, jarWithClass("namespace"), null));
+        Assert.assertNotNull(cache.get(CompiledClassesCache.key("module script", "fun project() {}", runtime)));
+
+        FileUtil.writeToFile(runtime, "updated runtime".getBytes());
+        Assert.assertNull(cache.get(CompiledClassesCache.key("module script", "fun project() {}", runtime)));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        String first = CompiledClassesCache.key("first");
+        String second = CompiledClassesCache.key("second");
+        File firstJar = new CompiledClassesCache(directory, Long.MAX_VALUE).put(first, jarWithClass("A"), null);
+        Assert.assertNotNull(firstJar);
+        Assert.assertTrue(firstJar.setLastModified(1000000000000L));
+
+        // room for one entry only
+        CompiledClassesCache cache = new CompiledClassesCache(directory, firstJar.length() * 3 / 2);
+        Assert.assertNotNull(cache.put(second, jarWithClass("B"), null));
+
+        Assert.assertNull(cache.get(first));
+        Assert.assertNotNull(cache.get(second));
+    }
+
+    @Test
+    public void disabledWhenNotRunFromJarOrTurnedOff() throws IOException {
+        File compilerJar = new File(directory, "kotlin-compiler.jar");
+        FileUtil.writeToFile(compilerJar, "compiler".getBytes());
+
+        Assert.assertNull(CompiledClassesCache.create(directory.getPath(), null, null));
+        Assert.assertNull(CompiledClassesCache.create("off", null, compilerJar));
+
+        CompiledClassesCache cache = CompiledClassesCache.create(directory.getPath(), "16", compilerJar);
+        Assert.assertNotNull(cache);
+        Assert.assertEquals(directory, cache.getDirectory());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import junit.framework.Assert;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.jet.cli.common.messages.MessageCollector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class RecordingMessageCollectorTest {
+
+    private static class RenderingMessageCollector implements MessageCollector {
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public void report(@NotNull CompilerMessageSeverity severity, @NotNull String message, @NotNull CompilerMessageLocation location) {
+            messages.add(severity + " " + location.getPath() + ":" + location.getLine() + ":" + location.getColumn() + " " + message);
+        }
+    }
+
+    @Test
+    public void storedMessagesAreReplayed() {
+        RenderingMessageCollector original = new RenderingMessageCollector();
+        RecordingMessageCollector recorder = new RecordingMessageCollector(original);
+        recorder.report(CompilerMessageSeverity.WARNING, "Variable 'x' is never used", CompilerMessageLocation.create("/a.kts", 3, 9));
+        recorder.report(CompilerMessageSeverity.LOGGING, "Compiling script", CompilerMessageLocation.NO_LOCATION);
+        recorder.report(CompilerMessageSeverity.INFO, "Note", CompilerMessageLocation.NO_LOCATION);
+
+        Properties metadata = new Properties();
+        recorder.store(metadata);
+
+        RenderingMessageCollector replayed = new RenderingMessageCollector();
+        Assert.assertTrue(RecordingMessageCollector.replay(metadata, replayed));
+        Assert.assertEquals(3, original.messages.size());
+        Assert.assertEquals(
+                "[WARNING /a.kts:3:9 Variable 'x' is never used, INFO null:-1:-1 Note]",
+                replayed.messages.toString());
+    }
+
+    @Test
+    public void entryWithoutMessagesIsNotReplayed() {
+        Properties metadata = new Properties();
+        metadata.setProperty("script.class", "A");
+
+        RenderingMessageCollector replayed = new RenderingMessageCollector();
+        Assert.assertFalse(RecordingMessageCollector.replay(metadata, replayed));
+        Assert.assertTrue(replayed.messages.isEmpty());
+    }
+}
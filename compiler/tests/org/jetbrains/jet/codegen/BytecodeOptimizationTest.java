@@ -0,0 +1,211 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.ClassReader;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.*;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.codegen.optimization.DeadCodeEliminationMethodTransformer;
+import org.jetbrains.jet.codegen.optimization.DeadStoreMethodTransformer;
+import org.jetbrains.jet.codegen.optimization.OptimizationClassBuilderFactory;
+import org.jetbrains.jet.codegen.optimization.RedundantBoxingMethodTransformer;
+import org.jetbrains.jet.codegen.optimization.TupleScalarReplacementMethodTransformer;
+
+/**
+ * Runs black box tests with the bytecode optimizer enabled and checks that the pass each test targets has changed the code.
+ */
+public class BytecodeOptimizationTest extends CodegenTestCase {
+    private OptimizationClassBuilderFactory factory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        factory = new OptimizationClassBuilderFactory(ClassBuilderFactories.TEST);
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        factory = null;
+        super.tearDown();
+    }
+
+    @NotNull
+    @Override
+    protected ClassBuilderFactory getClassBuilderFactory() {
+        return factory;
+    }
+
+    private void doTest(@NotNull String filename, @NotNull String pass) {
+        blackBoxFile(filename);
+        assertTrue("'" + pass + "' made no changes in " + filename, factory.getStatistics().getChanges(pass) > 0);
+        assertNoEmptyTryCatchBlocks(generateClassesInFile());
+    }
+
+    private static void assertNoEmptyTryCatchBlocks(@NotNull ClassFileFactory classFileFactory) {
+        for (String file : classFileFactory.files()) {
+            if (!file.endsWith(".class")) continue;
+            ClassNode classNode = new ClassNode();
+            new ClassReader(classFileFactory.asBytes(file)).accept(classNode, 0);
+            for (MethodNode method : classNode.methods) {
+                for (TryCatchBlockNode block : method.tryCatchBlocks) {
+                    assertTrue("empty try/catch range in " + classNode.name + "." + method.name, hasInstructions(block.start, block.end));
+                }
+            }
+        }
+    }
+
+    private static boolean hasInstructions(@NotNull AbstractInsnNode start, @NotNull AbstractInsnNode end) {
+        for (AbstractInsnNode insn = start; insn != null && insn != end; insn = insn.getNext()) {
+            if (insn.getOpcode() >= 0) return true;
+        }
+        return false;
+    }
+
+    public void testTryCatchFinallyChain() {
+        doTest("controlStructures/tryCatchFinallyChain.kt", "unreachable code");
+    }
+
+    public void testInRangeConditionsInWhen() {
+        doTest("controlStructures/inRangeConditionsInWhen.jet", "unreachable code");
+    }
+
+    public void testDeadCodeAfterTryCatch() {
+        doTest("optimization/deadCodeAfterTryCatch.kt", "unreachable code");
+    }
+
+    public void testRedundantBoxing() {
+        doTest("optimization/redundantBoxing.kt", "redundant boxing");
+    }
+
+    public void testRedundantCheckCast() {
+        doTest("optimization/redundantCheckCast.kt", "redundant checkcast");
+    }
+
+    public void testJumpToJump() {
+        doTest("optimization/jumpToJump.kt", "jump to jump");
+    }
+
+    public void testDiscardedTryValue() {
+        doTest("optimization/discardedTryValue.kt", "push/pop");
+    }
+
+    public void testTupleScalarReplacement() {
+        doTest("optimization/tupleScalarReplacement.kt", "tuple scalar replacement");
+    }
+
+    public void testRepeatedNullChecks() {
+        doTest("nullChecks.kt", "redundant null check");
+    }
+
+    public void testDeadStoreOfTemporary() {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "f", "()V", null, null);
+        method.instructions.add(new InsnNode(Opcodes.ICONST_1));
+        method.instructions.add(new VarInsnNode(Opcodes.ISTORE, 0));
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        method.maxLocals = 1;
+
+        assertEquals(1, new DeadStoreMethodTransformer().transform("A", method));
+        assertEquals(Opcodes.POP, method.instructions.get(1).getOpcode());
+    }
+
+    public void testBoxingWithCastToWrapperRemoved() {
+        MethodNode method = boxCastUnbox("java/lang/Integer", "java/lang/Integer");
+
+        assertEquals(3, new RedundantBoxingMethodTransformer().transform("A", method));
+        assertEquals(Opcodes.IRETURN, method.instructions.get(1).getOpcode());
+    }
+
+    public void testBoxingWithCastToOtherWrapperKept() {
+        MethodNode method = boxCastUnbox("java/lang/Long", "java/lang/Number");
+
+        assertEquals(0, new RedundantBoxingMethodTransformer().transform("A", method));
+        assertEquals(5, method.instructions.size());
+    }
+
+    @NotNull
+    private static MethodNode boxCastUnbox(@NotNull String castType, @NotNull String unboxingOwner) {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "f", "(I)I", null, null);
+        method.instructions.add(new VarInsnNode(Opcodes.ILOAD, 0));
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;"));
+        method.instructions.add(new TypeInsnNode(Opcodes.CHECKCAST, castType));
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, unboxingOwner, "intValue", "()I"));
+        method.instructions.add(new InsnNode(Opcodes.IRETURN));
+        return method;
+    }
+
+    public void testTupleReadByComponentsReplaced() {
+        MethodNode method = tupleOfParameters();
+        method.instructions.add(new VarInsnNode(Opcodes.ALOAD, 2));
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "jet/Tuple2", "get_2", "()Ljava/lang/Object;"));
+        method.instructions.add(new InsnNode(Opcodes.ARETURN));
+
+        assertEquals(5, new TupleScalarReplacementMethodTransformer().transform("A", method));
+        assertEquals(Opcodes.ALOAD, method.instructions.get(0).getOpcode());
+        assertEquals(Opcodes.ALOAD, method.instructions.get(1).getOpcode());
+        assertEquals(4, ((VarInsnNode) method.instructions.get(2)).var);
+        assertEquals(3, ((VarInsnNode) method.instructions.get(3)).var);
+        assertEquals(4, ((VarInsnNode) method.instructions.get(4)).var);
+        assertEquals(Opcodes.ARETURN, method.instructions.get(5).getOpcode());
+    }
+
+    public void testEscapingTupleKept() {
+        MethodNode method = tupleOfParameters();
+        method.instructions.add(new VarInsnNode(Opcodes.ALOAD, 2));
+        method.instructions.add(new InsnNode(Opcodes.ARETURN));
+
+        assertEquals(0, new TupleScalarReplacementMethodTransformer().transform("A", method));
+        assertEquals(8, method.instructions.size());
+    }
+
+    @NotNull
+    private static MethodNode tupleOfParameters() {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "f", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+        method.instructions.add(new TypeInsnNode(Opcodes.NEW, "jet/Tuple2"));
+        method.instructions.add(new InsnNode(Opcodes.DUP));
+        method.instructions.add(new VarInsnNode(Opcodes.ALOAD, 0));
+        method.instructions.add(new VarInsnNode(Opcodes.ALOAD, 1));
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, "jet/Tuple2", "<init>", "(Ljava/lang/Object;Ljava/lang/Object;)V"));
+        method.instructions.add(new VarInsnNode(Opcodes.ASTORE, 2));
+        method.maxLocals = 3;
+        return method;
+    }
+
+    public void testUnreachableTryCatchBlockRemoved() {
+        LabelNode tryStart = new LabelNode(new Label());
+        LabelNode tryEnd = new LabelNode(new Label());
+        LabelNode handler = new LabelNode(new Label());
+        LabelNode end = new LabelNode(new Label());
+
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "f", "()V", null, null);
+        method.instructions.add(new JumpInsnNode(Opcodes.GOTO, end));
+        method.instructions.add(tryStart);
+        method.instructions.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "A", "g", "()V"));
+        method.instructions.add(tryEnd);
+        method.instructions.add(handler);
+        method.instructions.add(new InsnNode(Opcodes.ATHROW));
+        method.instructions.add(end);
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        method.tryCatchBlocks.add(new TryCatchBlockNode(tryStart, tryEnd, handler, "java/lang/Exception"));
+
+        assertEquals(2, new DeadCodeEliminationMethodTransformer().transform("A", method));
+        assertTrue(method.tryCatchBlocks.isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import junit.framework.TestCase;
+
+public class ClassHierarchyOracleTest extends TestCase {
+    private ClassHierarchyOracle oracle;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        oracle = new ClassHierarchyOracle();
+        oracle.registerClass("test/Base", "java/lang/Object", new String[] {"test/Trait"}, false);
+        oracle.registerClass("test/Trait", "java/lang/Object", null, true);
+        oracle.registerClass("test/A", "test/Base", null, false);
+        oracle.registerClass("test/B", "test/Base", null, false);
+        oracle.registerClass("test/C", "java/lang/Object", new String[] {"test/Trait"}, false);
+    }
+
+    public void testSameType() {
+        assertEquals("test/A", oracle.getCommonSuperClass("test/A", "test/A"));
+    }
+
+    public void testSiblings() {
+        assertEquals("test/Base", oracle.getCommonSuperClass("test/A", "test/B"));
+        assertEquals("test/Base", oracle.getCommonSuperClass("test/B", "test/A"));
+    }
+
+    public void testSubclass() {
+        assertEquals("test/Base", oracle.getCommonSuperClass("test/A", "test/Base"));
+    }
+
+    public void testInterface() {
+        assertEquals("test/Trait", oracle.getCommonSuperClass("test/Trait", "test/A"));
+        assertEquals("test/Trait", oracle.getCommonSuperClass("test/C", "test/Trait"));
+        oracle.registerClass("test/D", "java/lang/Object", null, false);
+        assertEquals("java/lang/Object", oracle.getCommonSuperClass("test/Trait", "test/D"));
+    }
+
+    public void testUnrelated() {
+        assertEquals("java/lang/Object", oracle.getCommonSuperClass("test/A", "test/C"));
+    }
+
+    public void testUnknown() {
+        assertNull(oracle.getCommonSuperClass("test/A", "test/Unknown"));
+    }
+
+    public void testRegisteredAfterQuery() {
+        assertNull(oracle.getCommonSuperClass("test/A", "test/Late"));
+        oracle.registerClass("test/Late", "test/Base", null, false);
+        assertEquals("test/Base", oracle.getCommonSuperClass("test/A", "test/Late"));
+    }
+
+    public void testReregisteredClass() {
+        oracle.registerClass("test/E", "java/lang/Object", null, false);
+        assertEquals("java/lang/Object", oracle.getCommonSuperClass("test/A", "test/E"));
+        oracle.registerClass("test/E", "test/Base", null, false);
+        assertEquals("test/Base", oracle.getCommonSuperClass("test/A", "test/E"));
+    }
+}
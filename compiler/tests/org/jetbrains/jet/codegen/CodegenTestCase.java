@@ -290,10 +290,18 @@ public abstract class CodegenTestCase extends UsefulTestCase {
 
     protected String generateToText() {
         if(alreadyGenerated == null)
-            alreadyGenerated = generateCommon(ClassBuilderFactories.TEST);
+            alreadyGenerated = generateCommon(getClassBuilderFactory());
         return alreadyGenerated.createText();
     }
 
+    @NotNull
+    protected ClassBuilderFactory getClassBuilderFactory() {
+        return ClassBuilderFactories.TEST;
+    }
+
+    protected void configureGenerationState(@NotNull GenerationState state) {
+    }
+
     private GenerationState generateCommon(ClassBuilderFactory classBuilderFactory) {
         if(alreadyGenerated != null)
             return alreadyGenerated;
@@ -307,6 +315,7 @@ public abstract class CodegenTestCase extends UsefulTestCase {
         analyzeExhaust.throwIfError();
         AnalyzingUtils.throwExceptionOnErrors(analyzeExhaust.getBindingContext());
         alreadyGenerated = new GenerationState(myEnvironment.getProject(), classBuilderFactory, analyzeExhaust, myFiles.getPsiFiles());
+        configureGenerationState(alreadyGenerated);
         alreadyGenerated.compileCorrectFiles(CompilationErrorHandler.THROW_EXCEPTION);
         return alreadyGenerated;
     }
@@ -352,7 +361,7 @@ public abstract class CodegenTestCase extends UsefulTestCase {
     private GenerationState generateClassesInFileGetState() {
         GenerationState generationState;
         try {
-            generationState = generateCommon(ClassBuilderFactories.TEST);
+            generationState = generateCommon(getClassBuilderFactory());
 
             if (DxChecker.RUN_DX_CHECKER) {
                 DxChecker.check(generationState.getFactory());
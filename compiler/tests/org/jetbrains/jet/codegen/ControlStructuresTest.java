@@ -229,6 +229,30 @@ public class ControlStructuresTest extends CodegenTestCase {
         blackBoxFile("controlStructures/forIntRange.jet");
     }
 
+    public void testForProgression() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+        blackBoxFile("controlStructures/forProgression.kt");
+        assertFalse(generateToText().contains("iterator"));
+    }
+
+    public void testRangeStepIterator() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+        blackBoxFile("controlStructures/rangeStepIterator.kt");
+    }
+
+    public void testRangeToAndIndicesDoNotBox() {
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+        loadText("fun f(a: IntArray, x: Int): Boolean {\n" +
+                 "    val r = 0..10\n" +
+                 "    var s = 0\n" +
+                 "    for (i in a.indices) s += i\n" +
+                 "    for (i in r) s += i\n" +
+                 "    return r.contains(x + s) || x in a.indices\n" +
+                 "}");
+        String text = generateToText();
+        assertFalse(text, text.contains("valueOf"));
+    }
+
     public void testKt237() throws Exception {
         createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
         blackBoxFile("regressions/kt237.jet");
@@ -97,6 +97,10 @@ public class EnumGenTest extends CodegenTestCase {
         blackBoxFile("enum/valueof.kt");
     }
 
+    public void testValuesLookup() throws Exception {
+        blackBoxFile("enum/valuesLookup.kt");
+    }
+
     public void testInClassObj() throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         blackBoxFile("enum/inclassobj.kt");
     }
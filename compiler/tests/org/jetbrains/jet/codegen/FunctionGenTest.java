@@ -175,4 +175,16 @@ public class FunctionGenTest extends CodegenTestCase {
     public void testRemoveInIterator() throws Exception {
         blackBoxFileWithJava("functions/removeInIterator.kt");
     }
+
+    public void testTailRecursion() throws Exception {
+        blackBoxFile("functions/tailRecursion.kt");
+    }
+
+    public void testTailRecursionIsCompiledAsJump() throws Exception {
+        loadText("tailRecursive fun sum(n: Int, acc: Int): Int = if (n == 0) acc else sum(n - 1, acc + n)");
+        String text = generateToText();
+        assertFalse(text.contains("INVOKESTATIC namespace.sum"));
+        Method sum = generateFunction();
+        assertEquals(50005000, sum.invoke(null, 10000, 0));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.ClassReader;
+import org.jetbrains.asm4.tree.ClassNode;
+import org.jetbrains.asm4.tree.MethodNode;
+import org.jetbrains.jet.ConfigurationKind;
+
+import java.util.*;
+
+/**
+ * Runs black box tests with non-capturing function literals compiled into dispatcher classes.
+ */
+public class LambdaConsolidationTest extends CodegenTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.JDK_ONLY);
+    }
+
+    @Override
+    protected void configureGenerationState(@NotNull GenerationState state) {
+        state.setConsolidateLambdas(true);
+    }
+
+    public void testConsolidatedLambdas() {
+        blackBoxFile("functions/consolidatedLambdas.kt");
+        ClassFileFactory factory = generateClassesInFile();
+
+        Map<String, Integer> dispatchers = new TreeMap<String, Integer>();
+        // Multiplier.twice, two single calls, both levels of 'nested', 'f' and 'g'
+        dispatchers.put("namespace$lambdas$consolidatedLambdas$Function1", 7);
+        dispatchers.put("namespace$lambdas$consolidatedLambdas$Function2", 1);
+        dispatchers.put("namespace$lambdas$consolidatedLambdas$ExtensionFunction1", 1);
+        dispatchers.put("namespace$lambdas$consolidatedLambdas$Function0", 2);
+        assertDispatchers(factory, dispatchers);
+
+        // the literals capturing 'offset' and 'this'
+        assertClosures(factory, 2, "namespace$", "Multiplier$");
+    }
+
+    public void testCapturingLambdasAreNotConsolidated() {
+        blackBoxFile("functions/capturingLambdas.kt");
+        ClassFileFactory factory = generateClassesInFile();
+
+        // only '{ it * 3 }' does not capture anything
+        assertDispatchers(factory, Collections.singletonMap("namespace$lambdas$capturingLambdas$Function1", 1));
+
+        // the literals capturing 'offset' (twice), 'sum', 'this' of Counter and the extension receiver
+        assertClosures(factory, 5, "namespace$", "Counter$");
+    }
+
+    public void testLocalFunction() {
+        blackBoxFile("functions/localFunction.kt");
+    }
+
+    public void testFunctionExpression() {
+        blackBoxFile("functions/functionExpression.jet");
+    }
+
+    /**
+     * Checks that exactly the given dispatchers were generated and that each holds the expected number of literal bodies
+     */
+    private static void assertDispatchers(@NotNull ClassFileFactory factory, @NotNull Map<String, Integer> expected) {
+        Map<String, Set<String>> actual = new TreeMap<String, Set<String>>();
+        for (String file : factory.files()) {
+            if (file.contains("$lambdas$")) {
+                actual.put(file.substring(0, file.length() - ".class".length()), getMethodNames(readClass(factory, file)));
+            }
+        }
+        assertEquals(new TreeSet<String>(expected.keySet()), actual.keySet());
+
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            Set<String> methods = new TreeSet<String>(Arrays.asList("<clinit>", "<init>", LambdaDispatcherCodegen.GET_INSTANCE, "invoke"));
+            for (int id = 0; id < entry.getValue(); id++) {
+                methods.add("invoke$" + id);
+            }
+            assertEquals(entry.getKey(), methods, actual.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Checks the number of literals that were left in their own classes, and that each of them still has its own body
+     */
+    private static void assertClosures(@NotNull ClassFileFactory factory, int expected, @NotNull String... prefixes) {
+        List<String> closures = new ArrayList<String>();
+        for (String file : factory.files()) {
+            if (file.contains("$lambdas$")) continue;
+            for (String prefix : prefixes) {
+                if (file.startsWith(prefix)) {
+                    closures.add(file);
+                    Set<String> methods = getMethodNames(readClass(factory, file));
+                    assertTrue(file + ": " + methods, methods.contains("invoke"));
+                    for (String method : methods) {
+                        assertFalse(file + ": " + methods, method.startsWith("invoke$"));
+                    }
+                    break;
+                }
+            }
+        }
+        assertEquals(closures.toString(), expected, closures.size());
+    }
+
+    @NotNull
+    private static ClassNode readClass(@NotNull ClassFileFactory factory, @NotNull String file) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(factory.asBytes(file)).accept(classNode, ClassReader.SKIP_CODE);
+        return classNode;
+    }
+
+    @NotNull
+    private static Set<String> getMethodNames(@NotNull ClassNode classNode) {
+        Set<String> names = new TreeSet<String>();
+        for (MethodNode method : classNode.methods) {
+            names.add(method.name);
+        }
+        return names;
+    }
+}
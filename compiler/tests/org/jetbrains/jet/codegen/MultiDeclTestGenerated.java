@@ -37,6 +37,16 @@ public class MultiDeclTestGenerated extends AbstractMultiDeclTestCase {
         blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/ComplexInitializer.kt");
     }
     
+    @TestMetadata("InitializerEvaluatedOnce.kt")
+    public void testInitializerEvaluatedOnce() throws Exception {
+        blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/InitializerEvaluatedOnce.kt");
+    }
+    
+    @TestMetadata("NotSpecializedResultWithInitializer.kt")
+    public void testNotSpecializedResultWithInitializer() throws Exception {
+        blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/NotSpecializedResultWithInitializer.kt");
+    }
+    
     @TestMetadata("SimpleVals.kt")
     public void testSimpleVals() throws Exception {
         blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/SimpleVals.kt");
@@ -52,6 +62,16 @@ public class MultiDeclTestGenerated extends AbstractMultiDeclTestCase {
         blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/SimpleVarsExtensions.kt");
     }
     
+    @TestMetadata("SpecializedPrivateFunction.kt")
+    public void testSpecializedPrivateFunction() throws Exception {
+        blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/SpecializedPrivateFunction.kt");
+    }
+    
+    @TestMetadata("SpecializedPrivateMember.kt")
+    public void testSpecializedPrivateMember() throws Exception {
+        blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/SpecializedPrivateMember.kt");
+    }
+    
     @TestMetadata("ValCapturedInFunctionLiteral.kt")
     public void testValCapturedInFunctionLiteral() throws Exception {
         blackBoxFileByFullPath("compiler/testData/codegen/multiDecl/ValCapturedInFunctionLiteral.kt");
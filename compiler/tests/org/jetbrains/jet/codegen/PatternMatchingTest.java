@@ -170,4 +170,8 @@ public class PatternMatchingTest extends CodegenTestCase {
     public void testKt2457() throws Exception {
         blackBoxFile("regressions/kt2457.kt");
     }
+
+    public void testInPrimitiveRanges() throws Exception {
+        blackBoxFile("patternMatching/inPrimitiveRanges.kt");
+    }
 }
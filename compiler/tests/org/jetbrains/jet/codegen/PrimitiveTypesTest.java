@@ -329,6 +329,18 @@ public class PrimitiveTypesTest extends CodegenTestCase {
         assertTrue(generateToText().contains("IFNONNULL"));
     }
 
+    public void testSureAfterNullCheck() throws Exception {
+        loadText("fun foo(a: Int?) = if (a != null) a.sure() + a!! else 0");
+        assertFalse(generateToText().contains("throwNpe"));
+        final Method main = generateFunction();
+        assertEquals(4, main.invoke(null, 2));
+        assertEquals(0, main.invoke(null, new Object[] {null}));
+    }
+
+    public void testNullChecks() {
+        blackBoxFile("nullChecks.kt");
+    }
+
     public void testSafeNonnull () throws Exception {
         loadText("fun box() = 10?.toString()");
         assertFalse(generateToText().contains("IFNULL"));
@@ -452,4 +464,56 @@ public class PrimitiveTypesTest extends CodegenTestCase {
     public void testEmptyRanges() throws Exception {
         blackBoxFile("emptyRanges.kt");
     }
+
+    public void testUnboxedEquals() throws Exception {
+        blackBoxFile("unboxedEquals.kt");
+    }
+
+    public void testNullablePrimitiveEqualsDoesNotBox() throws Exception {
+        loadText("fun foo(a: Int?, b: Int): Boolean = a == b");
+        String text = generateToText();
+        assertFalse(text.contains("valueOf"));
+        assertFalse(text.contains("java/lang/Object.equals"));
+        final Method main = generateFunction();
+        assertEquals(true, main.invoke(null, 1, 1));
+        assertEquals(false, main.invoke(null, 2, 1));
+        assertEquals(false, main.invoke(null, null, 1));
+    }
+
+    public void testPrimitiveEqualsCallDoesNotBox() throws Exception {
+        loadText("fun foo(a: Long, b: Long): Boolean = a.equals(b)");
+        String text = generateToText();
+        assertFalse(text.contains("valueOf"));
+        final Method main = generateFunction();
+        assertEquals(true, main.invoke(null, 5L, 5L));
+        assertEquals(false, main.invoke(null, 5L, 6L));
+    }
+
+    public void testConstantFolding() throws Exception {
+        blackBoxFile("constantFolding.kt");
+    }
+
+    public void testExtensionsShadowingOperationsAreNotFolded() throws Exception {
+        blackBoxFile("constantFoldingWithExtensions.kt");
+    }
+
+    public void testConstantExpressionsAreFolded() throws Exception {
+        loadText("fun foo(): Int = (2 + 3) * 4 - 100 / 7");
+        String text = generateToText();
+        assertFalse(text.contains("IMUL"));
+        assertFalse(text.contains("IDIV"));
+        final Method main = generateFunction();
+        assertEquals(6, main.invoke(null));
+    }
+
+    public void testDeadBranchIsNotGenerated() throws Exception {
+        loadText("val DEBUG = false\n" +
+                 "fun log() {}\n" +
+                 "fun foo(): Int { if (DEBUG) log(); return if (DEBUG) 1 else 2 }");
+        String text = generateToText();
+        assertFalse(text.contains("log ()V\n"));
+        assertFalse(text.contains("<clinit>"));
+        final Method main = generateFunction("foo");
+        assertEquals(2, main.invoke(null));
+    }
 }
@@ -313,4 +313,16 @@ public class PropertyGenTest extends CodegenTestCase {
             throw new RuntimeException(e);
         }
     }
+
+    public void testDirectFieldAccess() throws Exception {
+        blackBoxFile("properties/directFieldAccess.kt");
+    }
+
+    public void testDefaultAccessorsOfFinalClassAreNotCalledInside() throws Exception {
+        loadText("class Counter { open var count: Int = 0\n" +
+                 "  fun inc(): Int { count = count + 1; return count } }");
+        String text = generateToText();
+        assertFalse(text.contains("INVOKEVIRTUAL Counter.getCount"));
+        assertFalse(text.contains("INVOKEVIRTUAL Counter.setCount"));
+    }
 }
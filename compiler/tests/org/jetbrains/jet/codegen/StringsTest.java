@@ -54,7 +54,8 @@ public class StringsTest extends CodegenTestCase {
     public void testNullableStringPlus () throws InvocationTargetException, IllegalAccessException {
         loadText("fun foo(x: String?, y: Any?) = x + y");
         String text = generateToText();
-        assertTrue(text.contains(".stringPlus"));
+        assertFalse(text.contains(".stringPlus"));
+        assertTrue(text.contains("java/lang/StringBuilder"));
 //        System.out.println(text);
         Method foo = generateFunction();
         assertEquals("something239", foo.invoke(null, "something", 239));
@@ -96,4 +97,18 @@ public class StringsTest extends CodegenTestCase {
     public void testKt889() throws Exception {
         blackBoxFile("regressions/kt889.jet");
     }
+
+    public void testConcatenationChain() throws InvocationTargetException, IllegalAccessException {
+        loadText("fun foo(a: String?, b: Int, c: Any?) = a + b + \"x\" + \"y\" + \"${c}z${b}\" + 'q'");
+        String text = generateToText();
+        assertEquals(1, text.split("NEW java/lang/StringBuilder").length - 1);
+        assertTrue(text.contains("\"xy\""));
+        Method foo = generateFunction();
+        assertEquals("a1xycz1q", foo.invoke(null, "a", 1, "c"));
+        assertEquals("null1xynullz1q", foo.invoke(null, null, 1, null));
+    }
+
+    public void testConstantConcatenation() throws Exception {
+        blackBoxFile("stringConcatenation.kt");
+    }
 }
@@ -25,7 +25,9 @@ import org.jetbrains.jet.ConfigurationKind;
 import org.jetbrains.jet.TestJdkKind;
 import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.cli.jvm.repl.ReplInterpreter;
+import org.jetbrains.jet.cli.jvm.repl.ReplScope;
 import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.resolve.name.Name;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
@@ -52,11 +54,23 @@ public class ReplInterpreterTest {
         Disposer.dispose(disposable);
     }
 
-    private void testFile(@NotNull String relativePath) {
+    @NotNull
+    private ReplInterpreter createInterpreter() {
         CompilerConfiguration configuration =
                 CompileCompilerDependenciesTest.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.FULL_JDK);
         configuration.add(JVMConfigurationKeys.CLASSPATH_KEY, new File("out/production/runtime"));
-        ReplInterpreter repl = new ReplInterpreter(disposable, configuration);
+        return new ReplInterpreter(disposable, configuration);
+    }
+
+    @NotNull
+    private static String evalSuccessfully(@NotNull ReplInterpreter repl, @NotNull String code) {
+        ReplInterpreter.LineResult lineResult = repl.eval(code);
+        Assert.assertEquals(lineResult.getErrorText(), ReplInterpreter.LineResultType.SUCCESS, lineResult.getType());
+        return String.valueOf(lineResult.getValue());
+    }
+
+    private void testFile(@NotNull String relativePath) {
+        ReplInterpreter repl = createInterpreter();
 
         ReplSessionTestFile file = ReplSessionTestFile.load(new File("compiler/testData/repl/" + relativePath));
         for (ReplSessionTestFile.OneLine t : file.getLines()) {
@@ -133,6 +147,11 @@ public class ReplInterpreterTest {
         testFile("imports.repl");
     }
 
+    @Test
+    public void importsAndDeclarationsOfEarlierLines() {
+        testFile("importsAndDeclarationsOfEarlierLines.repl");
+    }
+
 
     @Test
     public void syntaxErrors() {
@@ -159,4 +178,54 @@ public class ReplInterpreterTest {
         testFile("multiline3.repl");
     }
 
+    @Test
+    public void redefinition() {
+        testFile("redefinition.repl");
+    }
+
+    @Test
+    public void firstLineMemberFromLaterLine() {
+        testFile("firstLineMemberFromLaterLine.repl");
+    }
+
+    @Test
+    public void extensionAndImplicitReceiverOfEarlierLines() {
+        testFile("extensionAndImplicitReceiverOfEarlierLines.repl");
+    }
+
+    @Test
+    public void redefinitionShadowsEarlierDeclarations() {
+        ReplInterpreter repl = createInterpreter();
+        evalSuccessfully(repl, "val x = 1");
+        evalSuccessfully(repl, "fun f() = 1");
+        evalSuccessfully(repl, "fun f(a: Int) = a");
+        evalSuccessfully(repl, "val x = \"redefined\"");
+        evalSuccessfully(repl, "fun f() = 2");
+
+        ReplScope scope = repl.getReplScope();
+        Assert.assertEquals(1, scope.getProperties(Name.identifier("x")).size());
+        // the overload taking a parameter is kept
+        Assert.assertEquals(2, scope.getFunctions(Name.identifier("f")).size());
+        Assert.assertEquals(3, scope.getAllDescriptors().size());
+    }
+
+    @Test
+    public void onlyReferencedEarlierLinesArePassedToLine() {
+        ReplInterpreter repl = createInterpreter();
+        evalSuccessfully(repl, "val a = 10");
+        evalSuccessfully(repl, "val b = 20");
+        evalSuccessfully(repl, "fun c() = 30");
+
+        Assert.assertEquals("11", evalSuccessfully(repl, "a + 1"));
+        ReplInterpreter.LineStatistics statistics = repl.getLastLineStatistics();
+        Assert.assertNotNull(statistics);
+        Assert.assertEquals(3, statistics.getEarlierLinesCount());
+        Assert.assertEquals(1, statistics.getReferencedEarlierLinesCount());
+
+        evalSuccessfully(repl, "fun Int.plusA() = this + a");
+        Assert.assertEquals("40", evalSuccessfully(repl, "c().plusA()"));
+        // the lines declaring c and plusA, not the line declaring a, which plusA uses itself
+        Assert.assertEquals(2, repl.getLastLineStatistics().getReferencedEarlierLinesCount());
+    }
+
 }
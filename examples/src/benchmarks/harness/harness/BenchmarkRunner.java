@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package harness;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs a suite of benchmarks, each comparing a subject program (usually compiled by Kotlin) with a reference program
+ * (usually the equivalent Java code), and checks the ratios of their times against a baseline.
+ *
+ * Every program runs in fresh JVMs ({@code -forks} of them) through {@link ForkedBenchmark}; the score of a program
+ * is the median of the measured iterations of all its forks. The ratio subject/reference of every benchmark is written
+ * to the results file and compared with the ratio recorded in the baseline file, if there is one: a ratio exceeding
+ * the baseline by more than the tolerance is a regression. By default the runner only reports the comparison.
+ * With {@code -check} a regression makes it exit with status 1, and so does a missing baseline file or a benchmark
+ * without a baseline ratio, otherwise nothing would be checked. {@code -updateBaseline} records the current ratios
+ * as the new baseline instead.
+ *
+ * The suite file has one benchmark per line, with whitespace separated columns:
+ * <pre>
+ * name  mode  subject  reference  [args...]
+ * </pre>
+ * where mode is {@code throughput} or {@code single} (see {@link ForkedBenchmark}) and subject and reference are
+ * {@code classpathId:className} optionally followed by {@code #variant}, which is passed as the first argument.
+ * Class paths are given to the runner as {@code -classpath id=path}. Lines starting with {@code #} are comments.
+ */
+public class BenchmarkRunner {
+    private final Map<String, String> classpaths = new LinkedHashMap<String, String>();
+    private String suite = "benchmarks.txt";
+    private String results = "results.csv";
+    private String baseline = "baseline.properties";
+    private int forks = 2;
+    private int warmup = 3;
+    private int iterations = 5;
+    private double tolerance = 0.1;
+    private boolean updateBaseline;
+    private boolean check;
+    private String only;
+    private final List<String> jvmArgs = new ArrayList<String>();
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.parseArguments(args);
+        System.exit(runner.run() ? 0 : 1);
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-updateBaseline")) {
+                updateBaseline = true;
+                continue;
+            }
+            if (arg.equals("-check")) {
+                check = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            if (arg.equals("-classpath")) {
+                String value = args[++i];
+                int eq = value.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Class path should be given as id=path: " + value);
+                }
+                classpaths.put(value.substring(0, eq), value.substring(eq + 1));
+            }
+            else if (arg.equals("-suite")) {
+                suite = args[++i];
+            }
+            else if (arg.equals("-results")) {
+                results = args[++i];
+            }
+            else if (arg.equals("-baseline")) {
+                baseline = args[++i];
+            }
+            else if (arg.equals("-forks")) {
+                forks = Integer.parseInt(args[++i]);
+            }
+            else if (arg.equals("-warmup")) {
+                warmup = Integer.parseInt(args[++i]);
+            }
+            else if (arg.equals("-iterations")) {
+                iterations = Integer.parseInt(args[++i]);
+            }
+            else if (arg.equals("-tolerance")) {
+                tolerance = Double.parseDouble(args[++i]);
+            }
+            else if (arg.equals("-only")) {
+                only = args[++i];
+            }
+            else if (arg.equals("-jvmArg")) {
+                jvmArgs.add(args[++i]);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        if (check && !new File(baseline).exists()) {
+            System.out.println("No baseline file " + baseline + ", nothing to check the ratios against.");
+            System.out.println("Record the current ratios with -updateBaseline (ant update-baseline) and commit the file.");
+            return false;
+        }
+        Properties expected = loadBaseline();
+        Properties actual = new Properties();
+        List<String> unchecked = new ArrayList<String>();
+        boolean passed = true;
+
+        PrintWriter csv = new PrintWriter(new FileWriter(results));
+        try {
+            csv.println("name,mode,subject_ms,reference_ms,ratio,baseline_ratio,status");
+            for (Benchmark benchmark : readSuite()) {
+                if (only != null && !benchmark.name.startsWith(only)) {
+                    continue;
+                }
+                double subject = score(benchmark, benchmark.subject);
+                double reference = score(benchmark, benchmark.reference);
+                double ratio = subject / reference;
+                actual.setProperty(benchmark.name, format(ratio));
+
+                String expectedRatio = expected.getProperty(benchmark.name);
+                String status;
+                if (expectedRatio == null) {
+                    status = "new";
+                    unchecked.add(benchmark.name);
+                }
+                else if (ratio > Double.parseDouble(expectedRatio) * (1 + tolerance)) {
+                    status = "regression";
+                    passed = false;
+                }
+                else {
+                    status = "ok";
+                }
+
+                System.out.println(String.format("%-24s %10.2f ms %10.2f ms  ratio %6.3f  baseline %6s  %s",
+                                                 benchmark.name, subject, reference, ratio,
+                                                 expectedRatio == null ? "-" : expectedRatio, status));
+                csv.println(benchmark.name + "," + benchmark.mode + "," + format(subject) + "," + format(reference) + ","
+                            + format(ratio) + "," + (expectedRatio == null ? "" : expectedRatio) + "," + status);
+            }
+        }
+        finally {
+            csv.close();
+        }
+
+        if (updateBaseline) {
+            // keep the ratios of the benchmarks which were not run
+            expected.putAll(actual);
+            OutputStream out = new FileOutputStream(baseline);
+            try {
+                expected.store(out, "Ratios of subject to reference times, see BenchmarkRunner");
+            }
+            finally {
+                out.close();
+            }
+            System.out.println("Baseline updated: " + baseline);
+            return true;
+        }
+        if (!passed) {
+            System.out.println("Ratios regressed by more than " + format(tolerance * 100) + "% against " + baseline);
+        }
+        if (!unchecked.isEmpty()) {
+            System.out.println("No baseline ratio in " + baseline + " for " + unchecked + ", record it with -updateBaseline");
+            passed = false;
+        }
+        return passed || !check;
+    }
+
+    /**
+     * Returns the median time in milliseconds of the program measured over all forks
+     */
+    private double score(Benchmark benchmark, String program) throws Exception {
+        int hash = program.indexOf('#');
+        String variant = hash < 0 ? null : program.substring(hash + 1);
+        String location = hash < 0 ? program : program.substring(0, hash);
+        int colon = location.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException(benchmark.name + ": program should be given as classpathId:className " + program);
+        }
+        String classpath = classpaths.get(location.substring(0, colon));
+        if (classpath == null) {
+            throw new IllegalArgumentException(benchmark.name + ": unknown class path " + location.substring(0, colon));
+        }
+
+        boolean single = benchmark.mode.equals("single");
+        // a single shot fork measures one call, so do more forks to collect as many measurements
+        int forkCount = single ? forks * iterations : forks;
+
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path") + File.pathSeparator + classpath);
+        command.add(ForkedBenchmark.class.getName());
+        command.add(benchmark.mode);
+        command.add(String.valueOf(single ? 0 : warmup));
+        command.add(String.valueOf(single ? 1 : iterations));
+        command.add(location.substring(colon + 1));
+        if (variant != null) {
+            command.add(variant);
+        }
+        command.addAll(benchmark.args);
+
+        List<Long> times = new ArrayList<Long>();
+        for (int fork = 0; fork < forkCount; fork++) {
+            times.addAll(runFork(benchmark, command));
+        }
+        Collections.sort(times);
+        int size = times.size();
+        double median = size % 2 == 1 ? times.get(size / 2) : (times.get(size / 2 - 1) + times.get(size / 2)) / 2.0;
+        return median / 1000000.0;
+    }
+
+    private static List<Long> runFork(Benchmark benchmark, List<String> command) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        process.getOutputStream().close();
+
+        List<Long> times = new ArrayList<Long>();
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ForkedBenchmark.TIME_PREFIX)) {
+                    times.add(Long.parseLong(line.substring(ForkedBenchmark.TIME_PREFIX.length()).trim()));
+                }
+                else {
+                    output.append(line).append('\n');
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || times.isEmpty()) {
+            throw new IllegalStateException(benchmark.name + ": forked JVM exited with " + exitCode + "\n" + command + "\n" + output);
+        }
+        return times;
+    }
+
+    private List<Benchmark> readSuite() throws IOException {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        BufferedReader reader = new BufferedReader(new FileReader(suite));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\\s+");
+                if (columns.length < 4) {
+                    throw new IllegalArgumentException("Expected name, mode, subject and reference: " + line);
+                }
+                benchmarks.add(new Benchmark(columns[0], columns[1], columns[2], columns[3],
+                                             Arrays.asList(columns).subList(4, columns.length)));
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return benchmarks;
+    }
+
+    private Properties loadBaseline() throws IOException {
+        Properties properties = new Properties();
+        File file = new File(baseline);
+        if (file.exists()) {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            }
+            finally {
+                in.close();
+            }
+        }
+        return properties;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    private static class Benchmark {
+        final String name;
+        final String mode;
+        final String subject;
+        final String reference;
+        final List<String> args;
+
+        Benchmark(String name, String mode, String subject, String reference, List<String> args) {
+            if (!mode.equals("single") && !mode.equals("throughput")) {
+                throw new IllegalArgumentException(name + ": unknown mode " + mode);
+            }
+            this.name = name;
+            this.mode = mode;
+            this.subject = subject;
+            this.reference = reference;
+            this.args = args;
+        }
+    }
+}
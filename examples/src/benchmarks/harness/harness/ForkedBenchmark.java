@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package harness;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * The main class of a forked benchmark JVM: runs the main method of a benchmark class with its output suppressed
+ * and reports the time of every measured call on the original standard output as {@code #time <nanoseconds>} lines.
+ *
+ * Usage: {@code ForkedBenchmark <mode> <warmup> <iterations> <class> [args...]} where mode is either
+ * <ul>
+ *     <li>{@code throughput} - calls main <i>warmup</i> times without measuring, then <i>iterations</i> times</li>
+ *     <li>{@code single} - loads and initializes the class and calls main once, all within the measured time, so it includes
+ *     class loading and interpretation;
+ *     used for start up measurements and for benchmarks whose state can't be reset between calls</li>
+ * </ul>
+ */
+public class ForkedBenchmark {
+    public static final String TIME_PREFIX = "#time ";
+
+    public static void main(String[] args) throws Exception {
+        String mode = args[0];
+        int warmup = Integer.parseInt(args[1]);
+        int iterations = Integer.parseInt(args[2]);
+        String className = args[3];
+        String[] benchmarkArgs = Arrays.copyOfRange(args, 4, args.length);
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+
+        try {
+            if ("single".equals(mode)) {
+                // the class is loaded and initialized inside the measured interval
+                long start = System.nanoTime();
+                mainMethod(className).invoke(null, (Object) benchmarkArgs);
+                out.println(TIME_PREFIX + (System.nanoTime() - start));
+            }
+            else if ("throughput".equals(mode)) {
+                Method main = mainMethod(className);
+                for (int i = 0; i < warmup; i++) {
+                    main.invoke(null, (Object) benchmarkArgs.clone());
+                }
+                for (int i = 0; i < iterations; i++) {
+                    String[] callArgs = benchmarkArgs.clone();
+                    long start = System.nanoTime();
+                    main.invoke(null, (Object) callArgs);
+                    out.println(TIME_PREFIX + (System.nanoTime() - start));
+                }
+            }
+            else {
+                throw new IllegalArgumentException("Unknown mode " + mode);
+            }
+        }
+        catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            System.exit(1);
+        }
+        out.flush();
+        // benchmarks may leave non-daemon threads behind (e.g. thread pools)
+        System.exit(0);
+    }
+
+    private static Method mainMethod(String className) throws Exception {
+        return Class.forName(className, true, ForkedBenchmark.class.getClassLoader()).getMethod("main", String[].class);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package closures_startup
+
+/*
+ * Calls 64 distinct non-capturing function literals once: run in a fresh JVM this measures
+ * the start up cost of loading the classes generated for function literals, which is what
+ * compiling with -consolidateLambdas reduces
+ */
+val literals = array<(Int) -> Int>(
+        { (it: Int) -> it - 1 },
+        { (it: Int) -> it * 2 },
+        { (it: Int) -> it xor 3 },
+        { (it: Int) -> it and 4 },
+        { (it: Int) -> it or 5 },
+        { (it: Int) -> it + 6 },
+        { (it: Int) -> it - 7 },
+        { (it: Int) -> it * 8 },
+        { (it: Int) -> it xor 9 },
+        { (it: Int) -> it and 10 },
+        { (it: Int) -> it or 11 },
+        { (it: Int) -> it + 12 },
+        { (it: Int) -> it - 13 },
+        { (it: Int) -> it * 14 },
+        { (it: Int) -> it xor 15 },
+        { (it: Int) -> it and 16 },
+        { (it: Int) -> it or 17 },
+        { (it: Int) -> it + 18 },
+        { (it: Int) -> it - 19 },
+        { (it: Int) -> it * 20 },
+        { (it: Int) -> it xor 21 },
+        { (it: Int) -> it and 22 },
+        { (it: Int) -> it or 23 },
+        { (it: Int) -> it + 24 },
+        { (it: Int) -> it - 25 },
+        { (it: Int) -> it * 26 },
+        { (it: Int) -> it xor 27 },
+        { (it: Int) -> it and 28 },
+        { (it: Int) -> it or 29 },
+        { (it: Int) -> it + 30 },
+        { (it: Int) -> it - 31 },
+        { (it: Int) -> it * 32 },
+        { (it: Int) -> it xor 33 },
+        { (it: Int) -> it and 34 },
+        { (it: Int) -> it or 35 },
+        { (it: Int) -> it + 36 },
+        { (it: Int) -> it - 37 },
+        { (it: Int) -> it * 38 },
+        { (it: Int) -> it xor 39 },
+        { (it: Int) -> it and 40 },
+        { (it: Int) -> it or 41 },
+        { (it: Int) -> it + 42 },
+        { (it: Int) -> it - 43 },
+        { (it: Int) -> it * 44 },
+        { (it: Int) -> it xor 45 },
+        { (it: Int) -> it and 46 },
+        { (it: Int) -> it or 47 },
+        { (it: Int) -> it + 48 },
+        { (it: Int) -> it - 49 },
+        { (it: Int) -> it * 50 },
+        { (it: Int) -> it xor 51 },
+        { (it: Int) -> it and 52 },
+        { (it: Int) -> it or 53 },
+        { (it: Int) -> it + 54 },
+        { (it: Int) -> it - 55 },
+        { (it: Int) -> it * 56 },
+        { (it: Int) -> it xor 57 },
+        { (it: Int) -> it and 58 },
+        { (it: Int) -> it or 59 },
+        { (it: Int) -> it + 60 },
+        { (it: Int) -> it - 61 },
+        { (it: Int) -> it * 62 },
+        { (it: Int) -> it xor 63 },
+        { (it: Int) -> it and 64 }
+)
+
+fun main(args: Array<String>) {
+    var total = 0
+    for (literal in literals) {
+        total += literal(total)
+    }
+    System.out?.println(total)
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package closures;
+
+public class Closures {
+    private interface IntFunction {
+        int invoke(int value);
+    }
+
+    private static long applyAll(int[] values, IntFunction f) {
+        long sum = 0;
+        for (int v : values) {
+            sum += f.invoke(v);
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+
+        long total = 0;
+        for (int r = 0; r < rounds; r++) {
+            final int round = r;
+            total += applyAll(values, new IntFunction() {
+                public int invoke(int value) {
+                    return value * 2;
+                }
+            });
+            total += applyAll(values, new IntFunction() {
+                public int invoke(int value) {
+                    return value + round;
+                }
+            });
+            final IntFunction offset = new IntFunction() {
+                public int invoke(int value) {
+                    return value - round;
+                }
+            };
+            total += applyAll(values, new IntFunction() {
+                public int invoke(int value) {
+                    return offset.invoke(value) ^ 1;
+                }
+            });
+        }
+        System.out.println(total);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package closures_kotlin
+
+fun applyAll(values: IntArray, f: (Int) -> Int): Long {
+    var sum = 0.toLong()
+    for (v in values) {
+        sum += f(v)
+    }
+    return sum
+}
+
+fun main(args: Array<String>) {
+    val size = if (args.size > 0) Integer.parseInt(args[0]) else 1000000
+    val rounds = if (args.size > 1) Integer.parseInt(args[1]) else 20
+
+    val values = IntArray(size)
+    for (i in 0..size - 1) {
+        values[i] = i
+    }
+
+    var total = 0.toLong()
+    for (round in 0..rounds - 1) {
+        // a non-capturing literal, a literal capturing a value and a nested one capturing the outer literal
+        total += applyAll(values, { it * 2 })
+        total += applyAll(values, { it + round })
+        val offset = { (x: Int) -> x - round }
+        total += applyAll(values, { offset(it) xor 1 })
+    }
+    System.out?.println(total)
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package contention_kotlin
+
+import java.util.LinkedList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.*
+
+/*
+ * Threads hammering a shared structure:
+ *   cell          - AtomicCell.update over a PersistentHashMap
+ *   locked-cell   - the same updates of a PersistentHashMap under a lock
+ *   queue         - LockFreeQueue producers and consumers
+ *   locked-queue  - a LinkedList guarded by a lock
+ */
+fun runThreads(threads: Int, action: (Int) -> Unit) {
+    val finished = CountDownLatch(threads)
+    for (t in 0..threads - 1) {
+        thread {
+            try {
+                action(t)
+            } finally {
+                finished.countDown()
+            }
+        }
+    }
+    finished.await()
+}
+
+fun main(args: Array<String>) {
+    val variant = if (args.size > 0) args[0] else "cell"
+    val operations = if (args.size > 1) Integer.parseInt(args[1]) else 100000
+    val threads = if (args.size > 2) Integer.parseInt(args[2]) else 4 * Runtime.getRuntime().sure().availableProcessors()
+
+    var result = 0
+    if (variant == "cell") {
+        val cell = AtomicCell(PersistentHashMap.empty<Int, Int>())
+        runThreads(threads) { (t: Int) ->
+            for (i in 0..operations - 1) {
+                cell.update { it.put(i and 1023, t) }
+            }
+        }
+        result = cell.get().size
+    } else if (variant == "locked-cell") {
+        val lock = ReentrantLock()
+        var map = PersistentHashMap.empty<Int, Int>()
+        runThreads(threads) { (t: Int) ->
+            for (i in 0..operations - 1) {
+                lock.withLock { map = map.put(i and 1023, t) }
+            }
+        }
+        result = map.size
+    } else if (variant == "queue") {
+        val queue = LockFreeQueue<Int>()
+        runThreads(threads) { (t: Int) ->
+            for (i in 0..operations - 1) {
+                if (t % 2 == 0) queue.add(i) else queue.poll()
+            }
+        }
+        result = if (queue.empty) 0 else 1
+    } else if (variant == "locked-queue") {
+        val lock = ReentrantLock()
+        val queue = LinkedList<Int>()
+        runThreads(threads) { (t: Int) ->
+            for (i in 0..operations - 1) {
+                lock.withLock { if (t % 2 == 0) queue.add(i) else queue.poll() }
+            }
+        }
+        result = if (queue.isEmpty()) 0 else 1
+    } else {
+        throw IllegalArgumentException("Unknown variant $variant")
+    }
+    System.out?.println(result)
+}
@@ -93,10 +93,12 @@ abstract public class FList<T> {
     }
 
     public static void main(String[] args) {
-        for(int k = 0; k != 10; ++k) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+        for(int k = 0; k != rounds; ++k) {
             long start = System.currentTimeMillis();
             FList<Integer> list = new Empty();
-            for(int i = 0; i != 5000000; ++i)
+            for(int i = 0; i != size; ++i)
                 list = list.plus(i);
             System.out.println(System.currentTimeMillis()-start);
         }
@@ -56,27 +56,33 @@ fun <T> FList<T>.plus3(element: T) : FList<T> =
         StandardFList<T>(element, this)
 
 fun main(args: Array<String>) {
-    for(k in 0..3) {
+    val rounds = if (args.size > 0) Integer.parseInt(args[0]) else 4
+    val size = if (args.size > 1) Integer.parseInt(args[1]) else 5000001
+    // the number of variants to run, 1 runs only the virtual plus like the Java version does
+    val variants = if (args.size > 2) Integer.parseInt(args[2]) else 3
+    for(k in 0..rounds-1) {
         val start0 = System.currentTimeMillis()
 
         var flist0 : FList<Int> = EmptyFList<Int>()
-        for(i in 0..5000000)
+        for(i in 0..size-1)
         flist0 = flist0 + i
 
         System.out?.println(System.currentTimeMillis() - start0)
+        if (variants < 2) continue
 
         val start = System.currentTimeMillis()
 
         var flist : FList<Int> = EmptyFList<Int>()
-        for(i in 0..5000000)
+        for(i in 0..size-1)
         flist = flist.plus2(i)
 
         System.out?.println(System.currentTimeMillis() - start)
+        if (variants < 3) continue
 
         val start2 = System.currentTimeMillis()
 
         var flist2 : FList<Int> = EmptyFList<Int>()
-        for(i in 0..5000000)
+        for(i in 0..size-1)
         flist2 = flist2.plus3(i)
 
         System.out?.println(System.currentTimeMillis() - start2)
@@ -22,8 +22,10 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class LockPerf {
     public static void main(String[] args) {
+        final int increments = args.length > 0 ? Integer.parseInt(args[0]) : 100000000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
         int processors = Runtime.getRuntime().availableProcessors();
-        for (int threadNum = 1; threadNum <= 1024; threadNum = threadNum < 2 * processors ? threadNum + 1 : threadNum * 2) {
+        for (int threadNum = 1; threadNum <= maxThreads; threadNum = threadNum < 2 * processors ? threadNum + 1 : threadNum * 2) {
             final AtomicInteger counter = new AtomicInteger();
             final CountDownLatch cdl = new CountDownLatch(threadNum);
 
@@ -36,7 +38,7 @@ public class LockPerf {
                         while (true) {
                             lock.lock();
                             try {
-                                if (counter.get() == 100000000) {
+                                if (counter.get() == increments) {
                                     cdl.countDown();
                                     break;
                                 }
@@ -32,9 +32,11 @@ fun <T> Int.latch(op:  CountDownLatch.() -> T) : T {
 }
 
 fun main(args: Array<String>) {
+    val increments = if (args.size > 0) Integer.parseInt(args[0]) else 100000000
+    val maxThreads = if (args.size > 1) Integer.parseInt(args[1]) else 1024
     val processors = Runtime.getRuntime().sure().availableProcessors()
     var threadNum = 1
-    while(threadNum <= 1024) {
+    while(threadNum <= maxThreads) {
         val counter = AtomicInteger()
 
         val duration = measureTimeMillis {
@@ -45,7 +47,7 @@ fun main(args: Array<String>) {
                         while(true) {
                             lock.lock()
                             try {
-                                if (counter.get() == 100000000) {
+                                if (counter.get() == increments) {
                                     countDown()
                                     break;
                                 } else {
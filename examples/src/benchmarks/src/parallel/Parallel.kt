@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parallel_kotlin
+
+import java.util.ArrayList
+import kotlin.concurrent.*
+
+/*
+ * Maps and folds a list of numbers:
+ *   parallel   - parallelMap and parallelFold on the shared pool
+ *   sequential - the same work in plain loops on the calling thread
+ */
+fun work(x: Int): Double {
+    var answer = x.toDouble()
+    for (i in 0..49) {
+        answer = Math.sqrt(answer + i)
+    }
+    return answer
+}
+
+fun main(args: Array<String>) {
+    val variant = if (args.size > 0) args[0] else "parallel"
+    val size = if (args.size > 1) Integer.parseInt(args[1]) else 1000000
+    val rounds = if (args.size > 2) Integer.parseInt(args[2]) else 10
+
+    val list = ArrayList<Int>(size)
+    for (i in 0..size - 1) {
+        list.add(i)
+    }
+
+    var total = 0.0
+    for (round in 0..rounds - 1) {
+        if (variant == "parallel") {
+            val mapped = list.parallelMap { work(it) }
+            total += mapped.parallelFold(0.0, DEFAULT_PARALLEL_CHUNK_SIZE, { (sum: Double, x: Double) -> sum + x }, { (a: Double, b: Double) -> a + b })
+        } else if (variant == "sequential") {
+            val mapped = ArrayList<Double>(size)
+            for (x in list) {
+                mapped.add(work(x))
+            }
+            var sum = 0.0
+            for (x in mapped) {
+                sum += x
+            }
+            total += sum
+        } else {
+            throw IllegalArgumentException("Unknown variant $variant")
+        }
+    }
+    System.out?.println(total)
+}
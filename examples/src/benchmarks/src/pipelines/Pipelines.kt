@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pipelines_kotlin
+
+import java.util.ArrayList
+
+/*
+ * The variants compute the same result over a list of boxed numbers:
+ *   pipeline - the fused lazy pipeline (Iterable.pipeline())
+ *   eager    - the Iterable extensions building an intermediate list at every step
+ *   iterator - the lazy Iterator extensions
+ */
+fun main(args: Array<String>) {
+    val variant = if (args.size > 0) args[0] else "pipeline"
+    val size = if (args.size > 1) Integer.parseInt(args[1]) else 1000000
+    val rounds = if (args.size > 2) Integer.parseInt(args[2]) else 10
+
+    val list = ArrayList<Int>(size)
+    for (i in 0..size - 1) {
+        list.add(i)
+    }
+
+    var total = 0.toLong()
+    for (round in 0..rounds - 1) {
+        total += when (variant) {
+            "pipeline" -> list.pipeline().filter { it % 3 == 0 }.map { it * 2 }.fold(0.toLong()) { (sum, x) -> sum + x }
+            "eager" -> list.filter { it % 3 == 0 }.map { it * 2 }.fold(0.toLong()) { (sum, x) -> sum + x }
+            "iterator" -> list.iterator().filter { it % 3 == 0 }.map { it * 2 }.fold(0.toLong()) { (sum, x) -> sum + x }
+            else -> throw IllegalArgumentException("Unknown variant $variant")
+        }
+    }
+    System.out?.println(total)
+}
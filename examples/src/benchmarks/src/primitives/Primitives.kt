@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package primitives_kotlin
+
+import java.util.ArrayList
+import java.util.HashMap
+
+/*
+ * Counts the occurrences of pseudo random keys and collects the values:
+ *   primitive - IntIntHashMap and IntArrayList
+ *   boxed     - HashMap<Int, Int> and ArrayList<Int>
+ */
+fun main(args: Array<String>) {
+    val variant = if (args.size > 0) args[0] else "primitive"
+    val size = if (args.size > 1) Integer.parseInt(args[1]) else 1000000
+    val rounds = if (args.size > 2) Integer.parseInt(args[2]) else 10
+
+    var total = 0.toLong()
+    for (round in 0..rounds - 1) {
+        var seed = round
+        if (variant == "primitive") {
+            val counts = IntIntHashMap()
+            val values = IntArrayList()
+            for (i in 0..size - 1) {
+                seed = seed * 1103515245 + 12345
+                val key = (seed ushr 16) and 65535
+                counts.increment(key, 1)
+                values.add(key)
+            }
+            total += counts.size + counts.get(42, 0) + values.get(size / 2)
+        } else if (variant == "boxed") {
+            val counts = HashMap<Int, Int>()
+            val values = ArrayList<Int>()
+            for (i in 0..size - 1) {
+                seed = seed * 1103515245 + 12345
+                val key = (seed ushr 16) and 65535
+                val count = counts.get(key)
+                counts.put(key, if (count == null) 1 else count + 1)
+                values.add(key)
+            }
+            val count42 = counts.get(42)
+            total += counts.size() + (if (count42 == null) 0 else count42) + values.get(size / 2)
+        } else {
+            throw IllegalArgumentException("Unknown variant $variant")
+        }
+    }
+    System.out?.println(total)
+}
@@ -51,7 +51,7 @@ public class Quicksort {
         long start = System.currentTimeMillis();
 
         // Sample data
-        int[] a = new int[100000000];
+        int[] a = new int[args.length > 0 ? Integer.parseInt(args[0]) : 100000000];
         for (int i = 0; i < a.length; i++) {
             a[i] = i * 3 / 2 + 1;
             if (i % 3 == 0)
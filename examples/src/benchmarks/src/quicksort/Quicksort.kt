@@ -46,7 +46,7 @@ fun IntArray.quicksort(L: Int, R:Int) {
 fun main(array: Array<String>) {
     val start = System.currentTimeMillis()
 
-    val a = IntArray(100000000)
+    val a = IntArray(if (array.size > 0) Integer.parseInt(array[0]) else 100000000)
     var i = 0
     val len = a.size
     while (i < len) {
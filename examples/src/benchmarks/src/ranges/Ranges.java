@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ranges;
+
+public class Ranges {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        long total = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i <= size; i++) {
+                total += i;
+            }
+            for (int i = size; i >= 0; i--) {
+                if (i >= 1000 && i <= 2000) total += i;
+            }
+            for (int i = 0; i <= size; i += 3) {
+                total -= i;
+            }
+            for (char c = 'a'; c <= 'z'; c++) {
+                total += c;
+            }
+        }
+        System.out.println(total);
+    }
+}
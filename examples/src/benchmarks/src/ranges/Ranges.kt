@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ranges_kotlin
+
+fun main(args: Array<String>) {
+    val size = if (args.size > 0) Integer.parseInt(args[0]) else 10000000
+    val rounds = if (args.size > 1) Integer.parseInt(args[1]) else 10
+
+    var total = 0.toLong()
+    for (round in 0..rounds - 1) {
+        for (i in 0..size) {
+            total += i
+        }
+        for (i in IntRange(size, -size - 1)) {
+            if (i in 1000..2000) total += i
+        }
+        for (i in (0..size).step(3)) {
+            total -= i
+        }
+        for (c in 'a'..'z') {
+            total += c.toInt()
+        }
+    }
+    System.out?.println(total)
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package templates;
+
+public class Templates {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        String[] names = {"James", "Andrey", "Max", "Alex"};
+        long total = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < size; i++) {
+                String name = names[i % names.length];
+                String text = "<li id=\"item" + i + "\">" + name + " has " + (i * 2) + " points (" + (i % 7 == 0) + ")</li>";
+                total += text.length();
+            }
+        }
+        System.out.println(total);
+    }
+}
@@ -201,6 +201,10 @@ public class AllInjectorsGenerator {
         generator.addPublicField(ClassFileFactory.class);
         generator.addPublicField(MemberCodegen.class);
         generator.addPublicField(ClosureAnnotator.class);
+        generator.addField(ClassHierarchyOracle.class);
+        generator.addPublicField(ConstantExpressionEvaluator.class);
+        generator.addPublicField(DestructuringSpecializer.class);
+        generator.addField(PsiClassFinderImpl.class);
         generator.generate("compiler/backend/src", "org.jetbrains.jet.di", "InjectorForJvmCodegen");
     }
 
@@ -0,0 +1,89 @@
+package kotlin.jdbc
+
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.Statement
+import kotlin.template.StringTemplate
+
+/**
+ * The number of statements sent to the database at once by a [[Batch]]
+ */
+public val defaultBatchSize : Int = 1000
+
+/**
+ * Executes the specified block with a [[Batch]] of this connection, then executes the remaining
+ * batched statements and closes the prepared statements
+ */
+fun <T> Connection.batch(batchSize : Int = defaultBatchSize, block : (Batch) -> T) : T {
+    val batch = Batch(this, batchSize)
+    try {
+        val answer = block(batch)
+        batch.flush()
+        return answer
+    } finally {
+        batch.close()
+    }
+}
+
+/**
+ * Groups updates into JDBC batches of *batchSize* statements.
+ *
+ * The statements are prepared once per distinct SQL text (see [[PreparedStatementCache]]) and every added
+ * [[StringTemplate]] only binds new values. Adding a template with a different SQL text executes the pending
+ * batch first, so the updates are always applied in the order they were added.
+ */
+class Batch(val connection : Connection, val batchSize : Int = defaultBatchSize) {
+    private val statements = PreparedStatementCache(connection)
+    private var statement : PreparedStatement? = null
+    private var sql : String? = null
+    private var pending = 0
+    private var updateCount : Long = 0
+
+    /**
+     * Adds the SQL update of the [[StringTemplate]] to the batch, executing the batch when it is full
+     */
+    fun add(template : StringTemplate) {
+        val builder = PreparedStatementBuilder(template, connection, statements)
+        if (builder.sql != sql) {
+            flush()
+            sql = builder.sql
+            statement = builder.statement
+        }
+        builder.bind()
+        builder.statement.addBatch()
+        if (++pending >= batchSize) {
+            flush()
+        }
+    }
+
+    /**
+     * Executes the pending statements
+     */
+    fun flush() {
+        val current = statement
+        if (current != null && pending > 0) {
+            pending = 0
+            for (count in current.executeBatch()!!) {
+                // drivers may report Statement.SUCCESS_NO_INFO instead of the number of updated rows
+                if (count != Statement.SUCCESS_NO_INFO) {
+                    updateCount += count
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows updated by the executed statements, as far as the driver reports it
+     */
+    fun getUpdateCount() : Long = updateCount
+
+    /**
+     * Closes the prepared statements; the pending statements are discarded
+     */
+    fun close() {
+        statement = null
+        sql = null
+        pending = 0
+        statements.close()
+    }
+}
@@ -2,10 +2,16 @@ package kotlin.jdbc
 
 import java.sql.*
 import kotlin.template.StringTemplate
+import kotlin.template.CompiledStringTemplate
 import java.math.BigDecimal
 import java.util.Map
 import java.util.Properties
 
+/**
+ * The number of rows fetched from the database at once by the streaming queries
+ */
+public val defaultFetchSize : Int = 1000
+
 /**
  * create connection for the specified jdbc url with no credentials
  */
@@ -76,6 +82,38 @@ fun <T> Connection.query(sql: String, block: (ResultSet) -> T): T {
 
 
 
+/**
+ * Performs a streaming query on the connection: the statement uses a forward only, read only cursor
+ * and asks the driver to fetch *fetchSize* rows at a time, and the rows are passed to the block
+ * as a lazy iterator. The result set and the statement are closed when the block completes.
+ *
+ * Some drivers only honour the fetch size inside a transaction (e.g. PostgreSQL needs auto commit to be disabled)
+ */
+fun <T> Connection.stream(sql : String, fetchSize : Int = defaultFetchSize, block : (Iterator<ResultSet>) -> T) : T {
+    val statement = createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+    if (statement == null) {
+        throw IllegalStateException("No Statement returned from $this")
+    }
+    return statement.useSql{
+        it.setFetchSize(fetchSize)
+        val rs = it.executeQuery(sql)
+        if (rs != null) {
+            rs.use{ block(it.iterator()) }
+        } else {
+            throw IllegalStateException("No ResultSet returned executeQuery($sql) on $this")
+        }
+    }
+}
+
+/**
+ * Performs a streaming query using the [[StringTemplate]] to generate the SQL text, see [[Connection.stream]]
+ */
+fun <T> Connection.stream(template : StringTemplate, fetchSize : Int = defaultFetchSize, block : (Iterator<ResultSet>) -> T) : T {
+    val preparedStatement = prepare(template)
+    preparedStatement.setFetchSize(fetchSize)
+    return preparedStatement.query{ it.use{ block(it.iterator()) } }
+}
+
 /**
  * Perform a query on the connection using the [[StringTemplate]] to generate the SQL text
  * and processes the result set with a function
@@ -94,7 +132,7 @@ fun Connection.prepare(template : StringTemplate) : PreparedStatement {
     return builder.statement
 }
 
-class PreparedStatementBuilder(val template : StringTemplate, val connection : Connection) {
+class PreparedStatementBuilder(val template : StringTemplate, val connection : Connection, val cache : PreparedStatementCache? = null) {
     private var parameterIndex = 0
 
     public val sql : String = createSql()
@@ -105,12 +143,11 @@ class PreparedStatementBuilder(val template : StringTemplate, val connection : C
      * Binds the values in the [[StringTemplate]] to the [[PreparedStatement]]
      */
     fun bind() {
-        var constantText = true
-        template.forEach{
-            if (!constantText) {
-                expression(it)
-            }
-            constantText = !constantText
+        val values = template.values
+        var i = 1
+        while (i < values.size) {
+            expression(values[i])
+            i += 2
         }
     }
 
@@ -206,6 +243,10 @@ class PreparedStatementBuilder(val template : StringTemplate, val connection : C
      * Looks up the [[PreparedStatement]] in a cache or creates a new one
      */
     protected fun lookupOrCreateStatement(): PreparedStatement {
+        val statementCache = cache
+        if (statementCache != null) {
+            return statementCache.get(sql)
+        }
         val answer = connection.prepareStatement(sql)
         if (answer == null) {
             throw IllegalStateException("No PreparedStatement returned from $connection")
@@ -217,6 +258,11 @@ class PreparedStatementBuilder(val template : StringTemplate, val connection : C
     protected fun nextParameterIndex() : Int = ++parameterIndex
 
     protected fun createSql() : String {
+        val compiledTemplate = template
+        if (compiledTemplate is CompiledStringTemplate) {
+            // computed once per call site by the compiler
+            return compiledTemplate.compiled.placeholderText
+        }
         val out = StringBuilder()
         var constantText = true
         template.forEach {
@@ -54,3 +54,24 @@ fun DataSource.update(template : StringTemplate) : Int {
 fun <T> DataSource.query(template : StringTemplate, resultBlock : (ResultSet) -> T) : T {
     return useDataSource{ it.query(template, resultBlock) }
 }
+
+/**
+ * Performs a streaming query on a connection from the pool, see [[Connection.stream]]
+ */
+fun <T> DataSource.stream(sql : String, fetchSize : Int = defaultFetchSize, block : (Iterator<ResultSet>) -> T) : T {
+    return useDataSource{ it.stream(sql, fetchSize, block) }
+}
+
+/**
+ * Performs a streaming query using the SQL from the [[StringTemplate]] on a connection from the pool, see [[Connection.stream]]
+ */
+fun <T> DataSource.stream(template : StringTemplate, fetchSize : Int = defaultFetchSize, block : (Iterator<ResultSet>) -> T) : T {
+    return useDataSource{ it.stream(template, fetchSize, block) }
+}
+
+/**
+ * Performs batched updates on a connection from the pool, see [[Connection.batch]]
+ */
+fun <T> DataSource.batch(batchSize : Int = defaultBatchSize, block : (Batch) -> T) : T {
+    return useDataSource{ it.batch(batchSize, block) }
+}
@@ -3,8 +3,11 @@ package kotlin.jdbc
 /**
  * Helper method to process a statement on this collection
  */
+import java.sql.Connection
 import java.sql.PreparedStatement
 import java.sql.ResultSet
+import java.util.LinkedHashMap
+import kotlin.template.StringTemplate
 
 fun PreparedStatement.update(): Int {
     try {
@@ -25,4 +28,84 @@ fun <T> PreparedStatement.query(block: (ResultSet) -> T): T {
     } finally {
         close()
     }
-}
\ No newline at end of file
+}
+
+/**
+ * A cache of [[PreparedStatement]]s of a [[Connection]] keyed by their SQL text, so that executing
+ * the same [[StringTemplate]] with different values does not prepare the statement again.
+ *
+ * The statements are owned by the cache: they must not be closed by the caller and are closed
+ * when they are evicted (the least recently used one goes first) or when the cache is closed.
+ */
+class PreparedStatementCache(val connection : Connection, val maximumSize : Int = 64) {
+    private val statements = LinkedHashMap<String, PreparedStatement>(16, 0.75.toFloat(), true)
+
+    /**
+     * Returns the cached statement for the given SQL or prepares a new one
+     */
+    fun get(sql : String) : PreparedStatement {
+        val cached = statements.get(sql)
+        if (cached != null) {
+            cached.clearParameters()
+            return cached
+        }
+        val answer = connection.prepareStatement(sql)
+        if (answer == null) {
+            throw IllegalStateException("No PreparedStatement returned from $connection")
+        }
+        statements.put(sql, answer)
+        if (statements.size() > maximumSize) {
+            val eldest = statements.values().iterator().next()
+            statements.values().remove(eldest)
+            eldest.close()
+        }
+        return answer
+    }
+
+    /**
+     * Binds the values of the [[StringTemplate]] to the cached statement for its SQL
+     */
+    fun prepare(template : StringTemplate) : PreparedStatement {
+        val builder = PreparedStatementBuilder(template, connection, this)
+        builder.bind()
+        return builder.statement
+    }
+
+    /**
+     * Performs the SQL update using the [[StringTemplate]] without closing the statement
+     */
+    fun update(template : StringTemplate) : Int = prepare(template).executeUpdate()
+
+    /**
+     * Performs a query using the [[StringTemplate]] and processes the result set with a function
+     */
+    fun <T> query(template : StringTemplate, block : (ResultSet) -> T) : T {
+        val resultSet = prepare(template).executeQuery()
+        if (resultSet == null) {
+            throw IllegalStateException("No ResultSet returned for $template")
+        }
+        return resultSet.use(block)
+    }
+
+    /**
+     * Closes all the cached statements
+     */
+    fun close() {
+        for (statement in statements.values()) {
+            statement.close()
+        }
+        statements.clear()
+    }
+}
+
+/**
+ * Executes the specified block with a [[PreparedStatementCache]] of this connection and closes the cached statements after this
+ */
+fun <T> Connection.cachingStatements(maximumSize : Int = 64, block : (PreparedStatementCache) -> T) : T {
+    val cache = PreparedStatementCache(this, maximumSize)
+    try {
+        return block(cache)
+    } finally {
+        cache.close()
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList
 import java.util.Collection
 import java.util.List
 import java.util.Map
+import java.util.NoSuchElementException
 
 /**
  * Executes the specfied block with result set and then closes it
@@ -19,30 +20,44 @@ public fun <R> ResultSet.use(block : (ResultSet) -> R) : R {
 
 /**
 * Creates an iterator through a [[ResultSet]]
+*
+* The rows are fetched lazily, so together with a forward only cursor and a fetch size
+* (see [[Connection.stream]]) the whole result set never has to be held in memory
 */
-fun ResultSet.iterator() : Iterator<ResultSet> {
-    val rs = this
-    return object : Iterator<ResultSet>{
-        public override fun hasNext() : Boolean = rs.next()
-
-        public override fun next() : ResultSet = rs
-    }
-}
+fun ResultSet.iterator() : Iterator<ResultSet> = ResultSetIterator(this) { it }
 
 /**
  * Returns iterable that calls to the specified mapper function for each row
  */
 fun <T> ResultSet.map(fn : (ResultSet) -> T) : jet.Iterable<T> {
-    val rs = this
+    val iterator = ResultSetIterator(this, fn)
 
-    val iterator = object : Iterator<T>{
-        public override fun hasNext() : Boolean = rs.next()
+    return object : jet.Iterable<T> {
+        public override fun iterator(): Iterator<T> = iterator
+    }
+}
 
-        public override fun next() : T = fn(rs)
+/**
+ * Moves the cursor at most once per row, so [[hasNext]] may be called any number of times
+ */
+private class ResultSetIterator<T>(val rs : ResultSet, val fn : (ResultSet) -> T) : Iterator<T> {
+    private var nextChecked = false
+    private var hasRow = false
+
+    public override fun hasNext() : Boolean {
+        if (!nextChecked) {
+            hasRow = rs.next()
+            nextChecked = true
+        }
+        return hasRow
     }
 
-    return object : jet.Iterable<T> {
-        public override fun iterator(): Iterator<T> = iterator
+    public override fun next() : T {
+        if (!hasNext()) {
+            throw NoSuchElementException("There are no rows left in cursor")
+        }
+        nextChecked = false
+        return fn(rs)
     }
 }
 
@@ -0,0 +1,78 @@
+package test.kotlin.jdbc
+
+import kotlin.jdbc.*
+import kotlin.template.*
+import kotlin.test.*
+import org.junit.Test as test
+
+class JdbcBatchTest {
+    test fun batchedInsertAndStreamingQuery() {
+        dataSource.update("create table bar (id int primary key, name varchar(100))")
+        try {
+            val updated = dataSource.batch(100) {
+                for (i in 1..1050) {
+                    val name = "name$i"
+                    it.add(StringTemplate(array("insert into bar (id, name) values (", i, ", ", name, ")")))
+                }
+                it.getUpdateCount()
+            }
+            assertEquals(1050.toLong(), updated)
+
+            var count = 0
+            var sum = 0
+            dataSource.stream("select id, name from bar order by id", 64) {
+                for (row in it) {
+                    count++
+                    sum += row.getInt(1)
+                }
+            }
+            assertEquals(1050, count)
+            assertEquals(1050 * 1051 / 2, sum)
+
+            val minId = 1000
+            val names = dataSource.stream(StringTemplate(array("select name from bar where id > ", minId, " order by id")), 10) {
+                val list = java.util.ArrayList<String>()
+                while (it.hasNext() && it.hasNext()) {
+                    list.add(it.next().getString(1)!!)
+                }
+                list
+            }
+            assertEquals(50, names.size())
+            assertEquals("name1001", names.get(0))
+        } finally {
+            dataSource.update("drop table bar")
+        }
+    }
+
+    test fun batchKeepsOrderAcrossStatements() {
+        dataSource.update("create table baz (id int primary key, value int)")
+        try {
+            dataSource.batch(10) {
+                for (i in 1..25) {
+                    it.add(StringTemplate(array("insert into baz (id, value) values (", i, ", ", 0, ")")))
+                    it.add(StringTemplate(array("update baz set value = ", i * 2, " where id = ", i)))
+                }
+            }
+            val total = dataSource.query("select sum(value) from baz") { it.singleInt() }
+            assertEquals(25 * 26, total)
+        } finally {
+            dataSource.update("drop table baz")
+        }
+    }
+
+    test fun preparedStatementCache() {
+        dataSource.useDataSource{
+            it.cachingStatements(2) {
+                val first = it.prepare(StringTemplate(array("select name from foo where id = ", 1)))
+                val second = it.prepare(StringTemplate(array("select name from foo where id = ", 2)))
+                assertTrue(first identityEquals second, "The statement is reused for the same SQL")
+
+                val name = it.query(StringTemplate(array("select name from foo where id = ", 2))) {
+                    it.next()
+                    it.getString(1)
+                }
+                assertEquals("Andrey", name)
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package kotlin
+
+import java.util.ArrayList
+import java.util.Collection
+import java.util.List
+
+/**
+ * Returns a lazy [[Pipeline]] over the elements of this collection
+ *
+ * @includeFunctionBody ../../test/PipelineTest.kt filterMapTake
+ */
+public fun <T> Iterable<T>.pipeline(): Pipeline<T> = IterablePipeline<T>(this)
+
+/**
+ * A lazily evaluated chain of operations over a source of elements.
+ *
+ * Intermediate operations only describe the chain. A terminal operation runs a single loop over the source
+ * which pushes every element through all the stages: no intermediate collection or iterator is created per stage,
+ * and the loop stops as soon as the result of the terminal operation is known
+ */
+public abstract class Pipeline<T> {
+    /**
+     * Pushes the elements to the *sink* until it returns false
+     *
+     * @return false if the sink has stopped the iteration
+     */
+    public abstract fun forEachWhile(sink: (T) -> Boolean): Boolean
+
+    /** Returns a pipeline over elements which match the given *predicate* */
+    public open fun filter(predicate: (T) -> Boolean): Pipeline<T> = FilterPipeline<T>(this, predicate)
+
+    /** Returns a pipeline over elements which do not match the given *predicate* */
+    public fun filterNot(predicate: (T) -> Boolean): Pipeline<T> = FilterPipeline<T>(this, { !predicate(it) })
+
+    /** Returns a pipeline over the results of applying *transform* to the elements */
+    public open fun <R> map(transform: (T) -> R): Pipeline<R> = MapPipeline<T, R>(this, transform)
+
+    /** Returns a pipeline over the concatenated results of applying *transform* to the elements */
+    public fun <R> flatMap(transform: (T) -> Iterable<R>): Pipeline<R> = FlatMapPipeline<T, R>(this, transform)
+
+    /** Returns a pipeline restricted to the first elements that match the given *predicate* */
+    public fun takeWhile(predicate: (T) -> Boolean): Pipeline<T> = TakeWhilePipeline<T>(this, predicate)
+
+    /** Returns a pipeline restricted to the first *n* elements */
+    public fun take(n: Int): Pipeline<T> = TakePipeline<T>(this, n)
+
+    /** Performs the given *operation* on each element */
+    public fun forEach(operation: (T) -> Unit) {
+        forEachWhile {
+            operation(it)
+            true
+        }
+    }
+
+    /** Folds all elements from left to right with the *initial* value to perform the operation on sequential pairs of elements */
+    public fun <R> fold(initial: R, operation: (R, T) -> R): R {
+        var answer = initial
+        forEachWhile {
+            answer = operation(answer, it)
+            true
+        }
+        return answer
+    }
+
+    /** Returns the first element which matches the given *predicate* or *null* if none matched */
+    public fun find(predicate: (T) -> Boolean): T? {
+        var result: T? = null
+        forEachWhile {
+            if (predicate(it)) {
+                result = it
+                false
+            }
+            else {
+                true
+            }
+        }
+        return result
+    }
+
+    /** Returns *true* if any element matches the given *predicate* */
+    public fun any(predicate: (T) -> Boolean): Boolean = !forEachWhile { !predicate(it) }
+
+    /** Returns *true* if all elements match the given *predicate* */
+    public fun all(predicate: (T) -> Boolean): Boolean = forEachWhile { predicate(it) }
+
+    /** Returns the number of elements */
+    public fun count(): Int {
+        var count = 0
+        forEachWhile {
+            count++
+            true
+        }
+        return count
+    }
+
+    /** Copies all elements into the given collection */
+    public fun <C: Collection<in T>> toCollection(result: C): C {
+        forEachWhile {
+            result.add(it)
+            true
+        }
+        return result
+    }
+
+    /** Copies all elements into a [[List]] */
+    public fun toList(): List<T> = toCollection(ArrayList<T>())
+}
+
+private class IterablePipeline<T>(val source: Iterable<T>) : Pipeline<T>() {
+    public override fun forEachWhile(sink: (T) -> Boolean): Boolean {
+        for (element in source) {
+            if (!sink(element)) return false
+        }
+        return true
+    }
+}
+
+private class FilterPipeline<T>(val upstream: Pipeline<T>, val predicate: (T) -> Boolean) : Pipeline<T>() {
+    public override fun forEachWhile(sink: (T) -> Boolean): Boolean =
+            upstream.forEachWhile { !(predicate)(it) || sink(it) }
+
+    // consecutive filters are merged into one stage
+    public override fun filter(predicate: (T) -> Boolean): Pipeline<T> {
+        val first = this.predicate
+        return FilterPipeline<T>(upstream, { first(it) && predicate(it) })
+    }
+}
+
+private class MapPipeline<T, R>(val upstream: Pipeline<T>, val transform: (T) -> R) : Pipeline<R>() {
+    public override fun forEachWhile(sink: (R) -> Boolean): Boolean =
+            upstream.forEachWhile { sink((transform)(it)) }
+
+    // consecutive transformations are merged into one stage
+    public override fun <S> map(transform: (R) -> S): Pipeline<S> {
+        val first = this.transform
+        return MapPipeline<T, S>(upstream, { transform(first(it)) })
+    }
+}
+
+private class FlatMapPipeline<T, R>(val upstream: Pipeline<T>, val transform: (T) -> Iterable<R>) : Pipeline<R>() {
+    public override fun forEachWhile(sink: (R) -> Boolean): Boolean =
+            upstream.forEachWhile { IterablePipeline<R>((transform)(it)).forEachWhile(sink) }
+}
+
+private class TakeWhilePipeline<T>(val upstream: Pipeline<T>, val predicate: (T) -> Boolean) : Pipeline<T>() {
+    public override fun forEachWhile(sink: (T) -> Boolean): Boolean {
+        var stopped = false
+        val completed = upstream.forEachWhile {
+            if ((predicate)(it)) {
+                sink(it)
+            }
+            else {
+                stopped = true
+                false
+            }
+        }
+        // stopping at the first element which does not match is not a stop requested by the sink
+        return completed || stopped
+    }
+}
+
+private class TakePipeline<T>(val upstream: Pipeline<T>, val n: Int) : Pipeline<T>() {
+    public override fun forEachWhile(sink: (T) -> Boolean): Boolean {
+        if (n <= 0) return true
+        var remaining = n
+        var stopped = false
+        val completed = upstream.forEachWhile {
+            remaining--
+            if (!sink(it)) {
+                false
+            }
+            else if (remaining == 0) {
+                stopped = true
+                false
+            }
+            else {
+                true
+            }
+        }
+        return completed || stopped
+    }
+}
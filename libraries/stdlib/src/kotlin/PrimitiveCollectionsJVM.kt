@@ -0,0 +1,617 @@
+package kotlin
+
+import java.util.ArrayList
+import java.util.Arrays
+import java.util.List
+import java.util.NoSuchElementException
+
+//
+// Collections of primitive values which do not box their elements
+//
+
+/**
+ * Growable array of Int values. Unlike *ArrayList<Int>* it does not box the elements
+ */
+public class IntArrayList(initialCapacity: Int = 10) : IntIterable {
+    private var array = IntArray(initialCapacity)
+    private var length = 0
+
+    public val size: Int
+        get() = length
+
+    public fun isEmpty(): Boolean = length == 0
+
+    public fun get(index: Int): Int {
+        checkIndex(index)
+        return array[index]
+    }
+
+    public fun set(index: Int, value: Int) {
+        checkIndex(index)
+        array[index] = value
+    }
+
+    public fun add(value: Int) {
+        ensureCapacity(length + 1)
+        array[length] = value
+        length++
+    }
+
+    public fun clear() {
+        length = 0
+    }
+
+    public fun ensureCapacity(capacity: Int) {
+        if (array.size < capacity) {
+            array = array.copyOf(Math.max(capacity, array.size * 2))
+        }
+    }
+
+    public fun toIntArray(): IntArray = array.copyOf(length)
+
+    public override fun iterator(): IntIterator = IntArrayListIterator(array, length)
+
+    private fun checkIndex(index: Int) {
+        if (index < 0 || index >= length) {
+            throw IndexOutOfBoundsException("index ($index), size ($length)")
+        }
+    }
+}
+
+private class IntArrayListIterator(private val array: IntArray, private val length: Int) : IntIterator() {
+    private var index = 0
+
+    public override fun hasNext(): Boolean = index < length
+
+    public override fun nextInt(): Int {
+        if (index >= length) throw NoSuchElementException()
+        val result = array[index]
+        index++
+        return result
+    }
+}
+
+/**
+ * Returns a new [[IntArrayList]] with the given elements
+ */
+public fun intArrayList(vararg values: Int): IntArrayList {
+    val result = IntArrayList(values.size)
+    for (value in values) {
+        result.add(value)
+    }
+    return result
+}
+
+/**
+ * Performs the given *operation* on each element
+ */
+public inline fun IntArrayList.forEach(operation: (Int) -> Unit) {
+    for (i in 0..size - 1) {
+        operation(get(i))
+    }
+}
+
+/**
+ * Folds all elements from left to right with the *initial* value to perform the operation on sequential pairs of elements
+ */
+public inline fun <R> IntArrayList.fold(initial: R, operation: (R, Int) -> R): R {
+    var answer = initial
+    for (i in 0..size - 1) {
+        answer = operation(answer, get(i))
+    }
+    return answer
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*
+ */
+public inline fun IntArrayList.filter(predicate: (Int) -> Boolean): IntArrayList {
+    val result = IntArrayList()
+    for (i in 0..size - 1) {
+        val element = get(i)
+        if (predicate(element)) result.add(element)
+    }
+    return result
+}
+
+/**
+ * Returns a new List containing the results of applying the given *transform* function to each element
+ */
+public inline fun <R> IntArrayList.map(transform: (Int) -> R): List<R> {
+    val result = ArrayList<R>(size)
+    for (i in 0..size - 1) {
+        result.add(transform(get(i)))
+    }
+    return result
+}
+
+/**
+ * Growable array of Long values. Unlike *ArrayList<Long>* it does not box the elements
+ */
+public class LongArrayList(initialCapacity: Int = 10) : LongIterable {
+    private var array = LongArray(initialCapacity)
+    private var length = 0
+
+    public val size: Int
+        get() = length
+
+    public fun isEmpty(): Boolean = length == 0
+
+    public fun get(index: Int): Long {
+        checkIndex(index)
+        return array[index]
+    }
+
+    public fun set(index: Int, value: Long) {
+        checkIndex(index)
+        array[index] = value
+    }
+
+    public fun add(value: Long) {
+        ensureCapacity(length + 1)
+        array[length] = value
+        length++
+    }
+
+    public fun clear() {
+        length = 0
+    }
+
+    public fun ensureCapacity(capacity: Int) {
+        if (array.size < capacity) {
+            array = array.copyOf(Math.max(capacity, array.size * 2))
+        }
+    }
+
+    public fun toLongArray(): LongArray = array.copyOf(length)
+
+    public override fun iterator(): LongIterator = LongArrayListIterator(array, length)
+
+    private fun checkIndex(index: Int) {
+        if (index < 0 || index >= length) {
+            throw IndexOutOfBoundsException("index ($index), size ($length)")
+        }
+    }
+}
+
+private class LongArrayListIterator(private val array: LongArray, private val length: Int) : LongIterator() {
+    private var index = 0
+
+    public override fun hasNext(): Boolean = index < length
+
+    public override fun nextLong(): Long {
+        if (index >= length) throw NoSuchElementException()
+        val result = array[index]
+        index++
+        return result
+    }
+}
+
+/**
+ * Returns a new [[LongArrayList]] with the given elements
+ */
+public fun longArrayList(vararg values: Long): LongArrayList {
+    val result = LongArrayList(values.size)
+    for (value in values) {
+        result.add(value)
+    }
+    return result
+}
+
+/**
+ * Performs the given *operation* on each element
+ */
+public inline fun LongArrayList.forEach(operation: (Long) -> Unit) {
+    for (i in 0..size - 1) {
+        operation(get(i))
+    }
+}
+
+/**
+ * Folds all elements from left to right with the *initial* value to perform the operation on sequential pairs of elements
+ */
+public inline fun <R> LongArrayList.fold(initial: R, operation: (R, Long) -> R): R {
+    var answer = initial
+    for (i in 0..size - 1) {
+        answer = operation(answer, get(i))
+    }
+    return answer
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*
+ */
+public inline fun LongArrayList.filter(predicate: (Long) -> Boolean): LongArrayList {
+    val result = LongArrayList()
+    for (i in 0..size - 1) {
+        val element = get(i)
+        if (predicate(element)) result.add(element)
+    }
+    return result
+}
+
+/**
+ * Returns a new List containing the results of applying the given *transform* function to each element
+ */
+public inline fun <R> LongArrayList.map(transform: (Long) -> R): List<R> {
+    val result = ArrayList<R>(size)
+    for (i in 0..size - 1) {
+        result.add(transform(get(i)))
+    }
+    return result
+}
+
+/**
+ * Set of Int values stored in an open addressing hash table, the values are not boxed
+ */
+public class IntHashSet(expectedSize: Int = 16) : IntIterable {
+    private var values = IntArray(hashTableCapacity(expectedSize))
+    private var filled = BooleanArray(values.size)
+    private var count = 0
+
+    public val size: Int
+        get() = count
+
+    public fun isEmpty(): Boolean = count == 0
+
+    public fun contains(value: Int): Boolean = indexOf(value) >= 0
+
+    /**
+     * @return true if the set did not contain the value
+     */
+    public fun add(value: Int): Boolean {
+        val mask = values.size - 1
+        var index = hashIndex(value, mask)
+        while (filled[index]) {
+            if (values[index] == value) return false
+            index = (index + 1) and mask
+        }
+        values[index] = value
+        filled[index] = true
+        count++
+        if (count > maxFill(values.size)) {
+            rehash(values.size * 2)
+        }
+        return true
+    }
+
+    /**
+     * @return true if the set contained the value
+     */
+    public fun remove(value: Int): Boolean {
+        var gap = indexOf(value)
+        if (gap < 0) return false
+
+        // Shift the following entries of the cluster back, so that no lookup stops at the freed slot
+        val mask = values.size - 1
+        var index = (gap + 1) and mask
+        while (filled[index]) {
+            val home = hashIndex(values[index], mask)
+            if (((index - home) and mask) >= ((index - gap) and mask)) {
+                values[gap] = values[index]
+                gap = index
+            }
+            index = (index + 1) and mask
+        }
+        filled[gap] = false
+        count--
+        return true
+    }
+
+    public fun clear() {
+        Arrays.fill(filled, false)
+        count = 0
+    }
+
+    public override fun iterator(): IntIterator = IntHashTableIterator(values, filled)
+
+    private fun indexOf(value: Int): Int {
+        val mask = values.size - 1
+        var index = hashIndex(value, mask)
+        while (filled[index]) {
+            if (values[index] == value) return index
+            index = (index + 1) and mask
+        }
+        return -1
+    }
+
+    private fun rehash(capacity: Int) {
+        val oldValues = values
+        val oldFilled = filled
+        values = IntArray(capacity)
+        filled = BooleanArray(capacity)
+        count = 0
+        for (i in 0..oldValues.size - 1) {
+            if (oldFilled[i]) add(oldValues[i])
+        }
+    }
+}
+
+private class IntHashTableIterator(private val keys: IntArray, private val filled: BooleanArray) : IntIterator() {
+    private var index = 0
+
+    public override fun hasNext(): Boolean {
+        while (index < filled.size && !filled[index]) {
+            index++
+        }
+        return index < filled.size
+    }
+
+    public override fun nextInt(): Int {
+        if (!hasNext()) throw NoSuchElementException()
+        val result = keys[index]
+        index++
+        return result
+    }
+}
+
+/**
+ * Returns a new [[IntHashSet]] with the given elements
+ */
+public fun intHashSet(vararg values: Int): IntHashSet {
+    val result = IntHashSet(values.size)
+    for (value in values) {
+        result.add(value)
+    }
+    return result
+}
+
+/**
+ * Set of Long values stored in an open addressing hash table, the values are not boxed
+ */
+public class LongHashSet(expectedSize: Int = 16) : LongIterable {
+    private var values = LongArray(hashTableCapacity(expectedSize))
+    private var filled = BooleanArray(values.size)
+    private var count = 0
+
+    public val size: Int
+        get() = count
+
+    public fun isEmpty(): Boolean = count == 0
+
+    public fun contains(value: Long): Boolean = indexOf(value) >= 0
+
+    /**
+     * @return true if the set did not contain the value
+     */
+    public fun add(value: Long): Boolean {
+        val mask = values.size - 1
+        var index = hashIndex(value, mask)
+        while (filled[index]) {
+            if (values[index] == value) return false
+            index = (index + 1) and mask
+        }
+        values[index] = value
+        filled[index] = true
+        count++
+        if (count > maxFill(values.size)) {
+            rehash(values.size * 2)
+        }
+        return true
+    }
+
+    /**
+     * @return true if the set contained the value
+     */
+    public fun remove(value: Long): Boolean {
+        var gap = indexOf(value)
+        if (gap < 0) return false
+
+        // Shift the following entries of the cluster back, so that no lookup stops at the freed slot
+        val mask = values.size - 1
+        var index = (gap + 1) and mask
+        while (filled[index]) {
+            val home = hashIndex(values[index], mask)
+            if (((index - home) and mask) >= ((index - gap) and mask)) {
+                values[gap] = values[index]
+                gap = index
+            }
+            index = (index + 1) and mask
+        }
+        filled[gap] = false
+        count--
+        return true
+    }
+
+    public fun clear() {
+        Arrays.fill(filled, false)
+        count = 0
+    }
+
+    public override fun iterator(): LongIterator = LongHashTableIterator(values, filled)
+
+    private fun indexOf(value: Long): Int {
+        val mask = values.size - 1
+        var index = hashIndex(value, mask)
+        while (filled[index]) {
+            if (values[index] == value) return index
+            index = (index + 1) and mask
+        }
+        return -1
+    }
+
+    private fun rehash(capacity: Int) {
+        val oldValues = values
+        val oldFilled = filled
+        values = LongArray(capacity)
+        filled = BooleanArray(capacity)
+        count = 0
+        for (i in 0..oldValues.size - 1) {
+            if (oldFilled[i]) add(oldValues[i])
+        }
+    }
+}
+
+private class LongHashTableIterator(private val keys: LongArray, private val filled: BooleanArray) : LongIterator() {
+    private var index = 0
+
+    public override fun hasNext(): Boolean {
+        while (index < filled.size && !filled[index]) {
+            index++
+        }
+        return index < filled.size
+    }
+
+    public override fun nextLong(): Long {
+        if (!hasNext()) throw NoSuchElementException()
+        val result = keys[index]
+        index++
+        return result
+    }
+}
+
+/**
+ * Returns a new [[LongHashSet]] with the given elements
+ */
+public fun longHashSet(vararg values: Long): LongHashSet {
+    val result = LongHashSet(values.size)
+    for (value in values) {
+        result.add(value)
+    }
+    return result
+}
+
+/**
+ * Map from Int keys to Int values stored in an open addressing hash table, neither keys nor values are boxed
+ */
+public class IntIntHashMap(expectedSize: Int = 16) {
+    private var keys = IntArray(hashTableCapacity(expectedSize))
+    private var values = IntArray(keys.size)
+    private var filled = BooleanArray(keys.size)
+    private var count = 0
+
+    public val size: Int
+        get() = count
+
+    public fun isEmpty(): Boolean = count == 0
+
+    public fun containsKey(key: Int): Boolean = indexOf(key) >= 0
+
+    /**
+     * Returns the value for the given key or *defaultValue* if there is no such key
+     */
+    public fun get(key: Int, defaultValue: Int): Int {
+        val index = indexOf(key)
+        return if (index >= 0) values[index] else defaultValue
+    }
+
+    public fun put(key: Int, value: Int) {
+        val index = insertionIndex(key)
+        values[index] = value
+    }
+
+    /**
+     * Adds *delta* to the value of the given key, the absent value is considered 0
+     *
+     * @return the new value
+     */
+    public fun increment(key: Int, delta: Int = 1): Int {
+        val index = insertionIndex(key)
+        val result = values[index] + delta
+        values[index] = result
+        return result
+    }
+
+    /**
+     * @return true if the map contained the key
+     */
+    public fun remove(key: Int): Boolean {
+        var gap = indexOf(key)
+        if (gap < 0) return false
+
+        // Shift the following entries of the cluster back, so that no lookup stops at the freed slot
+        val mask = keys.size - 1
+        var index = (gap + 1) and mask
+        while (filled[index]) {
+            val home = hashIndex(keys[index], mask)
+            if (((index - home) and mask) >= ((index - gap) and mask)) {
+                keys[gap] = keys[index]
+                values[gap] = values[index]
+                gap = index
+            }
+            index = (index + 1) and mask
+        }
+        filled[gap] = false
+        count--
+        return true
+    }
+
+    public fun clear() {
+        Arrays.fill(filled, false)
+        count = 0
+    }
+
+    public fun keys(): IntIterator = IntHashTableIterator(keys, filled)
+
+    /**
+     * Performs the given *operation* on each key and value.
+     *
+     * Not inline: the body reads the private hash table arrays, which must not be copied into callers
+     */
+    public fun forEach(operation: (Int, Int) -> Unit) {
+        for (i in 0..keys.size - 1) {
+            if (filled[i]) operation(keys[i], values[i])
+        }
+    }
+
+    private fun indexOf(key: Int): Int {
+        val mask = keys.size - 1
+        var index = hashIndex(key, mask)
+        while (filled[index]) {
+            if (keys[index] == key) return index
+            index = (index + 1) and mask
+        }
+        return -1
+    }
+
+    // Returns the slot of the key, adding the key with the 0 value if it is absent
+    private fun insertionIndex(key: Int): Int {
+        val mask = keys.size - 1
+        var index = hashIndex(key, mask)
+        while (filled[index]) {
+            if (keys[index] == key) return index
+            index = (index + 1) and mask
+        }
+        if (count + 1 > maxFill(keys.size)) {
+            rehash(keys.size * 2)
+            return insertionIndex(key)
+        }
+        keys[index] = key
+        values[index] = 0
+        filled[index] = true
+        count++
+        return index
+    }
+
+    private fun rehash(capacity: Int) {
+        val oldKeys = keys
+        val oldValues = values
+        val oldFilled = filled
+        keys = IntArray(capacity)
+        values = IntArray(capacity)
+        filled = BooleanArray(capacity)
+        count = 0
+        for (i in 0..oldKeys.size - 1) {
+            if (oldFilled[i]) put(oldKeys[i], oldValues[i])
+        }
+    }
+}
+
+// Hash tables are powers of two in size and at most 3/4 full
+
+internal fun hashTableCapacity(expectedSize: Int): Int {
+    var capacity = 4
+    while (maxFill(capacity) < expectedSize) {
+        capacity = capacity * 2
+    }
+    return capacity
+}
+
+internal fun maxFill(capacity: Int): Int = capacity / 4 * 3
+
+internal fun hashIndex(value: Int, mask: Int): Int {
+    val hash = value * -1640531527
+    return (hash xor (hash ushr 16)) and mask
+}
+
+internal fun hashIndex(value: Long, mask: Int): Int = hashIndex((value xor (value ushr 32)).toInt(), mask)
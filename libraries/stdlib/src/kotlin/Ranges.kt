@@ -21,3 +21,11 @@ public val LongRange.reversed: LongRange
 public val DoubleRange.reversed: DoubleRange
     get() = DoubleRange(end, if (start < end) -size else size)
 
+public val IntProgression.reversed: IntProgression
+    get() = IntProgression(last, start, -increment)
+
+public val LongProgression.reversed: LongProgression
+    get() = LongProgression(last, start, -increment)
+
+public val CharProgression.reversed: CharProgression
+    get() = CharProgression(last, start, -increment)
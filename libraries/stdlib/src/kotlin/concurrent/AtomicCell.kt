@@ -0,0 +1,51 @@
+package kotlin.concurrent
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * A mutable reference to an immutable value, such as a [[FunctionalList]], a [[FunctionalQueue]]
+ * or a [[PersistentHashMap]], which is shared between threads without locking.
+ *
+ * Updates are applied with compare-and-set, so the functions passed to [[update]] may be called
+ * several times under contention and should have no side effects
+ */
+public class AtomicCell<T>(initial: T) {
+    private val reference = AtomicReference<T>(initial)
+
+    public fun get(): T = reference.get() as T
+
+    public fun set(value: T) {
+        reference.set(value)
+    }
+
+    /**
+     * Sets the value if the current one is the same instance as *expected*
+     */
+    public fun compareAndSet(expected: T, value: T): Boolean = reference.compareAndSet(expected, value)
+
+    /**
+     * Atomically replaces the value with the result of *transform* and returns the new value
+     */
+    public fun update(transform: (T) -> T): T {
+        var current: T
+        var next: T
+        do {
+            current = get()
+            next = transform(current)
+        } while (!reference.compareAndSet(current, next))
+        return next
+    }
+
+    /**
+     * Atomically replaces the value with the result of *transform* and returns the previous value
+     */
+    public fun getAndUpdate(transform: (T) -> T): T {
+        var current: T
+        do {
+            current = get()
+        } while (!reference.compareAndSet(current, transform(current)))
+        return current
+    }
+
+    public fun toString(): String = "AtomicCell(${get()})"
+}
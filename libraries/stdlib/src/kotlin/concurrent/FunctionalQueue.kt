@@ -17,14 +17,31 @@ class FunctionalQueue<T> (
 
     public fun addFirst(element: T) : FunctionalQueue<T> = FunctionalQueue<T>(input, output add element)
 
+    /**
+     * The queue with the input moved to the output, computed at most once per queue instance
+     * so that removing from the same queue repeatedly (e.g. when a compare-and-set is retried)
+     * doesn't reverse the input every time
+     */
+    private var normalized : FunctionalQueue<T>? = null
+
     public fun removeFirst() : #(T,FunctionalQueue<T>) =
         if(output.empty) {
             if(input.empty)
                 throw java.util.NoSuchElementException()
             else
-                FunctionalQueue<T>(FunctionalList.emptyList<T>(), input.reversed()).removeFirst()
+                normalize().removeFirst()
         }
         else {
             #(output.head, FunctionalQueue<T>(input, output.tail))
         }
+
+    private fun normalize() : FunctionalQueue<T> {
+        val cached = normalized
+        if (cached != null)
+            return cached
+        // racing threads compute equal queues, so publishing any of them is fine
+        val answer = FunctionalQueue<T>(FunctionalList.emptyList<T>(), input.reversed())
+        normalized = answer
+        return answer
+    }
 }
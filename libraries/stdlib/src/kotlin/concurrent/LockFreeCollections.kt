@@ -0,0 +1,126 @@
+package kotlin.concurrent
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * A lock-free LIFO stack (Treiber's algorithm): [[push]] and [[pop]] swap the top node with
+ * compare-and-set and never block, whatever the number of threads
+ */
+public class LockFreeStack<T: Any> {
+    private val top = AtomicReference<StackNode<T>?>()
+
+    val empty : Boolean
+        get() = top.get() == null
+
+    public fun push(element: T) {
+        val node = StackNode(element)
+        var current: StackNode<T>?
+        do {
+            current = top.get()
+            node.next = current
+        } while (!top.compareAndSet(current, node))
+    }
+
+    /**
+     * Removes the top element and returns it or returns null if the stack is empty
+     */
+    public fun pop(): T? {
+        var current: StackNode<T>?
+        do {
+            current = top.get()
+            if (current == null) {
+                return null
+            }
+        } while (!top.compareAndSet(current, current!!.next))
+        return current!!.element
+    }
+
+    /**
+     * Returns the top element or null if the stack is empty
+     */
+    public fun peek(): T? = top.get()?.element
+}
+
+private class StackNode<T>(val element: T) {
+    var next: StackNode<T>? = null
+}
+
+/**
+ * A lock-free FIFO queue (the Michael-Scott algorithm): the queue is a linked list starting with a dummy node,
+ * [[add]] links a node after the last one and [[poll]] moves the head forward, both with compare-and-set.
+ * A thread which finds the tail pointer lagging behind completes the pending add instead of waiting for it
+ */
+public class LockFreeQueue<T: Any> {
+    private val head = AtomicReference<QueueNode<T>>(QueueNode<T>(null))
+    private val tail = AtomicReference<QueueNode<T>>(head.get())
+
+    val empty : Boolean
+        get() = head.get()!!.next.get() == null
+
+    public fun add(element: T) {
+        val node = QueueNode<T>(element)
+        while (true) {
+            val last = tail.get()!!
+            val next = last.next.get()
+            if (last identityEquals tail.get()) {
+                if (next == null) {
+                    if (last.next.compareAndSet(null, node)) {
+                        tail.compareAndSet(last, node)
+                        return
+                    }
+                } else {
+                    tail.compareAndSet(last, next)
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the first element and returns it or returns null if the queue is empty
+     */
+    public fun poll(): T? {
+        var element: T? = null
+        var done = false
+        while (!done) {
+            val first = head.get()!!
+            val last = tail.get()!!
+            val next = first.next.get()
+            if (first identityEquals head.get()) {
+                if (next == null) {
+                    done = true
+                } else if (first identityEquals last) {
+                    tail.compareAndSet(last, next)
+                } else if (head.compareAndSet(first, next)) {
+                    // the node becomes the new dummy, don't keep the element reachable from it
+                    element = next.element
+                    next.element = null
+                    done = true
+                }
+            }
+        }
+        return element
+    }
+
+    /**
+     * Returns the first element or null if the queue is empty
+     */
+    public fun peek(): T? {
+        var element: T? = null
+        var done = false
+        while (!done) {
+            val next = head.get()!!.next.get()
+            if (next == null) {
+                done = true
+            } else {
+                element = next.element
+                // a null element means that the node was polled meanwhile, so retry from the new head
+                done = element != null
+            }
+        }
+        return element
+    }
+}
+
+private class QueueNode<T>(var element: T?) {
+    val next = AtomicReference<QueueNode<T>?>()
+}
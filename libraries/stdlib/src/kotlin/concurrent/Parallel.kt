@@ -0,0 +1,400 @@
+package kotlin.concurrent
+
+import java.util.ArrayList
+import java.util.Collections
+import java.util.Comparator
+import java.util.List
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The default minimum number of elements handled by a single task of the parallel operations;
+ * inputs smaller than twice this size are processed sequentially on the calling thread
+ */
+public val DEFAULT_PARALLEL_CHUNK_SIZE: Int = 1024
+
+/**
+ * Performs the given *operation* on each element of the list using the shared parallel pool.
+ * The order in which elements are processed is unspecified
+ */
+public fun <T> List<T>.parallelForEach(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (T) -> Unit) {
+    parallelChunks(size(), minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            operation(get(i))
+        }
+    }
+}
+
+/**
+ * Returns a new list containing the results of applying the given *transform* function to each element,
+ * computed in parallel; the order of the results matches the order of the original list
+ */
+public fun <T, R> List<T>.parallelMap(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, transform: (T) -> R): List<R> {
+    val parts = parallelChunks(size(), minChunkSize) { from, to ->
+        val part = ArrayList<R>(to - from)
+        for (i in from..to - 1) {
+            part.add(transform(get(i)))
+        }
+        part
+    }
+    return concatenate(parts, size())
+}
+
+/**
+ * Returns a new list containing the elements matching the given *predicate*, tested in parallel;
+ * the matching elements keep their original order
+ */
+public fun <T> List<T>.parallelFilter(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, predicate: (T) -> Boolean): List<T> {
+    val parts = parallelChunks(size(), minChunkSize) { from, to ->
+        val part = ArrayList<T>()
+        for (i in from..to - 1) {
+            val element = get(i)
+            if (predicate(element)) part.add(element)
+        }
+        part
+    }
+    return concatenate(parts, 0)
+}
+
+/**
+ * Folds the list in parallel: every chunk is folded starting with *initial* using *operation*
+ * and the partial results are merged from left to right with *combine*.
+ *
+ * *initial* must be an identity of *combine* and *combine* must be associative
+ * for the result to be the same as the one of a sequential fold
+ */
+public fun <T, R> List<T>.parallelFold(initial: R, minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE,
+                                       operation: (R, T) -> R, combine: (R, R) -> R): R {
+    val parts = parallelChunks(size(), minChunkSize) { from, to ->
+        var answer = initial
+        for (i in from..to - 1) {
+            answer = operation(answer, get(i))
+        }
+        answer
+    }
+    return combineAll(parts, initial, combine)
+}
+
+/**
+ * Reduces the list in parallel using the associative *operation*
+ *
+ * @throws UnsupportedOperationException if the list is empty
+ */
+public fun <T> List<T>.parallelReduce(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (T, T) -> T): T {
+    if (isEmpty()) throw UnsupportedOperationException("Empty list can't be reduced")
+    val parts = parallelChunks(size(), minChunkSize) { from, to ->
+        var answer = get(from)
+        for (i in from + 1..to - 1) {
+            answer = operation(answer, get(i))
+        }
+        answer
+    }
+    var answer = parts.get(0)
+    for (i in 1..parts.size() - 1) {
+        answer = operation(answer, parts.get(i))
+    }
+    return answer
+}
+
+/**
+ * Returns a new list with the elements sorted by the value of *f*, see [[sortBy]].
+ * Chunks of the list are sorted in parallel and then merged pairwise, the merges of each round running in parallel too.
+ * The sort is stable
+ */
+public fun <T, R: Comparable<in R>> List<T>.parallelSortBy(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, f: (T) -> R): List<T> {
+    val comparator = comparator<T> {(x: T, y: T) -> f(x).compareTo(f(y)) }
+    var parts = parallelChunks<List<T>>(size(), minChunkSize) { from, to ->
+        val part = ArrayList<T>(subList(from, to).sure())
+        Collections.sort(part, comparator)
+        part
+    }
+    while (parts.size() > 1) {
+        val current = parts
+        parts = concatenate(parallelChunks<List<List<T>>>((current.size() + 1) / 2, 1) { from, to ->
+            val merged = ArrayList<List<T>>(to - from)
+            for (pair in from..to - 1) {
+                val left = current.get(2 * pair)
+                merged.add(if (2 * pair + 1 < current.size()) merge(left, current.get(2 * pair + 1), comparator) else left)
+            }
+            merged
+        }, (current.size() + 1) / 2)
+    }
+    return if (parts.isEmpty()) ArrayList<T>() else parts.get(0)
+}
+
+/**
+ * Performs the given *operation* on each element of the array using the shared parallel pool
+ */
+public fun IntArray.parallelForEach(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (Int) -> Unit) {
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            operation(get(i))
+        }
+    }
+}
+
+/**
+ * Returns a new array containing the results of applying the given *transform* function to each element,
+ * computed in parallel.
+ *
+ * The results are Int values written straight into a [[IntArray]], so nothing is boxed; to map to another type
+ * use [[List.parallelMap]] on `toList()`
+ */
+public fun IntArray.parallelMap(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, transform: (Int) -> Int): IntArray {
+    val result = IntArray(size)
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            result[i] = transform(get(i))
+        }
+    }
+    return result
+}
+
+/**
+ * Folds the array in parallel, see [[List.parallelFold]]
+ */
+public fun <R> IntArray.parallelFold(initial: R, minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE,
+                                     operation: (R, Int) -> R, combine: (R, R) -> R): R {
+    val parts = parallelChunks(size, minChunkSize) { from, to ->
+        var answer = initial
+        for (i in from..to - 1) {
+            answer = operation(answer, get(i))
+        }
+        answer
+    }
+    return combineAll(parts, initial, combine)
+}
+
+/**
+ * Performs the given *operation* on each element of the array using the shared parallel pool
+ */
+public fun LongArray.parallelForEach(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (Long) -> Unit) {
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            operation(get(i))
+        }
+    }
+}
+
+/**
+ * Returns a new array containing the results of applying the given *transform* function to each element,
+ * computed in parallel.
+ *
+ * The results are Long values written straight into a [[LongArray]], so nothing is boxed; to map to another type
+ * use [[List.parallelMap]] on `toList()`
+ */
+public fun LongArray.parallelMap(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, transform: (Long) -> Long): LongArray {
+    val result = LongArray(size)
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            result[i] = transform(get(i))
+        }
+    }
+    return result
+}
+
+/**
+ * Folds the array in parallel, see [[List.parallelFold]]
+ */
+public fun <R> LongArray.parallelFold(initial: R, minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE,
+                                      operation: (R, Long) -> R, combine: (R, R) -> R): R {
+    val parts = parallelChunks(size, minChunkSize) { from, to ->
+        var answer = initial
+        for (i in from..to - 1) {
+            answer = operation(answer, get(i))
+        }
+        answer
+    }
+    return combineAll(parts, initial, combine)
+}
+
+/**
+ * Performs the given *operation* on each element of the array using the shared parallel pool
+ */
+public fun DoubleArray.parallelForEach(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (Double) -> Unit) {
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            operation(get(i))
+        }
+    }
+}
+
+/**
+ * Returns a new array containing the results of applying the given *transform* function to each element,
+ * computed in parallel.
+ *
+ * The results are Double values written straight into a [[DoubleArray]], so nothing is boxed; to map to another type
+ * use [[List.parallelMap]] on `toList()`
+ */
+public fun DoubleArray.parallelMap(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, transform: (Double) -> Double): DoubleArray {
+    val result = DoubleArray(size)
+    parallelChunks(size, minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            result[i] = transform(get(i))
+        }
+    }
+    return result
+}
+
+/**
+ * Folds the array in parallel, see [[List.parallelFold]]
+ */
+public fun <R> DoubleArray.parallelFold(initial: R, minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE,
+                                        operation: (R, Double) -> R, combine: (R, R) -> R): R {
+    val parts = parallelChunks(size, minChunkSize) { from, to ->
+        var answer = initial
+        for (i in from..to - 1) {
+            answer = operation(answer, get(i))
+        }
+        answer
+    }
+    return combineAll(parts, initial, combine)
+}
+
+/**
+ * Performs the given *operation* on each number of the range using the shared parallel pool
+ */
+public fun IntRange.parallelForEach(minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE, operation: (Int) -> Unit) {
+    val first = start
+    val increment = if (isReversed) -1 else 1
+    parallelChunks(Math.abs(size), minChunkSize) { from, to ->
+        for (i in from..to - 1) {
+            operation(first + i * increment)
+        }
+    }
+}
+
+/**
+ * Folds the range in parallel, see [[List.parallelFold]]
+ */
+public fun <R> IntRange.parallelFold(initial: R, minChunkSize: Int = DEFAULT_PARALLEL_CHUNK_SIZE,
+                                     operation: (R, Int) -> R, combine: (R, R) -> R): R {
+    val first = start
+    val increment = if (isReversed) -1 else 1
+    val parts = parallelChunks(Math.abs(size), minChunkSize) { from, to ->
+        var answer = initial
+        for (i in from..to - 1) {
+            answer = operation(answer, first + i * increment)
+        }
+        answer
+    }
+    return combineAll(parts, initial, combine)
+}
+
+/**
+ * The shared pool of daemon threads used by the parallel operations, sized to the number of processors
+ */
+private object ParallelPool {
+    val parallelism: Int = Math.max(1, Runtime.getRuntime().sure().availableProcessors())
+
+    val executor: ExecutorService = Executors.newFixedThreadPool(parallelism, object : ThreadFactory {
+        private val counter = AtomicInteger()
+
+        public override fun newThread(r: Runnable?): Thread {
+            val thread = ParallelWorker(r, "kotlin-parallel-" + counter.incrementAndGet())
+            thread.setDaemon(true)
+            return thread
+        }
+    }).sure()
+}
+
+private class ParallelWorker(r: Runnable?, name: String) : Thread(r, name)
+
+/**
+ * Splits the index range [0, size) into contiguous chunks and applies *task* to each of them,
+ * returning the results in the order of the chunks.
+ *
+ * The chunk size adapts to the input: there are about four chunks per processor so that uneven chunks
+ * balance out, but never fewer than *minChunkSize* elements per chunk. Small inputs and calls made from
+ * a pool thread itself (nested parallel operations, which would otherwise wait on their own pool)
+ * run sequentially on the calling thread. The first chunk is always processed by the calling thread.
+ */
+internal fun <R> parallelChunks(size: Int, minChunkSize: Int, task: (Int, Int) -> R): List<R> {
+    if (minChunkSize <= 0) throw IllegalArgumentException("Chunk size should be positive: $minChunkSize")
+    val results = ArrayList<R>()
+    if (size == 0) return results
+
+    val parallelism = ParallelPool.parallelism
+    if (parallelism == 1 || size < 2 * minChunkSize || Thread.currentThread() is ParallelWorker) {
+        results.add(task(0, size))
+        return results
+    }
+
+    val chunkSize = Math.max(minChunkSize, (size - 1) / (4 * parallelism) + 1)
+    val chunks = (size - 1) / chunkSize + 1
+
+    val futures = ArrayList<Future<R>>(chunks - 1)
+    for (chunk in 1..chunks - 1) {
+        val from = chunk * chunkSize
+        val to = Math.min(size, from + chunkSize)
+        futures.add(ParallelPool.executor.submit(object : Callable<R> {
+            public override fun call(): R = task(from, to)
+        }).sure())
+    }
+
+    try {
+        results.add(task(0, Math.min(size, chunkSize)))
+        for (future in futures) {
+            results.add(future.get())
+        }
+    }
+    catch (e: ExecutionException) {
+        throw e.getCause() ?: e
+    }
+    finally {
+        for (future in futures) {
+            future.cancel(false)
+        }
+    }
+    return results
+}
+
+private fun <T> concatenate(parts: List<out List<T>>, expectedSize: Int): List<T> {
+    if (parts.size() == 1) return parts.get(0)
+    val result = ArrayList<T>(expectedSize)
+    for (part in parts) {
+        result.addAll(part)
+    }
+    return result
+}
+
+/**
+ * Merges two sorted lists, taking the element of *left* first when two elements are equal
+ */
+private fun <T> merge(left: List<T>, right: List<T>, comparator: Comparator<T>): List<T> {
+    val result = ArrayList<T>(left.size() + right.size())
+    var i = 0
+    var j = 0
+    while (i < left.size() && j < right.size()) {
+        if (comparator.compare(right.get(j), left.get(i)) < 0) {
+            result.add(right.get(j))
+            j++
+        }
+        else {
+            result.add(left.get(i))
+            i++
+        }
+    }
+    while (i < left.size()) {
+        result.add(left.get(i))
+        i++
+    }
+    while (j < right.size()) {
+        result.add(right.get(j))
+        j++
+    }
+    return result
+}
+
+private fun <R> combineAll(parts: List<R>, initial: R, combine: (R, R) -> R): R {
+    var answer = initial
+    for (part in parts) {
+        answer = combine(answer, part)
+    }
+    return answer
+}
@@ -0,0 +1,285 @@
+package kotlin.concurrent
+
+import java.util.HashMap
+import java.util.Map
+
+/**
+ * An immutable hash map implemented as a hash array mapped trie: every update returns a new map which
+ * shares all the unchanged nodes with this one, so an update copies at most one small node per level
+ * (a map of a million entries has four or five levels).
+ *
+ * Being immutable, the map can be published to other threads freely, e.g. through an [[AtomicCell]]
+ */
+public class PersistentHashMap<K, V> internal(private val root: HamtNode?, public val size: Int) {
+
+    val empty : Boolean
+        get() = size == 0
+
+    /**
+     * Returns the value for the given key or null if there is no such key
+     */
+    public fun get(key: K): V? {
+        val value = find(key)
+        return if (value identityEquals notFound) null else value as V
+    }
+
+    public fun containsKey(key: K): Boolean = !find(key).identityEquals(notFound)
+
+    /**
+     * Returns a map with the given entry added or replaced
+     */
+    public fun put(key: K, value: V): PersistentHashMap<K, V> {
+        val change = SizeChange()
+        val node = (root ?: emptyNode).put(0, hashOf(key), key, value, change)
+        return if (node identityEquals root) this else PersistentHashMap<K, V>(node, size + change.delta)
+    }
+
+    /**
+     * Returns a map without the given key
+     */
+    public fun remove(key: K): PersistentHashMap<K, V> {
+        val current = root
+        if (current == null) {
+            return this
+        }
+        val change = SizeChange()
+        val node = current.remove(0, hashOf(key), key, change)
+        return if (node identityEquals current) this else PersistentHashMap<K, V>(node, size + change.delta)
+    }
+
+    /**
+     * Performs the given *action* on each entry of the map in an unspecified order
+     */
+    public fun forEach(action: (K, V) -> Unit) {
+        root?.forEach { (key, value) -> action(key as K, value as V) }
+    }
+
+    /**
+     * Copies the entries into a new [[HashMap]]
+     */
+    public fun toMap(): Map<K, V> {
+        val answer = HashMap<K, V>(size)
+        forEach { (key, value) -> answer.put(key, value) }
+        return answer
+    }
+
+    public fun toString(): String = toMap().toString() ?: ""
+
+    private fun find(key: K): Any? {
+        val current = root
+        return if (current == null) notFound else current.find(0, hashOf(key), key)
+    }
+
+    class object {
+        public fun <K, V> empty(): PersistentHashMap<K, V> = PersistentHashMap<K, V>(null, 0)
+    }
+}
+
+private val notFound = Any()
+
+/**
+ * Marks the slots of a [[BitmapNode]] holding a child node instead of an entry
+ */
+private val childNode = Any()
+
+private val emptyNodeArray = arrayOfNulls<Any?>(0)
+
+private val emptyNode = BitmapNode(0, emptyNodeArray)
+
+private fun hashOf(key: Any?): Int {
+    if (key == null) return 0
+    val hash = key.hashCode()
+    return hash xor (hash ushr 16)
+}
+
+internal class SizeChange {
+    var delta = 0
+}
+
+internal abstract class HamtNode {
+    abstract fun find(shift: Int, hash: Int, key: Any?): Any?
+
+    abstract fun put(shift: Int, hash: Int, key: Any?, value: Any?, change: SizeChange): HamtNode
+
+    /**
+     * Returns null when the last entry of the node is removed
+     */
+    abstract fun remove(shift: Int, hash: Int, key: Any?, change: SizeChange): HamtNode?
+
+    abstract fun forEach(action: (Any?, Any?) -> Unit)
+}
+
+/**
+ * A trie node indexed by five bits of the hash: the bitmap tells which of the 32 slots are used
+ * and the array stores only the used ones as key/value pairs or [[childNode]]/node pairs
+ */
+private class BitmapNode(val bitmap: Int, val array: Array<Any?>) : HamtNode() {
+
+    override fun find(shift: Int, hash: Int, key: Any?): Any? {
+        val bit = bitFor(shift, hash)
+        if ((bitmap and bit) == 0) {
+            return notFound
+        }
+        val i = indexOf(bit)
+        val slotKey = array[i]
+        if (slotKey identityEquals childNode) {
+            return (array[i + 1] as HamtNode).find(shift + 5, hash, key)
+        }
+        return if (slotKey == key) array[i + 1] else notFound
+    }
+
+    override fun put(shift: Int, hash: Int, key: Any?, value: Any?, change: SizeChange): HamtNode {
+        val bit = bitFor(shift, hash)
+        val i = indexOf(bit)
+        if ((bitmap and bit) == 0) {
+            val newArray = arrayOfNulls<Any?>(array.size + 2)
+            System.arraycopy(array, 0, newArray, 0, i)
+            newArray[i] = key
+            newArray[i + 1] = value
+            System.arraycopy(array, i, newArray, i + 2, array.size - i)
+            change.delta = 1
+            return BitmapNode(bitmap or bit, newArray)
+        }
+        val slotKey = array[i]
+        if (slotKey identityEquals childNode) {
+            val child = array[i + 1] as HamtNode
+            val newChild = child.put(shift + 5, hash, key, value, change)
+            return if (newChild identityEquals child) this else withSlots(i, childNode, newChild)
+        }
+        if (slotKey == key) {
+            return if (array[i + 1] identityEquals value) this else withSlots(i, key, value)
+        }
+        change.delta = 1
+        return withSlots(i, childNode, createNode(shift + 5, hashOf(slotKey), slotKey, array[i + 1], hash, key, value))
+    }
+
+    override fun remove(shift: Int, hash: Int, key: Any?, change: SizeChange): HamtNode? {
+        val bit = bitFor(shift, hash)
+        if ((bitmap and bit) == 0) {
+            return this
+        }
+        val i = indexOf(bit)
+        val slotKey = array[i]
+        if (slotKey identityEquals childNode) {
+            val child = array[i + 1] as HamtNode
+            val newChild = child.remove(shift + 5, hash, key, change)
+            if (newChild identityEquals child) {
+                return this
+            }
+            return if (newChild == null) withoutSlots(i, bit) else withSlots(i, childNode, newChild)
+        }
+        if (slotKey == key) {
+            change.delta = -1
+            return withoutSlots(i, bit)
+        }
+        return this
+    }
+
+    override fun forEach(action: (Any?, Any?) -> Unit) {
+        for (i in 0..array.size / 2 - 1) {
+            val slotKey = array[2 * i]
+            if (slotKey identityEquals childNode) {
+                (array[2 * i + 1] as HamtNode).forEach(action)
+            } else {
+                action(slotKey, array[2 * i + 1])
+            }
+        }
+    }
+
+    private fun indexOf(bit: Int): Int = 2 * Integer.bitCount(bitmap and (bit - 1))
+
+    private fun withSlots(i: Int, key: Any?, value: Any?): BitmapNode {
+        val newArray = array.copyOf()
+        newArray[i] = key
+        newArray[i + 1] = value
+        return BitmapNode(bitmap, newArray)
+    }
+
+    private fun withoutSlots(i: Int, bit: Int): BitmapNode? {
+        if (bitmap == bit) {
+            return null
+        }
+        val newArray = arrayOfNulls<Any?>(array.size - 2)
+        System.arraycopy(array, 0, newArray, 0, i)
+        System.arraycopy(array, i + 2, newArray, i, array.size - i - 2)
+        return BitmapNode(bitmap xor bit, newArray)
+    }
+}
+
+/**
+ * Holds the entries whose keys have the same hash code as key/value pairs
+ */
+private class CollisionNode(val hash: Int, val array: Array<Any?>) : HamtNode() {
+
+    override fun find(shift: Int, hash: Int, key: Any?): Any? {
+        if (hash == this.hash) {
+            val i = indexOf(key)
+            if (i >= 0) {
+                return array[i + 1]
+            }
+        }
+        return notFound
+    }
+
+    override fun put(shift: Int, hash: Int, key: Any?, value: Any?, change: SizeChange): HamtNode {
+        if (hash != this.hash) {
+            // the new key differs at this level: move this node one level down
+            val parent = BitmapNode(bitFor(shift, this.hash), array<Any?>(childNode, this))
+            return parent.put(shift, hash, key, value, change)
+        }
+        val i = indexOf(key)
+        if (i >= 0) {
+            if (array[i + 1] identityEquals value) {
+                return this
+            }
+            val newArray = array.copyOf()
+            newArray[i + 1] = value
+            return CollisionNode(hash, newArray)
+        }
+        val newArray = array.copyOf(array.size + 2)
+        newArray[array.size] = key
+        newArray[array.size + 1] = value
+        change.delta = 1
+        return CollisionNode(hash, newArray)
+    }
+
+    override fun remove(shift: Int, hash: Int, key: Any?, change: SizeChange): HamtNode? {
+        val i = if (hash == this.hash) indexOf(key) else -1
+        if (i < 0) {
+            return this
+        }
+        change.delta = -1
+        if (array.size == 2) {
+            return null
+        }
+        val newArray = arrayOfNulls<Any?>(array.size - 2)
+        System.arraycopy(array, 0, newArray, 0, i)
+        System.arraycopy(array, i + 2, newArray, i, array.size - i - 2)
+        return CollisionNode(hash, newArray)
+    }
+
+    override fun forEach(action: (Any?, Any?) -> Unit) {
+        for (i in 0..array.size / 2 - 1) {
+            action(array[2 * i], array[2 * i + 1])
+        }
+    }
+
+    private fun indexOf(key: Any?): Int {
+        for (i in 0..array.size / 2 - 1) {
+            if (array[2 * i] == key) {
+                return 2 * i
+            }
+        }
+        return -1
+    }
+}
+
+private fun bitFor(shift: Int, hash: Int): Int = 1 shl ((hash ushr shift) and 31)
+
+private fun createNode(shift: Int, hash1: Int, key1: Any?, value1: Any?, hash2: Int, key2: Any?, value2: Any?): HamtNode {
+    if (hash1 == hash2) {
+        return CollisionNode(hash1, array<Any?>(key1, value1, key2, value2))
+    }
+    val change = SizeChange()
+    return emptyNode.put(shift, hash1, key1, value1, change).put(shift, hash2, key2, value2, change)
+}
@@ -1,6 +1,8 @@
 package kotlin.io
 
 import java.io.*
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
 import java.nio.charset.*
 import java.util.NoSuchElementException
 import java.util.List
@@ -96,7 +98,26 @@ public inline fun File.forEachLine(block: (String) -> Any): Unit = reader().forE
  * This method is not recommended on huge files.
  */
 public fun File.readBytes(): ByteArray {
-    return FileInputStream(this).use<FileInputStream,ByteArray>{ it.readBytes(this.length().toInt()) }
+    return FileInputStream(this).use<FileInputStream,ByteArray>{
+        val channel = it.getChannel().sure()
+        val size = channel.size()
+        if (size > Integer.MAX_VALUE) {
+            throw OutOfMemoryError("File $this is too big ($size bytes) to fit in memory")
+        }
+        if (size == 0.toLong()) {
+            // the size of special files (e.g. under /proc) is unknown, so read until the end of the stream
+            it.readBytes()
+        }
+        else {
+            // the channel reads straight into the result array, the file is never mapped,
+            // so it can be deleted or replaced as soon as this function returns
+            val bytes = ByteArray(size.toInt())
+            val buffer = ByteBuffer.wrap(bytes).sure()
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            if (buffer.hasRemaining()) bytes.copyOf(buffer.position()) else bytes
+        }
+    }
 }
 
 /**
@@ -112,7 +133,8 @@ public fun File.writeBytes(data: ByteArray): Unit {
  *
  * This method is not recommended on huge files.
  */
-public fun File.readText(encoding:String? = null) : String = readBytes().toString(encoding)
+public fun File.readText(encoding:String? = null) : String =
+    readText(if (encoding == null) Charset.defaultCharset().sure() else Charset.forName(encoding).sure())
 
 /**
  * Reads the entire content of the file as a String using the
@@ -138,6 +160,9 @@ public fun File.writeText(text: String, encoding:Charset): Unit { writeBytes(tex
 
 /**
  * Copies this file to the given output file, returning the number of bytes copied
+ *
+ * The data is transferred with [[java.nio.channels.FileChannel.transferTo]] so that the operating system can copy it
+ * without passing it through the heap; *bufferSize* is kept for source compatibility and is not used.
  */
 public fun File.copyTo(file: File, bufferSize: Int = defaultBufferSize): Long {
     file.directory.mkdirs()
@@ -145,7 +170,22 @@ public fun File.copyTo(file: File, bufferSize: Int = defaultBufferSize): Long {
     return input.use<FileInputStream,Long>{
         val output = FileOutputStream(file)
         output.use<FileOutputStream,Long>{
-            input.copyTo(output, bufferSize)
+            val source = input.getChannel().sure()
+            val target = output.getChannel().sure()
+            val size = source.size()
+            var position: Long = 0
+            while (position < size) {
+                // transferTo may copy fewer bytes than requested, e.g. at most 2Gb at once on some platforms
+                val transferred = source.transferTo(position, size - position, target)
+                if (transferred <= 0) break
+                position += transferred
+            }
+            if (position < size || size == 0.toLong()) {
+                // the file was truncated concurrently or its size is unknown: fall back to copying the stream
+                source.position(position)
+                position += input.copyTo(output)
+            }
+            position
         }
     }
 }
@@ -153,16 +193,21 @@ public fun File.copyTo(file: File, bufferSize: Int = defaultBufferSize): Long {
 /**
  * Reads file by byte blocks and calls closure for each block read. Block size depends on implementation but never less than 512.
  * This functions passes byte array and amount of bytes in this buffer to the closure function.
+ * The same array is reused for all the blocks, so its content must be copied if it should outlive the call.
  *
  * You can use this function for huge files
  */
 fun File.forEachBlock(closure : (ByteArray, Int) -> Unit) : Unit {
-    val arr = ByteArray(4096)
+    val arr = ByteArray(defaultBufferSize)
+    // the channel reads straight into the array wrapped by the buffer, no intermediate copy is made
+    val buffer = ByteBuffer.wrap(arr).sure()
     val fis = FileInputStream(this)
 
     try {
+        val channel = fis.getChannel().sure()
         do {
-            val size = fis.read(arr)
+            buffer.clear()
+            val size = channel.read(buffer)
             if (size == -1) {
                 break
             } else if (size > 0) {
@@ -177,14 +222,78 @@ fun File.forEachBlock(closure : (ByteArray, Int) -> Unit) : Unit {
 /**
  * Reads file line by line. Default charset is UTF-8.
  *
+ * The file is read through a reused byte buffer and decoded into a reused char buffer, so the only object
+ * allocated for each line is the line itself. Malformed input is replaced like [[InputStreamReader]] does.
+ *
  * You may use this function on huge files
  */
 fun File.forEachLine (charset : String = "UTF-8", closure : (line : String) -> Unit) : Unit {
-    val reader = BufferedReader(InputStreamReader(FileInputStream(this), charset))
+    val fis = FileInputStream(this)
     try {
-        reader.forEachLine(closure)
+        val channel = fis.getChannel().sure()
+        val decoder = Charset.forName(charset).sure().newDecoder().sure()
+                .onMalformedInput(CodingErrorAction.REPLACE).sure()
+                .onUnmappableCharacter(CodingErrorAction.REPLACE).sure()
+        val splitter = LineSplitter(closure)
+        val bytes = ByteBuffer.allocate(defaultBufferSize).sure()
+        val chars = CharBuffer.allocate(defaultBufferSize).sure()
+
+        var endOfInput = false
+        while (!endOfInput) {
+            endOfInput = channel.read(bytes) < 0
+            bytes.flip()
+            do {
+                val result = decoder.decode(bytes, chars, endOfInput).sure()
+                chars.flip()
+                splitter.split(chars)
+                chars.clear()
+            } while (result.isOverflow())
+            // a character split between two reads is left in the buffer and decoded with the next one
+            bytes.compact()
+        }
+        while (decoder.flush(chars).sure().isOverflow()) {
+            chars.flip()
+            splitter.split(chars)
+            chars.clear()
+        }
+        chars.flip()
+        splitter.split(chars)
+        splitter.finish()
     } finally {
-        reader.close()
+        fis.close()
+    }
+}
+
+/**
+ * Splits decoded characters into lines terminated by '\n', '\r' or "\r\n", like [[BufferedReader.readLine]] does
+ */
+private class LineSplitter(val closure : (line : String) -> Unit) {
+    private val line = StringBuilder()
+    private var skipLineFeed = false
+
+    fun split(chars : CharBuffer) {
+        while (chars.hasRemaining()) {
+            val c = chars.get()
+            if (skipLineFeed) {
+                skipLineFeed = false
+                if (c == '\n') continue
+            }
+            if (c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r'
+                closure(line.toString())
+                line.setLength(0)
+            }
+            else {
+                line.append(c)
+            }
+        }
+    }
+
+    fun finish() {
+        if (line.length() > 0) {
+            closure(line.toString())
+            line.setLength(0)
+        }
     }
 }
 
@@ -0,0 +1,81 @@
+package kotlin.template
+
+/**
+ * The constant structure of a [[StringTemplate]]: its constant texts and the number of values between them.
+ *
+ * The compiler creates one instance per `StringTemplate(array(...))` call site whose constant parts are
+ * compile time constants, holds it in a static field and passes it to every [[CompiledStringTemplate]]
+ * created at that call site, so the structure is computed once rather than on each rendering.
+ */
+public class CompiledTemplate(val constants : Array<String>, val size : Int) {
+    /**
+     * The number of expression values of the template
+     */
+    public val expressionCount : Int = size / 2
+
+    /**
+     * The total length of the constant texts
+     */
+    public val constantLength : Int = totalLength(constants)
+
+    /**
+     * The constant text with every expression replaced by a `?` placeholder, as used by JDBC prepared statements
+     */
+    public val placeholderText : String = joinConstants("?")
+
+    /**
+     * The expected length of the rendered text, used as the initial capacity of the output buffer
+     */
+    public val sizeHint : Int = constantLength + 16 * expressionCount
+
+    /**
+     * Appends the text of a template with this structure to the given output using the supplied formatter
+     */
+    public fun append(out : Appendable, formatter : Formatter, values : Array<Any?>) : Unit {
+        if (values.size != size) {
+            throw IllegalArgumentException("Expected $size template values but was ${values.size}")
+        }
+        if (out is StringBuilder) {
+            out.ensureCapacity(out.length() + sizeHint)
+        }
+        for (i in 0..size - 1) {
+            if (i % 2 == 0) {
+                out.append(constants[i / 2])
+            } else {
+                formatter.format(out, values[i])
+            }
+        }
+    }
+
+    /**
+     * Converts a template with this structure into a String using the given formatter
+     */
+    public fun toString(formatter : Formatter, values : Array<Any?>) : String {
+        val buffer = StringBuilder(sizeHint)
+        append(buffer, formatter, values)
+        return buffer.toString() ?: ""
+    }
+
+    private fun joinConstants(placeholder : String) : String {
+        val out = StringBuilder(constantLength + placeholder.length * expressionCount)
+        for (i in 0..size - 1) {
+            out.append(if (i % 2 == 0) constants[i / 2] else placeholder)
+        }
+        return out.toString() ?: ""
+    }
+}
+
+/**
+ * A [[StringTemplate]] created at a call site with a precompiled constant structure.
+ *
+ * The values still hold the constant texts at even indices, so code reading them directly sees no difference.
+ */
+public class CompiledStringTemplate(val compiled : CompiledTemplate, values : Array<Any?>) : StringTemplate(values)
+
+private fun totalLength(texts : Array<String>) : Int {
+    var answer = 0
+    for (text in texts) {
+        answer += text.length
+    }
+    return answer
+}
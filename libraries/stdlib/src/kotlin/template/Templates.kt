@@ -10,7 +10,7 @@ import java.util.Date
 
 // TODO this class should move into the runtime
 // in jet.StringTemplate
-class StringTemplate(val values : Array<Any?>) {
+open class StringTemplate(val values : Array<Any?>) {
 
     /**
      * Converts the template into a String
@@ -39,6 +39,9 @@ class StringTemplate(val values : Array<Any?>) {
  * See [[HtmlFormatter] and [[LocaleFormatter] respectively.
  */
 public fun StringTemplate.toString(formatter : Formatter) : String {
+    if (this is CompiledStringTemplate) {
+        return compiled.toString(formatter, values)
+    }
     val buffer = StringBuilder()
     append(buffer, formatter)
     return buffer.toString() ?: ""
@@ -49,21 +52,20 @@ public fun StringTemplate.toString(formatter : Formatter) : String {
  * using the supplied formatter
  */
 public fun StringTemplate.append(out : Appendable, formatter : Formatter) : Unit {
-    var constantText = true
-    this.forEach {
-        if (constantText) {
-            if (it == null) {
-                throw IllegalStateException("No constant checks should be null");
-            } else {
-                val text = it.toString()
-                if (text != null) {
-                    out.append(text)
-                }
+    if (this is CompiledStringTemplate) {
+        compiled.append(out, formatter, values)
+        return
+    }
+    for (i in 0..values.size - 1) {
+        val value = values[i]
+        if (i % 2 == 0) {
+            if (value == null) {
+                throw IllegalStateException("No constant checks should be null")
             }
+            out.append(value.toString())
         } else {
-            formatter.format(out, it)
+            formatter.format(out, value)
         }
-        constantText = !constantText
     }
 }
 
@@ -164,13 +166,22 @@ public class HtmlFormatter(locale : Locale = defaultLocale) : LocaleFormatter(lo
     }
 
     public override fun format(buffer : Appendable, text : String) : Unit {
-        for (c in text) {
-            if (c == '<') buffer.append("&lt;")
-            else if (c == '>') buffer.append("&gt;")
-            else if (c == '&') buffer.append("&amp;")
-            else if (c == '"') buffer.append("&quot;")
-            else buffer.append(c)
+        // append the runs of characters which need no escaping straight from the text
+        var start = 0
+        for (i in 0..text.length - 1) {
+            val c = text[i]
+            val escaped = if (c == '<') "&lt;"
+            else if (c == '>') "&gt;"
+            else if (c == '&') "&amp;"
+            else if (c == '"') "&quot;"
+            else null
+            if (escaped != null) {
+                buffer.append(text, start, i)
+                buffer.append(escaped)
+                start = i + 1
+            }
         }
+        buffer.append(text, start, text.length)
     }
 }
 
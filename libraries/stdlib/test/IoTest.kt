@@ -86,4 +86,67 @@ class IoTest() : TestCase() {
     assertNotNull(result)
     assertEquals(result!!.size, 2)
   }
+
+  fun tempFile(text : String) : File {
+    val file = File.createTempFile("temp", ".txt")!!
+    file.deleteOnExit()
+    file.writeText(text, "UTF-8")
+    return file
+  }
+
+  fun testFileForEachLine() {
+    val file = tempFile("Hello\r\nW\u00f6rld\rthe\n\nend")
+    val list = ArrayList<String>()
+    file.forEachLine("UTF-8") { list.add(it) }
+    assertEquals(arrayList("Hello", "W\u00f6rld", "the", "", "end"), list)
+    assertEquals(arrayList("a", ""), tempFile("a\n\n").readLines())
+    assertEquals(0, tempFile("").readLines().size())
+  }
+
+  fun testReadAndCopyLargeFile() {
+    val builder = StringBuilder()
+    for (i in 0..200000) {
+      builder.append(i).append('\u0416').append('\n')
+    }
+    val text = builder.toString()
+    val file = tempFile(text)
+    val expectedBytes = text.toByteArray("UTF-8")
+
+    assertTrue(Arrays.equals(expectedBytes, file.readBytes()))
+    assertEquals(text, file.readText("UTF-8"))
+    assertEquals(200001, file.readLines().size())
+
+    val copy = File.createTempFile("temp", ".copy")!!
+    copy.deleteOnExit()
+    assertEquals(expectedBytes.size.toLong(), file.copyTo(copy))
+    assertTrue(Arrays.equals(expectedBytes, copy.readBytes()))
+
+    var total = 0
+    file.forEachBlock { (bytes, size) -> total += size }
+    assertEquals(expectedBytes.size, total)
+  }
+
+  fun testFileCanBeReplacedAfterReading() {
+    val builder = StringBuilder()
+    for (i in 0..200000) {
+      builder.append(i).append('\n')
+    }
+    val file = tempFile(builder.toString())
+
+    file.readBytes()
+    file.readText("UTF-8")
+    file.forEachLine { }
+    file.writeText("replaced", "UTF-8")
+    assertEquals("replaced", file.readText("UTF-8"))
+
+    file.readLines()
+    assertTrue(file.delete())
+    assertFalse(file.exists())
+  }
+
+  fun testReadSmallFile() {
+    val file = tempFile("small")
+    assertEquals("small", file.readText())
+    assertTrue(Arrays.equals("small".toByteArray("UTF-8"), file.readBytes()))
+  }
 }
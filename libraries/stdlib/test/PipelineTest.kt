@@ -0,0 +1,53 @@
+package test.collections
+
+import kotlin.test.*
+import java.util.*
+import org.junit.Test
+
+class PipelineTest {
+    val data = arrayList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+
+    Test fun filterMapTake() {
+        val result = data.pipeline().filter { it % 2 == 0 }.map { it * 10 }.take(3).toList()
+        assertEquals(arrayList(20, 40, 60), result)
+    }
+
+    Test fun consecutiveStagesAreMerged() {
+        val result = data.pipeline().filter { it > 2 }.filter { it < 8 }.map { it + 1 }.map { it.toString() }.toList()
+        assertEquals(arrayList("4", "5", "6", "7", "8"), result)
+    }
+
+    Test fun flatMapAndTakeWhile() {
+        val result = data.pipeline().flatMap { arrayList(it, -it) }.takeWhile { it != -4 }.toList()
+        assertEquals(arrayList(1, -1, 2, -2, 3, -3, 4), result)
+    }
+
+    Test fun terminalOperations() {
+        assertEquals(55, data.pipeline().fold(0) {(a, b) -> a + b})
+        assertEquals(5, data.pipeline().filterNot { it % 2 == 0 }.count())
+        assertEquals(6, data.pipeline().find { it > 5 })
+        assertNull(data.pipeline().find { it > 10 })
+        assertTrue(data.pipeline().any { it == 7 })
+        assertFalse(data.pipeline().all { it < 7 })
+    }
+
+    Test fun terminalOperationsStopEarly() {
+        var pulled = 0
+        val counted = data.pipeline().map {
+            pulled++
+            it
+        }
+        assertTrue(counted.any { it == 3 })
+        assertEquals(3, pulled)
+
+        pulled = 0
+        assertEquals(arrayList(1, 2), counted.take(2).toList())
+        assertEquals(2, pulled)
+    }
+
+    Test fun pipelineIsReusable() {
+        val pipeline = data.pipeline().take(4)
+        assertEquals(4, pipeline.count())
+        assertEquals(arrayList(1, 2, 3, 4), pipeline.toList())
+    }
+}
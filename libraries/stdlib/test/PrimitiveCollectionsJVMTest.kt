@@ -0,0 +1,107 @@
+package test.collections
+
+import kotlin.test.*
+import java.util.*
+import org.junit.Test
+
+class PrimitiveCollectionsJVMTest {
+
+    Test fun intArrayList() {
+        val list = IntArrayList(2)
+        for (i in 0..99) {
+            list.add(i * 2)
+        }
+        assertEquals(100, list.size)
+        assertEquals(198, list[99])
+        list[0] = -1
+        assertEquals(-1, list[0])
+        assertEquals(10, list.toIntArray()[5])
+
+        var sum = 0
+        for (element in list) {
+            sum += element
+        }
+        assertEquals(9899, sum)
+
+        fails { list[100] }
+    }
+
+    Test fun intArrayListOperations() {
+        val list = intArrayList(1, 2, 3, 4, 5)
+        assertEquals(15, list.fold(0) {(a, b) -> a + b})
+        assertEquals(2, list.filter { it % 2 == 0 }.size)
+        assertEquals(arrayList("1", "2", "3", "4", "5"), list.map { it.toString() })
+    }
+
+    Test fun longArrayList() {
+        val list = longArrayList(10000000000, 1)
+        list.add(2)
+        assertEquals(3, list.size)
+        assertEquals(10000000003, list.fold(0.toLong()) {(a, b) -> a + b})
+    }
+
+    Test fun intHashSet() {
+        val set = IntHashSet()
+        for (i in 0..999) {
+            assertTrue(set.add(i * 7))
+        }
+        assertFalse(set.add(7))
+        assertEquals(1000, set.size)
+        assertTrue(set.contains(6993))
+        assertFalse(set.contains(6994))
+
+        for (i in 0..499) {
+            assertTrue(set.remove(i * 14))
+        }
+        assertFalse(set.remove(0))
+        assertEquals(500, set.size)
+        for (i in 0..999) {
+            assertEquals(i % 2 == 1, set.contains(i * 7))
+        }
+
+        var count = 0
+        for (element in set) {
+            assertTrue(element % 14 == 7)
+            count++
+        }
+        assertEquals(500, count)
+    }
+
+    Test fun longHashSet() {
+        val set = longHashSet(1, 4294967297, -1)
+        assertEquals(3, set.size)
+        assertTrue(set.contains(4294967297))
+        assertFalse(set.contains(2))
+        set.clear()
+        assertTrue(set.isEmpty())
+        assertFalse(set.contains(1))
+    }
+
+    Test fun intIntHashMap() {
+        val map = IntIntHashMap()
+        val random = Random(42)
+        val expected = HashMap<Int, Int>()
+        for (i in 0..9999) {
+            val key = random.nextInt(500)
+            map.increment(key)
+            expected.put(key, (expected.get(key) ?: 0) + 1)
+        }
+        assertEquals(expected.size(), map.size)
+        for (key in 0..499) {
+            assertEquals(expected.get(key) ?: -1, map.get(key, -1))
+        }
+
+        for (key in 0..249) {
+            assertEquals(expected.containsKey(key), map.remove(key))
+            expected.remove(key)
+        }
+        assertEquals(expected.size(), map.size)
+
+        var total = 0
+        map.forEach {(key, value) ->
+            assertEquals(expected.get(key), value)
+            total += value
+        }
+        assertEquals(expected.values().fold(0) {(a, b) -> a + b}, total)
+    }
+}
@@ -0,0 +1,161 @@
+package concurrent
+
+import kotlin.concurrent.*
+import kotlin.test.*
+
+import org.junit.Test as test
+
+import java.util.ArrayList
+import java.util.Collections
+import java.util.HashSet
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit.*
+
+class CollidingKey(val hash: Int, val id: Int) {
+    public fun hashCode(): Int = hash
+
+    public fun equals(other: Any?): Boolean = other is CollidingKey && other.hash == hash && other.id == id
+}
+
+class LockFreeTest {
+    private fun runThreads(count: Int, action: (Int) -> Unit) {
+        val start = CountDownLatch(1)
+        val finished = CountDownLatch(count)
+        for (i in 0..count - 1) {
+            thread {
+                start.await()
+                try {
+                    action(i)
+                } finally {
+                    finished.countDown()
+                }
+            }
+        }
+        start.countDown()
+        assertTrue(finished.await(30, SECONDS), "All threads finished")
+    }
+
+    test fun persistentHashMap() {
+        var map = PersistentHashMap.empty<Int, String>()
+        for (i in 0..999) {
+            map = map.put(i, "v$i")
+        }
+        assertEquals(1000, map.size)
+        assertEquals("v500", map.get(500))
+        assertNull(map.get(1000))
+
+        val updated = map.put(500, "changed").remove(7)
+        assertEquals(999, updated.size)
+        assertEquals("changed", updated.get(500))
+        assertFalse(updated.containsKey(7))
+        // the original map is unchanged
+        assertEquals("v500", map.get(500))
+        assertTrue(map.containsKey(7))
+
+        assertTrue(map.remove(5000) identityEquals map)
+        var emptied = map
+        for (i in 0..999) {
+            emptied = emptied.remove(i)
+        }
+        assertTrue(emptied.empty)
+        assertEquals(1000, map.toMap().size())
+    }
+
+    test fun persistentHashMapWithCollisions() {
+        var map = PersistentHashMap.empty<CollidingKey?, Int>()
+        for (i in 0..99) {
+            map = map.put(CollidingKey(i % 3, i), i)
+        }
+        map = map.put(null, -1)
+        assertEquals(101, map.size)
+        for (i in 0..99) {
+            assertEquals(i, map.get(CollidingKey(i % 3, i)))
+        }
+        assertEquals(-1, map.get(null))
+        for (i in 0..49) {
+            map = map.remove(CollidingKey(i % 3, i))
+        }
+        assertEquals(51, map.size)
+        assertNull(map.get(CollidingKey(0, 0)))
+        assertEquals(99, map.get(CollidingKey(0, 99)))
+    }
+
+    test fun atomicCellUpdatesPersistentMap() {
+        val cell = AtomicCell(PersistentHashMap.empty<Int, Int>())
+        runThreads(8) { (t: Int) ->
+            for (i in 0..499) {
+                cell.update { it.put(t * 1000 + i, i) }
+            }
+        }
+        assertEquals(4000, cell.get().size)
+        assertEquals(499, cell.get().get(7499))
+    }
+
+    test fun atomicCellWithFunctionalQueue() {
+        val cell = AtomicCell(FunctionalQueue<Int>())
+        for (i in 1..5) {
+            cell.update { it.add(i) }
+        }
+        val previous = cell.getAndUpdate { it.removeFirst()._2 }
+        assertEquals(1, previous.removeFirst()._1)
+        assertEquals(1, previous.removeFirst()._1)
+        assertEquals(4, cell.get().size)
+        assertEquals(2, cell.get().removeFirst()._1)
+    }
+
+    test fun lockFreeStack() {
+        val stack = LockFreeStack<Int>()
+        assertNull(stack.pop())
+        stack.push(1)
+        stack.push(2)
+        assertEquals(2, stack.peek())
+        assertEquals(2, stack.pop())
+        assertEquals(1, stack.pop())
+        assertTrue(stack.empty)
+
+        runThreads(8) { (t: Int) ->
+            for (i in 0..999) {
+                stack.push(t * 1000 + i)
+            }
+        }
+        val popped = HashSet<Int>()
+        var element = stack.pop()
+        while (element != null) {
+            popped.add(element!!)
+            element = stack.pop()
+        }
+        assertEquals(8000, popped.size())
+    }
+
+    test fun lockFreeQueue() {
+        val queue = LockFreeQueue<Int>()
+        assertNull(queue.poll())
+        queue.add(1)
+        queue.add(2)
+        assertEquals(1, queue.peek())
+        assertEquals(1, queue.poll())
+        assertEquals(2, queue.poll())
+        assertTrue(queue.empty)
+
+        val consumed = Collections.synchronizedList(ArrayList<Int>()).sure()
+        runThreads(8) { (t: Int) ->
+            if (t % 2 == 0) {
+                for (i in 0..999) {
+                    queue.add(t * 1000 + i)
+                }
+            } else {
+                for (i in 0..999) {
+                    val element = queue.poll()
+                    if (element != null) consumed.add(element)
+                }
+            }
+        }
+        var element = queue.poll()
+        while (element != null) {
+            consumed.add(element!!)
+            element = queue.poll()
+        }
+        assertEquals(4000, consumed.size())
+        assertEquals(4000, HashSet<Int>(consumed).size())
+    }
+}
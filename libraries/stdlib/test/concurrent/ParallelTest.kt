@@ -0,0 +1,154 @@
+package concurrent
+
+import kotlin.concurrent.*
+import kotlin.test.*
+
+import org.junit.Test as test
+
+import java.util.ArrayList
+import java.util.Collections
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class ParallelTest {
+    private fun numbers(count: Int): java.util.List<Int> {
+        val list = ArrayList<Int>(count)
+        for (i in 0..count - 1) {
+            list.add(i)
+        }
+        return list
+    }
+
+    test fun parallelMapKeepsOrder() {
+        val list = numbers(10000)
+        val squares = list.parallelMap(16) { it * 2 }
+        assertEquals(10000, squares.size())
+        for (i in 0..9999) {
+            assertEquals(i * 2, squares.get(i))
+        }
+    }
+
+    test fun parallelFilterKeepsOrder() {
+        val list = numbers(10000)
+        val even = list.parallelFilter(16) { it % 2 == 0 }
+        assertEquals(5000, even.size())
+        for (i in 0..4999) {
+            assertEquals(i * 2, even.get(i))
+        }
+    }
+
+    test fun parallelForEachVisitsEveryElement() {
+        val list = numbers(10000)
+        val sum = AtomicLong()
+        val threads = Collections.synchronizedSet(java.util.HashSet<Thread>()).sure()
+        list.parallelForEach(16) {
+            sum.addAndGet(it.toLong())
+            threads.add(Thread.currentThread())
+        }
+        assertEquals(49995000.toLong(), sum.get())
+        assertTrue(threads.contains(Thread.currentThread()), "The calling thread takes part in the work")
+    }
+
+    test fun parallelFoldWithCombiner() {
+        val list = numbers(10000)
+        val sum = list.parallelFold(0.toLong(), 16, { (acc: Long, x: Int) -> acc + x }, { (a: Long, b: Long) -> a + b })
+        assertEquals(49995000.toLong(), sum)
+
+        val text = numbers(2000).parallelFold("", 16, { (acc: String, x: Int) -> acc + (x % 10) }, { (a: String, b: String) -> a + b })
+        val expected = StringBuilder()
+        for (i in 0..1999) {
+            expected.append(i % 10)
+        }
+        assertEquals(expected.toString(), text)
+    }
+
+    test fun parallelReduce() {
+        assertEquals(9999, numbers(10000).parallelReduce(16) { (a: Int, b: Int) -> Math.max(a, b) })
+        assertEquals(7, arrayList(7).parallelReduce { (a: Int, b: Int) -> a + b })
+        fails {
+            ArrayList<Int>().parallelReduce { (a: Int, b: Int) -> a + b }
+        }
+    }
+
+    test fun parallelSortBy() {
+        val list = ArrayList<Int>(10000)
+        for (i in 0..9999) {
+            list.add((i * 7919) % 10000)
+        }
+        val sorted = list.parallelSortBy(16) { it }
+        assertEquals(numbers(10000), sorted)
+
+        // elements with equal keys keep their original order
+        val positions = IntArray(10000)
+        for (i in 0..9999) {
+            positions[list.get(i)] = i
+        }
+        val byTens = list.parallelSortBy(16) { it / 10 }
+        for (i in 1..9999) {
+            val previous = byTens.get(i - 1)
+            val current = byTens.get(i)
+            assertTrue(previous / 10 < current / 10 || previous / 10 == current / 10 && positions[previous] < positions[current])
+        }
+
+        assertEquals(0, ArrayList<Int>().parallelSortBy { it }.size())
+        assertEquals(arrayList(1, 2, 3), arrayList(3, 1, 2).parallelSortBy { it })
+    }
+
+    test fun smallInputsRunSequentially() {
+        val threads = ArrayList<Thread>()
+        numbers(100).parallelForEach {
+            threads.add(Thread.currentThread())
+        }
+        assertEquals(100, threads.size())
+        for (thread in threads) {
+            assertEquals(Thread.currentThread(), thread)
+        }
+        assertEquals(0, ArrayList<Int>().parallelMap { it }.size())
+    }
+
+    test fun nestedOperations() {
+        val outer = numbers(64)
+        val sums = outer.parallelMap(1) { (i: Int) -> numbers(1000).parallelFold(0, 16, { (acc: Int, x: Int) -> acc + x + i }, { (a: Int, b: Int) -> a + b }) }
+        for (i in 0..63) {
+            assertEquals(499500 + 1000 * i, sums.get(i))
+        }
+    }
+
+    test fun exceptionsArePropagated() {
+        fails {
+            numbers(10000).parallelForEach(16) {
+                if (it == 9000) throw IllegalStateException("expected")
+            }
+        }
+    }
+
+    test fun primitiveArrays() {
+        val ints = IntArray(5000)
+        for (i in 0..4999) ints[i] = i
+        val doubled = ints.parallelMap(16) { it * 2 }
+        assertEquals(9998, doubled[4999])
+        assertEquals(24995000.toLong(), ints.parallelFold(0.toLong(), 16, { (acc: Long, x: Int) -> acc + x }, { (a: Long, b: Long) -> a + b }))
+
+        val longs = LongArray(5000)
+        for (i in 0..4999) longs[i] = i.toLong()
+        val counter = AtomicInteger()
+        longs.parallelForEach(16) { counter.incrementAndGet() }
+        assertEquals(5000, counter.get())
+        assertEquals(4999.toLong() * 3, longs.parallelMap(16) { it * 3 }[4999])
+
+        val doubles = DoubleArray(5000)
+        for (i in 0..4999) doubles[i] = 0.5
+        assertEquals(2500.0, doubles.parallelFold(0.0, 16, { (acc: Double, x: Double) -> acc + x }, { (a: Double, b: Double) -> a + b }))
+    }
+
+    test fun ranges() {
+        val sum = AtomicLong()
+        (1..10000).parallelForEach(16) { sum.addAndGet(it.toLong()) }
+        assertEquals(50005000.toLong(), sum.get())
+
+        val reversed = IntRange(10, -5000)
+        assertEquals(10, reversed.parallelFold(Integer.MIN_VALUE, 16, { (acc: Int, x: Int) -> Math.max(acc, x) }, { (a: Int, b: Int) -> Math.max(a, b) }))
+        assertEquals(-4989, reversed.parallelFold(Integer.MAX_VALUE, 16, { (acc: Int, x: Int) -> Math.min(acc, x) }, { (a: Int, b: Int) -> Math.min(a, b) }))
+        assertEquals(5000, reversed.parallelFold(0, 16, { (acc: Int, x: Int) -> acc + 1 }, { (a: Int, b: Int) -> a + b }))
+    }
+}
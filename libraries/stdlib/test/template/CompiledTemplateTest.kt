@@ -0,0 +1,52 @@
+package test.template
+
+import kotlin.template.*
+import kotlin.test.*
+
+import junit.framework.TestCase
+
+class CompiledTemplateTest : TestCase() {
+    fun greeting(name : Any?) : StringTemplate = StringTemplate(array("hello ", name, "!"))
+
+    fun compiled(template : StringTemplate) : CompiledTemplate {
+        assertTrue(template is CompiledStringTemplate, "template with constant parts should be compiled")
+        return (template as CompiledStringTemplate).compiled
+    }
+
+    fun testConstantStructure() : Unit {
+        val structure = compiled(greeting("James"))
+        assertEquals(2, structure.constants.size)
+        assertEquals(1, structure.expressionCount)
+        assertEquals(7, structure.constantLength)
+        assertEquals("hello ?!", structure.placeholderText)
+    }
+
+    fun testStructureSharedByCallSite() : Unit {
+        assertTrue(compiled(greeting("James")) identityEquals compiled(greeting("Andrey")))
+        assertFalse(compiled(greeting("James")) identityEquals compiled(StringTemplate(array("hello ", "James", "!"))))
+    }
+
+    fun testValuesKept() : Unit {
+        val values = greeting("James").values
+        assertEquals(3, values.size)
+        assertEquals("hello ", values[0])
+        assertEquals("James", values[1])
+        assertEquals("!", values[2])
+    }
+
+    fun testNonConstantPartsNotCompiled() : Unit {
+        val prefix = greeting("James").toString()
+        assertFalse(StringTemplate(array(prefix, 1)) is CompiledStringTemplate)
+        assertEquals("hello James!1", StringTemplate(array(prefix, 1)).toString(ToStringFormatter()))
+    }
+
+    fun testCompiledRendering() : Unit {
+        val formatter = ToStringFormatter()
+        assertEquals("hello James!", greeting("James").toString(formatter))
+        assertEquals("hello Andrey!", compiled(greeting("James")).toString(formatter, greeting("Andrey").values))
+
+        val out = StringBuilder("> ")
+        greeting(null).append(out, formatter)
+        assertEquals("> hello null!", out.toString())
+    }
+}
@@ -0,0 +1,29 @@
+package test.template
+
+import kotlin.template.*
+import kotlin.test.*
+
+import junit.framework.TestCase
+
+class TemplateFormatterTest : TestCase() {
+    fun greeting(name : Any?) : StringTemplate = StringTemplate(array("hello ", name, "!"))
+
+    fun testRendering() : Unit {
+        val formatter = ToStringFormatter()
+        assertEquals("hello James!", greeting("James").toString(formatter))
+        assertEquals("hello null!", greeting(null).toString(formatter))
+        assertEquals("hello <hello James!>!", greeting(StringTemplate(array("<", greeting("James"), ">"))).toString(formatter))
+
+        val out = StringBuilder("> ")
+        greeting("Andrey").append(out, formatter)
+        assertEquals("> hello Andrey!", out.toString())
+
+        assertEquals("a = 1", StringTemplate(array("a = ", 1)).toString(formatter))
+    }
+
+    fun testHtmlEscaping() : Unit {
+        assertEquals("hello &lt;b&gt;Tom &amp; &quot;Jerry&quot;&lt;/b&gt;!", greeting("<b>Tom & \"Jerry\"</b>").toHtml())
+        assertEquals("hello plain text!", greeting("plain text").toHtml())
+        assertEquals("hello &amp;!", greeting("&").toHtml())
+    }
+}
@@ -106,6 +106,18 @@ public final class CharRange implements Range<Character>, CharIterable {
             return new CharIteratorImpl(start, count, step);
     }
 
+    /**
+     * @return the elements of this range taken with the given step, in the same order as {@link #step(int)},
+     * as a progression which can be iterated and checked for membership without boxing
+     */
+    public CharProgression progression(int step) {
+        if (count == 0) {
+            return new CharProgression((char) 1, (char) 0, 1);
+        }
+        int increment = count < 0 ? -step : step;
+        return step < 0 ? new CharProgression(getEnd(), start, increment) : new CharProgression(start, getEnd(), increment);
+    }
+
     @Override
     public CharIterator iterator() {
         return new CharIteratorImpl(start, count, 1);
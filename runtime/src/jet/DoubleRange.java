@@ -52,6 +52,13 @@ public final class DoubleRange implements Range<Double> {
         return item <= start && item > start + size;
     }
 
+    public boolean contains(double item) {
+        if (size >= 0) {
+            return item >= start && item < start + size;
+        }
+        return item <= start && item > start + size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jet;
+
+import org.jetbrains.jet.rt.annotation.AssertInvisibleInResolver;
+
+/**
+ * Progression of int values from start towards end with the given non-zero increment.
+ * Iteration and membership checks do not box.
+ */
+@AssertInvisibleInResolver
+public final class IntProgression implements IntIterable {
+    private final int start;
+    private final int end;
+    private final int increment;
+    private final int last;
+
+    public IntProgression(int start, int end, int increment) {
+        if (increment == 0) {
+            throw new IllegalArgumentException("Increment must be non-zero");
+        }
+        if (increment == Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("Increment must be greater than Integer.MIN_VALUE");
+        }
+        this.start = start;
+        this.end = end;
+        this.increment = increment;
+        this.last = computeLast(start, end, increment);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getIncrement() {
+        return increment;
+    }
+
+    /**
+     * @return the last element of a non-empty progression: end or the closest element before it
+     */
+    public int getLast() {
+        return last;
+    }
+
+    public boolean isEmpty() {
+        return increment > 0 ? start > end : start < end;
+    }
+
+    public boolean contains(int item) {
+        if (isEmpty()) return false;
+        if (increment > 0 ? item < start || item > last : item > start || item < last) return false;
+        return ((long) item - start) % increment == 0;
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new IntProgressionIterator(start, last, increment, !isEmpty());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        IntProgression progression = (IntProgression) o;
+        return start == progression.start && end == progression.end && increment == progression.increment;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = start;
+        result = 31 * result + end;
+        result = 31 * result + increment;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return start + ".rangeTo(" + end + ").step(" + increment + ")";
+    }
+
+    private static int computeLast(int start, int end, int increment) {
+        if (increment > 0 ? start > end : start < end) {
+            return end;
+        }
+        long distance = Math.abs((long) end - start);
+        return (int) (end - (increment > 0 ? 1 : -1) * (distance % Math.abs((long) increment)));
+    }
+
+    private static class IntProgressionIterator extends IntIterator {
+        private int next;
+        private final int last;
+        private final int increment;
+        private boolean hasNext;
+
+        public IntProgressionIterator(int start, int last, int increment, boolean hasNext) {
+            this.next = start;
+            this.last = last;
+            this.increment = increment;
+            this.hasNext = hasNext;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int nextInt() {
+            int result = next;
+            hasNext = result != last;
+            next += increment;
+            return result;
+        }
+    }
+}
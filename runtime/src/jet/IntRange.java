@@ -86,6 +86,18 @@ public final class IntRange implements Range<Integer>, IntIterable {
             return new IntIteratorImpl(start, count, step);
     }
 
+    /**
+     * @return the elements of this range taken with the given step, in the same order as {@link #step(int)},
+     * as a progression which can be iterated and checked for membership without boxing
+     */
+    public IntProgression progression(int step) {
+        if (count == 0) {
+            return new IntProgression(1, 0, 1);
+        }
+        int increment = count < 0 ? -step : step;
+        return step < 0 ? new IntProgression(getEnd(), start, increment) : new IntProgression(start, getEnd(), increment);
+    }
+
     public boolean getIsReversed() {
         return count < 0;
     }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jet;
+
+import org.jetbrains.jet.rt.annotation.AssertInvisibleInResolver;
+
+/**
+ * Progression of long values from start towards end with the given non-zero increment.
+ * Iteration and membership checks do not box.
+ */
+@AssertInvisibleInResolver
+public final class LongProgression implements LongIterable {
+    private final long start;
+    private final long end;
+    private final long increment;
+    private final long last;
+
+    public LongProgression(long start, long end, long increment) {
+        if (increment == 0) {
+            throw new IllegalArgumentException("Increment must be non-zero");
+        }
+        if (increment == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Increment must be greater than Long.MIN_VALUE");
+        }
+        this.start = start;
+        this.end = end;
+        this.increment = increment;
+        this.last = computeLast(start, end, increment);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getIncrement() {
+        return increment;
+    }
+
+    /**
+     * @return the last element of a non-empty progression: end or the closest element before it
+     */
+    public long getLast() {
+        return last;
+    }
+
+    public boolean isEmpty() {
+        return increment > 0 ? start > end : start < end;
+    }
+
+    public boolean contains(long item) {
+        if (isEmpty()) return false;
+        if (increment > 0 ? item < start || item > last : item > start || item < last) return false;
+        return differenceModulo(item, start, Math.abs(increment)) == 0;
+    }
+
+    @Override
+    public LongIterator iterator() {
+        return new LongProgressionIterator(start, last, increment, !isEmpty());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        LongProgression progression = (LongProgression) o;
+        return start == progression.start && end == progression.end && increment == progression.increment;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (start ^ (start >>> 32));
+        result = 31 * result + (int) (end ^ (end >>> 32));
+        result = 31 * result + (int) (increment ^ (increment >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return start + ".rangeTo(" + end + ").step(" + increment + ")";
+    }
+
+    private static long computeLast(long start, long end, long increment) {
+        if (increment > 0 ? start > end : start < end) {
+            return end;
+        }
+        return increment > 0 ? end - differenceModulo(end, start, increment) : end + differenceModulo(start, end, -increment);
+    }
+
+    // (a - b) mod c for a positive c, without overflowing on the subtraction
+    private static long differenceModulo(long a, long b, long c) {
+        return mod(mod(a, c) - mod(b, c), c);
+    }
+
+    private static long mod(long a, long c) {
+        long result = a % c;
+        return result >= 0 ? result : result + c;
+    }
+
+    private static class LongProgressionIterator extends LongIterator {
+        private long next;
+        private final long last;
+        private final long increment;
+        private boolean hasNext;
+
+        public LongProgressionIterator(long start, long last, long increment, boolean hasNext) {
+            this.next = start;
+            this.last = last;
+            this.increment = increment;
+            this.hasNext = hasNext;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public long nextLong() {
+            long result = next;
+            hasNext = result != last;
+            next += increment;
+            return result;
+        }
+    }
+}
@@ -51,6 +51,18 @@ public final class LongRange implements Range<Long>, LongIterable {
             return new LongIteratorImpl(start, count, step);
     }
 
+    /**
+     * @return the elements of this range taken with the given step, in the same order as {@link #step(long)},
+     * as a progression which can be iterated and checked for membership without boxing
+     */
+    public LongProgression progression(long step) {
+        if (count == 0) {
+            return new LongProgression(1L, 0L, 1);
+        }
+        long increment = count < 0 ? -step : step;
+        return step < 0 ? new LongProgression(getEnd(), start, increment) : new LongProgression(start, getEnd(), increment);
+    }
+
     @Override
     public boolean contains(Long item) {
         if (item == null) return false;